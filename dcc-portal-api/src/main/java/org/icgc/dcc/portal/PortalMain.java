@@ -42,6 +42,7 @@ import org.icgc.dcc.portal.config.PortalProperties;
 import org.icgc.dcc.portal.filter.CachingFilter;
 import org.icgc.dcc.portal.filter.CrossOriginFilter;
 import org.icgc.dcc.portal.filter.DownloadFilter;
+import org.icgc.dcc.portal.filter.ResponseCacheFilter;
 import org.icgc.dcc.portal.filter.VersionFilter;
 import org.icgc.dcc.portal.spring.SpringService;
 import org.icgc.dcc.portal.util.VersionUtils;
@@ -90,12 +91,14 @@ public class PortalMain extends SpringService<PortalProperties> {
     environment.setJerseyProperty(PROPERTY_CONTAINER_REQUEST_FILTERS,
         list(LoggingFilter.class.getName(),
             DownloadFilter.class.getName(),
-            CachingFilter.class.getName()));
+            CachingFilter.class.getName(),
+            ResponseCacheFilter.class.getName()));
     environment.setJerseyProperty(PROPERTY_CONTAINER_RESPONSE_FILTERS,
         list(LoggingFilter.class.getName(),
             VersionFilter.class.getName(),
             CrossOriginFilter.class.getName(),
-            CachingFilter.class.getName()));
+            CachingFilter.class.getName(),
+            ResponseCacheFilter.class.getName()));
 
     removeDwExceptionMapper(environment, LoggingExceptionMapper.class);
 
@@ -28,7 +28,6 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.val;
 
-import org.apache.commons.math3.distribution.HypergeometricDistribution;
 import org.icgc.dcc.portal.model.EnrichmentAnalysis.Result;
 
 import com.google.common.collect.Lists;
@@ -41,11 +40,12 @@ public final class EnrichmentAnalyses {
     return k * ((double) m / n);
   }
 
+  /**
+   * One-off p-value. Use a shared {@link HypergeometricPValueCalculator} when testing many gene sets of the same
+   * analysis.
+   */
   public static double calculateGeneCountPValue(int q, int k, int m, int n) {
-    val distribution = new HypergeometricDistribution(n, m, k);
-    val pValue = 1.0 - min(1.0, distribution.cumulativeProbability(q - 1)); // min is needed to prevent negatives
-
-    return pValue;
+    return new HypergeometricPValueCalculator(n, k).calculate(q, m);
   }
 
   public static List<Result> adjustRawGeneSetResults(double fdr, @NonNull List<Result> rawResults) {
@@ -18,26 +18,32 @@
 package org.icgc.dcc.portal.analysis;
 
 import static com.google.common.base.Stopwatch.createStarted;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static java.util.stream.Collectors.toList;
 import static org.icgc.dcc.common.core.util.FormatUtils.formatCount;
 import static org.icgc.dcc.portal.analysis.EnrichmentAnalyses.adjustRawGeneSetResults;
 import static org.icgc.dcc.portal.analysis.EnrichmentAnalyses.calculateExpectedGeneCount;
-import static org.icgc.dcc.portal.analysis.EnrichmentAnalyses.calculateGeneCountPValue;
 import static org.icgc.dcc.portal.analysis.EnrichmentQueries.geneSetOverlapQuery;
 import static org.icgc.dcc.portal.analysis.EnrichmentQueries.overlapQuery;
-import static org.icgc.dcc.portal.analysis.EnrichmentSearchResponses.getUniverseTermsAggregation;
+import static org.icgc.dcc.portal.analysis.EnrichmentSearchResponses.getCounts;
+import static org.icgc.dcc.portal.config.JobConfig.ENRICHMENT_EXECUTOR;
+import static org.icgc.dcc.portal.config.JobConfig.ENRICHMENT_POST_PROCESSING_EXECUTOR;
 import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.ANALYZING;
 import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.ERROR;
 import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.FINISHED;
 import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.POST_PROCESSING;
 import static org.icgc.dcc.portal.model.Query.idField;
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.TermLookupType.GENE_IDS;
-import static org.icgc.dcc.portal.util.Aggregations.getTermsCounts;
 import static org.icgc.dcc.portal.util.SearchResponses.getHitIds;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.icgc.dcc.portal.config.PortalProperties.EnrichmentProperties;
 import org.icgc.dcc.portal.model.EnrichmentAnalysis.Overview;
 import org.icgc.dcc.portal.model.EnrichmentAnalysis.Result;
 import org.icgc.dcc.portal.model.Query;
@@ -49,14 +55,16 @@ import org.icgc.dcc.portal.repository.GeneSetRepository;
 import org.icgc.dcc.portal.repository.MutationRepository;
 import org.icgc.dcc.portal.repository.TermsLookupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
@@ -68,7 +76,6 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class EnrichmentAnalyzer {
 
   /**
@@ -91,13 +98,41 @@ public class EnrichmentAnalyzer {
   private final DonorRepository donorRepository;
   @NonNull
   private final MutationRepository mutationRepository;
+  @NonNull
+  private final GeneSetMembership geneSetMembership;
+  @NonNull
+  private final ExecutorService postProcessingExecutor;
+
+  /**
+   * Configuration.
+   */
+  @NonNull
+  private final EnrichmentProperties enrichment;
+
+  @Autowired
+  public EnrichmentAnalyzer(@NonNull TermsLookupRepository termsLookupRepository,
+      @NonNull EnrichmentAnalysisRepository analysisRepository, @NonNull GeneRepository geneRepository,
+      @NonNull GeneSetRepository geneSetRepository, @NonNull DonorRepository donorRepository,
+      @NonNull MutationRepository mutationRepository, @NonNull GeneSetMembership geneSetMembership,
+      @NonNull @Qualifier(ENRICHMENT_POST_PROCESSING_EXECUTOR) ExecutorService postProcessingExecutor,
+      @NonNull EnrichmentProperties enrichment) {
+    this.termsLookupRepository = termsLookupRepository;
+    this.analysisRepository = analysisRepository;
+    this.geneRepository = geneRepository;
+    this.geneSetRepository = geneSetRepository;
+    this.donorRepository = donorRepository;
+    this.mutationRepository = mutationRepository;
+    this.geneSetMembership = geneSetMembership;
+    this.postProcessingExecutor = postProcessingExecutor;
+    this.enrichment = enrichment;
+  }
 
   /**
    * This method runs asynchronously to perform enrichment analysis.
    * 
    * @param analysis the definition
    */
-  @Async
+  @Async(ENRICHMENT_EXECUTOR)
   @SneakyThrows
   public void analyze(@NonNull UUID analysisId) {
     val watch = createStarted();
@@ -138,16 +173,17 @@ public class EnrichmentAnalyzer {
           new Object[] { analysisId, formatCount(inputGeneList.size()), watch });
       indexInputGeneList(inputGeneListId, inputGeneList);
 
+      // Determine the genes of the input gene list that are in the universe
+      log.info("[{}] Finding overlap gene list @ {}...", analysisId, watch);
+      val overlapGeneList = findOverlapGeneList(query, universe, inputGeneListId, params.getMaxGeneCount());
+
       // Get all gene-set gene counts of the input query
       log.info("[{}] Calculating overlap gene set counts @ {}...", analysisId, watch);
-      val overlapGeneSetCounts = findOverlapGeneSetCounts(
-          query,
-          universe,
-          inputGeneListId);
+      val overlapGeneSetCounts = findOverlapGeneSetCounts(universe, overlapGeneList);
 
       // Overview section
       log.info("[{}]Calculating overview @ {}...", analysisId, watch);
-      val overview = analyzeOverview(query, universe, inputGeneListId);
+      val overview = analyzeOverview(universe, overlapGeneList.size());
 
       log.info("[{}] Finsined gene set gene counts @ {}...", analysisId, watch);
       val geneSetGeneCounts = findGeneSetGeneCounts(overlapGeneSetCounts.keySet());
@@ -155,9 +191,7 @@ public class EnrichmentAnalyzer {
       // Perform gene-set specific calculations
       log.info("[{}] Calculating raw gene set results @ {}...", analysisId, watch);
       val rawResults = analyzeGeneSetResults(
-          query,
           universe,
-          inputGeneListId,
 
           geneSetGeneCounts,
           overlapGeneSetCounts,
@@ -214,24 +248,19 @@ public class EnrichmentAnalyzer {
     }
   }
 
-  private Overview analyzeOverview(Query query, Universe universe, UUID inputGeneListId) {
+  private Overview analyzeOverview(Universe universe, int overlapGeneCount) {
     return new Overview()
-        .setOverlapGeneCount(countGenes(overlapQuery(query, universe, inputGeneListId)))
+        .setOverlapGeneCount(overlapGeneCount)
         .setUniverseGeneCount(countUniverseGenes(universe))
         .setUniverseGeneSetCount(countUniverseGeneSets(universe));
   }
 
-  private List<Result> analyzeGeneSetResults(Query query, Universe universe, UUID inputGeneListId,
-      Map<String, Integer> geneSetGeneCounts, Map<String, Long> overlapGeneSetGeneCounts, int overlapGeneCount,
-      int universeGeneCount) {
-    val results = Lists.<Result> newArrayList();
-    int i = 0;
-    for (val entry : overlapGeneSetGeneCounts.entrySet()) {
-      val geneSetId = entry.getKey();
+  private List<Result> analyzeGeneSetResults(Universe universe, Map<String, Integer> geneSetGeneCounts,
+      Map<String, Long> overlapGeneSetGeneCounts, int overlapGeneCount, int universeGeneCount) {
+    val geneSetIds = Lists.<String> newArrayList();
+    for (val geneSetId : overlapGeneSetGeneCounts.keySet()) {
       val geneSetGeneCount = geneSetGeneCounts.get(geneSetId);
-      Long geneSetOverlapGeneCount = entry.getValue();
 
-      log.info("[{}/{}] Processing {}", new Object[] { i++, overlapGeneSetGeneCounts.size(), geneSetId });
       if (geneSetId.equals(universe.getGeneSetId())) {
         // T6: Skip universe as this will trivially be most enriched by definition
         log.info("Skipping universe gene set: {}", geneSetId);
@@ -245,34 +274,40 @@ public class EnrichmentAnalyzer {
         continue;
       }
 
-      val result = analyzeGeneSetResult(
-          query,
-          universe,
-          inputGeneListId,
-          geneSetId,
-
-          // Formula inputs
-          geneSetGeneCount,
-          geneSetOverlapGeneCount,
-          overlapGeneCount,
-          universeGeneCount);
+      geneSetIds.add(geneSetId);
+    }
 
-      // Add result for the current gene-set
-      results.add(result);
+    if (geneSetIds.isEmpty()) {
+      return Lists.newArrayList();
     }
 
-    return results;
+    // All gene sets are tested against the same universe and overlap, so they share one calculator
+    val pValueCalculator = new HypergeometricPValueCalculator(universeGeneCount, overlapGeneCount);
+
+    log.info("Processing {} gene sets...", geneSetIds.size());
+    return geneSetIds.parallelStream()
+        .map(geneSetId -> analyzeGeneSetResult(
+            pValueCalculator,
+            geneSetId,
+
+            // Formula inputs
+            geneSetGeneCounts.get(geneSetId),
+            overlapGeneSetGeneCounts.get(geneSetId)))
+        .collect(toList());
   }
 
-  private Result analyzeGeneSetResult(Query query, Universe universe, UUID inputGeneListId, String geneSetId,
-      int geneSetGeneCount, Long geneSetOverlapGeneCount, int overlapGeneCount, int universeGeneCount) {
+  private static Result analyzeGeneSetResult(HypergeometricPValueCalculator pValueCalculator, String geneSetId,
+      int geneSetGeneCount, long geneSetOverlapGeneCount) {
+    val overlapGeneCount = pValueCalculator.getK();
+    val universeGeneCount = pValueCalculator.getN();
+
     // Statistics
     val expectedGeneCount = calculateExpectedGeneCount(
         overlapGeneCount,
         geneSetGeneCount, universeGeneCount);
-    val pValue = calculateGeneCountPValue(
-        geneSetOverlapGeneCount.intValue(), overlapGeneCount, // The "four numbers"
-        geneSetGeneCount, universeGeneCount);
+    val pValue = pValueCalculator.calculate(
+        (int) geneSetOverlapGeneCount, // The "four numbers"
+        geneSetGeneCount);
 
     log.debug("q = {}, k = {}, m = {}, n = {}, pValue = {}",
         new Object[] { geneSetOverlapGeneCount, overlapGeneCount, geneSetGeneCount, universeGeneCount, pValue });
@@ -282,7 +317,7 @@ public class EnrichmentAnalyzer {
         .setGeneSetId(geneSetId)
 
         .setGeneCount(geneSetGeneCount)
-        .setOverlapGeneSetGeneCount(geneSetOverlapGeneCount.intValue())
+        .setOverlapGeneSetGeneCount((int) geneSetOverlapGeneCount)
 
         .setExpectedValue(expectedGeneCount)
         .setPValue(pValue);
@@ -303,18 +338,47 @@ public class EnrichmentAnalyzer {
     }
   }
 
-  private void postProcessGeneSetResults(Query query, Universe universe, UUID inputGeneListId, List<Result> results) {
-    for (int i = 0; i < results.size(); i++) {
-      val geneSetResult = results.get(i);
-      val geneSetId = geneSetResult.getGeneSetId();
+  /**
+   * Fetches the donor and mutation overlap counts of the gene set results. The results are split into batches, each
+   * of which is counted with one multi search per entity type on the post-processing pool shared by all analyses.
+   * <p>
+   * If the pool is saturated, the {@link java.util.concurrent.RejectedExecutionException} of a batch is rethrown after
+   * the counts of the batches already submitted have been cancelled, which fails the analysis.
+   */
+  void postProcessGeneSetResults(Query query, Universe universe, UUID inputGeneListId, List<Result> results) {
+    val batches = Lists.partition(results, enrichment.getPostProcessingBatchSize());
+    if (batches.isEmpty()) {
+      return;
+    }
 
-      log.debug("[{}/{}] Post-processing {}", new Object[] { i + 1, results.size(), geneSetId });
-      val geneSetOverlapQuery = geneSetOverlapQuery(query, universe, inputGeneListId, geneSetId);
+    val futures = Lists.<Future<?>> newArrayList();
+    try {
+      for (val batch : batches) {
+        val geneSetOverlapQueries = Maps.<String, Query> newLinkedHashMap();
+        for (val geneSetResult : batch) {
+          val geneSetId = geneSetResult.getGeneSetId();
+          geneSetOverlapQueries.put(geneSetId, geneSetOverlapQuery(query, universe, inputGeneListId, geneSetId));
+        }
+
+        futures.add(postProcessingExecutor.submit(() -> {
+          final Map<String, Integer> donorCounts = countDonors(geneSetOverlapQueries);
+          batch.forEach(result -> result.setOverlapGeneSetDonorCount(donorCounts.get(result.getGeneSetId())));
+        }));
+        futures.add(postProcessingExecutor.submit(() -> {
+          final Map<String, Integer> mutationCounts = countMutations(geneSetOverlapQueries);
+          batch.forEach(result -> result.setOverlapGeneSetMutationCount(mutationCounts.get(result.getGeneSetId())));
+        }));
+      }
 
-      // Update
-      geneSetResult
-          .setOverlapGeneSetDonorCount(countDonors(geneSetOverlapQuery))
-          .setOverlapGeneSetMutationCount(countMutations(geneSetOverlapQuery));
+      for (int i = 0; i < futures.size(); i++) {
+        log.debug("[{}/{}] Waiting for post-processing counts", i + 1, futures.size());
+        getUnchecked(futures.get(i));
+      }
+    } finally {
+      // Release the shared threads of counts no longer needed after a failure
+      for (val future : futures) {
+        future.cancel(true);
+      }
     }
   }
 
@@ -323,9 +387,20 @@ public class EnrichmentAnalyzer {
    */
 
   private List<String> findInputGeneList(Query query, int maxGeneCount) {
+    return findGeneList(query, query.getFilters(), maxGeneCount);
+  }
+
+  private List<String> findOverlapGeneList(Query query, Universe universe, UUID inputGeneListId, int maxGeneCount) {
+    // The overlap is a subset of the input gene list, so the same limit returns all of it
+    val overlapQuery = overlapQuery(query, universe, inputGeneListId);
+
+    return findGeneList(query, overlapQuery.getFilters(), maxGeneCount);
+  }
+
+  private List<String> findGeneList(Query query, ObjectNode filters, int maxGeneCount) {
     val limitedGeneQuery = Query.builder()
         .fields(idField())
-        .filters(query.getFilters())
+        .filters(filters)
         .sort(query.getSort())
         .order(query.getOrder().toString())
 
@@ -338,31 +413,23 @@ public class EnrichmentAnalyzer {
   }
 
   private Map<String, Integer> findGeneSetGeneCounts(Iterable<String> geneSetIds) {
-    return geneSetRepository.countGenes(geneSetIds);
+    return geneSetMembership.countGenes(geneSetIds);
   }
 
-  private Map<String, Long> findOverlapGeneSetCounts(Query query, Universe universe, UUID inputGeneListId) {
-    val overlapQuery = overlapQuery(query, universe, inputGeneListId);
-    val response = geneRepository.findGeneSetCounts(overlapQuery);
-    val geneSetAggs = getUniverseTermsAggregation(response, universe);
-
-    return getTermsCounts(geneSetAggs);
+  private Map<String, Long> findOverlapGeneSetCounts(Universe universe, List<String> overlapGeneList) {
+    return geneSetMembership.countOverlaps(universe, overlapGeneList);
   }
 
   private Map<String, String> findGeneSetNames(Iterable<String> geneSetIds) {
     return geneSetRepository.findName(geneSetIds);
   }
 
-  private int countGenes(Query query) {
-    return (int) geneRepository.count(query);
-  }
-
-  private int countDonors(Query query) {
-    return (int) donorRepository.count(query);
+  private Map<String, Integer> countDonors(LinkedHashMap<String, Query> queries) {
+    return getCounts(queries.keySet(), donorRepository.counts(queries));
   }
 
-  private int countMutations(Query query) {
-    return (int) mutationRepository.count(query);
+  private Map<String, Integer> countMutations(LinkedHashMap<String, Query> queries) {
+    return getCounts(queries.keySet(), mutationRepository.counts(queries));
   }
 
   private int countGeneSetGenes(String geneSetId) {
@@ -17,12 +17,15 @@
  */
 package org.icgc.dcc.portal.analysis;
 
+import static com.google.common.base.Preconditions.checkState;
 import static lombok.AccessLevel.PRIVATE;
 
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import java.util.Map;
+
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.search.facet.Facet;
-import org.icgc.dcc.portal.model.Universe;
+
+import com.google.common.collect.Maps;
 
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
@@ -34,11 +37,21 @@ import lombok.val;
 @NoArgsConstructor(access = PRIVATE)
 public class EnrichmentSearchResponses {
 
-  public static Terms getUniverseTermsAggregation(@NonNull SearchResponse response, @NonNull Universe universe) {
-    val aggs = response.getAggregations();
-    val agg = aggs.get(universe.getGeneSetFacetName());
+  /**
+   * Returns the total hits of each search in {@code response}, keyed by {@code keys} in the order the searches were
+   * added.
+   */
+  public static Map<String, Integer> getCounts(@NonNull Iterable<String> keys, @NonNull MultiSearchResponse response) {
+    val counts = Maps.<String, Integer> newHashMap();
+    val iterator = keys.iterator();
+    for (val item : response.getResponses()) {
+      val key = iterator.next();
+      checkState(!item.isFailure(), "Count search for '%s' failed: %s", key, item.getFailureMessage());
+
+      counts.put(key, (int) item.getResponse().getHits().getTotalHits());
+    }
 
-    return (Terms) agg;
+    return counts;
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Interns entity ids to dense, zero-based ints so that sets of them can be stored as bitmaps.
+ */
+class EntityIdDictionary {
+
+  private final Map<String, Integer> indexes = Maps.newHashMap();
+  private final List<String> ids = Lists.newArrayList();
+
+  synchronized int intern(@NonNull String id) {
+    val index = indexes.get(id);
+    if (null != index) {
+      return index;
+    }
+
+    val next = ids.size();
+    indexes.put(id, next);
+    ids.add(id);
+
+    return next;
+  }
+
+  /**
+   * @return the index of {@code id}, or {@code null} if it was never interned
+   */
+  synchronized Integer find(@NonNull String id) {
+    return indexes.get(id);
+  }
+
+  synchronized int size() {
+    return ids.size();
+  }
+
+  synchronized String get(int index) {
+    checkElementIndex(index, ids.size());
+
+    return ids.get(index);
+  }
+
+}
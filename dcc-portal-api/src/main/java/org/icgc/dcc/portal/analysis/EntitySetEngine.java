@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static java.lang.Boolean.TRUE;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.portal.model.EntitySet.State.FINISHED;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.icgc.dcc.portal.model.BaseEntitySet;
+import org.icgc.dcc.portal.model.UnionUnit;
+import org.icgc.dcc.portal.repository.EntityListRepository;
+import org.icgc.dcc.portal.repository.TermsLookupRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process evaluation of entity set operations.
+ * <p>
+ * Entity ids are interned to dense ints per entity type and every base set is materialized from Elasticsearch once
+ * into a compressed bitmap. Intersections, exclusions and unions of {@link UnionUnit}s are then evaluated in memory.
+ * Only sets which have finished being built are kept. Materialized sets are only valid for the release they were read
+ * from and are discarded by {@link #clearCache()}, or once the dictionaries have grown too large.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired) )
+public class EntitySetEngine {
+
+  /**
+   * Constants.
+   */
+  private static final int MAX_CACHED_SETS = 1000;
+  private static final int CACHE_TTL_HOURS = 1;
+  private static final int MAX_DICTIONARY_SIZE = 1000000;
+  private static final int MAX_FINISHED_SET_IDS = 100000;
+
+  /**
+   * Dependencies.
+   */
+  @NonNull
+  private final TermsLookupRepository termsLookupRepository;
+  @NonNull
+  private final EntityListRepository entityListRepository;
+
+  /**
+   * State.
+   */
+  private volatile Generation generation = new Generation();
+
+  /**
+   * Sets known to be finished. Finished is a terminal state, so unlike the members of a set it does not depend on the
+   * release and is kept across generations.
+   */
+  private final Cache<UUID, Boolean> finishedSetIds = CacheBuilder.newBuilder()
+      .maximumSize(MAX_FINISHED_SET_IDS)
+      .build();
+
+  public long count(@NonNull UnionUnit definition, @NonNull BaseEntitySet.Type entityType) {
+    return evaluate(generation, definition, entityType).getCardinality();
+  }
+
+  public EntitySetMembers union(@NonNull Iterable<UnionUnit> definitions, @NonNull BaseEntitySet.Type entityType) {
+    val current = generation;
+    val result = new RoaringBitmap();
+
+    for (val definition : definitions) {
+      result.or(evaluate(current, definition, entityType));
+    }
+
+    return new EntitySetMembers(result, current.getDictionary(entityType));
+  }
+
+  public void clearCache() {
+    log.info("Clearing entity set cache.");
+    generation = new Generation();
+  }
+
+  /**
+   * Starts a new generation unless {@code retired} has already been replaced. Evaluations holding on to
+   * {@code retired} complete against it.
+   */
+  private synchronized void retire(Generation retired) {
+    if (generation == retired) {
+      log.info("Entity id dictionaries exceeded {} ids. Clearing entity set cache.", MAX_DICTIONARY_SIZE);
+      generation = new Generation();
+    }
+  }
+
+  private RoaringBitmap evaluate(Generation current, UnionUnit definition, BaseEntitySet.Type entityType) {
+    val intersection = ImmutableList.copyOf(current.getSets(definition.getIntersection(), entityType));
+    if (intersection.isEmpty()) {
+      return new RoaringBitmap();
+    }
+
+    // Intersect the smallest sets first to keep the intermediate results small.
+    val sorted = intersection.stream()
+        .sorted(Comparator.comparingInt(RoaringBitmap::getCardinality))
+        .iterator();
+
+    // Cached bitmaps are shared, so the first one is copied before being narrowed down.
+    val result = sorted.next().clone();
+    while (sorted.hasNext() && !result.isEmpty()) {
+      result.and(sorted.next());
+    }
+
+    for (val exclusion : current.getSets(definition.getExclusions(), entityType)) {
+      if (result.isEmpty()) {
+        break;
+      }
+
+      result.andNot(exclusion);
+    }
+
+    return result;
+  }
+
+  private boolean isFinished(UUID setId) {
+    if (finishedSetIds.getIfPresent(setId) != null) {
+      return true;
+    }
+
+    val entitySet = entityListRepository.find(setId);
+    val finished = entitySet != null && entitySet.getState() == FINISHED;
+    if (finished) {
+      finishedSetIds.put(setId, TRUE);
+    }
+
+    return finished;
+  }
+
+  /**
+   * The members of an evaluated set operation.
+   */
+  @RequiredArgsConstructor(access = PRIVATE)
+  public static class EntitySetMembers {
+
+    @NonNull
+    private final RoaringBitmap bitmap;
+    @NonNull
+    private final EntityIdDictionary dictionary;
+
+    public long size() {
+      return bitmap.getCardinality();
+    }
+
+    public List<String> getIds() {
+      return getIds(Integer.MAX_VALUE);
+    }
+
+    public List<String> getIds(int limit) {
+      val ids = ImmutableList.<String> builder();
+      val iterator = bitmap.getIntIterator();
+
+      for (int i = 0; i < limit && iterator.hasNext(); i++) {
+        ids.add(dictionary.get(iterator.next()));
+      }
+
+      return ids.build();
+    }
+
+  }
+
+  /**
+   * Id dictionaries together with the bitmaps encoded against them. Both are replaced at once when the cache is
+   * cleared so that a bitmap is never decoded with another generation's dictionary.
+   */
+  private class Generation {
+
+    private final Map<BaseEntitySet.Type, EntityIdDictionary> dictionaries = createDictionaries();
+    private final LoadingCache<SetKey, RoaringBitmap> sets = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_SETS)
+        .expireAfterAccess(CACHE_TTL_HOURS, HOURS)
+        .build(new CacheLoader<SetKey, RoaringBitmap>() {
+
+          @Override
+          public RoaringBitmap load(SetKey key) {
+            return materialize(key.getEntityType(), key.getSetId());
+          }
+
+        });
+
+    EntityIdDictionary getDictionary(BaseEntitySet.Type entityType) {
+      return dictionaries.get(entityType);
+    }
+
+    Iterable<RoaringBitmap> getSets(Iterable<UUID> setIds, BaseEntitySet.Type entityType) {
+      val result = ImmutableList.<RoaringBitmap> builder();
+      for (val setId : setIds) {
+        result.add(getSet(entityType, setId));
+      }
+
+      return result.build();
+    }
+
+    private RoaringBitmap getSet(BaseEntitySet.Type entityType, UUID setId) {
+      // Members are still being added to unfinished sets so these are read again every time
+      if (isFinished(setId)) {
+        return sets.getUnchecked(new SetKey(entityType, setId));
+      }
+
+      return materialize(entityType, setId);
+    }
+
+    private RoaringBitmap materialize(BaseEntitySet.Type entityType, UUID setId) {
+      val dictionary = getDictionary(entityType);
+      val bitmap = new RoaringBitmap();
+
+      termsLookupRepository.scrollEntitySetIds(entityType, setId, id -> bitmap.add(dictionary.intern(id)));
+      bitmap.runOptimize();
+
+      log.debug("Materialized {} set '{}' with {} members in {} bytes.",
+          entityType, setId, bitmap.getCardinality(), bitmap.getSizeInBytes());
+
+      // Interned ids outlive the evicted sets referencing them, so the dictionaries are bounded by their generation
+      if (dictionary.size() > MAX_DICTIONARY_SIZE) {
+        retire(this);
+      }
+
+      return bitmap;
+    }
+
+  }
+
+  private static Map<BaseEntitySet.Type, EntityIdDictionary> createDictionaries() {
+    val dictionaries = new EnumMap<BaseEntitySet.Type, EntityIdDictionary>(BaseEntitySet.Type.class);
+    for (val entityType : BaseEntitySet.Type.values()) {
+      dictionaries.put(entityType, new EntityIdDictionary());
+    }
+
+    return dictionaries;
+  }
+
+  @Value
+  private static class SetKey {
+
+    BaseEntitySet.Type entityType;
+    UUID setId;
+
+  }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static com.google.common.base.Stopwatch.createStarted;
+import static org.icgc.dcc.common.core.util.FormatUtils.formatCount;
+import static org.icgc.dcc.portal.config.JobConfig.WARMUP_EXECUTOR;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.icgc.dcc.portal.model.Universe;
+import org.icgc.dcc.portal.repository.GeneRepository;
+import org.icgc.dcc.portal.repository.GeneSetRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory snapshot of the gene set membership of the current release.
+ * <p>
+ * Gene ids are interned to dense ints and the members of every gene set of each {@link Universe} are kept as a
+ * compressed bitmap, along with the gene count of every gene set. Overlaps of a gene list with all the gene sets of a
+ * universe are then computed as bitmap intersections instead of Elasticsearch aggregations. Gene set membership only
+ * changes with the release, so the snapshot is loaded once and reloaded by {@link #clearCache()}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired) )
+public class GeneSetMembership {
+
+  /**
+   * Constants.
+   */
+  private static final List<String> GENE_SET_FIELDS = ImmutableList.copyOf(
+      Lists.transform(ImmutableList.copyOf(Universe.values()), Universe::getGeneSetFacetName));
+  private static final Comparator<Entry<String, Long>> TERMS_ORDER =
+      Comparator.<Entry<String, Long>, Long> comparing(Entry::getValue).reversed().thenComparing(Entry::getKey);
+
+  /**
+   * Dependencies.
+   */
+  @NonNull
+  private final GeneRepository geneRepository;
+  @NonNull
+  private final GeneSetRepository geneSetRepository;
+
+  /**
+   * State.
+   */
+  private volatile Snapshot snapshot;
+
+  @Async(WARMUP_EXECUTOR)
+  public void init() {
+    getSnapshot();
+  }
+
+  /**
+   * Counts the genes each gene set of the {@code universe} shares with {@code geneIds}, in the order of a terms
+   * aggregation: descending count, then ascending gene set id. Gene sets without overlap are omitted.
+   */
+  public Map<String, Long> countOverlaps(@NonNull Universe universe, @NonNull Iterable<String> geneIds) {
+    val current = getSnapshot();
+
+    val genes = new RoaringBitmap();
+    for (val geneId : geneIds) {
+      val index = current.genes.find(geneId);
+      if (index != null) {
+        genes.add(index);
+      }
+    }
+
+    val overlaps = Lists.<Entry<String, Long>> newArrayList();
+    for (val geneSet : current.geneSets.get(universe).entrySet()) {
+      val count = RoaringBitmap.and(geneSet.getValue(), genes).getCardinality();
+      if (count > 0) {
+        overlaps.add(Maps.immutableEntry(geneSet.getKey(), (long) count));
+      }
+    }
+
+    overlaps.sort(TERMS_ORDER);
+
+    val result = Maps.<String, Long> newLinkedHashMap();
+    for (val overlap : overlaps) {
+      result.put(overlap.getKey(), overlap.getValue());
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the indexed gene count of each of the {@code geneSetIds}, omitting unknown gene sets
+   */
+  public Map<String, Integer> countGenes(@NonNull Iterable<String> geneSetIds) {
+    val current = getSnapshot();
+
+    val result = Maps.<String, Integer> newLinkedHashMap();
+    for (val geneSetId : geneSetIds) {
+      val count = current.geneCounts.get(geneSetId);
+      if (count != null) {
+        result.put(geneSetId, count);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Loads the snapshot of the index being warmed up by the calling thread.
+   * 
+   * @return an action replacing the current snapshot with it
+   */
+  public Runnable prepareRelease() {
+    val loaded = loadSnapshot();
+    return () -> snapshot = loaded;
+  }
+
+  /**
+   * Reloads the snapshot in the background. The current one keeps serving analyses until the new one is loaded.
+   */
+  @Async(WARMUP_EXECUTOR)
+  public void clearCache() {
+    log.info("Reloading gene set membership snapshot.");
+    snapshot = loadSnapshot();
+  }
+
+  private Snapshot getSnapshot() {
+    val current = snapshot;
+    if (current != null) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (snapshot == null) {
+        snapshot = loadSnapshot();
+      }
+
+      return snapshot;
+    }
+  }
+
+  private Snapshot loadSnapshot() {
+    val watch = createStarted();
+    log.info("Loading gene set membership snapshot...");
+
+    val loaded = new Snapshot();
+    geneRepository.scrollGeneSetMemberships(GENE_SET_FIELDS, (geneId, memberships) -> {
+      final int index = loaded.genes.intern(geneId);
+
+      for (final Universe universe : Universe.values()) {
+        final List<Object> geneSetIds = memberships.get(universe.getGeneSetFacetName());
+        if (geneSetIds == null) {
+          continue;
+        }
+
+        final Map<String, RoaringBitmap> geneSets = loaded.geneSets.get(universe);
+        for (final Object geneSetId : geneSetIds) {
+          geneSets.computeIfAbsent(geneSetId.toString(), id -> new RoaringBitmap()).add(index);
+        }
+      }
+    });
+    geneSetRepository.scrollGeneCounts(loaded.geneCounts::put);
+
+    for (val geneSets : loaded.geneSets.values()) {
+      geneSets.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    log.info("Loaded gene set membership snapshot of {} gene sets in {}", formatCount(loaded.geneCounts.size()), watch);
+    return loaded;
+  }
+
+  private static class Snapshot {
+
+    final EntityIdDictionary genes = new EntityIdDictionary();
+    final Map<Universe, Map<String, RoaringBitmap>> geneSets = new EnumMap<>(Universe.class);
+    final Map<String, Integer> geneCounts = Maps.newHashMap();
+
+    Snapshot() {
+      for (val universe : Universe.values()) {
+        geneSets.put(universe, Maps.newHashMap());
+      }
+    }
+
+  }
+
+}
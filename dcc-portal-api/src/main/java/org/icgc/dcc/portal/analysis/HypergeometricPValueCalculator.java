@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.exp;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import org.apache.commons.math3.special.Gamma;
+
+import lombok.Getter;
+import lombok.val;
+
+/**
+ * Upper tail p-values of the hypergeometric distribution for a fixed population ({@code n}, the universe gene count)
+ * and sample ({@code k}, the overlap gene count), as used to test the enrichment of every gene set of an analysis.
+ * <p>
+ * The log-factorials of {@code 0..n} are tabulated once per instance, so each p-value only costs the log-space
+ * evaluation of its first term followed by the ratio recurrence of the probability mass function. Only the tail on the
+ * far side of the mode is summed, starting next to the mode so that the terms decrease, and the summation stops as soon
+ * as the remaining terms can no longer change the result. Instances are immutable and may be shared between threads.
+ */
+public class HypergeometricPValueCalculator {
+
+  /**
+   * Relative size below which a term no longer contributes to the sum.
+   */
+  private static final double EPSILON = 1e-17;
+
+  @Getter
+  private final int n;
+  @Getter
+  private final int k;
+
+  private final double[] logFactorials;
+
+  public HypergeometricPValueCalculator(int n, int k) {
+    checkArgument(n > 0, "Population size must be positive: %s", n);
+    checkArgument(k >= 0 && k <= n, "Sample size must be in [0, %s]: %s", n, k);
+    this.n = n;
+    this.k = k;
+    this.logFactorials = new double[n + 1];
+    for (int i = 2; i <= n; i++) {
+      logFactorials[i] = Gamma.logGamma(i + 1.0);
+    }
+  }
+
+  /**
+   * @param q the number of sampled successes, i.e. the gene set overlap gene count
+   * @param m the number of successes in the population, i.e. the gene set gene count
+   * @return the probability of sampling {@code q} or more successes
+   */
+  public double calculate(int q, int m) {
+    checkArgument(m >= 0 && m <= n, "Number of successes must be in [0, %s]: %s", n, m);
+
+    val lower = max(0, k + m - n);
+    val upper = min(k, m);
+    if (q <= lower) {
+      return 1.0;
+    }
+    if (q > upper) {
+      return 0.0;
+    }
+
+    // The probability mass function increases up to the mode and decreases after it
+    val mode = (int) (((double) k + 1) * ((double) m + 1) / ((double) n + 2));
+    if (q > mode) {
+      return min(1.0, sumUpperTail(q, m, upper));
+    } else {
+      return max(0.0, 1.0 - sumLowerTail(q - 1, m, lower));
+    }
+  }
+
+  /**
+   * @return the probability of {@code from..upper} successes, where {@code from} lies above the mode
+   */
+  private double sumUpperTail(int from, int m, int upper) {
+    double term = exp(logProbability(from, m));
+    double sum = term;
+    for (int x = from; x < upper; x++) {
+      // P(x + 1) / P(x)
+      term *= ((double) (m - x) * (k - x)) / ((double) (x + 1) * (n - m - k + x + 1));
+      sum += term;
+
+      if (term <= sum * EPSILON) {
+        break;
+      }
+    }
+
+    return sum;
+  }
+
+  /**
+   * @return the probability of {@code lower..to} successes, where {@code to} lies below the mode
+   */
+  private double sumLowerTail(int to, int m, int lower) {
+    double term = exp(logProbability(to, m));
+    double sum = term;
+    for (int x = to; x > lower; x--) {
+      // P(x - 1) / P(x)
+      term *= ((double) x * (n - m - k + x)) / ((double) (m - x + 1) * (k - x + 1));
+      sum += term;
+
+      if (term <= sum * EPSILON) {
+        break;
+      }
+    }
+
+    return sum;
+  }
+
+  private double logProbability(int x, int m) {
+    return logChoose(m, x) + logChoose(n - m, k - x) - logChoose(n, k);
+  }
+
+  private double logChoose(int a, int b) {
+    return logFactorials[a] - logFactorials[b] - logFactorials[a - b];
+  }
+
+}
@@ -17,8 +17,9 @@
  */
 package org.icgc.dcc.portal.analysis;
 
+import static java.lang.Math.min;
+import static org.icgc.dcc.portal.config.JobConfig.SET_OPERATION_EXECUTOR;
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.TERMS_LOOKUP_PATH;
-import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.toBoolFilterFrom;
 import static org.icgc.dcc.portal.util.JsonUtils.LIST_TYPE_REFERENCE;
 
 import java.util.ArrayList;
@@ -26,30 +27,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
 import org.icgc.dcc.portal.config.PortalProperties;
-import org.icgc.dcc.portal.model.BaseEntitySet;
 import org.icgc.dcc.portal.model.DerivedEntitySetDefinition;
 import org.icgc.dcc.portal.model.EntitySet;
 import org.icgc.dcc.portal.model.UnionAnalysisRequest;
 import org.icgc.dcc.portal.model.UnionAnalysisResult;
-import org.icgc.dcc.portal.model.UnionUnit;
 import org.icgc.dcc.portal.model.UnionUnitWithCount;
 import org.icgc.dcc.portal.repository.EntityListRepository;
 import org.icgc.dcc.portal.repository.GeneRepository;
 import org.icgc.dcc.portal.repository.RepositoryFileRepository;
 import org.icgc.dcc.portal.repository.TermsLookupRepository;
 import org.icgc.dcc.portal.repository.UnionAnalysisRepository;
-import org.icgc.dcc.portal.util.SearchResponses;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.collect.Iterables;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -91,8 +86,10 @@ public class UnionAnalyzer {
   private final GeneRepository geneRepository;
   @NonNull
   private final RepositoryFileRepository repositoryFileRepository;
+  @NonNull
+  private final EntitySetEngine entitySetEngine;
 
-  @Async
+  @Async(SET_OPERATION_EXECUTOR)
   public void calculateUnionUnitCounts(@NonNull final UUID id, @NonNull final UnionAnalysisRequest request) {
     UnionAnalysisResult analysis = null;
 
@@ -105,17 +102,11 @@ public class UnionAnalyzer {
       val definitions = request.toUnionSets();
 
       val result = new ArrayList<UnionUnitWithCount>(definitions.size());
+      val maxUnionCount = termsLookupRepository.getMaxUnionCount();
 
-      if (entityType == BaseEntitySet.Type.DONOR) {
-        for (val def : definitions) {
-          val count = termsLookupRepository.getDonorCount(def);
-          result.add(UnionUnitWithCount.copyOf(def, count));
-        }
-      } else {
-        for (val def : definitions) {
-          val count = termsLookupRepository.getUnionCount(def, entityType);
-          result.add(UnionUnitWithCount.copyOf(def, count));
-        }
+      for (val def : definitions) {
+        val count = min(maxUnionCount, entitySetEngine.count(def, entityType));
+        result.add(UnionUnitWithCount.copyOf(def, count));
       }
 
       log.debug("Result of Union Analysis is: '{}'", result);
@@ -133,11 +124,11 @@ public class UnionAnalyzer {
     val definitions = definition.getUnion();
     val entityType = definition.getType();
 
-    val response = unionAll(definitions, entityType, termsLookupRepository.getMaxPreviewNumberOfHits());
-    return SearchResponses.getHitIds(response);
+    val members = entitySetEngine.union(definitions, entityType);
+    return members.getIds(termsLookupRepository.getMaxPreviewNumberOfHits());
   }
 
-  @Async
+  @Async(SET_OPERATION_EXECUTOR)
   public void combineListsAsync(@NonNull final UUID newEntityId,
       @NonNull final DerivedEntitySetDefinition entitySetDefinition) {
     combineLists(newEntityId, entitySetDefinition);
@@ -155,21 +146,9 @@ public class UnionAnalyzer {
       val definitions = entitySetDefinition.getUnion();
       val entityType = entitySetDefinition.getType();
 
-      SearchResponse response;
-      long totalHits;
-      Iterable<String> entityIds;
       val maxUnionCount = termsLookupRepository.getMaxUnionCount();
-      if (entityType == BaseEntitySet.Type.DONOR) {
-        response = termsLookupRepository.getDonorUnion(definitions);
-        entityIds = SearchResponses.getHitIdsSet(response);
-        totalHits = Iterables.size(entityIds);
-      } else {
-        response = unionAll(definitions, entityType, maxUnionCount);
-        totalHits = SearchResponses.getTotalHitCount(response);
-        entityIds = SearchResponses.getHitIds(response);
-      }
-      log.debug("Union result is: '{}'", entityIds);
-
+      val members = entitySetEngine.union(definitions, entityType);
+      val totalHits = members.size();
       if (totalHits > maxUnionCount) {
         log.info(
             "Because the total hit count ({}) exceeds the allowed maximum ({}), this set operation is aborted.",
@@ -179,6 +158,9 @@ public class UnionAnalyzer {
         return;
       }
 
+      val entityIds = members.getIds();
+      log.debug("Union result is: '{}'", entityIds);
+
       val lookupType = entityType.toLookupType();
       termsLookupRepository.createTermsLookup(lookupType, newEntityId, entityIds, entitySetDefinition.isTransient());
       entityListRepository.update(newEntity.updateStateToFinished(totalHits), dataVersion);
@@ -208,16 +190,4 @@ public class UnionAnalyzer {
     return geneRepository.findGeneSymbolsByGeneListId(listId);
   }
 
-  private SearchResponse unionAll(final Iterable<UnionUnit> definitions, final BaseEntitySet.Type entityType,
-      final int max) {
-
-    val response = termsLookupRepository.runUnionEsQuery(
-        entityType.getIndexTypeName(),
-        SearchType.QUERY_THEN_FETCH,
-        toBoolFilterFrom(definitions, entityType),
-        max);
-
-    return response;
-  }
-
 }
\ No newline at end of file
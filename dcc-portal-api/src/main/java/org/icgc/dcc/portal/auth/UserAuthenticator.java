@@ -17,7 +17,7 @@
  */
 package org.icgc.dcc.portal.auth;
 
-import org.icgc.dcc.portal.auth.oauth.OAuthClient;
+import org.icgc.dcc.portal.auth.oauth.TokenValidator;
 import org.icgc.dcc.portal.model.User;
 import org.icgc.dcc.portal.service.SessionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,7 +51,7 @@ public class UserAuthenticator implements Authenticator<UserCredentials, User> {
   @NonNull
   private final SessionService sessionService;
   @NonNull
-  private final OAuthClient oauthClient;
+  private final TokenValidator tokenValidator;
 
   @Override
   public Optional<User> authenticate(UserCredentials credentials) throws AuthenticationException {
@@ -68,7 +68,7 @@ public class UserAuthenticator implements Authenticator<UserCredentials, User> {
       val accessToken = credentials.getAccessToken().get();
       log.debug("Looking up user by access token '{}'...", accessToken);
 
-      if (oauthClient.checkToken(accessToken, PORTAL_DOWNLOAD_SCOPE)) {
+      if (tokenValidator.checkToken(accessToken, PORTAL_DOWNLOAD_SCOPE)) {
         val user = new User();
         user.setDaco(true);
 
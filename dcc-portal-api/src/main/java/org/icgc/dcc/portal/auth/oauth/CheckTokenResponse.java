@@ -31,9 +31,17 @@ class CheckTokenResponse {
 
   List<String> scope;
 
+  /**
+   * Expiry of the token in seconds since the epoch, if any.
+   */
+  Long expiration;
+
   @JsonCreator
-  public CheckTokenResponse(@JsonProperty("scope") List<String> scope) {
+  public CheckTokenResponse(
+      @JsonProperty("scope") List<String> scope,
+      @JsonProperty("exp") Long expiration) {
     this.scope = scope;
+    this.expiration = expiration;
   }
 
 }
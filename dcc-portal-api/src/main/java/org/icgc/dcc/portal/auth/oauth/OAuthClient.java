@@ -31,6 +31,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_FORM_URLENCODED_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.Response.Status.Family.SERVER_ERROR;
 
+import java.util.Optional;
 import java.util.Set;
 
 import javax.net.ssl.SSLContext;
@@ -135,6 +136,14 @@ public class OAuthClient {
   }
 
   public boolean checkToken(@NonNull String token, String scope) {
+    val accessToken = checkToken(token);
+    return accessToken.isPresent() && accessToken.get().getScope().contains(scope);
+  }
+
+  /**
+   * @return the details of {@code token}, or nothing if the token is not valid
+   */
+  Optional<CheckTokenResponse> checkToken(@NonNull String token) {
     checkArguments(token);
 
     val params = new MultivaluedMapImpl();
@@ -147,12 +156,10 @@ public class OAuthClient {
 
     checkState(response.getClientResponseStatus().getFamily() != SERVER_ERROR, "Error checking token: %s", response);
     if (response.getClientResponseStatus() != OK) {
-      return false;
+      return Optional.empty();
     }
 
-    val accessToken = response.getEntity(CheckTokenResponse.class);
-    val scopes = accessToken.getScope();
-    return scopes.contains(scope);
+    return Optional.of(response.getEntity(CheckTokenResponse.class));
   }
 
   public UserScopesResponse getUserScopes(@NonNull String userId) {
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.auth.oauth;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.icgc.dcc.portal.config.PortalProperties.OAuthProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks access tokens against the OAuth server, remembering the outcome so that the requests of a token holder are not
+ * each delayed by a round trip to the server.
+ * <p>
+ * A valid token is trusted until the earlier of its expiry and {@code tokenCacheTTL}, while an invalid token is
+ * rejected for {@code invalidTokenCacheTTL} so that retries of a bad token do not hammer the server. Tokens are keyed
+ * by their hash so that the cache does not hold usable credentials.
+ */
+@Slf4j
+@Component
+public class TokenValidator {
+
+  /**
+   * Constants.
+   */
+  private static final HashFunction TOKEN_HASH = Hashing.sha256();
+
+  /**
+   * Dependencies.
+   */
+  private final OAuthClient client;
+  private final Ticker ticker;
+
+  /**
+   * Configuration.
+   */
+  private final long ttl;
+  private final long invalidTtl;
+
+  /**
+   * State.
+   */
+  private final Cache<String, TokenCheck> tokenChecks;
+
+  @Autowired
+  public TokenValidator(@NonNull OAuthClient client, @NonNull OAuthProperties config) {
+    this(client, config, Ticker.systemTicker());
+  }
+
+  TokenValidator(@NonNull OAuthClient client, @NonNull OAuthProperties config, @NonNull Ticker ticker) {
+    this.client = client;
+    this.ticker = ticker;
+    this.ttl = SECONDS.toNanos(config.getTokenCacheTTL());
+    this.invalidTtl = SECONDS.toNanos(config.getInvalidTokenCacheTTL());
+    this.tokenChecks = CacheBuilder.newBuilder()
+        .maximumSize(config.getTokenCacheSize())
+        .expireAfterWrite(Math.max(ttl, invalidTtl), NANOSECONDS)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * @return whether {@code token} is valid and grants {@code scope}
+   */
+  public boolean checkToken(@NonNull String token, String scope) {
+    val key = hash(token);
+
+    TokenCheck check = tokenChecks.getIfPresent(key);
+    if (check == null || check.isExpired(ticker.read())) {
+      if (check != null) {
+        // Expired before the cache evicted it
+        tokenChecks.asMap().remove(key, check);
+      }
+
+      // Used as is even if it expires right away, e.g. for a token at the end of its lifetime
+      check = getTokenCheck(key, token);
+    }
+
+    return check.getScopes().contains(scope);
+  }
+
+  /**
+   * Forgets the outcome of checking {@code token}, e.g. because the token has just been revoked.
+   */
+  public void invalidate(@NonNull String token) {
+    tokenChecks.invalidate(hash(token));
+  }
+
+  @SneakyThrows
+  private TokenCheck getTokenCheck(String key, String token) {
+    try {
+      return tokenChecks.get(key, () -> checkToken(token));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // Failures to reach the server are not cached
+      throw e.getCause();
+    }
+  }
+
+  private TokenCheck checkToken(String token) {
+    val now = ticker.read();
+    val response = client.checkToken(token);
+    if (!response.isPresent()) {
+      log.debug("Access token is not valid");
+      return new TokenCheck(ImmutableSet.of(), now + invalidTtl);
+    }
+
+    val accessToken = response.get();
+    long expiry = now + ttl;
+    if (accessToken.getExpiration() != null) {
+      val remaining = accessToken.getExpiration() - SECONDS.convert(System.currentTimeMillis(), MILLISECONDS);
+      expiry = Math.min(expiry, now + SECONDS.toNanos(Math.max(remaining, 0)));
+    }
+
+    val scopes = accessToken.getScope();
+    return new TokenCheck(scopes == null ? ImmutableSet.<String> of() : ImmutableSet.copyOf(scopes), expiry);
+  }
+
+  private static String hash(String token) {
+    return TOKEN_HASH.hashString(token, UTF_8).toString();
+  }
+
+  @Value
+  private static class TokenCheck {
+
+    Set<String> scopes;
+
+    /**
+     * Ticker reading after which the check has to be repeated.
+     */
+    long expiry;
+
+    boolean isExpired(long now) {
+      return now - expiry >= 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.config;
+
+import org.icgc.dcc.portal.util.InstrumentedThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.val;
+
+/**
+ * Executors of the {@code @Async} jobs, one bounded pool per class of job so that a burst of one kind cannot starve
+ * the others or the request serving threads.
+ */
+@Configuration
+public class JobConfig {
+
+  /**
+   * Executor names for use with {@code @Async}.
+   */
+  public static final String SET_OPERATION_EXECUTOR = "setOperationExecutor";
+  public static final String ENRICHMENT_EXECUTOR = "enrichmentExecutor";
+  public static final String ENRICHMENT_POST_PROCESSING_EXECUTOR = "enrichmentPostProcessingExecutor";
+  public static final String WARMUP_EXECUTOR = "warmupExecutor";
+  public static final String EXPORT_EXECUTOR = "exportExecutor";
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private PortalProperties properties;
+
+  @Bean(name = SET_OPERATION_EXECUTOR)
+  public InstrumentedThreadPoolExecutor setOperationExecutor() {
+    val jobs = properties.getJobs();
+    return new InstrumentedThreadPoolExecutor("set-operation", jobs.getSetOperationThreads(),
+        jobs.getSetOperationQueueSize());
+  }
+
+  @Bean(name = ENRICHMENT_EXECUTOR)
+  public InstrumentedThreadPoolExecutor enrichmentExecutor() {
+    val jobs = properties.getJobs();
+    return new InstrumentedThreadPoolExecutor("enrichment", jobs.getEnrichmentThreads(),
+        jobs.getEnrichmentQueueSize());
+  }
+
+  @Bean(name = ENRICHMENT_POST_PROCESSING_EXECUTOR)
+  public InstrumentedThreadPoolExecutor enrichmentPostProcessingExecutor() {
+    val jobs = properties.getJobs();
+    return new InstrumentedThreadPoolExecutor("enrichment-post-processing", jobs.getEnrichmentPostProcessingThreads(),
+        jobs.getEnrichmentPostProcessingQueueSize());
+  }
+
+  @Bean(name = WARMUP_EXECUTOR)
+  public InstrumentedThreadPoolExecutor warmupExecutor() {
+    val jobs = properties.getJobs();
+    return new InstrumentedThreadPoolExecutor("warmup", jobs.getWarmupThreads(), jobs.getWarmupQueueSize());
+  }
+
+  @Bean(name = EXPORT_EXECUTOR)
+  public InstrumentedThreadPoolExecutor exportExecutor() {
+    val jobs = properties.getJobs();
+    return new InstrumentedThreadPoolExecutor("export", jobs.getExportThreads(), jobs.getExportQueueSize());
+  }
+
+}
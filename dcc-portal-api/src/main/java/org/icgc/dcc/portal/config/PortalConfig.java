@@ -26,20 +26,23 @@ import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
 import org.icgc.dcc.portal.config.PortalProperties.CrowdProperties;
 import org.icgc.dcc.portal.config.PortalProperties.DownloadProperties;
 import org.icgc.dcc.portal.config.PortalProperties.ElasticSearchProperties;
+import org.icgc.dcc.portal.config.PortalProperties.EnrichmentProperties;
 import org.icgc.dcc.portal.config.PortalProperties.HazelcastProperties;
 import org.icgc.dcc.portal.config.PortalProperties.ICGCProperties;
 import org.icgc.dcc.portal.config.PortalProperties.MailProperties;
 import org.icgc.dcc.portal.config.PortalProperties.OAuthProperties;
 import org.icgc.dcc.portal.config.PortalProperties.WebProperties;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.Settings;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 import com.google.inject.Stage;
 import com.yammer.dropwizard.db.DatabaseConfiguration;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
 
 import lombok.NonNull;
 import lombok.val;
@@ -64,8 +67,11 @@ public class PortalConfig {
   }
 
   @Bean
-  public QueryEngine queryEngine(@NonNull Client client, @Value("#{indexName}") String index) {
-    return new QueryEngine(client, index);
+  public QueryEngine queryEngine(@NonNull Client client, @NonNull IndexModel indexModel) {
+    val queryEngine = new QueryEngine(client, indexModel::getIndex, properties.getCache().getQueryPlanCacheSize());
+    registerPlanCacheMetrics(queryEngine);
+
+    return queryEngine;
   }
 
   @Bean
@@ -147,6 +153,11 @@ public class PortalConfig {
     return properties.getCache();
   }
 
+  @Bean
+  public EnrichmentProperties enrichmentProperties() {
+    return properties.getEnrichment();
+  }
+
   @Bean
   public WebProperties webProperties() {
     return properties.getWeb();
@@ -162,4 +173,43 @@ public class PortalConfig {
     return properties.getOauth();
   }
 
+  /**
+   * Utilities.
+   */
+
+  private static void registerPlanCacheMetrics(QueryEngine queryEngine) {
+    Metrics.newGauge(QueryEngine.class, "plan-cache-hits", new Gauge<Long>() {
+
+      @Override
+      public Long value() {
+        return queryEngine.getPlanCacheStats().hitCount();
+      }
+
+    });
+    Metrics.newGauge(QueryEngine.class, "plan-cache-misses", new Gauge<Long>() {
+
+      @Override
+      public Long value() {
+        return queryEngine.getPlanCacheStats().missCount();
+      }
+
+    });
+    Metrics.newGauge(QueryEngine.class, "plan-cache-evictions", new Gauge<Long>() {
+
+      @Override
+      public Long value() {
+        return queryEngine.getPlanCacheStats().evictionCount();
+      }
+
+    });
+    Metrics.newGauge(QueryEngine.class, "plan-cache-size", new Gauge<Long>() {
+
+      @Override
+      public Long value() {
+        return queryEngine.getPlanCacheSize();
+      }
+
+    });
+  }
+
 }
@@ -88,6 +88,14 @@ public class PortalProperties extends Configuration {
   @JsonProperty
   SetOperationProperties setOperation = new SetOperationProperties();
 
+  @Valid
+  @JsonProperty
+  EnrichmentProperties enrichment = new EnrichmentProperties();
+
+  @Valid
+  @JsonProperty
+  JobProperties jobs = new JobProperties();
+
   @Valid
   @NotNull
   @JsonProperty
@@ -116,6 +124,31 @@ public class PortalProperties extends Configuration {
     @JsonProperty
     List<String> excludeETag = newArrayList();
 
+    @Min(1)
+    @JsonProperty
+    int etagMaxEntitySizeKB = 4096;
+
+    @JsonProperty
+    boolean enableResponseCache;
+
+    @JsonProperty
+    List<String> excludeResponseCache = newArrayList();
+
+    @Min(1)
+    @JsonProperty
+    int responseCacheMaxSizeMB = 256;
+
+    @Min(1)
+    @JsonProperty
+    int responseCacheMaxEntrySizeKB = 1024;
+
+    @Min(1)
+    @JsonProperty
+    int queryPlanCacheSize = 1000;
+
+    @JsonProperty
+    boolean enableBeaconIndex;
+
   }
 
   @Data
@@ -322,6 +355,60 @@ public class PortalProperties extends Configuration {
     int maxMultiplier;
   }
 
+  @Data
+  public static class EnrichmentProperties {
+
+    @Min(1)
+    @JsonProperty
+    int postProcessingBatchSize = 25;
+
+  }
+
+  @Data
+  public static class JobProperties {
+
+    @Min(1)
+    @JsonProperty
+    int setOperationThreads = 4;
+
+    @Min(1)
+    @JsonProperty
+    int setOperationQueueSize = 100;
+
+    @Min(1)
+    @JsonProperty
+    int enrichmentThreads = 2;
+
+    @Min(1)
+    @JsonProperty
+    int enrichmentQueueSize = 20;
+
+    @Min(1)
+    @JsonProperty
+    int enrichmentPostProcessingThreads = 4;
+
+    @Min(1)
+    @JsonProperty
+    int enrichmentPostProcessingQueueSize = 32;
+
+    @Min(1)
+    @JsonProperty
+    int warmupThreads = 2;
+
+    @Min(1)
+    @JsonProperty
+    int warmupQueueSize = 10;
+
+    @Min(1)
+    @JsonProperty
+    int exportThreads = 8;
+
+    @Min(1)
+    @JsonProperty
+    int exportQueueSize = 32;
+
+  }
+
   @Data
   public static class WebProperties {
 
@@ -353,6 +440,18 @@ public class PortalProperties extends Configuration {
     @JsonProperty
     boolean enableHttpLogging;
 
+    @Min(1)
+    @JsonProperty
+    int tokenCacheSize = 10000;
+
+    @Min(0)
+    @JsonProperty
+    int tokenCacheTTL = 300;
+
+    @Min(0)
+    @JsonProperty
+    int invalidTokenCacheTTL = 30;
+
   }
 
 }
@@ -19,8 +19,11 @@ package org.icgc.dcc.portal.config;
 
 import javax.annotation.PostConstruct;
 
+import org.icgc.dcc.portal.analysis.GeneSetMembership;
+import org.icgc.dcc.portal.service.BeaconIndex;
 import org.icgc.dcc.portal.service.GeneService;
 import org.icgc.dcc.portal.service.OccurrenceService;
+import org.icgc.dcc.portal.service.RepositoryFileStats;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 
@@ -35,6 +38,12 @@ public class ServiceConfig {
   private OccurrenceService occurrenceService;
   @Autowired
   private GeneService geneService;
+  @Autowired
+  private GeneSetMembership geneSetMembership;
+  @Autowired
+  private RepositoryFileStats repositoryFileStats;
+  @Autowired
+  private BeaconIndex beaconIndex;
 
   /**
    * Initialization.
@@ -43,6 +52,9 @@ public class ServiceConfig {
   public void initCache() {
     occurrenceService.init();
     geneService.init();
+    geneSetMembership.init();
+    repositoryFileStats.init();
+    beaconIndex.init();
   }
 
 }
@@ -20,8 +20,16 @@ package org.icgc.dcc.portal.filter;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.hash.Hashing.murmur3_128;
+import static com.google.common.io.ByteStreams.nullOutputStream;
+import static javax.ws.rs.core.HttpHeaders.ETAG;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 import static javax.ws.rs.core.Response.fromResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -29,22 +37,27 @@ import java.util.regex.Pattern;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.val;
 
 import org.elasticsearch.client.Client;
 import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 import com.sun.jersey.spi.container.ContainerResponse;
 import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
 
 @Component
 public class CachingFilter implements ContainerRequestFilter, ContainerResponseFilter {
@@ -53,23 +66,40 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
   private static final String RELEASE_TYPE_NAME = "release";
   private static final HashFunction HASH_FUNCTION = murmur3_128();
 
+  private final Client client;
+  private final IndexModel indexModel;
+
   private final boolean enableLastModified;
   private final boolean enableEtag;
-  private final Date lastModifiedDate;
+  private final int maxEtagEntitySize;
+  private volatile Date lastModifiedDate;
 
   // Resources for which ETag and LastModified should not be generated
   private final List<Pattern> excludeLastModifiedPatterns;
   private final List<Pattern> excludeEtagPatterns;
 
   @Autowired
-  public CachingFilter(Client client, @Value("#{indexName}") String indexName, CacheProperties cacheConfig) {
-    this.lastModifiedDate = getLastModified(client, indexName);
+  public CachingFilter(Client client, IndexModel indexModel, CacheProperties cacheConfig) {
+    this.client = client;
+    this.indexModel = indexModel;
+    this.lastModifiedDate = getLastModified(client, indexModel.getIndex());
     this.enableLastModified = cacheConfig.isEnableLastModified();
     this.enableEtag = cacheConfig.isEnableETag();
+    this.maxEtagEntitySize = cacheConfig.getEtagMaxEntitySizeKB() * 1024;
     this.excludeLastModifiedPatterns = compilePatterns(cacheConfig.getExcludeLastModified());
     this.excludeEtagPatterns = compilePatterns(cacheConfig.getExcludeETag());
   }
 
+  /**
+   * Reads the release date of the index being warmed up by the calling thread.
+   * 
+   * @return an action making it the Last-Modified date of responses
+   */
+  public Runnable prepareRelease() {
+    val releaseDate = getLastModified(client, indexModel.getIndex());
+    return () -> lastModifiedDate = releaseDate;
+  }
+
   @Override
   public ContainerRequest filter(ContainerRequest request) {
     if (isLastModifiedPreconditioned(request) && !isEtagPreconditioned(request)) {
@@ -83,35 +113,25 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
   @Override
   public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
     ResponseBuilder builder = null;
+    val lastModifiedDate = this.lastModifiedDate;
     val generateLastModified = isLastModifiedPreconditioned(request);
 
-    if (isEtagPreconditioned(request)) {
-      val etag = getEtag(response);
-      val gzipEtag = getGzipEtag(etag);
-      val hasEtag = hasEtag(etag);
-
-      if (hasEtag && generateLastModified) {
-        // Compare using "gzip" version
-        builder = request.evaluatePreconditions(lastModifiedDate, gzipEtag);
-      } else if (hasEtag) {
-        builder = request.evaluatePreconditions(gzipEtag);
-      } else if (generateLastModified) {
-        builder = request.evaluatePreconditions(lastModifiedDate);
-      }
-
-      checkNotModified(builder);
-      builder = fromResponse(response.getResponse());
-
-      if (hasEtag(etag)) {
-        builder.tag(etag);
-      }
+    if (isEtagPreconditioned(request) && hasEtag(response.getEntity())) {
+      // The ETag is only known once the entity has been serialized, so preconditions are evaluated by the writer
+      response.setContainerResponseWriter(new EtagResponseWriter(response.getContainerResponseWriter(), request,
+          generateLastModified ? lastModifiedDate : null, maxEtagEntitySize));
 
       if (generateLastModified) {
+        builder = fromResponse(response.getResponse());
         builder.lastModified(lastModifiedDate);
+        response.setResponse(builder.build());
       }
-
-      response.setResponse(builder.build());
+    } else if (isEtagPreconditioned(request) && generateLastModified) {
       // Both ETag and LastModified are enabled, but ETag could not be generated because of empty entity
+      checkNotModified(request.evaluatePreconditions(lastModifiedDate));
+      builder = fromResponse(response.getResponse());
+      builder.lastModified(lastModifiedDate);
+      response.setResponse(builder.build());
     } else if (generateLastModified) {
       builder = fromResponse(response.getResponse());
       builder.lastModified(lastModifiedDate);
@@ -121,8 +141,8 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
     return response;
   }
 
-  private static boolean hasEtag(EntityTag etag) {
-    return etag != null;
+  private static boolean hasEtag(Object entity) {
+    return hasEntity(entity) && !isStreaming(entity);
   }
 
   private static void checkNotModified(ResponseBuilder builder) {
@@ -133,16 +153,6 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
     }
   }
 
-  private static EntityTag getEtag(ContainerResponse response) {
-    val entity = response.getEntity();
-    if (hasEntity(entity)) {
-      // Compute <hash> and <hash>-gzip eTags
-      return entityTag(entity);
-    }
-
-    return null;
-  }
-
   private static EntityTag getGzipEtag(EntityTag eTag) {
     return new EntityTag(eTag.getValue() + "-gzip");
   }
@@ -159,14 +169,12 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
     return entity != null;
   }
 
-  private static EntityTag entityTag(Object entity) {
-    val text = entity.toString();
-    val hash = HASH_FUNCTION.hashUnencodedChars(text).toString();
-
-    return new EntityTag(hash);
+  private static boolean isStreaming(Object entity) {
+    // Writing these twice would repeat the work (or consume the source) of the actual response
+    return entity instanceof StreamingOutput || entity instanceof InputStream || entity instanceof File;
   }
 
-  private static Date getLastModified(Client client, String indexName) {
+  static Date getLastModified(Client client, String indexName) {
     val response = client.prepareSearch(indexName)
         .setTypes(RELEASE_TYPE_NAME)
         .addField(DATE_FIELD_NAME)
@@ -206,4 +214,106 @@ public class CachingFilter implements ContainerRequestFilter, ContainerResponseF
     return result.build();
   }
 
+  /**
+   * Buffers the serialized entity so that its hash can be sent as the ETag header, or the body be replaced by a
+   * {@code 304 Not Modified} when it matches the preconditions of the request. The entity is only serialized once.
+   * <p>
+   * Entities larger than {@code maxEntitySize} are streamed without an ETag as soon as they exceed it, so that a large
+   * response never has to be held in memory. Only the Last-Modified preconditions apply to them.
+   */
+  @RequiredArgsConstructor
+  private static class EtagResponseWriter implements ContainerResponseWriter {
+
+    @NonNull
+    private final ContainerResponseWriter delegate;
+    @NonNull
+    private final ContainerRequest request;
+    private final Date lastModifiedDate;
+    private final int maxEntitySize;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Hasher hasher = HASH_FUNCTION.newHasher();
+    private ContainerResponse response;
+    private OutputStream stream;
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+      this.response = response;
+
+      return new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          if (stream == null && buffer.size() + len > maxEntitySize) {
+            startStreaming();
+          }
+
+          if (stream != null) {
+            stream.write(b, off, len);
+          } else {
+            buffer.write(b, off, len);
+            hasher.putBytes(b, off, len);
+          }
+        }
+
+        @Override
+        public void flush() throws IOException {
+          if (stream != null) {
+            stream.flush();
+          }
+        }
+
+      };
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (response != null && stream == null) {
+        write();
+      }
+
+      delegate.finish();
+    }
+
+    private void startStreaming() throws IOException {
+      val builder = lastModifiedDate == null ? null : request.evaluatePreconditions(lastModifiedDate);
+      if (builder != null) {
+        // The rest of the entity is discarded
+        response.setStatus(NOT_MODIFIED.getStatusCode());
+        delegate.writeStatusAndHeaders(-1, response);
+        stream = nullOutputStream();
+      } else {
+        stream = delegate.writeStatusAndHeaders(-1, response);
+        buffer.writeTo(stream);
+      }
+
+      buffer.reset();
+    }
+
+    private void write() throws IOException {
+      // Compute <hash> and <hash>-gzip eTags. Compare using "gzip" version.
+      val etag = new EntityTag(hasher.hash().toString());
+      val gzipEtag = getGzipEtag(etag);
+      val builder = lastModifiedDate == null ?
+          request.evaluatePreconditions(gzipEtag) :
+          request.evaluatePreconditions(lastModifiedDate, gzipEtag);
+
+      response.getHttpHeaders().putSingle(ETAG, etag);
+      if (builder != null) {
+        response.setStatus(NOT_MODIFIED.getStatusCode());
+        delegate.writeStatusAndHeaders(-1, response);
+      } else {
+        val outputStream = delegate.writeStatusAndHeaders(buffer.size(), response);
+        buffer.writeTo(outputStream);
+        outputStream.flush();
+      }
+    }
+
+  }
+
 }
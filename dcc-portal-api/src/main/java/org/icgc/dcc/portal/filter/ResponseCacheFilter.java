@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.filter;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.DATE;
+import static com.google.common.net.HttpHeaders.SET_COOKIE;
+import static com.google.common.net.HttpHeaders.TRANSFER_ENCODING;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.Response.Status.OK;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.elasticsearch.client.Client;
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.config.PortalProperties.CrowdProperties;
+import org.icgc.dcc.portal.model.IndexModel;
+import org.icgc.dcc.portal.service.ResponseCacheService;
+import org.icgc.dcc.portal.service.ResponseCacheService.CachedResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Serves anonymous {@code GET} requests from {@link ResponseCacheService} without invoking the resource method.
+ * <p>
+ * On a miss the serialized response body and headers are captured while they are written to the client and stored
+ * under a key made of the normalized path and query string and the negotiated {@code Accept} headers. Requests
+ * carrying credentials always bypass the cache so that controlled access data is never shared between clients.
+ */
+@Component
+public class ResponseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  /**
+   * Constants.
+   */
+  private static final String CACHE_KEY_PROPERTY = ResponseCacheFilter.class.getName() + ".key";
+  private static final String RELEASE_DATE_PROPERTY = ResponseCacheFilter.class.getName() + ".releaseDate";
+  private static final String CACHED_RESPONSE_PROPERTY = ResponseCacheFilter.class.getName() + ".cachedResponse";
+  private static final Joiner.MapJoiner QUERY_JOINER = Joiner.on('&').withKeyValueSeparator("=");
+
+  // Headers which are specific to a single exchange and must never be replayed
+  private static final Set<String> EXCLUDED_HEADERS = ImmutableSet.of(
+      CONTENT_LENGTH.toLowerCase(),
+      TRANSFER_ENCODING.toLowerCase(),
+      DATE.toLowerCase(),
+      SET_COOKIE.toLowerCase());
+
+  /**
+   * Dependencies.
+   */
+  private final Client client;
+  private final IndexModel indexModel;
+  private final ResponseCacheService responseCache;
+
+  /**
+   * Configuration.
+   */
+  private final boolean enabled;
+  private final int maxEntrySize;
+  private volatile Date releaseDate;
+
+  // Resources which should never be served from the cache
+  private final List<Pattern> excludePatterns;
+
+  @Autowired
+  public ResponseCacheFilter(Client client, IndexModel indexModel, CacheProperties cacheConfig,
+      ResponseCacheService responseCache) {
+    this.client = client;
+    this.indexModel = indexModel;
+    this.responseCache = responseCache;
+    this.enabled = cacheConfig.isEnableResponseCache();
+    this.maxEntrySize = cacheConfig.getResponseCacheMaxEntrySizeKB() * 1024;
+    this.releaseDate = enabled ? CachingFilter.getLastModified(client, indexModel.getIndex()) : null;
+    this.excludePatterns = compilePatterns(cacheConfig.getExcludeResponseCache());
+
+    if (enabled) {
+      responseCache.publishRelease(releaseDate);
+    }
+  }
+
+  /**
+   * Reads the release date of the index being warmed up by the calling thread.
+   * 
+   * @return an action scoping the cache to that release
+   */
+  public Runnable prepareRelease() {
+    if (!enabled) {
+      return () -> {};
+    }
+
+    val newReleaseDate = CachingFilter.getLastModified(client, indexModel.getIndex());
+    return () -> {
+      responseCache.publishRelease(newReleaseDate);
+      releaseDate = newReleaseDate;
+    };
+  }
+
+  @Override
+  public ContainerRequest filter(ContainerRequest request) {
+    if (!isCacheable(request)) {
+      return request;
+    }
+
+    // Responses are scoped to the release that was served when the request arrived
+    val key = createKey(request);
+    val requestReleaseDate = releaseDate;
+    val cached = responseCache.get(key, requestReleaseDate);
+    if (cached.isPresent()) {
+      // Skip the resource method. The stored headers are restored once the other response filters have run.
+      val response = cached.get();
+      request.getProperties().put(CACHED_RESPONSE_PROPERTY, response);
+      throw new WebApplicationException(Response.ok(response.getBody(), response.getMediaType()).build());
+    }
+
+    request.getProperties().put(CACHE_KEY_PROPERTY, key);
+    request.getProperties().put(RELEASE_DATE_PROPERTY, requestReleaseDate);
+
+    return request;
+  }
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    val cached = (CachedResponse) request.getProperties().get(CACHED_RESPONSE_PROPERTY);
+    if (cached != null) {
+      // Replace rather than add so that headers decorated again by the preceding filters are not duplicated
+      for (val entry : cached.getHeaders().entrySet()) {
+        response.getHttpHeaders().put(entry.getKey(), ImmutableList.<Object> copyOf(entry.getValue()));
+      }
+
+      return response;
+    }
+
+    val key = (String) request.getProperties().get(CACHE_KEY_PROPERTY);
+    val cacheable = key != null && response.getStatus() == OK.getStatusCode() && response.getEntity() != null;
+    if (cacheable) {
+      val requestReleaseDate = (Date) request.getProperties().get(RELEASE_DATE_PROPERTY);
+      response.setContainerResponseWriter(
+          new CachingResponseWriter(response.getContainerResponseWriter(), key, requestReleaseDate));
+    }
+
+    return response;
+  }
+
+  private boolean isCacheable(ContainerRequest request) {
+    if (!enabled || !HttpMethod.GET.equals(request.getMethod()) || hasCredentials(request)) {
+      return false;
+    }
+
+    val path = request.getPath();
+    for (val excludePattern : excludePatterns) {
+      if (excludePattern.matcher(path).matches()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean hasCredentials(ContainerRequest request) {
+    return request.getRequestHeader(AUTHORIZATION) != null
+        || request.getCookies().containsKey(CrowdProperties.SESSION_TOKEN_NAME);
+  }
+
+  private static String createKey(ContainerRequest request) {
+    // Parameter order is irrelevant to the resources so normalize it to improve the hit ratio
+    Map<String, List<String>> parameters = Maps.newTreeMap();
+    for (val entry : request.getQueryParameters().entrySet()) {
+      val values = Lists.newArrayList(entry.getValue());
+      Collections.sort(values);
+      parameters.put(entry.getKey(), values);
+    }
+
+    // Resources may produce different representations (e.g. TSV vs. JSON) of the same URI
+    return request.getPath() + "?" + QUERY_JOINER.join(parameters)
+        + "|" + nullToEmpty(request.getHeaderValue(ACCEPT))
+        + "|" + nullToEmpty(request.getHeaderValue(ACCEPT_ENCODING));
+  }
+
+  private static Map<String, List<String>> captureHeaders(ContainerResponse response) {
+    val headers = ImmutableMap.<String, List<String>> builder();
+    for (val entry : response.getHttpHeaders().entrySet()) {
+      if (EXCLUDED_HEADERS.contains(entry.getKey().toLowerCase())) {
+        continue;
+      }
+
+      val values = ImmutableList.<String> builder();
+      for (val value : entry.getValue()) {
+        values.add(ContainerResponse.getHeaderValue(value));
+      }
+
+      headers.put(entry.getKey(), values.build());
+    }
+
+    return headers.build();
+  }
+
+  private static List<Pattern> compilePatterns(List<String> source) {
+    val result = new ImmutableList.Builder<Pattern>();
+    for (val regex : source) {
+      result.add(Pattern.compile(regex));
+    }
+
+    return result.build();
+  }
+
+  /**
+   * Writes the response to the client while keeping a copy of the body for the cache.
+   */
+  @RequiredArgsConstructor
+  private class CachingResponseWriter implements ContainerResponseWriter {
+
+    @NonNull
+    private final ContainerResponseWriter delegate;
+    @NonNull
+    private final String key;
+    @NonNull
+    private final Date releaseDate;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private String mediaType;
+    private Map<String, List<String>> headers;
+    private boolean overflow;
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+      val contentType = response.getHttpHeaders().getFirst(CONTENT_TYPE);
+      this.mediaType = contentType == null ? null : contentType.toString();
+      this.headers = captureHeaders(response);
+      this.overflow = mediaType == null || contentLength > maxEntrySize;
+
+      val outputStream = delegate.writeStatusAndHeaders(contentLength, response);
+
+      return new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+          outputStream.write(b);
+          capture(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          outputStream.write(b, off, len);
+          capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          outputStream.close();
+        }
+
+      };
+    }
+
+    @Override
+    public void finish() throws IOException {
+      delegate.finish();
+
+      if (!overflow) {
+        responseCache.put(key, releaseDate, new CachedResponse(mediaType, headers, buffer.toByteArray()));
+      }
+    }
+
+    private void capture(byte[] b, int off, int len) {
+      if (overflow) {
+        return;
+      }
+
+      if (buffer.size() + len > maxEntrySize) {
+        // Too large to be worth caching. Release what has been buffered so far.
+        overflow = true;
+        buffer.reset();
+      } else {
+        buffer.write(b, off, len);
+      }
+    }
+
+  }
+
+}
@@ -10,6 +10,7 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.dcc.portal.pql.meta.RepositoryFileTypeModel;
 import org.dcc.portal.pql.meta.TypeModel;
@@ -548,9 +549,17 @@ public class IndexModel {
       GeneSetType.GENE_SET_TYPE_PATHWAY.getType(), "hasPathway",
       GeneSetType.GENE_SET_TYPE_GO.getType(), "hasGoTerm");
 
-  private String index;
+  /**
+   * The release index served to requests. Replaced when a new release is published while the portal is running.
+   */
+  private volatile String index;
   private String repoIndexName;
 
+  /**
+   * Index of a release that is still being warmed up, visible only to the thread warming it up.
+   */
+  private final ThreadLocal<String> pinnedIndex = new ThreadLocal<>();
+
   @Autowired
   public IndexModel(@Value("#{indexName}") String index, @Value("#{repoIndexName}") String repoIndexName) {
     super();
@@ -558,8 +567,28 @@ public class IndexModel {
     this.repoIndexName = repoIndexName;
   }
 
+  /**
+   * @return the index pinned to the current thread by {@link #withIndex(String, Supplier)}, otherwise the served one
+   */
   public String getIndex() {
-    return this.index;
+    val pinned = pinnedIndex.get();
+    return pinned == null ? this.index : pinned;
+  }
+
+  public void setIndex(@NonNull String index) {
+    this.index = index;
+  }
+
+  /**
+   * Runs {@code action} on the current thread as if {@code index} was being served, leaving other threads unaffected.
+   */
+  public <T> T withIndex(@NonNull String index, @NonNull Supplier<T> action) {
+    pinnedIndex.set(index);
+    try {
+      return action.get();
+    } finally {
+      pinnedIndex.remove();
+    }
   }
 
   public String getRepoIndex() {
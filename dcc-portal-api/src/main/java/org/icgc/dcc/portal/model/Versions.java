@@ -16,7 +16,9 @@
  */
 package org.icgc.dcc.portal.model;
 
+import lombok.Setter;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
 /**
  * Application versions.
@@ -27,7 +29,15 @@ public class Versions {
   String api;
   String portal;
   String portalCommit;
-  String indexCommit;
-  String indexName;
+
+  /**
+   * Updated when a new release is published while the portal is running.
+   */
+  @NonFinal
+  @Setter
+  volatile String indexCommit;
+  @NonFinal
+  @Setter
+  volatile String indexName;
 
 }
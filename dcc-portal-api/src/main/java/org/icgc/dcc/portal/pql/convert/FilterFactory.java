@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.pql.convert;
+
+import static java.lang.String.format;
+import static org.dcc.portal.pql.util.Converters.stringValue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.dcc.portal.pql.ast.builder.FilterBuilder;
+import org.dcc.portal.pql.ast.builder.FilterBuilders;
+import org.icgc.dcc.common.core.util.Joiners;
+import org.icgc.dcc.portal.pql.convert.model.JqlArrayValue;
+
+import com.google.common.base.Joiner;
+import com.google.common.primitives.Ints;
+
+import lombok.val;
+
+/**
+ * Creates the PQL filters emitted by {@link FiltersConverter}. Allows the same conversion rules to produce either PQL
+ * text or a PQL AST.
+ */
+interface FilterFactory<T> {
+
+  /**
+   * Renders filters as PQL text.
+   */
+  FilterFactory<String> PQL_STRING = new PqlStringFilterFactory();
+
+  /**
+   * Builds filters as PQL AST nodes, so that the result can be executed without parsing.
+   */
+  FilterFactory<FilterBuilder> PQL_AST = new PqlAstFilterFactory();
+
+  T eq(String field, Object value);
+
+  T ne(String field, Object value);
+
+  T in(String field, List<Object> values);
+
+  T exists(String field);
+
+  T missing(String field);
+
+  T not(List<T> filters);
+
+  T and(List<T> filters);
+
+  T or(List<T> filters);
+
+  T nested(String path, List<T> filters);
+
+  class PqlStringFilterFactory implements FilterFactory<String> {
+
+    private static final Joiner COMMA_JOINER = Joiners.COMMA.skipNulls();
+
+    @Override
+    public String eq(String field, Object value) {
+      return format("eq(%s,%s)", field, stringValue(value));
+    }
+
+    @Override
+    public String ne(String field, Object value) {
+      return format("ne(%s,%s)", field, stringValue(value));
+    }
+
+    @Override
+    public String in(String field, List<Object> values) {
+      return format("in(%s,%s)", field, new JqlArrayValue(values).textValue());
+    }
+
+    @Override
+    public String exists(String field) {
+      return format("exists(%s)", field);
+    }
+
+    @Override
+    public String missing(String field) {
+      return format("missing(%s)", field);
+    }
+
+    @Override
+    public String not(List<String> filters) {
+      return format("not(%s)", COMMA_JOINER.join(filters));
+    }
+
+    @Override
+    public String and(List<String> filters) {
+      return format("and(%s)", COMMA_JOINER.join(filters));
+    }
+
+    @Override
+    public String or(List<String> filters) {
+      return format("or(%s)", COMMA_JOINER.join(filters));
+    }
+
+    @Override
+    public String nested(String path, List<String> filters) {
+      return format("nested(%s,%s)", path, COMMA_JOINER.join(filters));
+    }
+
+  }
+
+  class PqlAstFilterFactory implements FilterFactory<FilterBuilder> {
+
+    @Override
+    public FilterBuilder eq(String field, Object value) {
+      return FilterBuilders.eq(field, normalize(value));
+    }
+
+    @Override
+    public FilterBuilder ne(String field, Object value) {
+      return FilterBuilders.ne(field, normalize(value));
+    }
+
+    @Override
+    public FilterBuilder in(String field, List<Object> values) {
+      return FilterBuilders.in(field, values.stream().map(PqlAstFilterFactory::normalize).toArray());
+    }
+
+    @Override
+    public FilterBuilder exists(String field) {
+      return FilterBuilders.exists(field);
+    }
+
+    @Override
+    public FilterBuilder missing(String field) {
+      return FilterBuilders.missing(field);
+    }
+
+    @Override
+    public FilterBuilder not(List<FilterBuilder> filters) {
+      // PQL negates a single filter. A list of filters is implicitly a conjunction.
+      return FilterBuilders.not(filters.size() == 1 ? filters.get(0) : and(filters));
+    }
+
+    @Override
+    public FilterBuilder and(List<FilterBuilder> filters) {
+      return FilterBuilders.and(toArray(filters));
+    }
+
+    @Override
+    public FilterBuilder or(List<FilterBuilder> filters) {
+      return FilterBuilders.or(toArray(filters));
+    }
+
+    @Override
+    public FilterBuilder nested(String path, List<FilterBuilder> filters) {
+      return FilterBuilders.nested(path, toArray(filters));
+    }
+
+    /**
+     * Narrows numbers to the types the PQL parser produces, so the AST matches the parsed PQL text.
+     */
+    private static Object normalize(Object value) {
+      if (!(value instanceof Number)) {
+        return value;
+      }
+
+      val number = (Number) value;
+      if (number instanceof Double || number instanceof Float || number instanceof BigDecimal) {
+        return number.doubleValue();
+      }
+
+      return Ints.checkedCast(number.longValue());
+    }
+
+    private static FilterBuilder[] toArray(List<FilterBuilder> filters) {
+      return filters.toArray(new FilterBuilder[filters.size()]);
+    }
+
+  }
+
+}
@@ -19,19 +19,19 @@ package org.icgc.dcc.portal.pql.convert;
 
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.filterKeys;
-import static com.google.common.collect.Maps.transformEntries;
 import static com.google.common.collect.Maps.transformValues;
 import static com.google.common.collect.Sets.newTreeSet;
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 import static org.dcc.portal.pql.meta.IndexModel.getTypeModel;
 import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
 import static org.dcc.portal.pql.meta.Type.PROJECT;
 import static org.dcc.portal.pql.meta.TypeModel.ENTITY_SET_ID;
 import static org.dcc.portal.pql.meta.TypeModel.GENE_SET_ID;
-import static org.dcc.portal.pql.util.Converters.stringValue;
+import static org.icgc.dcc.portal.pql.convert.FilterFactory.PQL_AST;
+import static org.icgc.dcc.portal.pql.convert.FilterFactory.PQL_STRING;
 import static org.icgc.dcc.portal.pql.convert.model.Operation.ALL;
 import static org.icgc.dcc.portal.pql.convert.model.Operation.HAS;
 import static org.icgc.dcc.portal.pql.convert.model.Operation.IS;
@@ -45,6 +45,7 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.apache.commons.math3.util.Pair;
+import org.dcc.portal.pql.ast.builder.FilterBuilder;
 import org.dcc.portal.pql.meta.Type;
 import org.dcc.portal.pql.meta.TypeModel;
 import org.icgc.dcc.common.core.util.Joiners;
@@ -72,14 +73,6 @@ public class FiltersConverter {
   private static final String GENE_PATH = "gene";
   private static final String MISSING_VALUE = "_missing";
   private static final String EMPTY_NESTED_PATH = "";
-  private static final String PQL_OR_TEMPLATE = "or(%s)";
-  private static final String NOT_TEMPLATE = "not(%s)";
-  private static final String IN_TEMPLATE = "in(%s,%s)";
-  private static final String EQ_TEMPLATE = "eq(%s,%s)";
-  private static final String NE_TEMPLATE = "ne(%s,%s)";
-  private static final String EXISTS_TEMPLATE = "exists(%s)";
-  private static final String MISSING_TEMPLATE = "missing(%s)";
-  private static final String NESTED_TEMPLATE = "nested(%s,%s)";
   private static final String ENTITY_SET_PREFIX = "ES:";
 
   private static final Ordering<String> NATURAL_ORDER = Ordering.<String> natural();
@@ -110,6 +103,19 @@ public class FiltersConverter {
 
   @NonNull
   public String convertFilters(JqlFilters filters, Type indexType) {
+    return COMMA_JOINER.join(convertFilters(PQL_STRING, filters, indexType));
+  }
+
+  /**
+   * Converts {@code filters} directly to PQL AST filters, so they can be used without rendering and re-parsing PQL.
+   * The result is equivalent to parsing the output of {@link #convertFilters(JqlFilters, Type)}.
+   */
+  @NonNull
+  public List<FilterBuilder> convertFiltersToAst(JqlFilters filters, Type indexType) {
+    return convertFilters(PQL_AST, filters, indexType);
+  }
+
+  private static <T> List<T> convertFilters(FilterFactory<T> factory, JqlFilters filters, Type indexType) {
     if (indexType == PROJECT) {
       filters = cleanProjectFilters(filters);
     }
@@ -129,14 +135,20 @@ public class FiltersConverter {
     val groupedPaths = groupNestedPaths(sortedDescPaths, getTypeModel(indexType));
     log.debug("Groupped paths: {}", groupedPaths);
 
-    val groupedFilters = transformEntries(groupedPaths.asMap(), (key, values) -> {
-      final String filter = createFilterByNestedPath(indexType, fieldsGrouppedByNestedPath,
+    val result = Lists.<T> newArrayList();
+    for (val entry : groupedPaths.asMap().entrySet()) {
+      val values = entry.getValue();
+      val filter = createFilterByNestedPath(factory, indexType, fieldsGrouppedByNestedPath,
           newArrayList(newTreeSet(values).descendingSet()));
 
-      return isEncloseWithCommonParent(values) ? encloseWithCommonParent(key, filter) : filter;
-    });
+      if (isEncloseWithCommonParent(values)) {
+        result.add(factory.nested(entry.getKey(), filter));
+      } else {
+        result.addAll(filter);
+      }
+    }
 
-    return COMMA_JOINER.join(groupedFilters.values());
+    return result;
   }
 
   private static JqlFilters cleanProjectFilters(JqlFilters filters) {
@@ -151,10 +163,6 @@ public class FiltersConverter {
     return newArrayList(filter(source, f -> VALID_PROJECT_FILTERS.contains(f.getName())));
   }
 
-  private String encloseWithCommonParent(String commonPath, String filter) {
-    return format(NESTED_TEMPLATE, commonPath, filter);
-  }
-
   static boolean isEncloseWithCommonParent(Collection<String> nestedPaths) {
     return nestedPaths.size() > 1 && !hasCommonParent(nestedPaths);
   }
@@ -241,14 +249,19 @@ public class FiltersConverter {
    */
   static String createFilterByNestedPath(Type indexType, ListMultimap<String, JqlField> sortedFields,
       List<String> sortedDescPaths) {
+    return COMMA_JOINER.join(createFilterByNestedPath(PQL_STRING, indexType, sortedFields, sortedDescPaths));
+  }
+
+  private static <T> List<T> createFilterByNestedPath(FilterFactory<T> factory, Type indexType,
+      ListMultimap<String, JqlField> sortedFields, List<String> sortedDescPaths) {
     val size = sortedDescPaths.size();
 
     if (size < 1) {
-      return "";
+      return ImmutableList.of();
     }
 
     val firstPath = head(sortedDescPaths);
-    val firstValue = resolveFirstNestedPath(indexType, firstPath, sortedFields);
+    val firstValue = resolveFirstNestedPath(factory, indexType, firstPath, sortedFields);
 
     if (size == 1) {
       return firstValue;
@@ -256,10 +269,11 @@ public class FiltersConverter {
 
     val initialValue = createReduceValuePair(firstValue, firstPath);
 
-    val result = prepareForReduce(tail(sortedDescPaths))
+    val result = FiltersConverter.<T> prepareForReduce(tail(sortedDescPaths))
         .reduce(initialValue, (accumulated, value) -> {
-          final String nestedPath = unboxReduceValue(value);
-          final String newReducedValue = resolveRestNestedPath(indexType, accumulated, nestedPath, sortedFields);
+          final String nestedPath = value.getSecond();
+          final List<T> newReducedValue =
+              resolveRestNestedPath(factory, indexType, accumulated, nestedPath, sortedFields);
 
           return createReduceValuePair(newReducedValue, nestedPath);
         });
@@ -267,25 +281,34 @@ public class FiltersConverter {
     return unboxReduceValue(result);
   }
 
-  private static String resolveFirstNestedPath(Type indexType, String nestedPath,
+  private static <T> List<T> resolveFirstNestedPath(FilterFactory<T> factory, Type indexType, String nestedPath,
       ListMultimap<String, JqlField> sortedFields) {
-    val typeFilter = createTypeFilter(sortedFields.get(nestedPath), indexType);
+    val typeFilter = createTypeFilter(factory, sortedFields.get(nestedPath), indexType);
 
-    return isNestFilter(nestedPath, indexType) ? format(NESTED_TEMPLATE, resolveNestedPath(nestedPath, indexType),
-        typeFilter) : typeFilter;
+    return isNestFilter(nestedPath, indexType) ? ImmutableList.of(
+        factory.nested(resolveNestedPath(nestedPath, indexType), typeFilter)) : typeFilter;
   }
 
-  private static String resolveRestNestedPath(Type indexType, Pair<String, String> reduceValuePair, String nestedPath,
-      ListMultimap<String, JqlField> sortedFields) {
-    val filter = createTypeFilter(sortedFields.get(nestedPath), indexType);
+  private static <T> List<T> resolveRestNestedPath(FilterFactory<T> factory, Type indexType,
+      Pair<List<T>, String> reduceValuePair, String nestedPath, ListMultimap<String, JqlField> sortedFields) {
+    val filter = createTypeFilter(factory, sortedFields.get(nestedPath), indexType);
     val reducedValue = unboxReduceValue(reduceValuePair);
     val previousSiblingPath = reduceValuePair.getSecond();
 
-    return isNestFilter(nestedPath,
-        indexType) ? (isChildNesting(nestedPath, previousSiblingPath) ? format("nested(%s,and(%s,%s))",
-            resolveNestedPath(nestedPath, indexType), reducedValue,
-            filter) : format("nested(%s,%s),%s", nestedPath, filter, reducedValue)) : format("%s,%s", filter,
-                reducedValue);
+    if (!isNestFilter(nestedPath, indexType)) {
+      return concat(filter, reducedValue);
+    }
+
+    if (isChildNesting(nestedPath, previousSiblingPath)) {
+      return ImmutableList.of(factory.nested(resolveNestedPath(nestedPath, indexType),
+          ImmutableList.of(factory.and(concat(reducedValue, filter)))));
+    }
+
+    return concat(ImmutableList.of(factory.nested(nestedPath, filter)), reducedValue);
+  }
+
+  private static <T> List<T> concat(List<T> first, List<T> second) {
+    return ImmutableList.<T> builder().addAll(first).addAll(second).build();
   }
 
   private static <T> T head(@NonNull List<T> list) {
@@ -301,17 +324,18 @@ public class FiltersConverter {
 
   /*
    * This prepares for a reduce operation. Due to that our accumulator is a pair of (accumulatedValue,
-   * previousSiblingPath), we have to wrap elements in our collection to the same type as the accumulator.
+   * previousSiblingPath), we have to wrap elements in our collection to the same type as the accumulator. The nested
+   * path of an element is carried as its second value.
    */
-  private static Stream<Pair<String, String>> prepareForReduce(@NonNull Stream<String> stream) {
-    return stream.map(value -> createReduceValuePair(value, value));
+  private static <T> Stream<Pair<List<T>, String>> prepareForReduce(@NonNull Stream<String> stream) {
+    return stream.map(value -> createReduceValuePair(ImmutableList.<T> of(), value));
   }
 
-  private static Pair<String, String> createReduceValuePair(String reducedValue, String previousSiblingPath) {
-    return new Pair<String, String>(reducedValue, previousSiblingPath);
+  private static <T> Pair<List<T>, String> createReduceValuePair(List<T> reducedValue, String previousSiblingPath) {
+    return new Pair<List<T>, String>(reducedValue, previousSiblingPath);
   }
 
-  private static String unboxReduceValue(@NonNull Pair<String, String> reduceValuePair) {
+  private static <T> List<T> unboxReduceValue(@NonNull Pair<List<T>, String> reduceValuePair) {
     return reduceValuePair.getFirst();
   }
 
@@ -344,16 +368,14 @@ public class FiltersConverter {
   }
 
   @NonNull
-  private static String toPqlFilter(Collection<JqlField> jqlFields, Type indexType) {
-    if (jqlFields.isEmpty()) {
-      return null;
-    }
-
-    return COMMA_JOINER.join(transform(jqlFields,
-        field -> createFilter(field, indexType)));
+  private static <T> List<T> toPqlFilter(FilterFactory<T> factory, Collection<JqlField> jqlFields, Type indexType) {
+    return jqlFields.stream()
+        .map(field -> createFilter(factory, field, indexType))
+        .collect(toList());
   }
 
-  private static String createTypeFilter(Collection<JqlField> fields, Type indexType) {
+  private static <T> List<T> createTypeFilter(FilterFactory<T> factory, Collection<JqlField> fields,
+      Type indexType) {
     val pathwayIdFields = Lists.<JqlField> newArrayList();
     val hasPathwayFields = Lists.<JqlField> newArrayList();
     val entitySetIdFields = Lists.<JqlField> newArrayList();
@@ -378,18 +400,18 @@ public class FiltersConverter {
     }
 
     // Special handling when pathwayId and hasPathway are both present; if not, process normally
-    String pathwayRelatedFilter = null;
+    List<T> pathwayRelatedFilter = ImmutableList.of();
 
     if (pathwayIdFields.isEmpty() || hasPathwayFields.isEmpty()) {
       remainingFields.addAll(pathwayIdFields);
       remainingFields.addAll(hasPathwayFields);
     } else {
       pathwayIdFields.addAll(hasPathwayFields);
-      pathwayRelatedFilter = orFilterHelper(toPqlFilter(pathwayIdFields, indexType));
+      pathwayRelatedFilter = orFilterHelper(factory, toPqlFilter(factory, pathwayIdFields, indexType));
     }
 
     // Special handling when entitySetId and id are both present; if not, process normally
-    String entitySetRelatedFilter = null;
+    List<T> entitySetRelatedFilter = ImmutableList.of();
     if (entitySetIdFields.isEmpty() || idFields.isEmpty()) {
 
       boolean notFacet = false;
@@ -398,7 +420,7 @@ public class FiltersConverter {
       if (idFields.isEmpty()) {
         remainingFields.addAll(entitySetIdFields);
         remainingFields.addAll(idFields);
-        return joinFilters(remainingFields, pathwayRelatedFilter, entitySetRelatedFilter, indexType);
+        return joinFilters(factory, remainingFields, pathwayRelatedFilter, entitySetRelatedFilter, indexType);
       }
 
       // Inspect ids to see if we have an inline entity set
@@ -437,13 +459,13 @@ public class FiltersConverter {
         }
 
         entitySetIdFields.addAll(newIdFields);
-        entitySetRelatedFilter = toPqlFilter(entitySetIdFields, indexType);
+        entitySetRelatedFilter = toPqlFilter(factory, entitySetIdFields, indexType);
 
         if (!entitySetIdFields.isEmpty() && !newIdFields.isEmpty()) {
-          entitySetRelatedFilter = orFilterHelper(entitySetRelatedFilter);
-          entitySetRelatedFilter = notFacet ? format(NOT_TEMPLATE, entitySetRelatedFilter) : entitySetRelatedFilter;
+          entitySetRelatedFilter = orFilterHelper(factory, entitySetRelatedFilter);
+          entitySetRelatedFilter = notFacet ? notFilterHelper(factory, entitySetRelatedFilter) : entitySetRelatedFilter;
         } else if (!entitySetIdFields.isEmpty()) {
-          entitySetRelatedFilter = notFacet ? format(NOT_TEMPLATE, entitySetRelatedFilter) : entitySetRelatedFilter;
+          entitySetRelatedFilter = notFacet ? notFilterHelper(factory, entitySetRelatedFilter) : entitySetRelatedFilter;
         } else {
           // There were no entitysets, use original unmodified fields
           remainingFields.addAll(idFields);
@@ -452,21 +474,27 @@ public class FiltersConverter {
 
     } else {
       entitySetIdFields.addAll(idFields);
-      entitySetRelatedFilter = orFilterHelper(toPqlFilter(entitySetIdFields, indexType));
+      entitySetRelatedFilter = orFilterHelper(factory, toPqlFilter(factory, entitySetIdFields, indexType));
     }
 
-    return joinFilters(remainingFields, pathwayRelatedFilter, entitySetRelatedFilter, indexType);
+    return joinFilters(factory, remainingFields, pathwayRelatedFilter, entitySetRelatedFilter, indexType);
   }
 
-  private static String orFilterHelper(String filter) {
-    return (null == filter) ? null : format(PQL_OR_TEMPLATE, filter);
+  private static <T> List<T> orFilterHelper(FilterFactory<T> factory, List<T> filter) {
+    return filter.isEmpty() ? filter : ImmutableList.of(factory.or(filter));
   }
 
-  private static String joinFilters(ArrayList<JqlField> remaining, String pathways, String entitySets, Type type) {
-    return COMMA_JOINER.join(
-        toPqlFilter(remaining, type),
-        pathways,
-        entitySets);
+  private static <T> List<T> notFilterHelper(FilterFactory<T> factory, List<T> filter) {
+    return ImmutableList.of(factory.not(filter));
+  }
+
+  private static <T> List<T> joinFilters(FilterFactory<T> factory, ArrayList<JqlField> remaining, List<T> pathways,
+      List<T> entitySets, Type type) {
+    return ImmutableList.<T> builder()
+        .addAll(toPqlFilter(factory, remaining, type))
+        .addAll(pathways)
+        .addAll(entitySets)
+        .build();
   }
 
   private static boolean isNestedField(@NonNull JqlField field) {
@@ -579,47 +607,47 @@ public class FiltersConverter {
     return indexType.getId().startsWith(typePrefix);
   }
 
-  private static String createFilter(JqlField jqlField, Type indexType) {
+  private static <T> T createFilter(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
     val operation = jqlField.getOperation();
 
     if (operation == HAS) {
       val typeModel = getTypeModel(indexType);
       val fieldName = typeModel.getField(jqlField.getName());
 
-      return resolveMissingFilter(fieldName, jqlField);
+      return resolveMissingFilter(factory, fieldName, jqlField);
     }
 
     if (operation == ALL) {
-      return resolveAllFilter(jqlField, indexType);
+      return resolveAllFilter(factory, jqlField, indexType);
     }
 
     val fieldValue = jqlField.getValue();
 
     if (fieldValue.contains(MISSING_VALUE)) {
-      return createMissingFilter(jqlField, indexType);
+      return createMissingFilter(factory, jqlField, indexType);
     }
 
-    val filterType = createFilterByValueType(jqlField, indexType);
+    val filterType = createFilterByValueType(factory, jqlField, indexType);
 
     if (operation == NOT && fieldValue.isArray()) {
-      return format(NOT_TEMPLATE, filterType);
+      return factory.not(ImmutableList.of(filterType));
     }
 
     return filterType;
   }
 
-  private static String resolveAllFilter(JqlField jqlField, Type indexType) {
-    val values = createAllFilters(jqlField, indexType);
+  private static <T> T resolveAllFilter(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
+    val values = createAllFilters(factory, jqlField, indexType);
 
-    return format("and(%s)", COMMA_JOINER.join(values));
+    return factory.and(values);
   }
 
-  private static List<String> createAllFilters(JqlField jqlField, Type indexType) {
+  private static <T> List<T> createAllFilters(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
     val fieldName = parseFieldName(jqlField, indexType);
     val values = (JqlArrayValue) jqlField.getValue();
 
     return Lists.transform(values.get(),
-        rawValue -> format(IN_TEMPLATE, fieldName, stringValue(rawValue)));
+        rawValue -> factory.in(fieldName, ImmutableList.of(rawValue)));
   }
 
   private static boolean isTrue(JqlValue boolValue) {
@@ -630,33 +658,32 @@ public class FiltersConverter {
     return Boolean.TRUE.equals(boolValue.get());
   }
 
-  private static String resolveMissingFilter(String fieldName, JqlField jqlField) {
-    val formatTemplate = isTrue(jqlField.getValue()) ? EXISTS_TEMPLATE : MISSING_TEMPLATE;
-
-    return format(formatTemplate, fieldName);
+  private static <T> T resolveMissingFilter(FilterFactory<T> factory, String fieldName, JqlField jqlField) {
+    return isTrue(jqlField.getValue()) ? factory.exists(fieldName) : factory.missing(fieldName);
   }
 
-  private static String createMissingFilter(JqlField jqlField, Type indexType) {
+  private static <T> T createMissingFilter(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
     val fieldName = parseFieldName(jqlField, indexType);
     val fieldValue = jqlField.getValue();
 
     if (fieldValue.isArray()) {
-      val arrayFilter = createArrayFilterForMissingField(jqlField, indexType);
-      val missingFilter = format(MISSING_TEMPLATE, fieldName);
-      val orFilter = arrayFilter.isPresent() ? format("or(%s,%s)", missingFilter, arrayFilter.get()) : missingFilter;
+      val arrayFilter = createArrayFilterForMissingField(factory, jqlField, indexType);
+      val missingFilter = factory.missing(fieldName);
+      val orFilter = arrayFilter.isPresent() ? factory.or(ImmutableList.of(missingFilter,
+          arrayFilter.get())) : missingFilter;
 
       if (jqlField.getOperation() == NOT) {
-        return format(NOT_TEMPLATE, orFilter);
+        return factory.not(ImmutableList.of(orFilter));
       } else {
         return orFilter;
       }
     }
 
-    val formatTemplate = isTrue(fieldValue) ? MISSING_TEMPLATE : EXISTS_TEMPLATE;
-    return format(formatTemplate, fieldName);
+    return isTrue(fieldValue) ? factory.missing(fieldName) : factory.exists(fieldName);
   }
 
-  private static Optional<String> createArrayFilterForMissingField(JqlField jqlField, Type indexType) {
+  private static <T> Optional<T> createArrayFilterForMissingField(FilterFactory<T> factory, JqlField jqlField,
+      Type indexType) {
     val values = newArrayList(((JqlArrayValue) jqlField.getValue()).get());
     values.remove(MISSING_VALUE);
 
@@ -667,24 +694,25 @@ public class FiltersConverter {
     val newJqlValue = new JqlArrayValue(values);
     val newJqlField = new JqlField(jqlField.getName(), jqlField.getOperation(), newJqlValue, jqlField.getPrefix());
 
-    return Optional.of(createInFilter(newJqlField, indexType));
+    return Optional.of(createInFilter(factory, newJqlField, indexType));
   }
 
-  private static String createFilterByValueType(JqlField jqlField, Type indexType) {
-    return jqlField.getValue().isArray() ? createInFilter(jqlField, indexType) : createEqFilter(jqlField, indexType);
+  private static <T> T createFilterByValueType(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
+    return jqlField.getValue().isArray() ? createInFilter(factory, jqlField, indexType) : createEqFilter(factory,
+        jqlField, indexType);
   }
 
-  private static String createEqFilter(JqlField jqlField, Type indexType) {
+  private static <T> T createEqFilter(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
+    val fieldName = parseFieldName(jqlField, indexType);
     val fieldValue = jqlField.getValue().get();
-    val formatTemplate = (IS == jqlField.getOperation()) ? EQ_TEMPLATE : NE_TEMPLATE;
 
-    return format(formatTemplate, parseFieldName(jqlField, indexType), stringValue(fieldValue));
+    return (IS == jqlField.getOperation()) ? factory.eq(fieldName, fieldValue) : factory.ne(fieldName, fieldValue);
   }
 
-  private static String createInFilter(JqlField jqlField, Type indexType) {
+  private static <T> T createInFilter(FilterFactory<T> factory, JqlField jqlField, Type indexType) {
     val arrayField = (JqlArrayValue) jqlField.getValue();
 
-    return format(IN_TEMPLATE, parseFieldName(jqlField, indexType), arrayField.textValue());
+    return factory.in(parseFieldName(jqlField, indexType), arrayField.get());
   }
 
   private static String parseFieldName(JqlField jqlField, Type indexType) {
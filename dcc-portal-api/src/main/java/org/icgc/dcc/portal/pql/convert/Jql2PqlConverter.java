@@ -21,8 +21,12 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 import static org.apache.commons.collections.CollectionUtils.isEmpty;
+import static org.dcc.portal.pql.ast.builder.FilterBuilders.and;
 import static org.dcc.portal.pql.ast.builder.PqlBuilders.count;
-import static org.dcc.portal.pql.query.PqlParser.parse;
+import static org.dcc.portal.pql.ast.function.FunctionBuilders.facetsAll;
+import static org.dcc.portal.pql.ast.function.FunctionBuilders.limit;
+import static org.dcc.portal.pql.ast.function.FunctionBuilders.select;
+import static org.dcc.portal.pql.ast.function.FunctionBuilders.selectAll;
 
 import java.util.List;
 
@@ -31,6 +35,10 @@ import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+import org.dcc.portal.pql.ast.StatementNode;
+import org.dcc.portal.pql.ast.builder.FilterBuilder;
+import org.dcc.portal.pql.ast.function.SelectNode;
+import org.dcc.portal.pql.ast.function.SortNode;
 import org.dcc.portal.pql.exception.SemanticException;
 import org.dcc.portal.pql.meta.Type;
 import org.elasticsearch.search.sort.SortOrder;
@@ -41,6 +49,7 @@ import org.icgc.dcc.portal.pql.convert.model.JqlFilters;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Converts JSON-like queries to PQL ones.
@@ -117,11 +126,58 @@ public class Jql2PqlConverter {
     return result.toString();
   }
 
+  /**
+   * Converts {@code query} directly to a PQL AST. The result is equivalent to parsing the output of
+   * {@link #convert(Query, Type)}, but skips rendering and re-parsing the PQL.
+   */
+  public StatementNode convertToAst(@NonNull Query query, @NonNull Type type) {
+    val result = new StatementNode();
+    result.addSelect(parseFieldsToAst(query.getFields()));
+
+    val includes = query.getIncludes();
+
+    if (!isEmpty(includes)) {
+      addIncludes(result, includes);
+    }
+
+    if (query.hasFilters()) {
+      val filters = convertFiltersToAst(query.getFilters().toString(), type);
+
+      // After the cleaning project filters may get empty
+      if (!filters.isEmpty()) {
+        result.setFilters(filters.size() == 1 ? filters.get(0).build() : and(toArray(filters)).build());
+      }
+    }
+
+    val sort = query.getSort();
+    if (sort != null && !sort.isEmpty()) {
+      val order = query.getOrder();
+      checkState(order != null, "The query is missing sort order");
+      result.setSort(parseSortToAst(sort, order));
+    }
+
+    if (query.getSize() > 0) {
+      checkState(query.getLimit() == null, "Limit is not implemented");
+      val from = query.getFrom();
+      val size = query.getSize();
+      result.setLimit(from > 0 ? limit(from, size) : limit(size));
+    }
+
+    checkState(query.getScore() == null && query.getQuery() == null, "Not implemented");
+    log.debug("Converted PQL AST: {}", result);
+
+    return result;
+  }
+
   public String convertCount(@NonNull Query query, @NonNull Type type) {
-    val pql = convert(query, type);
-    log.debug("Converted PQL (as a regular Select query): {}", pql);
+    val result = convertCountToAst(query, type).toString();
+    log.debug("Converted Count PQL: {}", result);
+
+    return result;
+  }
 
-    val pqlAst = parse(pql);
+  public StatementNode convertCountToAst(@NonNull Query query, @NonNull Type type) {
+    val pqlAst = convertToAst(query, type);
     val countQuery = count().build();
 
     if (query.hasFilters()) {
@@ -140,10 +196,20 @@ public class Jql2PqlConverter {
       }
     }
 
-    val result = countQuery.toString();
-    log.debug("Converted Count PQL: {}", result);
+    return countQuery;
+  }
 
-    return result;
+  private static void addIncludes(StatementNode statement, List<String> queryIncludes) {
+    val includes = newArrayList(queryIncludes);
+
+    if (includes.contains(FACETS)) {
+      includes.removeAll(newArrayList(FACETS));
+      statement.setFacets(facetsAll());
+    }
+
+    if (!includes.isEmpty()) {
+      statement.addSelect(parseFieldsToAst(includes));
+    }
   }
 
   private static String parseIncludes(List<String> queryIncludes) {
@@ -178,6 +244,16 @@ public class Jql2PqlConverter {
     return order == SortOrder.ASC ? format(SORT_TEMPLATE, ASC_SORT, field) : format(SORT_TEMPLATE, DESC_SORT, field);
   }
 
+  private static SortNode parseSortToAst(String field, SortOrder order) {
+    val builder = SortNode.builder();
+
+    return (order == SortOrder.ASC ? builder.sortAsc(field) : builder.sortDesc(field)).build();
+  }
+
+  private static SelectNode parseFieldsToAst(List<String> fields) {
+    return isEmpty(fields) ? selectAll() : select(ImmutableList.copyOf(fields));
+  }
+
   private static String parseFields(List<String> fields) {
     val fieldString = isEmpty(fields) ? "*" : COMMA_JOINER.join(fields);
 
@@ -192,6 +268,18 @@ public class Jql2PqlConverter {
     return FILTERS_CONVERTER.convertFilters(filtersEntry, indexType);
   }
 
+  @SneakyThrows
+  private static List<FilterBuilder> convertFiltersToAst(@NonNull String jqlFilters, Type indexType) {
+    val filtersEntry = MAPPER.readValue(jqlFilters, JqlFilters.class);
+    log.debug("Parsed JQL filters: {}", filtersEntry);
+
+    return FILTERS_CONVERTER.convertFiltersToAst(filtersEntry, indexType);
+  }
+
+  private static FilterBuilder[] toArray(List<FilterBuilder> filters) {
+    return filters.toArray(new FilterBuilder[filters.size()]);
+  }
+
   private static ObjectMapper createObjectMapper() {
     return registerJqlDeserializer(new ObjectMapper());
   }
@@ -18,12 +18,15 @@
 package org.icgc.dcc.portal.repository;
 
 import static org.elasticsearch.action.search.SearchType.QUERY_AND_FETCH;
+import static org.elasticsearch.action.search.SearchType.SCAN;
 import static org.elasticsearch.index.query.FilterBuilders.andFilter;
 import static org.elasticsearch.index.query.FilterBuilders.orFilter;
 import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
 import static org.elasticsearch.index.query.FilterBuilders.termFilter;
 import static org.elasticsearch.index.query.FilterBuilders.nestedFilter;
 import static org.elasticsearch.index.query.QueryBuilders.filteredQuery;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
+import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.List;
 import java.util.function.Consumer;
@@ -31,13 +34,16 @@ import java.util.function.Consumer;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.AndFilterBuilder;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import lombok.NonNull;
@@ -53,25 +59,27 @@ public class BrowserRepository {
    */
   private static final String MUTATION = Type.MUTATION_CENTRIC.getId();
   private static final String GENE = Type.GENE_CENTRIC.getId();
-  private static final Integer MUTATION_SIZE = 100000;
-  private static final Integer GENE_SIZE = 10000;
+  private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private static final int SCROLL_BATCH_SIZE = 500;
 
   private final Client client;
-  private final String indexName;
+  private final IndexModel indexModel;
 
   @Autowired
-  public BrowserRepository(@NonNull Client client, @NonNull @Value("#{indexName}") String indexName) {
-    this.indexName = indexName;
+  public BrowserRepository(@NonNull Client client, @NonNull IndexModel indexModel) {
+    this.indexModel = indexModel;
     this.client = client;
   }
 
-  public SearchResponse getMutation(String segmentId, Long start, Long stop, List<String> consequenceTypes,
-      List<String> projectFilters, List<String> impactFilters) {
+  /**
+   * Scrolls the mutations overlapping [{@code start}, {@code stop}], passing each batch of hits to {@code consumer}.
+   */
+  public void scrollMutations(String segmentId, Long start, Long stop, List<String> consequenceTypes,
+      List<String> projectFilters, List<String> impactFilters, @NonNull Consumer<SearchHits> consumer) {
     val filter = getMutationFilter(segmentId, start, stop, consequenceTypes, projectFilters, impactFilters);
 
-    return execute("Browser Mutation Request", (request) -> request
+    scroll("Browser Mutation Request", (request) -> request
         .setTypes(MUTATION)
-        .setSearchType(QUERY_AND_FETCH)
         .setPostFilter(filter)
         .addFields(
             "_mutation_id",
@@ -91,42 +99,46 @@ public class BrowserRepository {
                 "transcript.consequence._transcript_id",
                 "transcript.consequence.consequence_type",
                 "transcript.consequence.aa_mutation"),
-            excludes())
-        .setFrom(0)
-        .setSize(MUTATION_SIZE));
+            excludes()),
+        consumer);
   }
 
-  public SearchResponse getGene(String segmentId, Long start, Long stop, List<String> biotypes,
-      boolean withTranscripts, List<String> impactFilters) {
+  /**
+   * Scrolls the genes overlapping [{@code start}, {@code stop}], passing each batch of hits to {@code consumer}.
+   */
+  public void scrollGenes(String segmentId, Long start, Long stop, List<String> biotypes, boolean withTranscripts,
+      List<String> impactFilters, @NonNull Consumer<SearchHits> consumer) {
     val filter = getGeneFilter(segmentId, start, stop, biotypes, impactFilters);
 
-    val request = client.prepareSearch(indexName)
-        .setTypes(GENE)
-        .setSearchType(QUERY_AND_FETCH)
-        .addFields(
-            "_gene_id",
-            "name",
-            "biotype",
-            "chromosome",
-            "start",
-            "end",
-            "strand",
-            "description")
-        .setPostFilter(filter)
-        .setFrom(0)
-        .setSize(GENE_SIZE);
-
-    if (withTranscripts) {
-      request.setFetchSource("transcripts", null);
-    }
-
-    log.debug("Browser Gene Request", request);
-    return request.execute().actionGet();
+    scroll("Browser Gene Request", (request) -> {
+      request
+          .setTypes(GENE)
+          .addFields(
+              "_gene_id",
+              "name",
+              "biotype",
+              "chromosome",
+              "start",
+              "end",
+              "strand",
+              "description")
+          .setPostFilter(filter);
+
+      if (withTranscripts) {
+        request.setFetchSource("transcripts", null);
+      }
+    }, consumer);
   }
 
+  /**
+   * Counts the genes starting within [{@code start}, {@code stop}] in buckets of {@code interval}.
+   */
   public SearchResponse getGeneHistogram(Long interval, String segmentId, Long start, Long stop,
       List<String> biotypes, List<String> impactFilters) {
-    val filter = getGeneFilter(segmentId, start, stop, biotypes, impactFilters);
+    val filter = andFilter(
+        termFilter("chromosome", segmentId),
+        rangeFilter("start").gte(start).lte(stop));
+    addGeneFilters(filter, biotypes, impactFilters);
 
     val histogramAggs = AggregationBuilders.histogram("hf")
         .field("start")
@@ -141,9 +153,15 @@ public class BrowserRepository {
         .setSize(0));
   }
 
+  /**
+   * Counts the mutations starting within [{@code start}, {@code stop}] in buckets of {@code interval}.
+   */
   public SearchResponse getMutationHistogram(Long interval, String segmentId, Long start, Long stop,
       List<String> consequenceTypes, List<String> projectFilters, List<String> impactFilters) {
-    val filter = getMutationFilter(segmentId, start, stop, consequenceTypes, projectFilters, impactFilters);
+    val filter = andFilter(
+        termFilter("chromosome", segmentId),
+        rangeFilter("chromosome_start").gte(start).lte(stop));
+    addMutationFilters(filter, consequenceTypes, projectFilters, impactFilters);
 
     val histogramAggs = AggregationBuilders.histogram("hf")
         .field("chromosome_start")
@@ -159,12 +177,42 @@ public class BrowserRepository {
         .setSize(0));
   }
 
+  private void scroll(String message, Consumer<SearchRequestBuilder> customizer, Consumer<SearchHits> consumer) {
+    val request = client.prepareSearch(indexModel.getIndex())
+        .setSearchType(SCAN)
+        .setSize(SCROLL_BATCH_SIZE)
+        .setScroll(KEEP_ALIVE);
+    customizer.accept(request);
+
+    log.debug("{}: {}", message, request);
+    String scrollId = request.execute().actionGet().getScrollId();
+
+    try {
+      while (true) {
+        val response = client.prepareSearchScroll(scrollId)
+            .setScroll(KEEP_ALIVE)
+            .execute().actionGet();
+        scrollId = response.getScrollId();
+
+        if (!hasHits(response)) {
+          break;
+        }
+
+        consumer.accept(response.getHits());
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(scrollId)
+          .execute().actionGet();
+    }
+  }
+
   private SearchResponse execute(String message, Consumer<SearchRequestBuilder> customizer) {
-    val request = client.prepareSearch(indexName);
+    val request = client.prepareSearch(indexModel.getIndex());
     customizer.accept(request);
 
     log.debug("{}: {}", message, request);
-    return request.execute().actionGet();
+    return coalesce(request);
   }
 
   /**
@@ -177,7 +225,16 @@ public class BrowserRepository {
         termFilter("chromosome", segmentId),
         rangeFilter("chromosome_start").lte(stop),
         rangeFilter("chromosome_end").gte(start));
+    addMutationFilters(filter, consequenceTypes, projectFilters, impacts);
+
+    return filter;
+  }
 
+  /**
+   * Adds only the applicable filter values.
+   */
+  private static void addMutationFilters(AndFilterBuilder filter, List<String> consequenceTypes,
+      List<String> projectFilters, List<String> impacts) {
     if (impacts != null && !impacts.isEmpty()) {
       val impactFilter = getImpactFilterMutation(impacts);
       filter.add(impactFilter);
@@ -192,8 +249,6 @@ public class BrowserRepository {
       val projectFilter = getProjectFilter(projectFilters);
       filter.add(projectFilter);
     }
-
-    return filter;
   }
 
   /**
@@ -205,7 +260,15 @@ public class BrowserRepository {
         termFilter("chromosome", segmentId),
         rangeFilter("start").lte(stop),
         rangeFilter("end").gte(start));
+    addGeneFilters(filter, biotypes, impacts);
 
+    return filter;
+  }
+
+  /**
+   * Adds only the applicable filter values.
+   */
+  private static void addGeneFilters(AndFilterBuilder filter, List<String> biotypes, List<String> impacts) {
     if (biotypes != null) {
       val biotypeFilter = getBiotypeFilterBuilder(biotypes);
       filter.add(biotypeFilter);
@@ -215,8 +278,6 @@ public class BrowserRepository {
       val impactFilter = getImpactFilterGene(impacts);
       filter.add(impactFilter);
     }
-
-    return filter;
   }
 
   /**
@@ -20,18 +20,19 @@ package org.icgc.dcc.portal.repository;
 import static org.dcc.portal.pql.meta.Type.DIAGRAM;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 
 import java.util.Map;
 
 import org.dcc.portal.pql.query.QueryEngine;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.icgc.dcc.portal.model.Query;
 import org.icgc.dcc.portal.pql.convert.Jql2PqlConverter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import lombok.NonNull;
@@ -53,29 +54,29 @@ public class DiagramRepository {
    * Dependencies.
    */
   private final Client client;
-  private final String indexName;
+  private final IndexModel indexModel;
   private final QueryEngine queryEngine;
 
   @Autowired
-  public DiagramRepository(@NonNull Client client, @Value("#{indexName}") String indexName,
+  public DiagramRepository(@NonNull Client client, @NonNull IndexModel indexModel,
       @NonNull QueryEngine queryEngine) {
-    this.indexName = indexName;
+    this.indexModel = indexModel;
     this.client = client;
     this.queryEngine = queryEngine;
   }
 
   public SearchResponse findAll(Query query) {
-    val pql = CONVERTER.convert(query, DIAGRAM);
-    log.info("pql of findAll is: {}", pql);
+    val pqlAst = CONVERTER.convertToAst(query, DIAGRAM);
+    log.debug("pql of findAll is: {}", pqlAst);
 
-    val request = queryEngine.execute(pql, DIAGRAM);
-    val response = request.getRequestBuilder().execute().actionGet();
+    val request = queryEngine.execute(pqlAst, DIAGRAM);
+    val response = coalesce(request.getRequestBuilder());
 
     return response;
   }
 
   public Map<String, Object> findOne(@NonNull String id, @NonNull Query query) {
-    val search = client.prepareGet(indexName, TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id);
 
     val response = search.execute().actionGet();
     checkResponseState(id, response, KIND);
@@ -31,7 +31,8 @@ import static lombok.AccessLevel.PRIVATE;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.dcc.portal.pql.ast.function.FunctionBuilders.facets;
 import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
-import static org.dcc.portal.pql.query.PqlParser.parse;
+import static org.dcc.portal.pql.query.ActionFutures.execute;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.elasticsearch.action.search.SearchType.COUNT;
 import static org.elasticsearch.action.search.SearchType.QUERY_THEN_FETCH;
 import static org.elasticsearch.action.search.SearchType.SCAN;
@@ -49,10 +50,13 @@ import static org.icgc.dcc.portal.model.IndexModel.MAX_FACET_TERM_COUNT;
 import static org.icgc.dcc.portal.model.IndexModel.getFields;
 import static org.icgc.dcc.portal.model.SearchFieldMapper.searchFieldMapper;
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.createTermsLookupFilter;
+import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.buildNestedCountsRequest;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.isRepositoryDonor;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.setFetchSourceOfGetRequest;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesceAsync;
 import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.AbstractMap.SimpleImmutableEntry;
@@ -64,6 +68,7 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.dcc.portal.pql.ast.StatementNode;
@@ -168,14 +173,14 @@ public class DonorRepository implements Repository {
   private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
   private final String repoIndexName;
   private final QueryEngine queryEngine;
 
   @Autowired
   DonorRepository(Client client, IndexModel indexModel, QueryEngine queryEngine,
       EntityListRepository entityListRepository) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.repoIndexName = indexModel.getRepoIndex();
     this.client = client;
     this.queryEngine = queryEngine;
@@ -185,11 +190,11 @@ public class DonorRepository implements Repository {
   @Override
   @NonNull
   public SearchResponse findAllCentric(Query query) {
-    val pql = CONVERTER.convert(query, DONOR_CENTRIC);
-    log.info("pql of findAllCentric is: {}", pql);
+    val pqlAst = CONVERTER.convertToAst(query, DONOR_CENTRIC);
+    log.debug("pql of findAllCentric is: {}", pqlAst);
 
-    val request = queryEngine.execute(pql, DONOR_CENTRIC);
-    val response = request.getRequestBuilder().execute().actionGet();
+    val request = queryEngine.execute(pqlAst, DONOR_CENTRIC);
+    val response = coalesce(request.getRequestBuilder());
 
     return response;
   }
@@ -197,13 +202,13 @@ public class DonorRepository implements Repository {
   @NonNull
   public SearchResponse findAllCentric(StatementNode pqlAst) {
     val request = queryEngine.execute(pqlAst, DONOR_CENTRIC);
-    val response = request.getRequestBuilder().execute().actionGet();
+    val response = coalesce(request.getRequestBuilder());
 
     return response;
   }
 
   private SearchRequestBuilder projectDonorCountSearch(Query query, String facetName) {
-    val pqlAst = parse(CONVERTER.convert(query, DONOR_CENTRIC));
+    val pqlAst = CONVERTER.convertToAst(query, DONOR_CENTRIC);
     pqlAst.setFacets(facets(facetName));
 
     val result = queryEngine.execute(pqlAst, DONOR_CENTRIC).getRequestBuilder().setNoFields();
@@ -405,7 +410,7 @@ public class DonorRepository implements Repository {
     val type = Type.DONOR_CENTRIC;
     val fieldMap = DONORS_FIELDS_MAPPING_FOR_PHENOTYPE;
 
-    val searchBuilder = client.prepareSearch(index)
+    val searchBuilder = client.prepareSearch(indexModel.getIndex())
         .setTypes(type.getId())
         .setSearchType(QUERY_THEN_FETCH)
         .setFrom(0)
@@ -452,44 +457,45 @@ public class DonorRepository implements Repository {
 
   @Override
   public long count(Query query) {
+    return join(countAsync(query));
+  }
+
+  @Override
+  public CompletableFuture<Long> countAsync(Query query) {
     log.info("Converting {}", query.getFilters());
 
-    val pql = CONVERTER.convertCount(query, DONOR_CENTRIC);
+    val pqlAst = CONVERTER.convertCountToAst(query, DONOR_CENTRIC);
 
-    val request = queryEngine.execute(pql, DONOR_CENTRIC);
-    return request.getRequestBuilder().setSearchType(COUNT).execute().actionGet().getHits().getTotalHits();
+    val request = queryEngine.execute(pqlAst, DONOR_CENTRIC);
+    return coalesceAsync(request.getRequestBuilder().setSearchType(COUNT))
+        .thenApply(response -> response.getHits().getTotalHits());
   }
 
   @Override
   public MultiSearchResponse counts(LinkedHashMap<String, Query> queries) {
+    return join(countsAsync(queries));
+  }
+
+  @Override
+  public CompletableFuture<MultiSearchResponse> countsAsync(LinkedHashMap<String, Query> queries) {
     MultiSearchRequestBuilder search = client.prepareMultiSearch();
 
     for (val query : queries.values()) {
       log.info("Converting {}", query.getFilters());
-      val pql = CONVERTER.convertCount(query, DONOR_CENTRIC);
-      val request = queryEngine.execute(pql, DONOR_CENTRIC);
+      val pqlAst = CONVERTER.convertCountToAst(query, DONOR_CENTRIC);
+      val request = queryEngine.execute(pqlAst, DONOR_CENTRIC);
       search.add(request.getRequestBuilder());
     }
-    return search.execute().actionGet();
+    return execute(search);
   }
 
   @Override
-  public MultiSearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
-    val search = client.prepareMultiSearch();
-
-    for (val nestedQuery : queries.values()) {
-      for (val innerQuery : nestedQuery.values()) {
-        log.info("Nested converting {}", innerQuery);
-
-        val pql = CONVERTER.convertCount(innerQuery, DONOR_CENTRIC);
-        val request = queryEngine.execute(pql, DONOR_CENTRIC);
-
-        search.add(request.getRequestBuilder());
-      }
-    }
+  public SearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
+    val search = buildNestedCountsRequest(client, indexModel.getIndex(), DONOR_CENTRIC, queries,
+        query -> queryEngine.executeAsCountFilter(CONVERTER.convertCountToAst(query, DONOR_CENTRIC), DONOR_CENTRIC));
 
     log.debug("{}", search);
-    return search.execute().actionGet();
+    return coalesce(search);
   }
 
   @Override
@@ -498,7 +504,7 @@ public class DonorRepository implements Repository {
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, TYPE.getId(), id)
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id)
         .setFields(getFields(query, KIND));
     setFetchSourceOfGetRequest(search, query, KIND);
 
@@ -526,7 +532,7 @@ public class DonorRepository implements Repository {
     val donorFilters = FilterBuilders.boolFilter()
         .must(FilterBuilders.termFilter("_project_id", projectId));
 
-    val search = client.prepareSearch(index)
+    val search = client.prepareSearch(indexModel.getIndex())
         .setTypes(TYPE.getId())
         .setSearchType(QUERY_THEN_FETCH)
         .setSize(6000)
@@ -541,8 +547,8 @@ public class DonorRepository implements Repository {
     // TODO: Now assume 5000 ids at least
     Set<String> donorIds = newHashSetWithExpectedSize(5000);
 
-    val pql = CONVERTER.convert(query, DONOR_CENTRIC);
-    val request = queryEngine.execute(pql, DONOR_CENTRIC);
+    val pqlAst = CONVERTER.convertToAst(query, DONOR_CENTRIC);
+    val request = queryEngine.execute(pqlAst, DONOR_CENTRIC);
     val requestBuilder = request.getRequestBuilder()
         .setSearchType(SCAN)
         .setSize(SCAN_BATCH_SIZE)
@@ -579,7 +585,7 @@ public class DonorRepository implements Repository {
   public SearchResponse validateIdentifiers(@NonNull List<String> ids, boolean isForExternalFile) {
     val maxSize = 5000;
     val fields = isForExternalFile ? FILE_DONOR_ID_SEARCH_FIELDS : DONOR_ID_SEARCH_FIELDS;
-    val indexName = isForExternalFile ? repoIndexName : index;
+    val indexName = isForExternalFile ? repoIndexName : indexModel.getIndex();
     val indexType = isForExternalFile ? Type.REPOSITORY_FILE_DONOR_TEXT : Type.DONOR_TEXT;
 
     val search = client.prepareSearch(indexName)
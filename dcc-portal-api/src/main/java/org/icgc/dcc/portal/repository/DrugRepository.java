@@ -19,6 +19,7 @@ package org.icgc.dcc.portal.repository;
 
 import static org.dcc.portal.pql.meta.Type.DRUG;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.sanityCheck;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 
 import java.util.function.Consumer;
 
@@ -49,13 +50,13 @@ public class DrugRepository {
    * Dependencies.
    */
   private final Client client;
-  private final String indexName;
+  private final IndexModel indexModel;
   private final QueryEngine queryEngine;
 
   @Autowired
   public DrugRepository(Client client, IndexModel indexModel, QueryEngine queryEngine) {
     this.client = client;
-    this.indexName = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.queryEngine = queryEngine;
   }
 
@@ -70,7 +71,7 @@ public class DrugRepository {
 
   @NonNull
   public GetResponse findOne(String id) {
-    val search = client.prepareGet(indexName, INDEX_TYPE, id);
+    val search = client.prepareGet(indexModel.getIndex(), INDEX_TYPE, id);
     val response = search.execute().actionGet();
 
     return sanityCheck(response, INDEX_TYPE, id);
@@ -82,7 +83,7 @@ public class DrugRepository {
     customizer.accept(request);
 
     log.debug("{}; ES query is: '{}'", logMessage, request);
-    return request.execute().actionGet();
+    return coalesce(request);
   }
 
   @NonNull
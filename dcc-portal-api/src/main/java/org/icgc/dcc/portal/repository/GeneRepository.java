@@ -19,7 +19,8 @@ package org.icgc.dcc.portal.repository;
 
 import static com.google.common.collect.Lists.transform;
 import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
-import static org.elasticsearch.action.search.SearchType.COUNT;
+import static org.dcc.portal.pql.query.ActionFutures.execute;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.elasticsearch.action.search.SearchType.QUERY_THEN_FETCH;
 import static org.elasticsearch.action.search.SearchType.SCAN;
 import static org.elasticsearch.index.query.FilterBuilders.termFilter;
@@ -31,16 +32,21 @@ import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.icgc.dcc.portal.model.IndexModel.FIELDS_MAPPING;
 import static org.icgc.dcc.portal.model.IndexModel.MAX_FACET_TERM_COUNT;
 import static org.icgc.dcc.portal.model.IndexModel.getFields;
+import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.buildNestedCountsRequest;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.Filters.andFilter;
 import static org.icgc.dcc.portal.util.Filters.geneSetFilter;
 import static org.icgc.dcc.portal.util.Filters.inputGeneListFilter;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesceAsync;
 import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import org.dcc.portal.pql.ast.StatementNode;
@@ -58,7 +64,6 @@ import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.icgc.dcc.portal.model.Query;
-import org.icgc.dcc.portal.model.Universe;
 import org.icgc.dcc.portal.pql.convert.Jql2PqlConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -84,6 +89,7 @@ public class GeneRepository implements Repository {
   private static final Kind KIND = Kind.GENE;
 
   private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private static final int GENE_SET_MEMBERSHIP_BATCH_SIZE = 1000;
   private static final String GENE_SYMBOL_FIELD_NAME = "symbol";
   private static final String ENSEMBL_ID_FIELD_NAME = "id";
   private static final String[] GENE_SYMBOL_ENSEMBL_ID_FIELDS = { GENE_SYMBOL_FIELD_NAME, ENSEMBL_ID_FIELD_NAME };
@@ -94,14 +100,14 @@ public class GeneRepository implements Repository {
           "uniprotkbSwissprot.search", "external_db_ids.uniprotkb_swissprot");
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
 
   private final QueryEngine queryEngine;
   private final Jql2PqlConverter converter = Jql2PqlConverter.getInstance();
 
   @Autowired
   GeneRepository(Client client, IndexModel indexModel, QueryEngine queryEngine) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
     this.queryEngine = queryEngine;
   }
@@ -114,23 +120,23 @@ public class GeneRepository implements Repository {
     Integer limit = query.getLimit();
     query.setLimit(null);
 
-    val pql = converter.convert(query, GENE_CENTRIC);
-    log.info(" find all centric {}", pql);
-    val search = queryEngine.execute(pql, GENE_CENTRIC);
+    val pqlAst = converter.convertToAst(query, GENE_CENTRIC);
+    log.debug(" find all centric {}", pqlAst);
+    val search = queryEngine.execute(pqlAst, GENE_CENTRIC);
     if (limit != null) {
       search.getRequestBuilder().setSize(limit.intValue());
     }
 
     log.info(" find all centric {}", search);
 
-    return search.getRequestBuilder().execute().actionGet();
+    return coalesce(search.getRequestBuilder());
   }
 
   @NonNull
   public SearchResponse findAllCentric(StatementNode pqlAst) {
     val request = queryEngine.execute(pqlAst, GENE_CENTRIC);
 
-    return request.getRequestBuilder().execute().actionGet();
+    return coalesce(request.getRequestBuilder());
   }
 
   private Map<String, String> findGeneSymbolsByFilters(@NonNull ObjectNode filters) {
@@ -138,8 +144,8 @@ public class GeneRepository implements Repository {
     val symbolFieldName = "symbol";
 
     val query = Query.builder().filters(filters).build();
-    val pql = converter.convert(query, GENE_CENTRIC);
-    val response = queryEngine.execute(pql, GENE_CENTRIC).getRequestBuilder()
+    val pqlAst = converter.convertToAst(query, GENE_CENTRIC);
+    val response = queryEngine.execute(pqlAst, GENE_CENTRIC).getRequestBuilder()
         .setSize(maxGenes)
         .addField(symbolFieldName)
         .execute().actionGet();
@@ -166,23 +172,6 @@ public class GeneRepository implements Repository {
     return findGeneSymbolsByFilters(filters);
   }
 
-  public SearchResponse findGeneSetCounts(Query query) {
-    log.info(" My Query {} ", query.getFilters());
-
-    val pql = converter.convert(query, GENE_CENTRIC);
-    val search = queryEngine.execute(pql, GENE_CENTRIC);
-
-    for (val universe : Universe.values()) {
-      val universeAggName = universe.getGeneSetFacetName();
-
-      search.getRequestBuilder()
-          .addAggregation(terms(universeAggName).field(universeAggName).size(50000));
-    }
-
-    search.getRequestBuilder().setSearchType(COUNT);
-    return search.getRequestBuilder().execute().actionGet();
-  }
-
   @Override
   public SearchResponse findAll(Query query) {
     throw new UnsupportedOperationException("Not applicable");
@@ -195,41 +184,44 @@ public class GeneRepository implements Repository {
 
   @Override
   public long count(Query query) {
-    val pql = converter.convertCount(query, GENE_CENTRIC);
-    val search = queryEngine.execute(pql, GENE_CENTRIC).getRequestBuilder();
+    return join(countAsync(query));
+  }
+
+  @Override
+  public CompletableFuture<Long> countAsync(Query query) {
+    val pqlAst = converter.convertCountToAst(query, GENE_CENTRIC);
+    val search = queryEngine.execute(pqlAst, GENE_CENTRIC).getRequestBuilder();
 
     log.debug("{}", search);
-    return search.execute().actionGet().getHits().getTotalHits();
+    return coalesceAsync(search).thenApply(response -> response.getHits().getTotalHits());
   }
 
   @Override
   public MultiSearchResponse counts(LinkedHashMap<String, Query> queries) {
+    return join(countsAsync(queries));
+  }
+
+  @Override
+  public CompletableFuture<MultiSearchResponse> countsAsync(LinkedHashMap<String, Query> queries) {
     val search = client.prepareMultiSearch();
 
     for (val query : queries.values()) {
-      val pql = converter.convertCount(query, GENE_CENTRIC);
-      search.add(queryEngine.execute(pql, GENE_CENTRIC).getRequestBuilder());
+      val pqlAst = converter.convertCountToAst(query, GENE_CENTRIC);
+      search.add(queryEngine.execute(pqlAst, GENE_CENTRIC).getRequestBuilder());
     }
 
     log.debug("{}", search);
 
-    return search.execute().actionGet();
+    return execute(search);
   }
 
   @Override
-  public MultiSearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
-    val search = client.prepareMultiSearch();
-
-    for (val nestedQuery : queries.values()) {
-      for (val innerQuery : nestedQuery.values()) {
-        val pql = converter.convertCount(innerQuery, GENE_CENTRIC);
-        search.add(queryEngine.execute(pql, GENE_CENTRIC).getRequestBuilder());
-      }
-    }
+  public SearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
+    val search = buildNestedCountsRequest(client, indexModel.getIndex(), GENE_CENTRIC, queries,
+        query -> queryEngine.executeAsCountFilter(converter.convertCountToAst(query, GENE_CENTRIC), GENE_CENTRIC));
 
     log.debug("{}", search);
-
-    return search.execute().actionGet();
+    return coalesce(search);
   }
 
   @Override
@@ -238,7 +230,7 @@ public class GeneRepository implements Repository {
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id);
 
     val sourceFields = prepareSourceFields(query, getFields(query, KIND));
     String[] excludeFields = null;
@@ -279,7 +271,7 @@ public class GeneRepository implements Repository {
   public SearchResponse validateIdentifiers(List<String> input) {
     val boolQuery = boolQuery();
 
-    val search = client.prepareSearch(index)
+    val search = client.prepareSearch(indexModel.getIndex())
         .setTypes("gene-text")
         .setSearchType(QUERY_THEN_FETCH)
         .setSize(5000);
@@ -358,10 +350,49 @@ public class GeneRepository implements Repository {
     return result.build();
   }
 
+  /**
+   * Streams the gene set ids listed in the {@code geneSetFields} of every gene, keyed by field. Fields without values
+   * are absent.
+   */
+  public void scrollGeneSetMemberships(@NonNull List<String> geneSetFields,
+      @NonNull BiConsumer<String, Map<String, List<Object>>> consumer) {
+    val fields = geneSetFields.toArray(new String[geneSetFields.size()]);
+    String scrollId = searchGenes(CENTRIC_TYPE.getId(), "scrollGeneSetMemberships", request -> {
+      request.setSearchType(SCAN)
+          .setSize(GENE_SET_MEMBERSHIP_BATCH_SIZE)
+          .setScroll(KEEP_ALIVE)
+          .addFields(fields);
+    }).getScrollId();
+
+    try {
+      while (true) {
+        val response = fetchScrollData(scrollId);
+        scrollId = response.getScrollId();
+
+        if (!hasHits(response)) {
+          break;
+        }
+
+        for (val hit : response.getHits()) {
+          val memberships = Maps.<String, List<Object>> newHashMap();
+          for (val field : hit.getFields().values()) {
+            memberships.put(field.getName(), field.getValues());
+          }
+
+          consumer.accept(hit.getId(), memberships);
+        }
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(scrollId)
+          .execute().actionGet();
+    }
+  }
+
   @NonNull
   private SearchResponse searchGenes(String indexType, String logMessage,
       Consumer<SearchRequestBuilder> customizer) {
-    val request = client.prepareSearch(index).setTypes(indexType);
+    val request = client.prepareSearch(indexModel.getIndex()).setTypes(indexType);
     customizer.accept(request);
 
     log.debug("{}; ES query is: '{}'", logMessage, request);
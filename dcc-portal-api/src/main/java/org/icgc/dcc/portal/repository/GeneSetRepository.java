@@ -20,6 +20,7 @@ package org.icgc.dcc.portal.repository;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.size;
 import static org.elasticsearch.action.search.SearchType.QUERY_THEN_FETCH;
+import static org.elasticsearch.action.search.SearchType.SCAN;
 import static org.icgc.dcc.portal.model.IndexModel.getFields;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.EMPTY_SOURCE_FIELDS;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.resolveSourceFields;
@@ -27,12 +28,15 @@ import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseS
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.getLong;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.getString;
+import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.FilteredQueryBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -66,6 +70,8 @@ public class GeneSetRepository {
    */
   private static final String INDEX_GENE_COUNT_FIELD_NAME = "_summary._gene_count";
   private static final String INDEX_GENE_SETS_NAME_FIELD_NAME = "name";
+  private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private static final int GENE_COUNT_BATCH_SIZE = 5000;
   public static final Map<String, String> SOURCE_FIELDS = ImmutableMap.of(
       "hierarchy", "pathway.hierarchy",
       "inferredTree", "go_term.inferred_tree",
@@ -76,11 +82,11 @@ public class GeneSetRepository {
   private static final Kind KIND = Kind.GENE_SET;
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
 
   @Autowired
   public GeneSetRepository(@NonNull Client client, @NonNull IndexModel indexModel) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
   }
 
@@ -131,7 +137,7 @@ public class GeneSetRepository {
       return -1;
     }
 
-    val result = client.prepareCount(index)
+    val result = client.prepareCount(indexModel.getIndex())
         .setTypes(TYPE.getId())
         .setQuery(query)
         .execute()
@@ -162,7 +168,7 @@ public class GeneSetRepository {
 
   public Map<String, Object> findOne(String id, Iterable<String> fieldNames) {
     val query = Query.builder().fields(Lists.newArrayList(fieldNames)).build();
-    val search = client.prepareGet(index, TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id);
     search.setFields(getFields(query, KIND));
     String[] sourceFields = resolveSourceFields(query, KIND);
     if (sourceFields != EMPTY_SOURCE_FIELDS) {
@@ -178,10 +184,46 @@ public class GeneSetRepository {
     return map;
   }
 
+  /**
+   * Streams the gene count of every gene set.
+   */
+  public void scrollGeneCounts(@NonNull BiConsumer<String, Integer> consumer) {
+    val fieldName = INDEX_GENE_COUNT_FIELD_NAME;
+    String scrollId = client.prepareSearch(indexModel.getIndex())
+        .setTypes(TYPE.getId())
+        .setSearchType(SCAN)
+        .setSize(GENE_COUNT_BATCH_SIZE)
+        .setScroll(KEEP_ALIVE)
+        .addField(fieldName)
+        .execute().actionGet()
+        .getScrollId();
+
+    try {
+      while (true) {
+        val response = client.prepareSearchScroll(scrollId)
+            .setScroll(KEEP_ALIVE)
+            .execute().actionGet();
+        scrollId = response.getScrollId();
+
+        if (!hasHits(response)) {
+          break;
+        }
+
+        for (val hit : response.getHits()) {
+          consumer.accept(hit.getId(), (Integer) hit.getFields().get(fieldName).getValue());
+        }
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(scrollId)
+          .execute().actionGet();
+    }
+  }
+
   private SearchResponse findField(Iterable<String> ids, String fieldName) {
     val filters = new TermsFilterBuilder("_id", ids);
 
-    val search = client.prepareSearch(index)
+    val search = client.prepareSearch(indexModel.getIndex())
         .setTypes(TYPE.getId())
         .setSearchType(QUERY_THEN_FETCH)
         .setFrom(0)
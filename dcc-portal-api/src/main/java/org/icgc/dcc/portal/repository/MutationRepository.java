@@ -19,16 +19,25 @@ package org.icgc.dcc.portal.repository;
 
 import static java.lang.String.format;
 import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
+import static org.dcc.portal.pql.query.ActionFutures.execute;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.elasticsearch.action.search.SearchType.COUNT;
+import static org.elasticsearch.action.search.SearchType.SCAN;
 import static org.icgc.dcc.portal.model.IndexModel.getFields;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.EMPTY_SOURCE_FIELDS;
+import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.buildNestedCountsRequest;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.resolveSourceFields;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesceAsync;
+import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.dcc.portal.pql.ast.StatementNode;
 import org.dcc.portal.pql.query.QueryEngine;
@@ -36,6 +45,7 @@ import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.NestedQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -48,6 +58,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import lombok.NonNull;
 import lombok.val;
@@ -59,16 +70,18 @@ public class MutationRepository implements Repository {
 
   private static final Type CENTRIC_TYPE = Type.MUTATION_CENTRIC;
   private static final Kind KIND = Kind.MUTATION;
+  private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private static final int SCROLL_BATCH_SIZE = 5000;
 
   private final QueryEngine queryEngine;
   private final Jql2PqlConverter converter = Jql2PqlConverter.getInstance();
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
 
   @Autowired
   MutationRepository(Client client, IndexModel indexModel, QueryEngine queryEngine) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
     this.queryEngine = queryEngine;
   }
@@ -76,12 +89,12 @@ public class MutationRepository implements Repository {
   @Override
   @NonNull
   public SearchResponse findAllCentric(Query query) {
-    val pql = converter.convert(query, MUTATION_CENTRIC);
-    val search = queryEngine.execute(pql, MUTATION_CENTRIC);
+    val pqlAst = converter.convertToAst(query, MUTATION_CENTRIC);
+    val search = queryEngine.execute(pqlAst, MUTATION_CENTRIC);
 
     log.debug("Mutation : {}", search.getRequestBuilder());
 
-    SearchResponse response = search.getRequestBuilder().execute().actionGet();
+    SearchResponse response = coalesce(search.getRequestBuilder());
     return response;
   }
 
@@ -89,7 +102,7 @@ public class MutationRepository implements Repository {
   public SearchResponse findAllCentric(StatementNode pqlAst) {
     val search = queryEngine.execute(pqlAst, MUTATION_CENTRIC);
 
-    return search.getRequestBuilder().execute().actionGet();
+    return coalesce(search.getRequestBuilder());
   }
 
   /**
@@ -98,8 +111,8 @@ public class MutationRepository implements Repository {
    * within the same project as donor X.
    */
   public SearchResponse findMutationsByDonor(@NonNull Query query, @NonNull String donorId) {
-    val pql = converter.convert(query, MUTATION_CENTRIC);
-    val search = queryEngine.execute(pql, MUTATION_CENTRIC);
+    val pqlAst = converter.convertToAst(query, MUTATION_CENTRIC);
+    val search = queryEngine.execute(pqlAst, MUTATION_CENTRIC);
 
     val termFilter = FilterBuilders.termFilter("ssm_occurrence.donor._donor_id", donorId);
     val nestedFilter = FilterBuilders.nestedFilter("ssm_occurrence", termFilter);
@@ -107,7 +120,7 @@ public class MutationRepository implements Repository {
 
     log.debug("Find mutations by donor {}", search.getRequestBuilder());
 
-    return search.getRequestBuilder().execute().actionGet();
+    return coalesce(search.getRequestBuilder());
   }
 
   @Override
@@ -122,23 +135,33 @@ public class MutationRepository implements Repository {
 
   @Override
   public long count(Query query) {
+    return join(countAsync(query));
+  }
+
+  @Override
+  public CompletableFuture<Long> countAsync(Query query) {
     log.info("Count Query {}", query.getFilters());
-    val pql = converter.convertCount(query, MUTATION_CENTRIC);
-    val search = queryEngine.execute(pql, MUTATION_CENTRIC);
-    return search.getRequestBuilder().execute().actionGet().getHits().getTotalHits();
+    val pqlAst = converter.convertCountToAst(query, MUTATION_CENTRIC);
+    val search = queryEngine.execute(pqlAst, MUTATION_CENTRIC);
+    return coalesceAsync(search.getRequestBuilder()).thenApply(response -> response.getHits().getTotalHits());
   }
 
   @Override
   public MultiSearchResponse counts(@NonNull LinkedHashMap<String, Query> queries) {
+    return join(countsAsync(queries));
+  }
+
+  @Override
+  public CompletableFuture<MultiSearchResponse> countsAsync(@NonNull LinkedHashMap<String, Query> queries) {
     val search = client.prepareMultiSearch();
 
     for (val query : queries.values()) {
-      val pql = converter.convertCount(query, MUTATION_CENTRIC);
-      search.add(queryEngine.execute(pql, MUTATION_CENTRIC).getRequestBuilder());
+      val pqlAst = converter.convertCountToAst(query, MUTATION_CENTRIC);
+      search.add(queryEngine.execute(pqlAst, MUTATION_CENTRIC).getRequestBuilder());
     }
 
     log.debug("{}", search);
-    return search.execute().actionGet();
+    return execute(search);
   }
 
   @NonNull
@@ -167,25 +190,20 @@ public class MutationRepository implements Repository {
   }
 
   public SearchRequestBuilder buildCountSearchFromQuery(QueryBuilder query, Type type) {
-    val search = client.prepareSearch(index).setTypes(type.getId()).setSearchType(COUNT);
+    val search = client.prepareSearch(indexModel.getIndex()).setTypes(type.getId()).setSearchType(COUNT);
     search.setQuery(query);
 
     return search;
   }
 
   @Override
-  public MultiSearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
-    val search = client.prepareMultiSearch();
-
-    for (val nestedQuery : queries.values()) {
-      for (val innerQuery : nestedQuery.values()) {
-        val pql = converter.convertCount(innerQuery, MUTATION_CENTRIC);
-        search.add(queryEngine.execute(pql, MUTATION_CENTRIC).getRequestBuilder());
-      }
-    }
+  public SearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
+    val search = buildNestedCountsRequest(client, indexModel.getIndex(), MUTATION_CENTRIC, queries,
+        query -> queryEngine.executeAsCountFilter(converter.convertCountToAst(query, MUTATION_CENTRIC),
+            MUTATION_CENTRIC));
 
     log.debug("{}", search);
-    return search.execute().actionGet();
+    return coalesce(search);
   }
 
   @Override
@@ -194,7 +212,7 @@ public class MutationRepository implements Repository {
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, CENTRIC_TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), CENTRIC_TYPE.getId(), id);
     search.setFields(getFields(query, KIND));
     String[] sourceFields = resolveSourceFields(query, KIND);
     if (sourceFields != EMPTY_SOURCE_FIELDS) {
@@ -220,8 +238,8 @@ public class MutationRepository implements Repository {
         "functionalImpact",
         "transcriptId"));
 
-    val pql = converter.convert(query, MUTATION_CENTRIC);
-    val search = queryEngine.execute(pql, MUTATION_CENTRIC)
+    val pqlAst = converter.convertToAst(query, MUTATION_CENTRIC);
+    val search = queryEngine.execute(pqlAst, MUTATION_CENTRIC)
         .getRequestBuilder();
 
     search.setFrom(0)
@@ -232,7 +250,44 @@ public class MutationRepository implements Repository {
 
     log.info("!!! {}", search);
 
-    val response = search.execute().actionGet();
+    val response = coalesce(search);
     return response;
   }
+
+  /**
+   * Streams the values of the requested {@code fields} of every mutation, keyed by field. Fields without values are
+   * absent.
+   */
+  public void scrollMutations(@NonNull List<String> fields, @NonNull Consumer<Map<String, List<Object>>> consumer) {
+    String scrollId = client.prepareSearch(indexModel.getIndex())
+        .setTypes(CENTRIC_TYPE.getId())
+        .setSearchType(SCAN)
+        .setSize(SCROLL_BATCH_SIZE)
+        .setScroll(KEEP_ALIVE)
+        .addFields(fields.toArray(new String[fields.size()]))
+        .execute().actionGet()
+        .getScrollId();
+
+    while (true) {
+      val response = client.prepareSearchScroll(scrollId)
+          .setScroll(KEEP_ALIVE)
+          .execute().actionGet();
+
+      if (!hasHits(response)) {
+        break;
+      }
+
+      for (val hit : response.getHits()) {
+        val values = Maps.<String, List<Object>> newHashMap();
+        for (val field : hit.getFields().values()) {
+          values.put(field.getName(), field.getValues());
+        }
+
+        consumer.accept(values);
+      }
+
+      scrollId = response.getScrollId();
+    }
+  }
+
 }
@@ -20,6 +20,7 @@ package org.icgc.dcc.portal.repository;
 import static com.google.common.collect.Maps.toMap;
 import static java.lang.String.format;
 import static org.dcc.portal.pql.meta.Type.OBSERVATION_CENTRIC;
+import static org.dcc.portal.pql.query.QueryEngine.DEFAULT_PLAN_CACHE_SIZE;
 import static org.elasticsearch.action.search.SearchType.COUNT;
 import static org.elasticsearch.action.search.SearchType.SCAN;
 import static org.icgc.dcc.common.core.model.ConsequenceType.CODING_SEQUENCE_VARIANT;
@@ -53,6 +54,7 @@ import static org.icgc.dcc.portal.model.IndexModel.getFields;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.getString;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 import static org.icgc.dcc.portal.util.SearchResponses.getTotalHitCount;
 import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
@@ -115,21 +117,21 @@ public class OccurrenceRepository {
       PQL_ALIAS_CONSEQUENCE_PROJECT_ID, "project._project_id");
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
   private final QueryEngine queryEngine;
 
   @Autowired
   public OccurrenceRepository(Client client, IndexModel indexModel) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
-    this.queryEngine = new QueryEngine(client, index);
+    this.queryEngine = new QueryEngine(client, indexModel::getIndex, DEFAULT_PLAN_CACHE_SIZE);
   }
 
   SearchRequestBuilder buildFindAllRequest(Query query) {
-    val pql = PQL_CONVERTER.convert(query, OBSERVATION_CENTRIC);
-    log.debug("JQL filter is: '{}'; PQL is: '{}'.", query.getFilters(), pql);
+    val pqlAst = PQL_CONVERTER.convertToAst(query, OBSERVATION_CENTRIC);
+    log.debug("JQL filter is: '{}'; PQL is: '{}'.", query.getFilters(), pqlAst);
 
-    val request = queryEngine.execute(pql, OBSERVATION_CENTRIC)
+    val request = queryEngine.execute(pqlAst, OBSERVATION_CENTRIC)
         .getRequestBuilder();
     log.debug("Request: {}", request);
 
@@ -138,29 +140,29 @@ public class OccurrenceRepository {
 
   public SearchResponse findAll(Query query) {
     val request = buildFindAllRequest(query);
-    val response = request.execute().actionGet();
+    val response = coalesce(request);
     log.debug("Response: {}", response);
 
     return response;
   }
 
   public long count(Query query) {
-    val pql = PQL_CONVERTER.convertCount(query, OBSERVATION_CENTRIC);
-    log.debug("JQL filter is: '{}'; PQL is: '{}'.", query.getFilters(), pql);
+    val pqlAst = PQL_CONVERTER.convertCountToAst(query, OBSERVATION_CENTRIC);
+    log.debug("JQL filter is: '{}'; PQL is: '{}'.", query.getFilters(), pqlAst);
 
-    val request = queryEngine.execute(pql, OBSERVATION_CENTRIC)
+    val request = queryEngine.execute(pqlAst, OBSERVATION_CENTRIC)
         .getRequestBuilder()
         .setSearchType(COUNT);
     log.debug("Count query is: '{}'.", request);
 
-    val response = request.execute().actionGet();
+    val response = coalesce(request);
     log.debug("Count response is: '{}'.", response);
 
     return getTotalHitCount(response);
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, CENTRIC_TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), CENTRIC_TYPE.getId(), id);
     search.setFields(getFields(query, KIND));
 
     val response = search.execute().actionGet();
@@ -44,16 +44,16 @@ public class PathwayRepository {
   private static final Kind KIND = Kind.PATHWAY;
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
 
   @Autowired
   PathwayRepository(Client client, IndexModel indexModel) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id);
     search.setFields(getFields(query, KIND));
     String[] sourceFields = resolveSourceFields(query, KIND);
     if (sourceFields != EMPTY_SOURCE_FIELDS) {
@@ -8,6 +8,7 @@ import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.isRepositoryDon
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.setFetchSourceOfGetRequest;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 
 import java.util.Map;
 
@@ -34,7 +35,7 @@ public class ProjectRepository {
   private static final Map<String, String> FIELD_MAP = FIELDS_MAPPING.get(KIND);
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
   private final String repoIndexName;
 
   private final Jql2PqlConverter converter = Jql2PqlConverter.getInstance();
@@ -42,7 +43,7 @@ public class ProjectRepository {
 
   @Autowired
   ProjectRepository(Client client, IndexModel indexModel, QueryEngine engine) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.repoIndexName = indexModel.getRepoIndex();
     this.client = client;
     this.queryEngine = engine;
@@ -50,19 +51,19 @@ public class ProjectRepository {
 
   public SearchResponse findAll(Query query) {
 
-    val pql = converter.convert(query, PROJECT);
-    val search = queryEngine.execute(pql, PROJECT);
-    return search.getRequestBuilder().execute().actionGet();
+    val pqlAst = converter.convertToAst(query, PROJECT);
+    val search = queryEngine.execute(pqlAst, PROJECT);
+    return coalesce(search.getRequestBuilder());
   }
 
   public long count(Query query) {
-    val pql = converter.convertCount(query, PROJECT);
-    val search = queryEngine.execute(pql, PROJECT);
-    return search.getRequestBuilder().execute().actionGet().getHits().getTotalHits();
+    val pqlAst = converter.convertCountToAst(query, PROJECT);
+    val search = queryEngine.execute(pqlAst, PROJECT);
+    return coalesce(search.getRequestBuilder()).getHits().getTotalHits();
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, TYPE_ID, id)
+    val search = client.prepareGet(indexModel.getIndex(), TYPE_ID, id)
         .setFields(getFields(query, KIND));
     setFetchSourceOfGetRequest(search, query, KIND);
 
@@ -23,6 +23,7 @@ import static org.icgc.dcc.portal.model.IndexModel.FIELDS_MAPPING;
 import static org.icgc.dcc.portal.model.IndexModel.getFields;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 
 import java.util.Map;
 
@@ -48,17 +49,17 @@ public class ReleaseRepository {
 
   private final Client client;
 
-  private final String index;
+  private final IndexModel indexModel;
 
   @Autowired
   ReleaseRepository(Client client, IndexModel indexModel) {
-    this.index = indexModel.getIndex();
+    this.indexModel = indexModel;
     this.client = client;
   }
 
   public SearchResponse findAll(Query query) {
     val search = client
-        .prepareSearch(index)
+        .prepareSearch(indexModel.getIndex())
         .setTypes(TYPE.getId())
         .setSearchType(QUERY_THEN_FETCH)
         .setFrom(query.getFrom())
@@ -68,21 +69,23 @@ public class ReleaseRepository {
     search.addFields(getFields(query, KIND));
 
     log.debug("{}", search);
-    SearchResponse response = search.execute().actionGet();
+    SearchResponse response = coalesce(search);
     log.debug("{}", response);
 
     return response;
   }
 
   public long count(Query query) {
-    SearchRequestBuilder search = client.prepareSearch(index).setTypes(TYPE.getId()).setSearchType(COUNT);
+    SearchRequestBuilder search = client.prepareSearch(indexModel.getIndex())
+        .setTypes(TYPE.getId())
+        .setSearchType(COUNT);
 
     log.debug("{}", search);
-    return search.execute().actionGet().getHits().getTotalHits();
+    return coalesce(search).getHits().getTotalHits();
   }
 
   public Map<String, Object> findOne(String id, Query query) {
-    val search = client.prepareGet(index, TYPE.getId(), id);
+    val search = client.prepareGet(indexModel.getIndex(), TYPE.getId(), id);
     search.setFields(getFields(query, KIND));
 
     val response = search.execute().actionGet();
@@ -1,6 +1,7 @@
 package org.icgc.dcc.portal.repository;
 
 import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
 
 import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -17,9 +18,13 @@ public interface Repository {
 
   long count(Query query);
 
+  CompletableFuture<Long> countAsync(Query query);
+
   MultiSearchResponse counts(LinkedHashMap<String, Query> queries);
 
-  MultiSearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries);
+  CompletableFuture<MultiSearchResponse> countsAsync(LinkedHashMap<String, Query> queries);
+
+  SearchResponse nestedCounts(LinkedHashMap<String, LinkedHashMap<String, Query>> queries);
 
   // Needed for tests
   SearchRequestBuilder buildFindAllRequest(Query query, Type type);
@@ -21,11 +21,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.transform;
 import static com.google.common.collect.Sets.newHashSet;
-import static com.google.common.math.LongMath.divide;
-import static java.lang.String.format;
-import static java.math.RoundingMode.CEILING;
 import static java.util.stream.Collectors.toMap;
-import static java.util.stream.IntStream.range;
 import static org.apache.commons.collections.CollectionUtils.isEmpty;
 import static org.dcc.portal.pql.ast.function.FunctionBuilders.limit;
 import static org.dcc.portal.pql.ast.function.FunctionBuilders.select;
@@ -46,6 +42,7 @@ import static org.elasticsearch.index.query.FilterBuilders.termsFilter;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 import static org.elasticsearch.index.query.QueryBuilders.multiMatchQuery;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.cardinality;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.missing;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.nested;
@@ -63,9 +60,10 @@ import static org.icgc.dcc.portal.repository.TermsLookupRepository.createTermsLo
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.TermLookupType.DONOR_IDS;
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.TermLookupType.FILE_IDS;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.checkResponseState;
-import static org.icgc.dcc.portal.util.JsonUtils.merge;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 import static org.icgc.dcc.portal.util.SearchResponses.getHitIds;
 import static org.icgc.dcc.portal.util.SearchResponses.getTotalHitCount;
+import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.List;
 import java.util.Map;
@@ -73,6 +71,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.dcc.portal.pql.ast.StatementNode;
@@ -83,10 +82,10 @@ import org.dcc.portal.pql.meta.RepositoryFileTypeModel.EsFields;
 import org.dcc.portal.pql.meta.RepositoryFileTypeModel.Fields;
 import org.dcc.portal.pql.meta.TypeModel;
 import org.dcc.portal.pql.query.QueryEngine;
+import org.elasticsearch.action.admin.cluster.shards.ClusterSearchShardsGroup;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolFilterBuilder;
@@ -95,6 +94,8 @@ import org.elasticsearch.index.query.FilteredQueryBuilder;
 import org.elasticsearch.index.query.MatchAllFilterBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.NestedFilterBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
@@ -109,8 +110,8 @@ import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms.Bucket;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
 import org.elasticsearch.search.aggregations.metrics.avg.Avg;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
 import org.elasticsearch.search.aggregations.metrics.sum.Sum;
-import org.icgc.dcc.portal.model.FiltersParam;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.icgc.dcc.portal.model.Query;
@@ -127,7 +128,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.Ints;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -140,6 +140,12 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 public class RepositoryFileRepository {
 
+  /**
+   * Include that switches the per repository donor counts of {@link #findAll(Query)} from a cardinality estimate to
+   * an exact count of the donor id terms, which is only affordable for small result sets.
+   */
+  public static final String EXACT_REPO_DONOR_COUNTS = "exactRepoDonorCounts";
+
   /**
    * Constants
    */
@@ -161,11 +167,15 @@ public class RepositoryFileRepository {
       Fields.FILE_COPIES,
       Fields.DONORS));
   private static final SortNode MANIFEST_DOWNLOAD_INFO_SORT = sortBuilder()
-      .sortAsc(Fields.REPO_TYPE).build();
+      .sortAsc(Fields.DATA_BUNDLE_ID)
+      .sortAsc(Fields.FILE_ID).build();
+  private static final int MANIFEST_DOWNLOAD_INFO_PAGE_SIZE = 1000;
 
   private static final TypeModel TYPE_MODEL = IndexModel.getRepositoryFileTypeModel();
   private static final String PREFIX = TYPE_MODEL.prefix();
   private static final String DONOR_ID_RAW_FIELD_NAME = toRawFieldName(Fields.DONOR_ID);
+  // Highest supported threshold, below which the cardinality counts are close to exact
+  private static final int DONOR_COUNT_PRECISION_THRESHOLD = 40000;
   private static final MatchAllQueryBuilder MATCH_ALL_QUERY = matchAllQuery();
   private static final MatchAllFilterBuilder MATCH_ALL_FILTER = matchAllFilter();
   private static final Jql2PqlConverter PQL_CONVERTER = Jql2PqlConverter.getInstance();
@@ -173,7 +183,10 @@ public class RepositoryFileRepository {
   private static final Map<String, String> JQL_FIELD_NAME_MAPPING = FIELDS_MAPPING.get(KIND);
   private static final String FILE_INDEX_TYPE = REPOSITORY_FILE.getId();
   private static final String FILE_DONOR_TEXT_INDEX_TYPE = Type.REPOSITORY_FILE_DONOR_TEXT.getId();
-  private static final TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private static final TimeValue MANIFEST_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+  private static final TimeValue DONOR_IDS_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+  private static final TimeValue DATA_TABLE_EXPORT_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+  private static final int DATA_TABLE_EXPORT_SCAN_SIZE = 5000;
 
   /**
    * Dependencies.
@@ -325,7 +338,7 @@ public class RepositoryFileRepository {
 
   }
 
-  private static List<AggregationBuilder<?>> aggs(final ObjectNode filters) {
+  private static List<AggregationBuilder<?>> aggs(final ObjectNode filters, boolean exactRepoDonorCounts) {
     val regularUiFacets = transform(AVAILABLE_FACETS, facet -> {
       final String rawFieldName = toRawFieldName(facet);
       final FilterAggregationBuilder filterAgg = filter(facet).filter(selfRemovingFilter(filters, facet));
@@ -365,6 +378,21 @@ public class RepositoryFileRepository {
 
     result.add(repoSizeSubAgg);
 
+    // repositoryDonors - unique donor count of the files in each repository. Like the file count of a repository
+    // selected in the facets, it must not be narrowed down by the selection of other repositories.
+    val repoDonorCountAggKey = CustomAggregationKeys.REPO_DONOR_COUNT;
+    val donorCountAgg = exactRepoDonorCounts ? terms(repoDonorCountAggKey).size(100000)
+        .field(DONOR_ID_RAW_FIELD_NAME) : cardinality(repoDonorCountAggKey).field(DONOR_ID_RAW_FIELD_NAME)
+            .precisionThreshold(DONOR_COUNT_PRECISION_THRESHOLD);
+    val repoDonorCountTermsSubAgg = terms(repoDonorCountAggKey).size(MAX_FACET_TERM_COUNT).field(repoNameFieldName)
+        .subAggregation(reverseNested(repoDonorCountAggKey)
+            .subAggregation(nestedAgg(repoDonorCountAggKey, EsFields.DONORS, donorCountAgg)));
+    val repoDonorCountSubAgg = filter(repoDonorCountAggKey)
+        .filter(selfRemovingFilter(filters, Fields.REPO_NAME))
+        .subAggregation(nestedAgg(repoDonorCountAggKey, EsFields.FILE_COPIES, repoDonorCountTermsSubAgg));
+
+    result.add(repoDonorCountSubAgg);
+
     return result.build();
   }
 
@@ -425,7 +453,7 @@ public class RepositoryFileRepository {
   }
 
   @NonNull
-  public Map<String, TermFacet> convertAggregationsToFacets(Aggregations aggs, Query query) {
+  public Map<String, TermFacet> convertAggregationsToFacets(Aggregations aggs) {
     val result = Maps.<String, TermFacet> newHashMap();
 
     for (val agg : aggs) {
@@ -437,7 +465,12 @@ public class RepositoryFileRepository {
         val buckets = ((Terms) nestedAgg.get(name)).getBuckets();
 
         result.put(CustomAggregationKeys.REPO_SIZE, convertRepoSizeAggregation(buckets));
-        result.put(CustomAggregationKeys.REPO_DONOR_COUNT, groupByRepoNameAndDonor(buckets, query));
+      } else if (name.equals(CustomAggregationKeys.REPO_DONOR_COUNT)) {
+        val nestedAgg = getSubAggResultFromNested(aggregations, name);
+        val buckets = ((Terms) nestedAgg.get(name)).getBuckets();
+
+        result.put(CustomAggregationKeys.REPO_DONOR_COUNT,
+            convertRepoDonorCountAggregation(getRepoNames(aggs), buckets));
       } else if (name.equals(CustomAggregationKeys.REPO_NAME)) {
         val nestedAgg = getSubAggResultFromNested(aggregations, name);
 
@@ -457,49 +490,36 @@ public class RepositoryFileRepository {
     return new FilteredQueryBuilder(MATCH_ALL_QUERY, filters);
   }
 
-  // Special aggregation to get unique donor count for each repository
-  private TermFacet groupByRepoNameAndDonor(List<Bucket> buckets, Query query) {
-    if (isEmpty(buckets)) {
-      return repoTermFacet(0L, 0, ImmutableList.of());
-    }
-
-    val repoNames = transform(buckets, bucket -> bucket.getKey());
+  private static List<String> getRepoNames(Aggregations aggs) {
+    val name = CustomAggregationKeys.REPO_NAME;
+    val nestedAgg = getSubAggResultFromNested(((Filter) aggs.get(name)).getAggregations(), name);
 
-    val donorAggKey = CustomAggregationKeys.REPO_DONOR_COUNT;
-    val repoFilterTemplate = "{file: {repoName: {is: [\"%s\"]}}}";
-    val userFilter = query.getFilters();
-
-    val multiSearch = client.prepareMultiSearch();
-
-    for (val repoName : repoNames) {
-      val repoFilter = new FiltersParam(format(repoFilterTemplate, repoName));
-      val mergedFilter = merge(userFilter, repoFilter.get());
-      val filters = buildRepoFilters(mergedFilter);
+    return termsBuckets(nestedAgg, name).stream()
+        .map(Bucket::getKey)
+        .collect(toImmutableList());
+  }
 
-      val oneSearch = client.prepareSearch(repoIndexName)
-          .setSearchType(COUNT)
-          .setQuery(filteredQuery(filters))
-          .addAggregation(donorIdAgg(donorAggKey));
+  // Special aggregation to get unique donor count for each repository, reported for and in the order of the
+  // repositories of the repositoryNamesFiltered facet
+  private static TermFacet convertRepoDonorCountAggregation(List<String> repoNames, List<Bucket> buckets) {
+    val aggKey = CustomAggregationKeys.REPO_DONOR_COUNT;
+    val donorCounts = Maps.<String, Long> newHashMap();
+    for (val bucket : buckets) {
+      val fileAggs = ((SingleBucketAggregation) bucket.getAggregations().get(aggKey)).getAggregations();
+      val donorAgg = getSubAggResultFromNested(fileAggs, aggKey).get(aggKey);
+      val donorCount = (donorAgg instanceof Cardinality) ? ((Cardinality) donorAgg).getValue()
+          : ((Terms) donorAgg).getBuckets().size();
 
-      multiSearch.add(oneSearch);
+      donorCounts.put(bucket.getKey(), donorCount);
     }
 
-    val response = multiSearch.execute().actionGet();
-    val responseItems = response.getResponses();
-    val responseItemCount = responseItems.length;
-
-    val donorResult = range(0, responseItemCount).boxed()
-        .map(i -> {
-          final Aggregations aggResult = responseItems[i].getResponse().getAggregations();
-          final int donorCount = bucketSize(getSubAggResultFromNested(aggResult, donorAggKey), donorAggKey);
-
-          return new Term(repoNames.get(i), Long.valueOf(donorCount));
-        })
+    val terms = repoNames.stream()
+        .map(repoName -> new Term(repoName, donorCounts.getOrDefault(repoName, 0L)))
         .collect(toImmutableList());
 
     // Total does not have any meaning in this context because a donor can cross multiple repositories.
     val total = -1L;
-    return repoTermFacet(total, 0, donorResult);
+    return repoTermFacet(total, 0, terms);
   }
 
   // Special aggregation to get file size for each repository
@@ -564,7 +584,7 @@ public class RepositoryFileRepository {
     customizer.accept(request);
 
     log.debug(logMessage + "; ES query is: '{}'", request);
-    return request.execute().actionGet();
+    return coalesce(request);
   }
 
   private SearchResponse searchFileCentric(String logMessage, Consumer<SearchRequestBuilder> customizer) {
@@ -582,41 +602,70 @@ public class RepositoryFileRepository {
     customizer.accept(request);
 
     log.debug(logMessage + "; ES query is: '{}'", request);
-    return request.execute().actionGet();
+    return coalesce(request);
   }
 
-  private SearchResponse prepareDataTableExport(Consumer<SearchRequestBuilder> queryCustomizer, String[] fields) {
-    val size = 5000;
-
-    return searchFileCentric("Preparing data table export", request -> {
-      request.setSearchType(SCAN)
-          .setSize(size)
-          .setScroll(KEEP_ALIVE)
-          .addFields(fields);
-
-      queryCustomizer.accept(request);
-    });
-  }
+  /**
+   * @return the number of slices the data table export can be scrolled in, one per shard of the file index
+   */
+  public int getDataExportSliceCount() {
+    val response = client.admin().cluster().prepareSearchShards(repoIndexName).execute().actionGet();
 
-  public SearchResponse fetchSearchScrollData(@NonNull String scrollId) {
-    return client.prepareSearchScroll(scrollId)
-        .setScroll(KEEP_ALIVE)
-        .execute().actionGet();
+    return (int) Stream.of(response.getGroups())
+        .mapToInt(ClusterSearchShardsGroup::getShardId)
+        .distinct()
+        .count();
   }
 
+  /**
+   * Streams the {@code fields} of the files matching {@code query} that live in shard {@code slice} to
+   * {@code consumer}, one scroll page at a time. Distinct slices may be scrolled concurrently.
+   */
   @NonNull
-  public SearchResponse prepareDataExport(Query query, final String[] fields) {
+  public void scrollDataExport(Query query, String[] fields, int slice, Consumer<SearchHits> consumer) {
     val filters = buildRepoFilters(query.getFilters());
 
-    return prepareDataTableExport(request -> request.setPostFilter(filters).setQuery(MATCH_ALL_QUERY), fields);
+    scrollDataTableExport(request -> request.setPostFilter(filters).setQuery(MATCH_ALL_QUERY), fields, slice,
+        consumer);
   }
 
   // FIXME: Support terms lookup on files as part of the filter builder so we don't need an extra method.
   @NonNull
-  public SearchResponse prepareSetDataExport(String setId, final String[] fields) {
+  public void scrollSetDataExport(String setId, String[] fields, int slice, Consumer<SearchHits> consumer) {
     val query = buildFileSetIdQuery(setId);
 
-    return prepareDataTableExport(request -> request.setQuery(query), fields);
+    scrollDataTableExport(request -> request.setQuery(query), fields, slice, consumer);
+  }
+
+  private void scrollDataTableExport(Consumer<SearchRequestBuilder> queryCustomizer, String[] fields, int slice,
+      Consumer<SearchHits> consumer) {
+    SearchResponse response = searchFileCentric("Preparing data table export of slice " + slice, request -> {
+      request.setSearchType(SCAN)
+          .setSize(DATA_TABLE_EXPORT_SCAN_SIZE)
+          .setScroll(DATA_TABLE_EXPORT_KEEP_ALIVE)
+          .setPreference("_shards:" + slice)
+          .addFields(fields);
+
+      queryCustomizer.accept(request);
+    });
+
+    try {
+      while (true) {
+        response = client.prepareSearchScroll(response.getScrollId())
+            .setScroll(DATA_TABLE_EXPORT_KEEP_ALIVE)
+            .execute().actionGet();
+
+        if (!hasHits(response)) {
+          break;
+        }
+
+        consumer.accept(response.getHits());
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(response.getScrollId())
+          .execute().actionGet();
+    }
   }
 
   private static FilteredQueryBuilder buildFileSetIdQuery(String setId) {
@@ -644,7 +693,7 @@ public class RepositoryFileRepository {
           .addSort(JQL_FIELD_NAME_MAPPING.get(query.getSort()), query.getOrder())
           .setPostFilter(filters);
 
-      aggs(queryFilter).stream().forEach(
+      aggs(queryFilter, query.hasInclude(EXACT_REPO_DONOR_COUNTS)).stream().forEach(
           agg -> request.addAggregation(agg));
     });
 
@@ -652,51 +701,51 @@ public class RepositoryFileRepository {
     return response;
   }
 
+  /**
+   * Collects the donor ids of the files matching {@code query}, in its sort order, until {@code setLimit} donors are
+   * found. Files are read with a scroll of {@code query.getSize()} hits per page, so deep pages cost no more than the
+   * first one.
+   */
   public Set<String> findAllDonorIds(@NonNull Query query, final int setLimit) {
-    val pqlAst = parse(PQL_CONVERTER.convert(query, REPOSITORY_FILE));
-    val size = query.getSize();
-    int pageNumber = 0;
+    val pqlAst = PQL_CONVERTER.convertToAst(query, REPOSITORY_FILE);
+    pqlAst.setLimit(limit(0, query.getSize()));
 
-    SearchResponse response = fetchDonorIds(pqlAst, pageNumber, size);
+    SearchResponse response = pqlSearchFileCentric("findAllDonorIds", pqlAst,
+        request -> request.setScroll(DONOR_IDS_KEEP_ALIVE));
 
     val result = Sets.<String> newHashSet();
-    val pageCount = divide(getTotalHitCount(response), size, CEILING);
-
-    // Number of files > max limit, so we must page files in order to ensure we get all donors.
-    while (pageNumber <= pageCount) {
-      for (val hit : response.getHits()) {
-        val donorIdField = hit.field(DONOR_ID_RAW_FIELD_NAME);
-
-        if (null == donorIdField) {
-          // Skips when donorId doesn't appear in the fields.
-          log.warn("The Donors array in this document (id: {}) is empty, which is not valid.", hit.getId());
-          continue;
+    try {
+      while (hasHits(response)) {
+        for (val hit : response.getHits()) {
+          val donorIdField = hit.field(DONOR_ID_RAW_FIELD_NAME);
+
+          if (null == donorIdField) {
+            // Skips when donorId doesn't appear in the fields.
+            log.warn("The Donors array in this document (id: {}) is empty, which is not valid.", hit.getId());
+            continue;
+          }
+
+          val donorIds = donorIdField.getValues();
+          result.addAll(transform(donorIds, id -> id.toString()));
+
+          if (result.size() >= setLimit) {
+            return result;
+          }
         }
 
-        val donorIds = donorIdField.getValues();
-        result.addAll(transform(donorIds, id -> id.toString()));
-
-        if (result.size() >= setLimit) {
-          return result;
-        }
+        response = client.prepareSearchScroll(response.getScrollId())
+            .setScroll(DONOR_IDS_KEEP_ALIVE)
+            .execute().actionGet();
       }
-
-      response = fetchDonorIds(pqlAst, ++pageNumber, size);
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(response.getScrollId())
+          .execute().actionGet();
     }
 
     return result;
   }
 
-  private SearchResponse fetchDonorIds(@NonNull StatementNode pqlAst, int pageNumber, int size) {
-    pqlAst.setLimit(limit(pageNumber * size, size));
-
-    val response = pqlSearchFileCentric("fetchDonorIds", pqlAst, request -> {
-    });
-
-    log.debug("findAllDonorIds() - ES response is: '{}'.", response);
-    return response;
-  }
-
   public List<String> findAllFileIds(Query query) {
     val queryFilter = query.getFilters();
     val filters = buildRepoFilters(queryFilter);
@@ -711,42 +760,53 @@ public class RepositoryFileRepository {
     return getHitIds(response);
   }
 
-  @NonNull
-  public SearchResponse findDownloadInfoFromSet(String setId) {
-    val pqlAst = parse("select(*)");
-    pqlAst.setSelect(MANIFEST_DOWNLOAD_INFO_SELECT);
-
-    val response = pqlSearchFileCentric("Donor Info From Set Id", pqlAst, request -> request
-        .setFrom(0)
-        .setSize(20000)
-        .setQuery(buildFileSetIdQuery(setId)));
+  /**
+   * Streams the download info of the files in the set identified by {@code setId} to {@code consumer}.
+   */
+  public void scrollDownloadInfoFromSet(@NonNull String setId, @NonNull Consumer<SearchHit> consumer) {
+    scrollDownloadInfo("Donor Info From Set Id", parse("select(*)"),
+        request -> request.setQuery(buildFileSetIdQuery(setId)), consumer);
+  }
 
-    log.debug("ES response is: {}", response);
-    return response;
+  /**
+   * Streams the download info of the files matching {@code pqlAst} to {@code consumer}, one scroll page at a time.
+   * Hits arrive sorted by data bundle id and file id so that manifests are written in a stable order.
+   */
+  public void scrollDownloadInfo(@NonNull StatementNode pqlAst, @NonNull Consumer<SearchHit> consumer) {
+    scrollDownloadInfo("findDownloadInfo", pqlAst, request -> {}, consumer);
   }
 
-  public SearchResponse findDownloadInfo(@NonNull final String pql) {
-    val pqlAst = parse(pql);
+  private void scrollDownloadInfo(String logMessage, StatementNode pqlAst, Consumer<SearchRequestBuilder> customizer,
+      Consumer<SearchHit> consumer) {
     pqlAst.setSelect(MANIFEST_DOWNLOAD_INFO_SELECT);
     pqlAst.setSort(MANIFEST_DOWNLOAD_INFO_SORT);
 
     log.debug("PQL for download is: '{}'.", pqlAst.toString());
 
-    // Get the total count first.
-    val count = getTotalHitCount(findDownloadInfo(pqlAst, COUNT, 0));
-    log.debug("A total of {} files will be returned from this query.", count);
+    SearchResponse response = pqlSearchFileCentric(logMessage, pqlAst, request -> {
+      request
+          .setSearchType(QUERY_THEN_FETCH)
+          .setFrom(0)
+          .setSize(MANIFEST_DOWNLOAD_INFO_PAGE_SIZE)
+          .setScroll(MANIFEST_KEEP_ALIVE);
 
-    return findDownloadInfo(pqlAst, QUERY_THEN_FETCH, Ints.saturatedCast(count));
-  }
+      customizer.accept(request);
+    });
+    log.debug("A total of {} files will be returned from this query.", getTotalHitCount(response));
 
-  @NonNull
-  private SearchResponse findDownloadInfo(StatementNode pqlAst, SearchType searchType, int size) {
-    val response = pqlSearchFileCentric("findDownloadInfo", pqlAst, request -> request
-        .setSearchType(searchType)
-        .setSize(size));
+    try {
+      while (hasHits(response)) {
+        response.getHits().forEach(consumer);
 
-    log.debug("ES response is: {}", response);
-    return response;
+        response = client.prepareSearchScroll(response.getScrollId())
+            .setScroll(MANIFEST_KEEP_ALIVE)
+            .execute().actionGet();
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(response.getScrollId())
+          .execute().actionGet();
+    }
   }
 
   @NonNull
@@ -1018,7 +1078,7 @@ public class RepositoryFileRepository {
 
   @SneakyThrows
   public Map<String, String> getIndexMetaData() {
-    return indexService.getIndexMetaData(client, repoIndexName);
+    return indexService.getIndexMetaData(repoIndexName);
   }
 
 }
\ No newline at end of file
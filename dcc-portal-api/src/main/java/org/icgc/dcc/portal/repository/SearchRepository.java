@@ -35,6 +35,7 @@ import static org.icgc.dcc.portal.model.SearchFieldMapper.EXACT_MATCH_SUFFIX;
 import static org.icgc.dcc.portal.model.SearchFieldMapper.LOWERCASE_MATCH_SUFFIX;
 import static org.icgc.dcc.portal.model.SearchFieldMapper.PARTIAL_MATCH_SUFFIX;
 import static org.icgc.dcc.portal.model.SearchFieldMapper.boost;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
 
 import java.util.Collection;
 import java.util.List;
@@ -158,9 +159,7 @@ public class SearchRepository {
 
   // Instance variables
   private final Client client;
-
-  @Value("#{indexName}")
-  private String indexName;
+  private final IndexModel indexModel;
 
   @Value("#{repoIndexName}")
   private String repoIndexName;
@@ -168,6 +167,7 @@ public class SearchRepository {
   @Autowired
   SearchRepository(Client client, IndexModel indexModel) {
     this.client = client;
+    this.indexModel = indexModel;
   }
 
   @NonNull
@@ -190,7 +190,7 @@ public class SearchRepository {
         .setPostFilter(getPostFilter(type));
 
     log.debug("ES search query is: {}", search);
-    val response = search.execute().actionGet();
+    val response = coalesce(search);
     log.debug("ES search result is: {}", response);
 
     return response;
@@ -209,10 +209,10 @@ public class SearchRepository {
     }
 
     if (type.equals(Types.DONOR)) {
-      return client.prepareSearch(indexName);
+      return client.prepareSearch(indexModel.getIndex());
     }
 
-    return client.prepareSearch(indexName, repoIndexName);
+    return client.prepareSearch(indexModel.getIndex(), repoIndexName);
   }
 
   // Helpers
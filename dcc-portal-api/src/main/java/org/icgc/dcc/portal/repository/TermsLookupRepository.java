@@ -20,15 +20,14 @@ package org.icgc.dcc.portal.repository;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.propagate;
 import static java.lang.Math.min;
+import static java.util.Collections.singleton;
 import static lombok.AccessLevel.PRIVATE;
 import static org.elasticsearch.index.query.FilterBuilders.termsLookupFilter;
 import static org.icgc.dcc.portal.model.IndexModel.Type.DONOR_TEXT;
 import static org.icgc.dcc.portal.model.IndexModel.Type.REPOSITORY_FILE_DONOR_TEXT;
 import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.toBoolFilterFrom;
-import static org.icgc.dcc.portal.util.ElasticsearchRequestUtils.toDonorBoolFilter;
 import static org.icgc.dcc.portal.util.JsonUtils.MAPPER;
-import static org.icgc.dcc.portal.util.SearchResponses.getHitIdsSet;
-import static org.icgc.dcc.portal.util.SearchResponses.getTotalHitCount;
+import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 
 import java.util.Collections;
 import java.util.Map;
@@ -42,16 +41,16 @@ import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.TermsLookupFilterBuilder;
 import org.icgc.dcc.portal.config.PortalProperties;
 import org.icgc.dcc.portal.model.BaseEntitySet;
 import org.icgc.dcc.portal.model.EntitySet.SubType;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.UnionUnit;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.google.common.collect.ImmutableMap;
@@ -75,16 +74,16 @@ public class TermsLookupRepository {
   public static final String TERMS_LOOKUP_INDEX_NAME = "terms-lookup";
 
   private final static MatchAllQueryBuilder MATCH_ALL = QueryBuilders.matchAllQuery();
+  private final static TimeValue KEEP_ALIVE = new TimeValue(10000);
+  private final static int SCROLL_SIZE = 5000;
 
   /**
    * Dependencies.
    */
   @NonNull
   private final Client client;
-  @Value("#{indexName}")
-  private final String indexName;
-  @Value("#{repoIndexName}")
-  private final String repoIndexName;
+  @NonNull
+  private final IndexModel indexModel;
   @NonNull
   private final PortalProperties properties;
 
@@ -198,55 +197,49 @@ public class TermsLookupRepository {
         .lookupPath(TERMS_LOOKUP_PATH);
   }
 
-  public SearchResponse runUnionEsQuery(final String indexTypeName, @NonNull final SearchType searchType,
-      @NonNull final BoolFilterBuilder boolFilter, final int max) {
+  /**
+   * Streams the ids of the indexed entities of {@code entityType} that are members of the set {@code setId}.
+   */
+  public void scrollEntitySetIds(@NonNull final BaseEntitySet.Type entityType, @NonNull final UUID setId,
+      @NonNull final Consumer<String> consumer) {
+    val boolFilter = toBoolFilterFrom(UnionUnit.noExclusionInstance(singleton(setId)), entityType);
     val query = QueryBuilders.filteredQuery(MATCH_ALL, boolFilter);
-    return execute("Union ES Query", false, (request) -> request
-        .setTypes(indexTypeName)
-        .setSearchType(searchType)
-        .setQuery(query)
-        .setSize(max)
-        .setNoFields());
-  }
+    val isDonor = entityType == BaseEntitySet.Type.DONOR;
+
+    SearchResponse response = execute("Terms Lookup - Entity Set Ids", isDonor, (request) -> {
+      if (isDonor) {
+        request.setTypes(DONOR_TEXT.getId(), REPOSITORY_FILE_DONOR_TEXT.getId());
+      } else {
+        request.setTypes(entityType.getIndexTypeName());
+      }
+
+      request
+          .setSearchType(SearchType.SCAN)
+          .setScroll(KEEP_ALIVE)
+          .setSize(SCROLL_SIZE)
+          .setQuery(query)
+          .setNoFields();
+    });
 
-  public SearchResponse donorSearchRequest(final BoolFilterBuilder boolFilter) {
-    val query = QueryBuilders.filteredQuery(MATCH_ALL, boolFilter);
-    return execute("Terms Lookup - Donor Search", true, (request) -> request
-        .setTypes(DONOR_TEXT.getId(), REPOSITORY_FILE_DONOR_TEXT.getId())
-        .setQuery(query)
-        .setSize(maxUnionCount)
-        .setNoFields()
-        .setSearchType(SearchType.DEFAULT));
-  }
-
-  public long getUnionCount(
-      final UnionUnit unionDefinition,
-      final BaseEntitySet.Type entityType) {
-
-    val response = runUnionEsQuery(
-        entityType.getIndexTypeName(),
-        SearchType.COUNT,
-        toBoolFilterFrom(unionDefinition, entityType),
-        maxUnionCount);
-
-    val count = getCountFrom(response, maxUnionCount);
-    log.debug("Total hits: {}", count);
-
-    return count;
-  }
-
-  public SearchResponse getDonorUnion(final Iterable<UnionUnit> definitions) {
-    val boolFilter = toBoolFilterFrom(definitions, BaseEntitySet.Type.DONOR);
-    val response = donorSearchRequest(boolFilter);
-
-    return response;
-  }
-
-  public long getDonorCount(final UnionUnit unionDefinition) {
-    val boolFilter = toDonorBoolFilter(unionDefinition);
-    val response = donorSearchRequest(boolFilter);
-
-    return getHitIdsSet(response).size();
+    try {
+      while (true) {
+        response = client.prepareSearchScroll(response.getScrollId())
+            .setScroll(KEEP_ALIVE)
+            .execute().actionGet();
+
+        if (!hasHits(response)) {
+          break;
+        }
+
+        for (val hit : response.getHits()) {
+          consumer.accept(hit.getId());
+        }
+      }
+    } finally {
+      client.prepareClearScroll()
+          .addScrollId(response.getScrollId())
+          .execute().actionGet();
+    }
   }
 
   public String getRepoName(@NonNull String setId) {
@@ -259,11 +252,6 @@ public class TermsLookupRepository {
     return field.getValue().toString();
   }
 
-  private long getCountFrom(@NonNull final SearchResponse response, final long max) {
-    val result = getTotalHitCount(response);
-    return min(max, result);
-  }
-
   private String createSettings() {
     val settings = MAPPER.createObjectNode();
     settings.put("index.auto_expand_replicas", "0-all");
@@ -273,7 +261,8 @@ public class TermsLookupRepository {
   }
 
   private SearchResponse execute(String message, Boolean multiIndex, Consumer<SearchRequestBuilder> customizer) {
-    val request = multiIndex ? client.prepareSearch(repoIndexName, indexName) : client.prepareSearch(indexName);
+    val request = multiIndex ? client.prepareSearch(indexModel.getRepoIndex(), indexModel.getIndex())
+        : client.prepareSearch(indexModel.getIndex());
     customizer.accept(request);
 
     log.debug("{}: {}", message, request);
@@ -9,20 +9,22 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.icgc.dcc.portal.service.BrowserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Doubles;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.yammer.metrics.annotation.Timed;
 
+import lombok.Cleanup;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
-import lombok.SneakyThrows;
 import lombok.val;
 
 /**
@@ -61,7 +63,7 @@ public class BrowserResource {
   @Path("/gene")
   @Timed
   @ApiOperation(value = "Retrieves a list of genes")
-  public String getGene(
+  public StreamingOutput getGene(
       @QueryParam(ParameterNames.SEGMENT) String segment,
       @QueryParam(ParameterNames.HISTOGRAM) String histogram,
       @QueryParam(ParameterNames.DATATYPE) String dataType,
@@ -80,7 +82,7 @@ public class BrowserResource {
   @Path("/mutation")
   @Timed
   @ApiOperation(value = "Retrieves a list of mutations")
-  public String getMutation(
+  public StreamingOutput getMutation(
       @QueryParam(ParameterNames.SEGMENT) String segment,
       @QueryParam(ParameterNames.HISTOGRAM) String histogram,
       @QueryParam(ParameterNames.DATATYPE) String dataType,
@@ -93,10 +95,9 @@ public class BrowserResource {
   }
 
   /**
-   * Common method used to retrieve data of all types.
+   * Common method used to retrieve data of all types. Complete data is streamed as it is retrieved.
    */
-  @SneakyThrows
-  String getData(String segment, String histogram, String dataType,
+  StreamingOutput getData(String segment, String histogram, String dataType,
       String interval, String resource, String bioType, String consequenceType, String functionalImpact) {
 
     checkRequest(isBlank(resource), "'resource' parameter is required but missing.");
@@ -119,7 +120,16 @@ public class BrowserResource {
     queryMap.put(ParameterNames.CONSEQUENCE_TYPE, consequenceType);
     queryMap.put(ParameterNames.FUNCTIONAL_IMPACT, functionalImpact);
 
-    return MAPPER
-        .writeValueAsString(isHistogram ? browserService.getHistogram(queryMap) : browserService.getRecords(queryMap));
+    if (isHistogram) {
+      val buckets = browserService.getHistogram(queryMap);
+      return output -> MAPPER.writeValue(output, buckets);
+    }
+
+    val records = browserService.getRecords(queryMap);
+    return output -> {
+      @Cleanup
+      final JsonGenerator generator = MAPPER.getFactory().createGenerator(output);
+      records.accept(generator);
+    };
   }
 }
\ No newline at end of file
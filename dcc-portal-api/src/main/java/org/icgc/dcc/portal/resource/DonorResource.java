@@ -1,6 +1,7 @@
 package org.icgc.dcc.portal.resource;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.eclipse.jetty.http.HttpStatus.NOT_FOUND_404;
 import static org.icgc.dcc.portal.resource.ResourceUtils.AFFECTED_BY_THE;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_DONOR_PARAM;
@@ -79,6 +80,7 @@ import org.icgc.dcc.portal.model.Genes;
 import org.icgc.dcc.portal.model.IdsParam;
 import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.Mutations;
+import org.icgc.dcc.portal.model.Query;
 import org.icgc.dcc.portal.service.DonorService;
 import org.icgc.dcc.portal.service.GeneService;
 import org.icgc.dcc.portal.service.MutationService;
@@ -87,6 +89,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -226,13 +229,13 @@ public class DonorResource {
     log.info(NESTED_COUNT_TEMPLATE, GENE, donors);
 
     val queries = generateQueries(filters, DONOR_FILTER_TEMPLATE, donors);
-    val counts = geneService.counts(queries);
 
     // Get total Gene count using all Donors
     filters = mergeFilters(filters, DONOR_FILTER_TEMPLATE, JsonUtils.join(donors));
-    long uniqueCount = geneService.count(query().filters(filters).build());
+    val uniqueCount = geneService.countAsync(query().filters(filters).build());
 
-    counts.put(TOTAL, uniqueCount);
+    val counts = geneService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -272,13 +275,18 @@ public class DonorResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { MUTATION, donors, genes });
 
     val queries = generateQueries(filters, GENE_DONOR_FILTER_TEMPLATE, genes, donors);
-    val counts = mutationService.nestedCounts(queries);
 
     // Get total Mutation count for each Donor using all Genes
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String donorId : donors) {
       filters = mergeFilters(filters, GENE_DONOR_FILTER_TEMPLATE, JsonUtils.join(genes), donorId);
-      long uniqueCount = mutationService.count(query().filters(filters).build());
-      counts.get(donorId).put(TOTAL, uniqueCount);
+      totalQueries.put(donorId, query().filters(filters).build());
+    }
+    val uniqueCounts = mutationService.countsAsync(totalQueries);
+
+    val counts = mutationService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -343,13 +351,13 @@ public class DonorResource {
     log.info(NESTED_COUNT_TEMPLATE, MUTATION, donors);
 
     val queries = generateQueries(filters, DONOR_FILTER_TEMPLATE, donors);
-    val counts = mutationService.counts(queries);
 
     // Get total Mutation count using all Donors
     filters = mergeFilters(filters, DONOR_FILTER_TEMPLATE, JsonUtils.join(donors));
-    long uniqueCount = mutationService.count(query().filters(filters).build());
+    val uniqueCount = mutationService.countAsync(query().filters(filters).build());
 
-    counts.put(TOTAL, uniqueCount);
+    val counts = mutationService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -391,13 +399,18 @@ public class DonorResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { GENE, donors, mutations });
 
     val queries = generateQueries(filters, MUTATION_DONOR_FILTER_TEMPLATE, mutations, donors);
-    val counts = geneService.nestedCounts(queries);
 
     // Get total Gene count for each Donor using all Mutations
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String donorId : donors) {
       filters = mergeFilters(filters, MUTATION_DONOR_FILTER_TEMPLATE, JsonUtils.join(mutations), donorId);
-      long uniqueCount = geneService.count(query().filters(filters).build());
-      counts.get(donorId).put(TOTAL, uniqueCount);
+      totalQueries.put(donorId, query().filters(filters).build());
+    }
+    val uniqueCounts = geneService.countsAsync(totalQueries);
+
+    val counts = geneService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
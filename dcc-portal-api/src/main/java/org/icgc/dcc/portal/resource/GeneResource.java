@@ -1,6 +1,7 @@
 package org.icgc.dcc.portal.resource;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.eclipse.jetty.http.HttpStatus.NOT_FOUND_404;
 import static org.icgc.dcc.portal.resource.ResourceUtils.AFFECTED_BY_THE;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_DONOR_PARAM;
@@ -63,6 +64,7 @@ import static org.icgc.dcc.portal.resource.ResourceUtils.regularFindAllJqlQuery;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -91,6 +93,7 @@ import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -228,12 +231,13 @@ public class GeneResource {
     log.info(NESTED_COUNT_TEMPLATE, DONOR, genes);
 
     val queries = generateQueries(filters, GENE_FILTER_TEMPLATE, genes);
-    val counts = donorService.counts(queries);
 
     // Get total Donor count using all Genes
     filters = mergeFilters(filters, GENE_FILTER_TEMPLATE, JsonUtils.join(genes));
-    long uniqueCount = donorService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val uniqueCount = donorService.countAsync(query().filters(filters).build());
+
+    val counts = donorService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -274,13 +278,17 @@ public class GeneResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { MUTATION, genes, donors });
 
     val queries = generateQueries(filters, DONOR_GENE_FILTER_TEMPLATE, donors, genes);
-    val counts = mutationService.nestedCounts(queries);
 
     // Get total Mutation count for each Gene using all Donors
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String geneId : genes) {
       filters = mergeFilters(filters, DONOR_GENE_FILTER_TEMPLATE, JsonUtils.join(donors), geneId);
-      long uniqueCount = mutationService.count(query().filters(filters).build());
-      counts.get(geneId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(geneId, mutationService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = mutationService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
@@ -344,13 +352,13 @@ public class GeneResource {
     log.info(NESTED_COUNT_TEMPLATE, MUTATION, genes);
 
     val queries = generateQueries(filters, GENE_FILTER_TEMPLATE, genes);
-    val counts = mutationService.counts(queries);
 
     // Get total Mutation count using all Genes
     filters = mergeFilters(filters, GENE_FILTER_TEMPLATE, JsonUtils.join(genes));
-    long uniqueCount = mutationService.count(query().filters(filters).build());
+    val uniqueCount = mutationService.countAsync(query().filters(filters).build());
 
-    counts.put(TOTAL, uniqueCount);
+    val counts = mutationService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -392,13 +400,17 @@ public class GeneResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, genes, mutations });
 
     val queries = generateQueries(filters, MUTATION_GENE_FILTER_TEMPLATE, mutations, genes);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Gene using all Mutations
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String geneId : genes) {
       filters = mergeFilters(filters, MUTATION_GENE_FILTER_TEMPLATE, JsonUtils.join(mutations), geneId);
-      long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(geneId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(geneId, donorService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
@@ -441,13 +453,17 @@ public class GeneResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { MUTATION, genes, projects });
 
     val queries = generateQueries(filters, PROJECT_GENE_FILTER_TEMPLATE, projects, genes);
-    val counts = mutationService.nestedCounts(queries);
 
     // Get total Mutation count for each Gene using all Projects
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String geneId : genes) {
       filters = mergeFilters(filters, PROJECT_GENE_FILTER_TEMPLATE, JsonUtils.join(projects), geneId);
-      long uniqueCount = mutationService.count(query().filters(filters).build());
-      counts.get(geneId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(geneId, mutationService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = mutationService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
@@ -489,13 +505,17 @@ public class GeneResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, genes, projects });
 
     val queries = generateQueries(filters, PROJECT_GENE_FILTER_TEMPLATE, projects, genes);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Gene using all Projects
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String geneId : genes) {
       filters = mergeFilters(filters, PROJECT_GENE_FILTER_TEMPLATE, JsonUtils.join(projects), geneId);
-      long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(geneId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(geneId, donorService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
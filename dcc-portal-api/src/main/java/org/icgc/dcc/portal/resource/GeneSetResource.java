@@ -18,6 +18,7 @@
 package org.icgc.dcc.portal.resource;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.eclipse.jetty.http.HttpStatus.NOT_FOUND_404;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_FILTER_PARAM;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_FILTER_VALUE;
@@ -86,12 +87,12 @@ public class GeneSetResource {
     List<String> geneSets = geneSetIds.get();
 
     val queries = generateQueries(filters, geneSetIdFilter, geneSets);
-    val counts = geneService.counts(queries);
 
     filters = mergeFilters(filters, geneSetIdFilter, JsonUtils.join(geneSets));
-    long uniqueCount = geneService.count(query().filters(filters).build());
+    val uniqueCount = geneService.countAsync(query().filters(filters).build());
 
-    counts.put(TOTAL, uniqueCount);
+    val counts = geneService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
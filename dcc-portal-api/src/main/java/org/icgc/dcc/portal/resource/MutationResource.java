@@ -1,6 +1,7 @@
 package org.icgc.dcc.portal.resource;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.eclipse.jetty.http.HttpStatus.NOT_FOUND_404;
 import static org.icgc.dcc.portal.resource.ResourceUtils.AFFECTED_BY_THE;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_FACETS_ONLY_DESCRIPTION;
@@ -61,6 +62,7 @@ import static org.icgc.dcc.portal.resource.ResourceUtils.regularFindAllJqlQuery;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -88,6 +90,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
@@ -232,12 +235,13 @@ public class MutationResource {
     log.info(NESTED_COUNT_TEMPLATE, DONOR, mutations);
 
     val queries = generateQueries(filters, MUTATION_FILTER_TEMPLATE, mutations);
-    val counts = donorService.counts(queries);
 
     // Get total Donor count using all Mutations
     filters = mergeFilters(filters, MUTATION_FILTER_TEMPLATE, JsonUtils.join(mutations));
-    long uniqueCount = donorService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val uniqueCount = donorService.countAsync(query().filters(filters).build());
+
+    val counts = donorService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -304,12 +308,13 @@ public class MutationResource {
     log.info(NESTED_COUNT_TEMPLATE, GENE, mutations);
 
     val queries = generateQueries(filters, MUTATION_FILTER_TEMPLATE, mutations);
-    val counts = geneService.counts(queries);
 
     // Get total Gene count using all Mutations
     filters = mergeFilters(filters, MUTATION_FILTER_TEMPLATE, JsonUtils.join(mutations));
-    long uniqueCount = geneService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val uniqueCount = geneService.countAsync(query().filters(filters).build());
+
+    val counts = geneService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -352,13 +357,17 @@ public class MutationResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, mutations, genes });
 
     val queries = generateQueries(filters, GENE_MUTATION_FILTER_TEMPLATE, genes, mutations);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Mutation using all Genes
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String mutationId : mutations) {
       filters = mergeFilters(filters, GENE_MUTATION_FILTER_TEMPLATE, JsonUtils.join(genes), mutationId);
-      Long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(mutationId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(mutationId, donorService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
@@ -403,13 +412,17 @@ public class MutationResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, mutations, projects });
 
     val queries = generateQueries(filters, PROJECT_MUTATION_FILTER_TEMPLATE, projects, mutations);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Mutation using all Genes
+    val uniqueCounts = Maps.<String, CompletableFuture<Long>> newLinkedHashMap();
     for (String mutationId : mutations) {
       filters = mergeFilters(filters, PROJECT_MUTATION_FILTER_TEMPLATE, JsonUtils.join(projects), mutationId);
-      long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(mutationId).put(TOTAL, uniqueCount);
+      uniqueCounts.put(mutationId, donorService.countAsync(query().filters(filters).build()));
+    }
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : uniqueCounts.entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, join(uniqueCount.getValue()));
     }
 
     return counts;
@@ -3,6 +3,7 @@ package org.icgc.dcc.portal.resource;
 import static com.google.common.net.HttpHeaders.CONTENT_DISPOSITION;
 import static com.sun.jersey.core.header.ContentDisposition.type;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.dcc.portal.pql.query.ActionFutures.join;
 import static org.eclipse.jetty.http.HttpStatus.NOT_FOUND_404;
 import static org.icgc.dcc.portal.resource.ResourceUtils.AFFECTED_BY_THE;
 import static org.icgc.dcc.portal.resource.ResourceUtils.API_DONOR_PARAM;
@@ -83,6 +84,7 @@ import org.icgc.dcc.portal.model.IdsParam;
 import org.icgc.dcc.portal.model.Mutations;
 import org.icgc.dcc.portal.model.Project;
 import org.icgc.dcc.portal.model.Projects;
+import org.icgc.dcc.portal.model.Query;
 import org.icgc.dcc.portal.service.DonorService;
 import org.icgc.dcc.portal.service.GeneService;
 import org.icgc.dcc.portal.service.MutationService;
@@ -93,6 +95,7 @@ import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -229,12 +232,13 @@ public class ProjectResource {
     log.info(NESTED_COUNT_TEMPLATE, DONOR, projects);
 
     val queries = generateQueries(filters, PROJECT_FILTER_TEMPLATE, projects);
-    val counts = donorService.counts(queries);
 
     // Get total Donor count using all Projects
     filters = mergeFilters(filters, PROJECT_FILTER_TEMPLATE, JsonUtils.join(projects));
-    long uniqueCount = donorService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val uniqueCount = donorService.countAsync(query().filters(filters).build());
+
+    val counts = donorService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -272,13 +276,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { GENE, projects, donors });
 
     val queries = generateQueries(filters, DONOR_PROJECT_FILTER_TEMPLATE, donors, projects);
-    val counts = geneService.nestedCounts(queries);
 
     // Get total Gene count for each Project using all Donors
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, DONOR_PROJECT_FILTER_TEMPLATE, JsonUtils.join(donors), projectId);
-      long uniqueCount = geneService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = geneService.countsAsync(totalQueries);
+
+    val counts = geneService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -317,13 +326,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { MUTATION, projects, donors });
 
     val queries = generateQueries(filters, DONOR_PROJECT_FILTER_TEMPLATE, donors, projects);
-    val counts = mutationService.nestedCounts(queries);
 
     // Get total Mutation count for each Project using all Donors
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, DONOR_PROJECT_FILTER_TEMPLATE, JsonUtils.join(donors), projectId);
-      long uniqueCount = mutationService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = mutationService.countsAsync(totalQueries);
+
+    val counts = mutationService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -404,13 +418,13 @@ public class ProjectResource {
     log.info(NESTED_COUNT_TEMPLATE, GENE, projects);
 
     val queries = generateQueries(filters, PROJECT_FILTER_TEMPLATE, projects);
-    val counts = geneService.counts(queries);
 
     // Get total Gene count using all Projects
     filters = mergeFilters(filters, PROJECT_FILTER_TEMPLATE, JsonUtils.join(projects));
+    val uniqueCount = geneService.countAsync(query().filters(filters).build());
 
-    Long uniqueCount = geneService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val counts = geneService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -448,13 +462,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { MUTATION, projects, genes });
 
     val queries = generateQueries(filters, GENE_PROJECT_FILTER_TEMPLATE, genes, projects);
-    val counts = mutationService.nestedCounts(queries);
 
     // Get total Mutation count for each Project using all Genes
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, GENE_PROJECT_FILTER_TEMPLATE, JsonUtils.join(genes), projectId);
-      long uniqueCount = mutationService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = mutationService.countsAsync(totalQueries);
+
+    val counts = mutationService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -493,13 +512,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, projects, genes });
 
     val queries = generateQueries(filters, GENE_PROJECT_FILTER_TEMPLATE, genes, projects);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Project using all Genes
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, GENE_PROJECT_FILTER_TEMPLATE, JsonUtils.join(genes), projectId);
-      long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = donorService.countsAsync(totalQueries);
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -560,13 +584,13 @@ public class ProjectResource {
     log.info(NESTED_COUNT_TEMPLATE, MUTATION, projects);
 
     val queries = generateQueries(filters, PROJECT_FILTER_TEMPLATE, projects);
-    val counts = mutationService.counts(queries);
 
     // Get total Mutation count using all Projects
     filters = mergeFilters(filters, PROJECT_FILTER_TEMPLATE, JsonUtils.join(projects));
+    val uniqueCount = mutationService.countAsync(query().filters(filters).build());
 
-    Long uniqueCount = mutationService.count(query().filters(filters).build());
-    counts.put(TOTAL, uniqueCount);
+    val counts = mutationService.counts(queries);
+    counts.put(TOTAL, join(uniqueCount));
 
     return counts;
   }
@@ -605,13 +629,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { DONOR, projects, mutations });
 
     val queries = generateQueries(filters, MUTATION_PROJECT_FILTER_TEMPLATE, mutations, projects);
-    val counts = donorService.nestedCounts(queries);
 
     // Get total Donor count for each Project using all Mutations
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, MUTATION_PROJECT_FILTER_TEMPLATE, JsonUtils.join(mutations), projectId);
-      long uniqueCount = donorService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = donorService.countsAsync(totalQueries);
+
+    val counts = donorService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
@@ -651,13 +680,18 @@ public class ProjectResource {
     log.info(NESTED_NESTED_COUNT_TEMPLATE, new Object[] { GENE, projects, mutations });
 
     val queries = generateQueries(filters, MUTATION_PROJECT_FILTER_TEMPLATE, mutations, projects);
-    val counts = geneService.nestedCounts(queries);
 
     // Get total Gene count for each Project using all Mutations
+    val totalQueries = Maps.<String, Query> newLinkedHashMap();
     for (String projectId : projects) {
       filters = mergeFilters(filters, MUTATION_PROJECT_FILTER_TEMPLATE, JsonUtils.join(mutations), projectId);
-      long uniqueCount = geneService.count(query().filters(filters).build());
-      counts.get(projectId).put(TOTAL, uniqueCount);
+      totalQueries.put(projectId, query().filters(filters).build());
+    }
+    val uniqueCounts = geneService.countsAsync(totalQueries);
+
+    val counts = geneService.nestedCounts(queries);
+    for (val uniqueCount : join(uniqueCounts).entrySet()) {
+      counts.get(uniqueCount.getKey()).put(TOTAL, uniqueCount.getValue());
     }
 
     return counts;
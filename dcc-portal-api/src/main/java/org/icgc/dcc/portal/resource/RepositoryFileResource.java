@@ -17,7 +17,10 @@
  */
 package org.icgc.dcc.portal.resource;
 
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
 import static com.google.common.net.HttpHeaders.CONTENT_DISPOSITION;
+import static com.google.common.net.HttpHeaders.CONTENT_ENCODING;
+import static com.google.common.net.HttpHeaders.VARY;
 import static com.sun.jersey.core.header.ContentDisposition.type;
 import static javax.ws.rs.core.MediaType.APPLICATION_FORM_URLENCODED;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -61,6 +64,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -99,6 +103,7 @@ public class RepositoryFileResource {
 
   private static final String API_PATH_MANIFEST = "/manifest";
   private static final String TYPE_ATTACHMENT = "attachment";
+  private static final String GZIP_ENCODING = "gzip";
 
   private final RepositoryFileService repositoryFileService;
 
@@ -158,16 +163,17 @@ public class RepositoryFileResource {
   @Produces(TEXT_TSV)
   @ApiOperation(value = "Exports repository file listings to a TSV file.", response = RepositoryFile.class)
   public Response exportFiles(
-      @ApiParam(value = API_FILTER_VALUE) @QueryParam(API_FILTER_PARAM) @DefaultValue(DEFAULT_FILTERS) FiltersParam filtersParam) {
+      @ApiParam(value = API_FILTER_VALUE) @QueryParam(API_FILTER_PARAM) @DefaultValue(DEFAULT_FILTERS) FiltersParam filtersParam,
+      @HeaderParam(ACCEPT_ENCODING) String acceptEncoding) {
+    val compress = isGzipAccepted(acceptEncoding);
 
     final StreamingOutput outputGenerator =
-        outputStream -> repositoryFileService.exportTableData(outputStream, toQuery(filtersParam));
+        outputStream -> repositoryFileService.exportTableData(outputStream, toQuery(filtersParam), compress);
 
     // Make this similar to client-side export naming format
     val fileName = String.format("repository_%s.tsv", (new SimpleDateFormat("yyyy_MM_dd").format(new Date())));
 
-    return ok(outputGenerator).header(CONTENT_DISPOSITION,
-        type(TYPE_ATTACHMENT).fileName(fileName).creationDate(new Date()).build()).build();
+    return exportResponse(outputGenerator, fileName, compress);
   }
 
   @GET
@@ -187,15 +193,43 @@ public class RepositoryFileResource {
   @GET
   @Path("/export/{setId}")
   @Produces(TEXT_TSV)
-  public Response getExportFromSet(@ApiParam(value = "Set Id", required = true) @PathParam("setId") String setId) {
+  public Response getExportFromSet(@ApiParam(value = "Set Id", required = true) @PathParam("setId") String setId,
+      @HeaderParam(ACCEPT_ENCODING) String acceptEncoding) {
+    val compress = isGzipAccepted(acceptEncoding);
 
     final StreamingOutput outputGenerator =
-        outputStream -> repositoryFileService.exportTableDataFromSet(outputStream, setId);
+        outputStream -> repositoryFileService.exportTableDataFromSet(outputStream, setId, compress);
 
     val fileName = String.format("repository_%s.tsv", (new SimpleDateFormat("yyyy_MM_dd").format(new Date())));
 
-    return ok(outputGenerator).header(CONTENT_DISPOSITION,
-        type(TYPE_ATTACHMENT).fileName(fileName).creationDate(new Date()).build()).build();
+    return exportResponse(outputGenerator, fileName, compress);
+  }
+
+  private static Response exportResponse(StreamingOutput outputGenerator, String fileName, boolean compress) {
+    val response = ok(outputGenerator).header(CONTENT_DISPOSITION,
+        type(TYPE_ATTACHMENT).fileName(fileName).creationDate(new Date()).build());
+
+    // The export is encoded as it is written, so the container must not compress it again
+    if (compress) {
+      response.header(CONTENT_ENCODING, GZIP_ENCODING).header(VARY, ACCEPT_ENCODING);
+    }
+
+    return response.build();
+  }
+
+  static boolean isGzipAccepted(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+
+    for (val coding : COMMA.trimResults().split(acceptEncoding.toLowerCase())) {
+      val disabled = coding.matches(".*;\\s*q=0(\\.0*)?");
+      if (!disabled && (coding.equals(GZIP_ENCODING) || coding.startsWith(GZIP_ENCODING + ";"))) {
+        return true;
+      }
+    }
+
+    return false;
   }
 
   @GET
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static com.google.common.base.Stopwatch.createStarted;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.icgc.dcc.common.core.model.FieldNames.MUTATION_CHROMOSOME;
+import static org.icgc.dcc.common.core.model.FieldNames.MUTATION_CHROMOSOME_END;
+import static org.icgc.dcc.common.core.model.FieldNames.MUTATION_CHROMOSOME_START;
+import static org.icgc.dcc.common.core.model.FieldNames.MUTATION_OBSERVATION_PROJECT;
+import static org.icgc.dcc.common.core.model.FieldNames.MUTATION_OCCURRENCES;
+import static org.icgc.dcc.common.core.model.FieldNames.PROJECT_ID;
+import static org.icgc.dcc.common.core.util.FormatUtils.formatCount;
+import static org.icgc.dcc.portal.config.JobConfig.WARMUP_EXECUTOR;
+import static org.icgc.dcc.portal.service.BeaconService.POSITION_BUFFER;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.repository.MutationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory positional index of the mutations of the current release, answering {@link BeaconService} queries without
+ * a scripted Elasticsearch search.
+ * <p>
+ * The mutations of each chromosome are kept as parallel arrays sorted by start position. Mutation strings (e.g.
+ * {@code C>T}) and the sets of projects observing a mutation repeat heavily, so both are interned and stored as int
+ * codes. A query is a binary search for the first mutation starting within {@link BeaconService#POSITION_BUFFER} of the
+ * position followed by a scan of the mutations starting before it. The index is built per release and only when
+ * enabled, since it holds every mutation of the release.
+ */
+@Slf4j
+@Component
+public class BeaconIndex {
+
+  /**
+   * Constants.
+   */
+  private static final String MUTATION_MUTATION = "mutation";
+  private static final String MUTATION_PROJECT_ID =
+      MUTATION_OCCURRENCES + '.' + MUTATION_OBSERVATION_PROJECT + '.' + PROJECT_ID;
+  private static final List<String> FIELDS = ImmutableList.of(
+      MUTATION_CHROMOSOME,
+      MUTATION_CHROMOSOME_START,
+      MUTATION_CHROMOSOME_END,
+      MUTATION_MUTATION,
+      MUTATION_PROJECT_ID);
+
+  /**
+   * Dependencies.
+   */
+  private final MutationRepository mutationRepository;
+
+  /**
+   * Configuration.
+   */
+  private final boolean enabled;
+
+  /**
+   * State.
+   */
+  private volatile Snapshot snapshot;
+
+  @Autowired
+  public BeaconIndex(@NonNull MutationRepository mutationRepository, @NonNull CacheProperties cacheProperties) {
+    this.mutationRepository = mutationRepository;
+    this.enabled = cacheProperties.isEnableBeaconIndex();
+  }
+
+  @Async(WARMUP_EXECUTOR)
+  public void init() {
+    if (enabled) {
+      snapshot = loadSnapshot();
+    }
+  }
+
+  /**
+   * Loads the index of the release being warmed up by the calling thread.
+   * 
+   * @return an action replacing the current index with it
+   */
+  public Runnable prepareRelease() {
+    if (!enabled) {
+      return () -> {};
+    }
+
+    val loaded = loadSnapshot();
+    return () -> snapshot = loaded;
+  }
+
+  /**
+   * Answers a beacon query the way {@link BeaconService} does against Elasticsearch.
+   * 
+   * @return {@code "true"} if a mutation at {@code position} has {@code allele}, {@code "false"} if mutations at
+   * {@code position} only have other alleles, {@code "null"} if there are none, or empty if the index is not loaded
+   */
+  public Optional<String> query(@NonNull String chromosome, int position, @NonNull String allele, String dataset) {
+    val current = snapshot;
+    if (current == null) {
+      return Optional.empty();
+    }
+
+    val mutations = current.chromosomes.get(chromosome);
+    if (mutations == null) {
+      return Optional.of("null");
+    }
+
+    val project = isNullOrEmpty(dataset) ? null : dataset;
+    val indel = allele.contains(">");
+    String result = "null";
+    for (int i = mutations.lowerBound(position - POSITION_BUFFER); i < mutations.size; i++) {
+      val start = mutations.starts[i];
+      if (start > position) {
+        break;
+      }
+      if (mutations.ends[i] > position + POSITION_BUFFER) {
+        continue;
+      }
+      if (project != null && !current.projectSets.get(mutations.projects[i]).contains(project)) {
+        continue;
+      }
+
+      val mutation = current.mutations.get(mutations.mutations[i]);
+      val alternative = mutation.indexOf('>') + 1;
+      if (position > start + mutation.length() - alternative) {
+        // The mutation does not reach the position
+        continue;
+      }
+
+      if (indel ? mutation.equals(allele) : matches(mutation, alternative + position - start, allele)) {
+        return Optional.of("true");
+      }
+
+      result = "false";
+    }
+
+    return Optional.of(result);
+  }
+
+  private static boolean matches(String mutation, int begin, String allele) {
+    val end = Math.min(begin + allele.length(), mutation.length());
+    return mutation.substring(begin, end).equals(allele);
+  }
+
+  private Snapshot loadSnapshot() {
+    val watch = createStarted();
+    log.info("Loading beacon index...");
+
+    val builders = Maps.<String, MutationsBuilder> newHashMap();
+    val mutationCodes = Maps.<String, Integer> newHashMap();
+    val projectSetCodes = Maps.<ImmutableSet<String>, Integer> newHashMap();
+    val loaded = new Snapshot();
+    mutationRepository.scrollMutations(FIELDS, values -> {
+      final String chromosome = getValue(values, MUTATION_CHROMOSOME).toString();
+      final String mutation = getValue(values, MUTATION_MUTATION).toString();
+      final ImmutableSet<String> projectSet = getProjectSet(values);
+
+      builders.computeIfAbsent(chromosome, name -> new MutationsBuilder()).add(
+          ((Number) getValue(values, MUTATION_CHROMOSOME_START)).intValue(),
+          ((Number) getValue(values, MUTATION_CHROMOSOME_END)).intValue(),
+          intern(mutation, mutationCodes, loaded.mutations),
+          intern(projectSet, projectSetCodes, loaded.projectSets));
+    });
+
+    long count = 0;
+    for (val builder : builders.entrySet()) {
+      val mutations = builder.getValue().build();
+      loaded.chromosomes.put(builder.getKey(), mutations);
+      count += mutations.size;
+    }
+
+    log.info("Loaded beacon index of {} mutations ({} distinct alleles, {} distinct project sets) in {}",
+        formatCount(count), formatCount(loaded.mutations.size()), formatCount(loaded.projectSets.size()), watch);
+    return loaded;
+  }
+
+  private static Object getValue(Map<String, List<Object>> values, String field) {
+    return values.get(field).get(0);
+  }
+
+  private static ImmutableSet<String> getProjectSet(Map<String, List<Object>> values) {
+    val projectIds = values.get(MUTATION_PROJECT_ID);
+    if (projectIds == null) {
+      return ImmutableSet.of();
+    }
+
+    val projectSet = ImmutableSet.<String> builder();
+    for (val projectId : projectIds) {
+      projectSet.add(projectId.toString());
+    }
+
+    return projectSet.build();
+  }
+
+  private static <T> int intern(T value, Map<T, Integer> codes, List<T> values) {
+    val code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+
+    val next = values.size();
+    codes.put(value, next);
+    values.add(value);
+
+    return next;
+  }
+
+  private static class Snapshot {
+
+    final Map<String, Mutations> chromosomes = Maps.newHashMap();
+    final List<String> mutations = Lists.newArrayList();
+    final List<ImmutableSet<String>> projectSets = Lists.newArrayList();
+
+  }
+
+  /**
+   * Mutations of a single chromosome, sorted by start position.
+   */
+  private static class Mutations {
+
+    final int size;
+    final int[] starts;
+    final int[] ends;
+    final int[] mutations;
+    final int[] projects;
+
+    Mutations(int size) {
+      this.size = size;
+      this.starts = new int[size];
+      this.ends = new int[size];
+      this.mutations = new int[size];
+      this.projects = new int[size];
+    }
+
+    /**
+     * @return the index of the first mutation starting at or after {@code position}
+     */
+    int lowerBound(int position) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        val middle = (low + high) >>> 1;
+        if (starts[middle] < position) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      return low;
+    }
+
+  }
+
+  private static class MutationsBuilder {
+
+    int size;
+    int[] starts = new int[1024];
+    int[] ends = new int[1024];
+    int[] mutations = new int[1024];
+    int[] projects = new int[1024];
+
+    void add(int start, int end, int mutation, int projectSet) {
+      if (size == starts.length) {
+        val capacity = size * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        mutations = Arrays.copyOf(mutations, capacity);
+        projects = Arrays.copyOf(projects, capacity);
+      }
+
+      starts[size] = start;
+      ends[size] = end;
+      mutations[size] = mutation;
+      projects[size] = projectSet;
+      size++;
+    }
+
+    Mutations build() {
+      // Sort positions along with their original index packed in the low bits
+      val order = new long[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = (long) starts[i] << 32 | i;
+      }
+      Arrays.sort(order);
+
+      val sorted = new Mutations(size);
+      for (int i = 0; i < size; i++) {
+        val index = (int) order[i];
+        sorted.starts[i] = starts[index];
+        sorted.ends[i] = ends[index];
+        sorted.mutations[i] = mutations[index];
+        sorted.projects[i] = projects[index];
+      }
+
+      return sorted;
+    }
+
+  }
+
+}
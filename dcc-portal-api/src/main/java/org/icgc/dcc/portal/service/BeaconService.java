@@ -38,7 +38,6 @@ import org.icgc.dcc.portal.model.BeaconResponse;
 import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.resource.BeaconResource;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.common.collect.ImmutableMap;
@@ -49,6 +48,10 @@ import com.google.common.collect.ImmutableMap;
  * {@link BeaconResource}.
  * 
  * <p>
+ * Queries are answered by the {@link BeaconIndex} once it is loaded and by a scripted Elasticsearch search otherwise.
+ * </p>
+ * 
+ * <p>
  * <a href="https://docs.google.com/document/d/154GBOixuZxpoPykGKcPOyrYUcgEXVe2NvKx61P4Ybn4/edit?usp=sharing">Draft of
  * v0.2 API </a>
  * </p>
@@ -61,21 +64,31 @@ import com.google.common.collect.ImmutableMap;
 @Service
 public class BeaconService {
 
-  private static final int POSITION_BUFFER = 1000; // Must be larger than any single mutation.
+  static final int POSITION_BUFFER = 1000; // Must be larger than any single mutation.
 
   private final Client client;
-  private final String index;
+  private final IndexModel indexModel;
+  private final BeaconIndex beaconIndex;
 
   @Autowired
-  public BeaconService(Client client, @Value("#{indexName}") String index) {
-    this.index = index;
+  public BeaconService(Client client, IndexModel indexModel, BeaconIndex beaconIndex) {
+    this.indexModel = indexModel;
     this.client = client;
+    this.beaconIndex = beaconIndex;
   }
 
   public Beacon query(String chromosome, int position, String reference, AlleleMutation alleleMutation, String dataset) {
     String allele = alleleMutation.getMutation();
 
-    val search = client.prepareSearch(index)
+    // Elasticsearch is only searched while the in-memory index is disabled or loading
+    val indexed = beaconIndex.query(chromosome, position, allele, dataset);
+    val finalResult = indexed.isPresent() ? indexed.get() : search(chromosome, position, allele, dataset);
+
+    return createBeaconResponse(finalResult, chromosome, position, reference, allele, dataset);
+  }
+
+  private String search(String chromosome, int position, String allele, String dataset) {
+    val search = client.prepareSearch(indexModel.getIndex())
         .setTypes(IndexModel.Type.MUTATION_CENTRIC.getId())
         .setSearchType(QUERY_THEN_FETCH);
 
@@ -118,7 +131,7 @@ public class BeaconService {
       }
     }
 
-    return createBeaconResponse(finalResult, chromosome, position, reference, allele, dataset);
+    return finalResult;
   }
 
   private String generateDefaultScriptField() {
@@ -18,21 +18,34 @@
 package org.icgc.dcc.portal.service;
 
 import static com.google.common.base.Strings.nullToEmpty;
-import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
 import org.icgc.dcc.common.core.model.ChromosomeLocation;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.repository.BrowserRepository;
 import org.icgc.dcc.portal.util.BrowserParsers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.Value;
 import lombok.val;
 import lombok.experimental.UtilityClass;
 
@@ -40,7 +53,29 @@ import lombok.experimental.UtilityClass;
 @RequiredArgsConstructor(onConstructor = @__({ @Autowired }) )
 public class BrowserService {
 
+  /**
+   * Constants.
+   */
+  private static final int HISTOGRAM_TILE_BUCKETS = 128;
+  private static final int MAX_HISTOGRAM_BUCKETS = 10000;
+  private static final int HISTOGRAM_TILE_CACHE_SIZE = 20000;
+  private static final int MUTATION_LIMIT = 100000;
+  private static final int GENE_LIMIT = 10000;
+
+  /**
+   * Dependencies.
+   */
   private final BrowserRepository browserRepository;
+  private final IndexModel indexModel;
+
+  /**
+   * Bucket counts of histogram tiles. A tile is a run of {@link #HISTOGRAM_TILE_BUCKETS} buckets aligned to the same
+   * grid for a given interval, so that overlapping windows of a browser session share their tiles. Tiles are keyed by
+   * index and are never modified, so tiles of a previous release are simply evicted.
+   */
+  private final Cache<HistogramTile, long[]> histogramTiles = CacheBuilder.newBuilder()
+      .maximumSize(HISTOGRAM_TILE_CACHE_SIZE)
+      .build();
 
   @UtilityClass
   private class ParameterNames {
@@ -72,36 +107,51 @@ public class BrowserService {
   }
 
   /**
-   * Retrieves complete data.
+   * Retrieves complete data, as a writer of one array of features per segment of the request. The segments are
+   * validated up front, while the features are scrolled from Elasticsearch as they are written so that the memory of a
+   * request does not depend on the size of its window.
    */
-  @SneakyThrows
-  public List<List<Object>> getRecords(Map<String, String> queryMap) {
+  public Consumer<JsonGenerator> getRecords(Map<String, String> queryMap) {
+    val resource = queryMap.get(ParameterNames.RESOURCE);
+    if (!resource.equals("mutation") && !resource.equals("gene")) {
+      throw new IllegalArgumentException("Invalid Resource: " + resource);
+    }
 
-    val segmentRegion = queryMap.get(ParameterNames.SEGMENT);
-    List<List<Object>> result = newArrayList();
+    val segments = ImmutableList.<ChromosomeLocation> builder();
+    for (val chromosomeString : queryMap.get(ParameterNames.SEGMENT).split(",")) {
+      segments.add(getChromosomeLocation(chromosomeString));
+    }
 
-    for (val chromosomeString : segmentRegion.split(",")) {
-      ChromosomeLocation chromosome = getChromosomeLocation(chromosomeString);
+    val chromosomes = segments.build();
+    return generator -> writeRecords(generator, resource, chromosomes, queryMap);
+  }
 
-      if (queryMap.get(ParameterNames.RESOURCE).equals("mutation")) {
-        result.add(getSegmentMutation(chromosome.getChromosome().getName(),
+  @SneakyThrows
+  private void writeRecords(JsonGenerator generator, String resource, List<ChromosomeLocation> chromosomes,
+      Map<String, String> queryMap) {
+    generator.writeStartArray();
+    for (val chromosome : chromosomes) {
+      generator.writeStartArray();
+
+      if (resource.equals("mutation")) {
+        writeSegmentMutation(generator, chromosome.getChromosome().getName(),
             Long.valueOf(chromosome.getStart()),
             Long.valueOf(chromosome.getEnd()),
-            queryMap));
-      } else if (queryMap.get(ParameterNames.RESOURCE).equals("gene")) {
-        result.add(getSegmentGene(chromosome.getChromosome().getName(),
+            queryMap);
+      } else {
+        writeSegmentGene(generator, chromosome.getChromosome().getName(),
             Long.valueOf(chromosome.getStart()),
             Long.valueOf(chromosome.getEnd()),
-            queryMap));
-      } else {
-        throw new IllegalArgumentException("Invalid Resource: " + queryMap.get(ParameterNames.RESOURCE));
+            queryMap);
       }
-    }
 
-    return result;
+      generator.writeEndArray();
+    }
+    generator.writeEndArray();
   }
 
-  private List<Object> getSegmentMutation(String segmentId, Long start, Long stop, Map<String, String> queryMap) {
+  private void writeSegmentMutation(JsonGenerator generator, String segmentId, Long start, Long stop,
+      Map<String, String> queryMap) {
     val consequenceValue = queryMap.get("consequence_type");
     val consequenceTypes = parseList(consequenceValue);
 
@@ -111,9 +161,15 @@ public class BrowserService {
     val impactFilterValue = queryMap.get("functional_impact");
     val impactFilters = parseList(impactFilterValue);
 
-    val searchResponse = browserRepository.getMutation(segmentId, start, stop, consequenceTypes, projectFilters, impactFilters);
-    
-    return BrowserParsers.parseMutations(segmentId, start, stop, consequenceTypes, projectFilters, searchResponse);
+    val sampler = new FeatureSampler(start, stop, MUTATION_LIMIT);
+    browserRepository.scrollMutations(segmentId, start, stop, consequenceTypes, projectFilters, impactFilters,
+        hits -> {
+          for (final SearchHit hit : hits) {
+            if (sampler.accept(hits.getTotalHits(), getPosition(hit, "chromosome_start"))) {
+              writeFeature(generator, BrowserParsers.parseMutation(projectFilters, hit));
+            }
+          }
+        });
   }
 
   private List<Object> getHistogramSegmentMutation(String segmentId, Long start, Long stop,
@@ -127,17 +183,17 @@ public class BrowserService {
     val impactFilterValue = queryMap.get("functional_impact");
     val impactFilters = parseList(impactFilterValue);
 
-    val intervalValue = queryMap.get("interval");
-    val interval = intervalValue != null ? Math.round(Double.parseDouble(intervalValue)) : 0;
+    val interval = getHistogramInterval(queryMap, start, stop);
 
-    val searchResponse =
-        browserRepository.getMutationHistogram(interval, segmentId, start, stop, consequenceTypes, projectFilters,
-            impactFilters);
-    return BrowserParsers.parseHistogramMutation(segmentId, start, stop, interval, consequenceTypes, projectFilters,
-        searchResponse);
+    val filters = ImmutableList.of(consequenceTypes, projectFilters, impactFilters);
+    val counts = getHistogramCounts("mutation", segmentId, filters, start, stop, interval,
+        (tileStart, tileStop) -> browserRepository.getMutationHistogram(interval, segmentId, tileStart, tileStop,
+            consequenceTypes, projectFilters, impactFilters));
+    return BrowserParsers.parseHistogramMutation(start, interval, counts);
   }
 
-  private List<Object> getSegmentGene(String segmentId, Long start, Long stop, Map<String, String> queryMap) {
+  private void writeSegmentGene(JsonGenerator generator, String segmentId, Long start, Long stop,
+      Map<String, String> queryMap) {
     val biotypeValue = queryMap.get("biotype");
     val biotypes = parseList(biotypeValue);
     
@@ -146,8 +202,16 @@ public class BrowserService {
 
     val withTranscripts = nullToEmpty(queryMap.get("dataType")).equals("withTranscripts");
 
-    val searchResponse = browserRepository.getGene(segmentId, start, stop, biotypes, withTranscripts, impactFilters);
-    return BrowserParsers.parseGenes(segmentId, start, stop, biotypes, withTranscripts, searchResponse);
+    val sampler = new FeatureSampler(start, stop, GENE_LIMIT);
+    val geneId = new AtomicInteger(1);
+    browserRepository.scrollGenes(segmentId, start, stop, biotypes, withTranscripts, impactFilters,
+        hits -> {
+          for (final SearchHit hit : hits) {
+            if (sampler.accept(hits.getTotalHits(), getPosition(hit, "start"))) {
+              writeFeature(generator, BrowserParsers.parseGene(geneId.getAndIncrement(), withTranscripts, hit));
+            }
+          }
+        });
   }
 
   private List<Object> getHistogramSegmentGene(String segmentId, Long start, Long stop, Map<String, String> queryMap) {
@@ -157,11 +221,95 @@ public class BrowserService {
     val impactFilterValue = queryMap.get("functional_impact");
     val impactFilters = parseList(impactFilterValue);
 
+    val interval = getHistogramInterval(queryMap, start, stop);
+
+    val filters = ImmutableList.of(biotypes, impactFilters);
+    val counts = getHistogramCounts("gene", segmentId, filters, start, stop, interval,
+        (tileStart, tileStop) -> browserRepository.getGeneHistogram(interval, segmentId, tileStart, tileStop,
+            biotypes, impactFilters));
+    return BrowserParsers.parseHistogramGene(start, interval, counts);
+  }
+
+  /**
+   * Rounds the requested interval up to a power of two so that the zoom levels of all sessions share a small number of
+   * tile grids. Intervals too small (or missing) for the range are raised to split it into at most
+   * {@link #MAX_HISTOGRAM_BUCKETS} buckets.
+   */
+  static long getHistogramInterval(Map<String, String> queryMap, long start, long stop) {
     val intervalValue = queryMap.get("interval");
-    val interval = intervalValue != null ? Math.round(Double.parseDouble(intervalValue)) : 0;
+    val minInterval = (Math.max(stop - start, 0) + MAX_HISTOGRAM_BUCKETS - 1) / MAX_HISTOGRAM_BUCKETS;
+    val requestedInterval = intervalValue != null ? Math.round(Double.parseDouble(intervalValue)) : 0;
+    val interval = Math.max(requestedInterval, minInterval);
+    if (interval <= 1) {
+      return 1;
+    }
 
-    val searchResponse = browserRepository.getGeneHistogram(interval, segmentId, start, stop, biotypes, impactFilters);
-    return BrowserParsers.parseHistogramGene(segmentId, start, stop, interval, biotypes, searchResponse);
+    return Long.highestOneBit(interval - 1) << 1;
+  }
+
+  /**
+   * Counts the features starting in each bucket of {@code interval} that overlaps [{@code start}, {@code stop}), in
+   * order. Missing tiles are aggregated by a single {@code search} over their range.
+   */
+  private long[] getHistogramCounts(String resource, String segmentId, List<List<String>> filters, long start,
+      long stop, long interval, BiFunction<Long, Long, SearchResponse> search) {
+    val firstBucket = start / interval;
+    val lastBucket = (stop - 1) / interval;
+    if (stop <= 0 || lastBucket < firstBucket) {
+      return new long[0];
+    }
+
+    val index = indexModel.getIndex();
+    val firstTile = firstBucket / HISTOGRAM_TILE_BUCKETS;
+    val lastTile = lastBucket / HISTOGRAM_TILE_BUCKETS;
+
+    val tiles = Maps.<Long, long[]> newHashMap();
+    long firstMissingTile = -1;
+    long lastMissingTile = -1;
+    for (long tile = firstTile; tile <= lastTile; tile++) {
+      val counts = histogramTiles.getIfPresent(new HistogramTile(index, resource, segmentId, filters, interval, tile));
+      if (counts != null) {
+        tiles.put(tile, counts);
+      } else {
+        if (firstMissingTile < 0) {
+          firstMissingTile = tile;
+        }
+        lastMissingTile = tile;
+      }
+    }
+
+    if (firstMissingTile >= 0) {
+      val tileSize = HISTOGRAM_TILE_BUCKETS * interval;
+      val response = search.apply(firstMissingTile * tileSize, (lastMissingTile + 1) * tileSize - 1);
+      val buckets = BrowserParsers.parseHistogramCounts(response);
+
+      for (long tile = firstMissingTile; tile <= lastMissingTile; tile++) {
+        val counts = new long[HISTOGRAM_TILE_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_TILE_BUCKETS; i++) {
+          counts[i] = buckets.getOrDefault((tile * HISTOGRAM_TILE_BUCKETS + i) * interval, 0L);
+        }
+
+        histogramTiles.put(new HistogramTile(index, resource, segmentId, filters, interval, tile), counts);
+        tiles.put(tile, counts);
+      }
+    }
+
+    val result = new long[(int) (lastBucket - firstBucket + 1)];
+    for (int i = 0; i < result.length; i++) {
+      val bucket = firstBucket + i;
+      result[i] = tiles.get(bucket / HISTOGRAM_TILE_BUCKETS)[(int) (bucket % HISTOGRAM_TILE_BUCKETS)];
+    }
+
+    return result;
+  }
+
+  private static long getPosition(SearchHit hit, String field) {
+    return ((Number) hit.field(field).getValue()).longValue();
+  }
+
+  @SneakyThrows
+  private static void writeFeature(JsonGenerator generator, Object feature) {
+    generator.writeObject(feature);
   }
 
   private static ChromosomeLocation getChromosomeLocation(String segmentRegion) {
@@ -182,4 +330,48 @@ public class BrowserService {
     }
   }
 
+  /**
+   * Thins out the features of a window that is too dense to render. When the window holds more than {@code limit}
+   * features, it is divided into {@code limit} bins of equal width and only the first feature starting in each bin is
+   * accepted, so that dense regions are downsampled evenly while sparse ones are kept whole.
+   */
+  @RequiredArgsConstructor
+  private static class FeatureSampler {
+
+    private final long start;
+    private final long stop;
+    private final int limit;
+
+    private final BitSet bins = new BitSet();
+
+    boolean accept(long total, long position) {
+      if (total <= limit) {
+        return true;
+      }
+
+      // Features may start before the window they overlap
+      val offset = Math.max(position - start, 0);
+      val bin = (int) Math.min(offset * limit / (stop - start + 1), limit - 1);
+      if (bins.get(bin)) {
+        return false;
+      }
+
+      bins.set(bin);
+      return true;
+    }
+
+  }
+
+  @Value
+  private static class HistogramTile {
+
+    String index;
+    String resource;
+    String segmentId;
+    List<List<String>> filters;
+    long interval;
+    long tile;
+
+  }
+
 }
\ No newline at end of file
@@ -7,7 +7,6 @@ import static java.util.Collections.sort;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.IntStream.range;
 import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
-import static org.dcc.portal.pql.query.PqlParser.parse;
 import static org.icgc.dcc.portal.repository.DonorRepository.DONOR_ID_SEARCH_FIELDS;
 import static org.icgc.dcc.portal.repository.DonorRepository.FILE_DONOR_ID_SEARCH_FIELDS;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
@@ -25,6 +24,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
@@ -138,11 +138,10 @@ public class DonorService {
 
   @NonNull
   public Donors findAllCentric(Query query, boolean facetsOnly) {
-    val pql =
-        facetsOnly ? QUERY_CONVERTER.convertCount(query, DONOR_CENTRIC) : QUERY_CONVERTER.convert(query, DONOR_CENTRIC);
-    log.info("PQL of findAllCentric is: {}", pql);
+    val pqlAst = facetsOnly ? QUERY_CONVERTER.convertCountToAst(query, DONOR_CENTRIC) : QUERY_CONVERTER
+        .convertToAst(query, DONOR_CENTRIC);
+    log.debug("PQL of findAllCentric is: {}", pqlAst);
 
-    val pqlAst = parse(pql);
 
     return buildDonors(donorRepository.findAllCentric(pqlAst), query);
   }
@@ -176,15 +175,23 @@ public class DonorService {
     return donorRepository.count(query);
   }
 
+  public CompletableFuture<Long> countAsync(Query query) {
+    return donorRepository.countAsync(query);
+  }
+
   public LinkedHashMap<String, Long> counts(LinkedHashMap<String, Query> queries) {
     MultiSearchResponse sr = donorRepository.counts(queries);
 
     return getCounts(queries, sr);
   }
 
+  public CompletableFuture<LinkedHashMap<String, Long>> countsAsync(LinkedHashMap<String, Query> queries) {
+    return donorRepository.countsAsync(queries).thenApply(sr -> getCounts(queries, sr));
+  }
+
   public LinkedHashMap<String, LinkedHashMap<String, Long>> nestedCounts(
       LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
-    MultiSearchResponse sr = donorRepository.nestedCounts(queries);
+    SearchResponse sr = donorRepository.nestedCounts(queries);
 
     return getNestedCounts(queries, sr);
   }
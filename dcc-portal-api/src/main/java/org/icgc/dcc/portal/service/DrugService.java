@@ -96,9 +96,7 @@ public class DrugService {
   }
 
   private static StatementNode toAst(Query query) {
-    val pql = QUERY_CONVERTER.convert(query, DRUG);
-
-    return PqlParser.parse(pql);
+    return QUERY_CONVERTER.convertToAst(query, DRUG);
   }
 
   private static Drug toDrug(SearchHit hit) {
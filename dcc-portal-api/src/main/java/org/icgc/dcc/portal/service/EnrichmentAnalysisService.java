@@ -18,10 +18,12 @@
 package org.icgc.dcc.portal.service;
 
 import static com.google.common.base.Preconditions.checkState;
+import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.ERROR;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -92,7 +94,13 @@ public class EnrichmentAnalysisService {
 
     // Execute asynchronously
     log.info("Executing analysis '{}'...", id);
-    analyzer.analyze(id);
+    try {
+      analyzer.analyze(id);
+    } catch (RejectedExecutionException e) {
+      log.warn("Could not schedule enrichment analysis '{}': {}", id, e.getMessage());
+      analysis.setState(ERROR);
+      repository.update(analysis, dataVersion);
+    }
   }
 
   public void reportAnalysis(@NonNull EnrichmentAnalysis analysis, @NonNull OutputStream outputStream)
@@ -21,6 +21,7 @@ import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.min;
 import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.portal.config.JobConfig.SET_OPERATION_EXECUTOR;
 import static org.supercsv.prefs.CsvPreference.TAB_PREFERENCE;
 
 import java.io.IOException;
@@ -32,6 +33,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.PostConstruct;
 import javax.validation.constraints.Min;
@@ -54,7 +57,7 @@ import org.icgc.dcc.portal.repository.RepositoryFileRepository;
 import org.icgc.dcc.portal.repository.TermsLookupRepository;
 import org.icgc.dcc.portal.util.SearchResponses;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.supercsv.io.CsvListWriter;
 
@@ -65,7 +68,6 @@ import com.google.common.collect.ImmutableList;
 import lombok.Cleanup;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
@@ -75,7 +77,6 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor(onConstructor = @__(@Autowired) )
 public class EntityListService {
 
   /**
@@ -95,6 +96,9 @@ public class EntityListService {
   private final PortalProperties properties;
 
   private final QueryEngine queryEngine;
+  @NonNull
+  private final Executor setOperationExecutor;
+
   private final Jql2PqlConverter converter = Jql2PqlConverter.getInstance();
 
   /**
@@ -112,6 +116,21 @@ public class EntityListService {
   @Getter(lazy = true, value = PRIVATE)
   private final int currentDataVersion = resolveDataVersion();
 
+  @Autowired
+  public EntityListService(@NonNull EntityListRepository entityListRepository,
+      @NonNull TermsLookupRepository termsLookupRepository, @NonNull RepositoryFileRepository repositoryFileRepository,
+      @NonNull EntityListRepository repository, @NonNull UnionAnalyzer analyzer, @NonNull PortalProperties properties,
+      QueryEngine queryEngine, @NonNull @Qualifier(SET_OPERATION_EXECUTOR) Executor setOperationExecutor) {
+    this.entityListRepository = entityListRepository;
+    this.termsLookupRepository = termsLookupRepository;
+    this.repositoryFileRepository = repositoryFileRepository;
+    this.repository = repository;
+    this.analyzer = analyzer;
+    this.properties = properties;
+    this.queryEngine = queryEngine;
+    this.setOperationExecutor = setOperationExecutor;
+  }
+
   public EntitySet getEntityList(@NonNull final UUID entitySetId) {
     val list = repository.find(entitySetId);
 
@@ -127,7 +146,11 @@ public class EntityListService {
   public EntitySet createEntityList(@NonNull final EntitySetDefinition entitySetDefinition, boolean async) {
     val newEntitySet = createAndSaveNewListFrom(entitySetDefinition);
     if (async) {
-      materializeListAsync(newEntitySet.getId(), entitySetDefinition);
+      try {
+        setOperationExecutor.execute(() -> materializeList(newEntitySet.getId(), entitySetDefinition));
+      } catch (RejectedExecutionException e) {
+        rejectEntityList(newEntitySet, e);
+      }
     } else {
       materializeList(newEntitySet.getId(), entitySetDefinition);
     }
@@ -149,7 +172,11 @@ public class EntityListService {
   public EntitySet computeEntityList(@NonNull final DerivedEntitySetDefinition entitySetDefinition, boolean async) {
     val newEntitySet = createAndSaveNewListFrom(entitySetDefinition);
     if (async) {
-      analyzer.combineListsAsync(newEntitySet.getId(), entitySetDefinition);
+      try {
+        analyzer.combineListsAsync(newEntitySet.getId(), entitySetDefinition);
+      } catch (RejectedExecutionException e) {
+        rejectEntityList(newEntitySet, e);
+      }
     } else {
       analyzer.combineLists(newEntitySet.getId(), entitySetDefinition);
     }
@@ -173,10 +200,9 @@ public class EntityListService {
     writer.flush();
   }
 
-  @Async
-  private void materializeListAsync(@NonNull final UUID newEntityId,
-      @NonNull final EntitySetDefinition entitySetDefinition) {
-    materializeList(newEntityId, entitySetDefinition);
+  private void rejectEntityList(EntitySet entitySet, RejectedExecutionException e) {
+    log.warn("Could not schedule the materialization of entity set '{}': {}", entitySet.getId(), e.getMessage());
+    entityListRepository.update(entitySet.updateStateToError(), entitySet.getVersion());
   }
 
   private void materializeList(@NonNull final UUID newEntityId,
@@ -331,8 +357,8 @@ public class EntityListService {
         .build();
 
     val type = getRepositoryByEntityType(definition.getType());
-    val pql = converter.convert(query, type);
-    val request = queryEngine.execute(pql, type);
+    val pqlAst = converter.convertToAst(query, type);
+    val request = queryEngine.execute(pqlAst, type);
     return request.getRequestBuilder()
         .setSize(max)
         .execute().actionGet();
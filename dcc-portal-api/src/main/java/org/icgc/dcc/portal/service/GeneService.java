@@ -5,9 +5,9 @@ import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
-import static org.dcc.portal.pql.query.PqlParser.parse;
 import static org.icgc.dcc.common.core.model.FieldNames.GENE_UNIPROT_IDS;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableMap;
+import static org.icgc.dcc.portal.config.JobConfig.WARMUP_EXECUTOR;
 import static org.icgc.dcc.portal.repository.GeneRepository.GENE_ID_SEARCH_FIELDS;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.getString;
@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.NonNull;
@@ -26,6 +27,7 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.lang3.tuple.Pair;
 import org.elasticsearch.search.SearchHit;
 import org.icgc.dcc.portal.model.Gene;
@@ -70,29 +72,42 @@ public class GeneService {
   private final AtomicReference<Map<String, String>> ensemblIdGeneSymbolMap =
       new AtomicReference<Map<String, String>>();
 
-  @Async
+  @Async(WARMUP_EXECUTOR)
   public void init() {
     try {
-      log.debug("Building EnsemblId-to-GeneSymbol lookup table...");
-
-      // The key is a gene symbol and the value is an ensembl ID.
-      val groupedByGeneSymbol = geneRepository.getGeneSymbolEnsemblIdMap();
-      val lookupTable = groupedByGeneSymbol.keySet().parallelStream()
-          .map(geneSymbol -> ensemblAliasPairs(geneSymbol, groupedByGeneSymbol))
-          .flatMap(Collection::stream)
-          .collect(toImmutableMap(Pair::getKey, Pair::getValue));
-
-      log.debug("EnsemblId-to-GeneSymbol lookup table ({} entries) is: {}", lookupTable.size(), lookupTable);
-
-      ensemblIdGeneSymbolMap.set(lookupTable);
-
-      log.debug("Finished building EnsemblId-to-GeneSymbol lookup table.");
+      ensemblIdGeneSymbolMap.set(buildEnsemblIdGeneSymbolMap());
     } catch (Exception e) {
       log.error("Error building EnsemblId-to-GeneSymbol lookup table.", e);
       propagate(e);
     }
   }
 
+  /**
+   * Builds the lookup table of the index being warmed up by the calling thread.
+   * 
+   * @return an action replacing the current lookup table with it
+   */
+  public Runnable prepareRelease() {
+    val lookupTable = buildEnsemblIdGeneSymbolMap();
+    return () -> ensemblIdGeneSymbolMap.set(lookupTable);
+  }
+
+  private Map<String, String> buildEnsemblIdGeneSymbolMap() {
+    log.debug("Building EnsemblId-to-GeneSymbol lookup table...");
+
+    // The key is a gene symbol and the value is an ensembl ID.
+    val groupedByGeneSymbol = geneRepository.getGeneSymbolEnsemblIdMap();
+    val lookupTable = groupedByGeneSymbol.keySet().parallelStream()
+        .map(geneSymbol -> ensemblAliasPairs(geneSymbol, groupedByGeneSymbol))
+        .flatMap(Collection::stream)
+        .collect(toImmutableMap(Pair::getKey, Pair::getValue));
+
+    log.debug("EnsemblId-to-GeneSymbol lookup table ({} entries) is: {}", lookupTable.size(), lookupTable);
+    log.debug("Finished building EnsemblId-to-GeneSymbol lookup table.");
+
+    return lookupTable;
+  }
+
   /**
    * Check whether <strong>ids</strong> match any gene identifiers.
    * 
@@ -202,11 +217,10 @@ public class GeneService {
       projectIds.add(String.valueOf(path.get("is")).replaceAll("\"", ""));
     }
 
-    val pql =
-        facetsOnly ? QUERY_CONVERTER.convertCount(query, GENE_CENTRIC) : QUERY_CONVERTER.convert(query, GENE_CENTRIC);
-    log.info("PQL of findAllCentric is: {}", pql);
+    val pqlAst = facetsOnly ? QUERY_CONVERTER.convertCountToAst(query, GENE_CENTRIC) : QUERY_CONVERTER
+        .convertToAst(query, GENE_CENTRIC);
+    log.debug("PQL of findAllCentric is: {}", pqlAst);
 
-    val pqlAst = parse(pql);
     val response = geneRepository.findAllCentric(pqlAst);
     log.debug("Response: {}", response);
 
@@ -236,15 +250,23 @@ public class GeneService {
     return geneRepository.count(query);
   }
 
+  public CompletableFuture<Long> countAsync(Query query) {
+    return geneRepository.countAsync(query);
+  }
+
   public LinkedHashMap<String, Long> counts(LinkedHashMap<String, Query> queries) {
     MultiSearchResponse sr = geneRepository.counts(queries);
 
     return getCounts(queries, sr);
   }
 
+  public CompletableFuture<LinkedHashMap<String, Long>> countsAsync(LinkedHashMap<String, Query> queries) {
+    return geneRepository.countsAsync(queries).thenApply(sr -> getCounts(queries, sr));
+  }
+
   public LinkedHashMap<String, LinkedHashMap<String, Long>> nestedCounts(
       LinkedHashMap<String, LinkedHashMap<String, Query>> queries) {
-    MultiSearchResponse sr = geneRepository.nestedCounts(queries);
+    SearchResponse sr = geneRepository.nestedCounts(queries);
 
     return getNestedCounts(queries, sr);
   }
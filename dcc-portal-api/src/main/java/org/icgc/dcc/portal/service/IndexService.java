@@ -18,21 +18,37 @@
 package org.icgc.dcc.portal.service;
 
 import static java.util.Collections.emptyMap;
-import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.elasticsearch.client.Client;
-import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Resolves index aliases and caches the {@code _meta} of the mappings of each real index.
+ * <p>
+ * Lookups are served from memory. Only the first lookup of a name reads Elasticsearch, using the node local get
+ * aliases and get mappings APIs rather than the cluster state. The known aliases are then re-resolved in the background
+ * every minute, and the metadata of a new target index is loaded before the alias is switched over to it.
+ */
 @Slf4j
 @Service
 public class IndexService {
@@ -40,73 +56,148 @@ public class IndexService {
   /**
    * Constants.
    */
-  private static final int CACHE_TTL_HOURS = 1;
+  private static final int REFRESH_INTERVAL_MINUTES = 1;
 
   /**
    * Dependencies.
    */
-  private final ConcurrentMap<Object, Object> cache;
+  private final Client client;
+
+  /**
+   * Configuration.
+   */
+  private final long refreshInterval;
+  private final TimeUnit refreshIntervalUnit;
+
+  /**
+   * State.
+   */
+  private final ConcurrentMap<String, String> realIndexNames = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, Map<String, String>> indexMetaData = Maps.newConcurrentMap();
+  private ScheduledExecutorService refresher;
+
+  @Autowired
+  public IndexService(@NonNull Client client) {
+    this(client, REFRESH_INTERVAL_MINUTES, MINUTES);
+  }
 
-  public IndexService() {
-    this.cache = createStore();
+  IndexService(@NonNull Client client, long refreshInterval, @NonNull TimeUnit refreshIntervalUnit) {
+    this.client = client;
+    this.refreshInterval = refreshInterval;
+    this.refreshIntervalUnit = refreshIntervalUnit;
   }
 
-  private ConcurrentMap<Object, Object> createStore() {
-    return CacheBuilder
-        .newBuilder()
-        .expireAfterWrite(CACHE_TTL_HOURS, HOURS)
-        .maximumSize(100)
-        .build()
-        .asMap();
+  @PostConstruct
+  public void start() {
+    refresher = newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("index-alias-refresher-%d").setDaemon(true).build());
+    refresher.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, refreshIntervalUnit);
+  }
+
+  @PreDestroy
+  public void stop() {
+    refresher.shutdownNow();
   }
 
   public void clearCache() {
     log.info("Clearing index name cache.");
-    this.cache.clear();
+    realIndexNames.clear();
+    indexMetaData.clear();
   }
 
-  @SneakyThrows
-  public Map<String, String> getIndexMetaData(Client client, String indexName) {
+  /**
+   * @param indexName the name of an index or of an alias to a single index
+   * @return the {@code _meta} of the mappings of the index
+   */
+  public Map<String, String> getIndexMetaData(@NonNull String indexName) {
+    val realIndexName = realIndexNames.get(indexName);
+    if (realIndexName != null) {
+      val meta = indexMetaData.get(realIndexName);
+      if (meta != null) {
+        return meta;
+      }
+    }
 
-    IndexMetaData indexMetaData = getIndexMappings(client, indexName);
-    if (indexMetaData == null) {
-      clearCache();
-      indexMetaData = getIndexMappings(client, indexName);
+    return load(indexName);
+  }
+
+  /**
+   * @param indexName the name of an index or of an alias to a single index
+   * @return the name of the index {@code indexName} resolved to as of the last refresh
+   */
+  public String getRealIndexName(@NonNull String indexName) {
+    val realIndexName = realIndexNames.get(indexName);
+    if (realIndexName != null) {
+      return realIndexName;
     }
 
-    val mappings = indexMetaData.mappings();
-    log.info("Size of index meta data mappings: {}", mappings.values().size());
-    val mappingIterator = mappings.values().iterator();
-    val mappingMetaData = mappingIterator.next().value;
-    val source = mappingMetaData.sourceAsMap();
+    return resolve(indexName);
+  }
 
-    @SuppressWarnings("unchecked")
-    val meta = (Map<String, String>) source.get("_meta");
+  private synchronized Map<String, String> load(String indexName) {
+    log.info("Cache miss for index name: {}", indexName);
+    val realIndexName = resolve(indexName);
 
-    return (meta == null) ? emptyMap() : meta;
+    return indexMetaData.computeIfAbsent(realIndexName, this::readIndexMetaData);
+  }
+
+  private synchronized String resolve(String indexName) {
+    return realIndexNames.computeIfAbsent(indexName, this::resolveRealIndexName);
+  }
+
+  void refresh() {
+    for (val entry : realIndexNames.entrySet()) {
+      val indexName = entry.getKey();
+      try {
+        val realIndexName = resolveRealIndexName(indexName);
+        if (realIndexName.equals(entry.getValue())) {
+          continue;
+        }
+
+        log.info("Index name '{}' now resolves to '{}' instead of '{}'",
+            new Object[] { indexName, realIndexName, entry.getValue() });
+
+        // Switch the alias only once the new index can be served
+        indexMetaData.computeIfAbsent(realIndexName, this::readIndexMetaData);
+        realIndexNames.put(indexName, realIndexName);
+        indexMetaData.keySet().retainAll(realIndexNames.values());
+      } catch (Exception e) {
+        log.warn("Could not refresh index name '{}': {}", indexName, e.getMessage());
+      }
+    }
   }
 
-  private IndexMetaData getIndexMappings(Client client, String indexName) {
-    val state = client.admin().cluster().prepareState().setIndices(indexName).execute().actionGet().getState();
-
-    String realIndex;
-    if (cache.containsKey(indexName)) {
-      realIndex = (String) cache.get(indexName);
-      log.info("Cache hit for index name: '{}' with value: '{}'", indexName, realIndex);
-    } else {
-      log.info("Cache miss for index name: {}", indexName);
-      val aliases = state.getMetaData().getAliases().get(indexName);
-
-      if (aliases != null) {
-        realIndex = aliases.iterator().next().key;
-      } else {
-        realIndex = indexName;
+  private String resolveRealIndexName(String indexName) {
+    val aliases = client.admin().indices().prepareGetAliases(indexName)
+        .setLocal(true)
+        .execute().actionGet()
+        .getAliases();
+
+    for (val alias : aliases) {
+      if (!alias.value.isEmpty()) {
+        return alias.key;
       }
-      cache.put(indexName, realIndex);
     }
 
-    val stateMetaData = state.getMetaData();
-    return stateMetaData.index(realIndex);
+    return indexName;
+  }
+
+  @SneakyThrows
+  private Map<String, String> readIndexMetaData(String realIndexName) {
+    val mappings = client.admin().indices().prepareGetMappings(realIndexName)
+        .setLocal(true)
+        .execute().actionGet()
+        .getMappings()
+        .get(realIndexName);
+
+    log.info("Size of index meta data mappings: {}", mappings.size());
+    val mappingMetaData = mappings.values().iterator().next().value;
+    val source = mappingMetaData.sourceAsMap();
+
+    @SuppressWarnings("unchecked")
+    val meta = (Map<String, String>) source.get("_meta");
+
+    return (meta == null) ? emptyMap() : unmodifiableMap(meta);
   }
 
 }
@@ -4,7 +4,6 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.Comparator.comparing;
 import static java.util.stream.IntStream.range;
 import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
-import static org.dcc.portal.pql.query.PqlParser.parse;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
 import static org.icgc.dcc.portal.util.SearchResponses.getCounts;
@@ -16,6 +15,7 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.elasticsearch.action.search.MultiSearchResponse;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
@@ -55,12 +55,10 @@ public class MutationService {
 
   @NonNull
   public Mutations findAllCentric(Query query, boolean facetsOnly) {
-    val pql =
-        facetsOnly ? QUERY_CONVERTER.convertCount(query, MUTATION_CENTRIC) : QUERY_CONVERTER.convert(query,
-            MUTATION_CENTRIC);
-    log.info("PQL of findAllCentric is: {}", pql);
+    val pqlAst = facetsOnly ? QUERY_CONVERTER.convertCountToAst(query, MUTATION_CENTRIC) : QUERY_CONVERTER
+        .convertToAst(query, MUTATION_CENTRIC);
+    log.debug("PQL of findAllCentric is: {}", pqlAst);
 
-    val pqlAst = parse(pql);
     val response = mutationRepository.findAllCentric(pqlAst);
 
     val hits = response.getHits();
@@ -104,12 +102,20 @@ public class MutationService {
     return mutationRepository.count(query);
   }
 
+  public CompletableFuture<Long> countAsync(Query query) {
+    return mutationRepository.countAsync(query);
+  }
+
   public Map<String, Long> counts(LinkedHashMap<String, Query> queries) {
     val sr = mutationRepository.counts(queries);
 
     return getCounts(queries, sr);
   }
 
+  public CompletableFuture<LinkedHashMap<String, Long>> countsAsync(LinkedHashMap<String, Query> queries) {
+    return mutationRepository.countsAsync(queries).thenApply(sr -> getCounts(queries, sr));
+  }
+
   public List<SimpleImmutableEntry<String, Long>> counts(@NonNull List<String> geneIds,
       LinkedHashMap<String, Query> queries,
       int maxSize,
@@ -18,6 +18,7 @@
 package org.icgc.dcc.portal.service;
 
 import static com.google.common.base.Throwables.propagate;
+import static org.icgc.dcc.portal.config.JobConfig.WARMUP_EXECUTOR;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.createResponseMap;
 
 import java.util.Collections;
@@ -49,16 +50,10 @@ public class OccurrenceService {
   private final AtomicReference<Map<String, Map<String, Integer>>> projectMutationCache =
       new AtomicReference<Map<String, Map<String, Integer>>>();
 
-  @Async
+  @Async(WARMUP_EXECUTOR)
   public void init() {
     try {
-      log.info("Retrieving donor mutations for caching...");
-
-      val donorMutationDistribution = occurrenceRepository.getProjectDonorMutationDistribution();
-      val immutableCopy = Collections.unmodifiableMap(donorMutationDistribution);
-      projectMutationCache.set(immutableCopy);
-
-      log.info("Finished adding donor mutations to cache in app.");
+      projectMutationCache.set(loadProjectMutationDistribution());
     } catch (Exception e) {
       log.error("Error caching donor mutations: ", e);
 
@@ -66,6 +61,26 @@ public class OccurrenceService {
     }
   }
 
+  /**
+   * Retrieves the donor mutations of the index being warmed up by the calling thread.
+   * 
+   * @return an action replacing the cached donor mutations with them
+   */
+  public Runnable prepareRelease() {
+    val distribution = loadProjectMutationDistribution();
+    return () -> projectMutationCache.set(distribution);
+  }
+
+  private Map<String, Map<String, Integer>> loadProjectMutationDistribution() {
+    log.info("Retrieving donor mutations for caching...");
+
+    val donorMutationDistribution = occurrenceRepository.getProjectDonorMutationDistribution();
+    val immutableCopy = Collections.unmodifiableMap(donorMutationDistribution);
+
+    log.info("Finished adding donor mutations to cache in app.");
+    return immutableCopy;
+  }
+
   public Occurrences findAll(Query query) {
     val response = occurrenceRepository.findAll(query);
     val hits = response.getHits();
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static com.google.common.base.Objects.firstNonNull;
+import static com.google.common.base.Stopwatch.createStarted;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.icgc.dcc.portal.analysis.EntitySetEngine;
+import org.icgc.dcc.portal.analysis.GeneSetMembership;
+import org.icgc.dcc.portal.config.PortalProperties.ElasticSearchProperties;
+import org.icgc.dcc.portal.filter.CachingFilter;
+import org.icgc.dcc.portal.filter.ResponseCacheFilter;
+import org.icgc.dcc.portal.model.IndexModel;
+import org.icgc.dcc.portal.model.Versions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes new releases while the portal is running.
+ * <p>
+ * The configured release index alias is re-resolved every minute by {@link IndexService}. When it points to a new
+ * index, the in-memory caches of the new release are built on the watcher thread, which is the only one reading from
+ * the new index while requests keep being served from the current one. Once all of them are ready, the index name, the
+ * Last-Modified date and the caches are switched over in one step and the caches derived from the previous release
+ * are discarded. A release that fails to warm up is retried on the next poll.
+ */
+@Slf4j
+@Component
+public class ReleaseWatcher {
+
+  /**
+   * Constants.
+   */
+  private static final int POLL_INTERVAL_MINUTES = 1;
+  private static final String INDEX_COMMIT_ID = "git.commit.id.abbrev";
+
+  /**
+   * Dependencies.
+   */
+  private final ElasticSearchProperties elastic;
+  private final IndexService indexService;
+  private final IndexModel indexModel;
+  private final Versions versions;
+  private final CachingFilter cachingFilter;
+  private final ResponseCacheFilter responseCacheFilter;
+  private final ResponseCacheService responseCacheService;
+  private final GeneService geneService;
+  private final OccurrenceService occurrenceService;
+  private final GeneSetMembership geneSetMembership;
+  private final BeaconIndex beaconIndex;
+  private final EntitySetEngine entitySetEngine;
+
+  /**
+   * State.
+   */
+  private ScheduledExecutorService watcher;
+
+  @Autowired
+  public ReleaseWatcher(@NonNull ElasticSearchProperties elastic, @NonNull IndexService indexService,
+      @NonNull IndexModel indexModel, @NonNull Versions versions, @NonNull CachingFilter cachingFilter,
+      @NonNull ResponseCacheFilter responseCacheFilter, @NonNull ResponseCacheService responseCacheService,
+      @NonNull GeneService geneService, @NonNull OccurrenceService occurrenceService,
+      @NonNull GeneSetMembership geneSetMembership, @NonNull BeaconIndex beaconIndex,
+      @NonNull EntitySetEngine entitySetEngine) {
+    this.elastic = elastic;
+    this.indexService = indexService;
+    this.indexModel = indexModel;
+    this.versions = versions;
+    this.cachingFilter = cachingFilter;
+    this.responseCacheFilter = responseCacheFilter;
+    this.responseCacheService = responseCacheService;
+    this.geneService = geneService;
+    this.occurrenceService = occurrenceService;
+    this.geneSetMembership = geneSetMembership;
+    this.beaconIndex = beaconIndex;
+    this.entitySetEngine = entitySetEngine;
+  }
+
+  @PostConstruct
+  public void start() {
+    watcher = newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("release-watcher-%d").setDaemon(true).build());
+    watcher.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MINUTES, POLL_INTERVAL_MINUTES, MINUTES);
+  }
+
+  @PreDestroy
+  public void stop() {
+    watcher.shutdownNow();
+  }
+
+  void poll() {
+    val alias = elastic.getIndexName();
+    try {
+      val releaseIndexName = indexService.getRealIndexName(alias);
+      if (!releaseIndexName.equals(indexModel.getIndex())) {
+        publish(releaseIndexName);
+      }
+    } catch (Exception e) {
+      log.error("Could not publish the release index of alias '{}':", alias, e);
+    }
+  }
+
+  private void publish(String releaseIndexName) {
+    val watch = createStarted();
+    log.info("Warming up release index '{}' while serving '{}'...", releaseIndexName, indexModel.getIndex());
+
+    List<Runnable> switches = indexModel.withIndex(releaseIndexName, () -> ImmutableList.of(
+        cachingFilter.prepareRelease(),
+        responseCacheFilter.prepareRelease(),
+        geneService.prepareRelease(),
+        occurrenceService.prepareRelease(),
+        geneSetMembership.prepareRelease(),
+        beaconIndex.prepareRelease()));
+    val indexCommit = indexService.getIndexMetaData(releaseIndexName).get(INDEX_COMMIT_ID);
+
+    indexModel.setIndex(releaseIndexName);
+    switches.forEach(Runnable::run);
+    entitySetEngine.clearCache();
+    responseCacheService.clearCache();
+    versions.setIndexCommit(firstNonNull(indexCommit, "unknown"));
+    versions.setIndexName(releaseIndexName);
+
+    log.info("Published release index '{}' after warming up for {}", releaseIndexName, watch);
+  }
+
+}
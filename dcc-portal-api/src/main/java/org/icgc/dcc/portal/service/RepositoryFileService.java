@@ -43,27 +43,39 @@ import static org.icgc.dcc.common.core.util.Joiners.COMMA;
 import static org.icgc.dcc.common.core.util.Joiners.DOT;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
+import static org.icgc.dcc.portal.config.JobConfig.EXPORT_EXECUTOR;
 import static org.icgc.dcc.portal.model.RepositoryFile.parse;
 import static org.icgc.dcc.portal.repository.RepositoryFileRepository.toRawFieldName;
 import static org.icgc.dcc.portal.repository.RepositoryFileRepository.toStringArray;
 import static org.icgc.dcc.portal.util.ElasticsearchResponseUtils.getString;
-import static org.icgc.dcc.portal.util.SearchResponses.hasHits;
 import static org.supercsv.prefs.CsvPreference.TAB_PREFERENCE;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
@@ -75,7 +87,6 @@ import javax.xml.stream.XMLStreamWriter;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.dcc.portal.pql.meta.RepositoryFileTypeModel.Fields;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.collect.Iterables;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
@@ -92,25 +103,25 @@ import org.icgc.dcc.portal.pql.convert.Jql2PqlConverter;
 import org.icgc.dcc.portal.repository.RepositoryFileRepository;
 import org.icgc.dcc.portal.repository.TermsLookupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.supercsv.io.CsvListWriter;
-import org.supercsv.io.CsvMapWriter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
 
 import lombok.Cleanup;
+import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.experimental.UtilityClass;
@@ -118,7 +129,6 @@ import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor(onConstructor = @__({ @Autowired }) )
 public class RepositoryFileService {
 
   private static final Jql2PqlConverter PQL_CONVERTER = Jql2PqlConverter.getInstance();
@@ -158,6 +168,10 @@ public class RepositoryFileService {
           DATA_TABLE_EXPORT_SUMMARY_FIELDS, RepositoryFileService::toSummarizedString,
           DATA_TABLE_EXPORT_AVERAGE_FIELDS, RepositoryFileService::toAverageSizeString,
           DATA_TABLE_EXPORT_OTHER_FIELDS, RepositoryFileService::toStringValue);
+  private static final List<Function<SearchHitField, String>> DATA_TABLE_EXPORT_COLUMN_PROCESSORS =
+      Stream.of(DATA_TABLE_EXPORT_MAP_FIELD_ARRAY)
+          .map(RepositoryFileService::getFieldProcessor)
+          .collect(toImmutableList());
 
   private static final Joiner COMMA_JOINER = COMMA.skipNulls();
   private static final Keywords NO_MATCH_KEYWORD_SEARCH_RESULT = new Keywords(emptyList());
@@ -211,51 +225,122 @@ public class RepositoryFileService {
 
   private final RepositoryFileRepository repositoryFileRepository;
   private final TermsLookupRepository termsLookupRepository;
+  private final RepositoryFileStats repositoryFileStats;
+  private final ExecutorService exportExecutor;
+
+  @Autowired
+  public RepositoryFileService(@NonNull RepositoryFileRepository repositoryFileRepository,
+      @NonNull TermsLookupRepository termsLookupRepository, @NonNull RepositoryFileStats repositoryFileStats,
+      @NonNull @Qualifier(EXPORT_EXECUTOR) ExecutorService exportExecutor) {
+    this.repositoryFileRepository = repositoryFileRepository;
+    this.termsLookupRepository = termsLookupRepository;
+    this.repositoryFileStats = repositoryFileStats;
+    this.exportExecutor = exportExecutor;
+  }
 
   public Map<String, String> getIndexMetadata() {
     return repositoryFileRepository.getIndexMetaData();
   }
 
   public Map<String, String> getRepositoryMap() {
-    return repositoryFileRepository.getRepositoryMap();
+    return repositoryFileStats.getRepositoryMap();
   }
 
   @NonNull
-  public void exportTableData(OutputStream output, Query query) {
-    val prepResponse = repositoryFileRepository.prepareDataExport(query, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY);
-
-    generateTabDelimitedData(output, prepResponse, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY);
+  public void exportTableData(OutputStream output, Query query, boolean compress) {
+    exportTabDelimitedData(output, compress, (slice, consumer) -> repositoryFileRepository
+        .scrollDataExport(query, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY, slice, consumer));
   }
 
   @NonNull
-  public void exportTableDataFromSet(OutputStream output, String setId) {
-    val prepResponse = repositoryFileRepository.prepareSetDataExport(setId, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY);
-
-    generateTabDelimitedData(output, prepResponse, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY);
+  public void exportTableDataFromSet(OutputStream output, String setId, boolean compress) {
+    exportTabDelimitedData(output, compress, (slice, consumer) -> repositoryFileRepository
+        .scrollSetDataExport(setId, DATA_TABLE_EXPORT_MAP_FIELD_ARRAY, slice, consumer));
   }
 
+  /**
+   * Writes the data table export to {@code output}, gzip encoded if {@code compress} is set. The slices of the scroll
+   * are read in parallel on the export pool and the request thread, each formatting its pages into its own buffer
+   * before appending them to {@code output}. As with a single scan, the rows come in no particular order.
+   */
   @SneakyThrows
-  private void generateTabDelimitedData(OutputStream output, SearchResponse prepResponse, String[] keys) {
+  private void exportTabDelimitedData(OutputStream output, boolean compress,
+      BiConsumer<Integer, Consumer<SearchHits>> scroller) {
     @Cleanup
-    val writer = new CsvMapWriter(new BufferedWriter(new OutputStreamWriter(output, UTF_8)), TAB_PREFERENCE);
-    writer.writeHeader(toStringArray(DATA_TABLE_EXPORT_MAP.values()));
+    val writer = new BufferedWriter(new OutputStreamWriter(
+        compress ? new GZIPOutputStream(output, BUFFER_SIZE) : output, UTF_8), BUFFER_SIZE);
+    val headerWriter = new CsvListWriter(writer, TAB_PREFERENCE);
+    headerWriter.writeHeader(toStringArray(DATA_TABLE_EXPORT_MAP.values()));
+    headerWriter.flush();
+
+    val sliceCount = repositoryFileRepository.getDataExportSliceCount();
+    val slices = Lists.<Future<?>> newArrayListWithCapacity(sliceCount);
+    val aborted = new AtomicBoolean();
+    try {
+      for (int i = 1; i < sliceCount; i++) {
+        final int slice = i;
+        slices.add(submitExportSlice(() -> exportTabDelimitedSlice(writer, scroller, slice, aborted)));
+      }
+
+      exportTabDelimitedSlice(writer, scroller, 0, aborted);
+      slices.forEach(Futures::getUnchecked);
+    } finally {
+      // Stops the remaining slices if any of them failed, then waits for them to let go of the writer before it is
+      // closed. Cancelling the futures instead would not wait for slices that are already running.
+      aborted.set(true);
+      slices.forEach(RepositoryFileService::awaitExportSlice);
+    }
+  }
 
-    String scrollId = prepResponse.getScrollId();
+  private static void awaitExportSlice(Future<?> slice) {
+    try {
+      Futures.getUnchecked(slice);
+    } catch (UncheckedExecutionException | ExecutionError e) {
+      // Either aborted or failed on its own, which is reported by the slice that failed first
+    }
+  }
 
-    while (true) {
-      val response = repositoryFileRepository.fetchSearchScrollData(scrollId);
+  private Future<?> submitExportSlice(Runnable slice) {
+    try {
+      return exportExecutor.submit(slice);
+    } catch (RejectedExecutionException e) {
+      log.warn("Export pool is saturated, reading slice on the request thread");
+      slice.run();
 
-      if (!hasHits(response)) {
-        break;
-      }
+      return Futures.immediateFuture(null);
+    }
+  }
+
+  private static void exportTabDelimitedSlice(Writer output, BiConsumer<Integer, Consumer<SearchHits>> scroller,
+      int slice, AtomicBoolean aborted) {
+    // Reused for every row and page of the slice
+    val row = new String[DATA_TABLE_EXPORT_MAP_FIELD_ARRAY.length];
+    val buffer = new CharArrayWriter(BUFFER_SIZE);
+    val csvWriter = new CsvListWriter(buffer, TAB_PREFERENCE);
 
-      for (val hit : response.getHits()) {
-        writer.write(toRowValueMap(hit), keys);
+    scroller.accept(slice, hits -> {
+      if (aborted.get()) {
+        // Leaves the scroll, which clears it
+        throw new CancellationException("Data table export of slice " + slice + " was aborted");
       }
 
-      scrollId = response.getScrollId();
+      writeTabDelimitedPage(output, hits, row, csvWriter, buffer);
+    });
+  }
+
+  @SneakyThrows
+  private static void writeTabDelimitedPage(Writer output, SearchHits hits, String[] row, CsvListWriter csvWriter,
+      CharArrayWriter buffer) {
+    for (val hit : hits) {
+      toRowValues(hit, row);
+      csvWriter.write(row);
     }
+    csvWriter.flush();
 
+    synchronized (output) {
+      buffer.writeTo(output);
+    }
+    buffer.reset();
   }
 
   private static Set<String> toRawFieldSet(Collection<String> aliases) {
@@ -264,7 +349,15 @@ public class RepositoryFileService {
   }
 
   private static String combineUniqueItemsToString(SearchHitField hitField, Function<Set<Object>, String> combiner) {
-    return (null == hitField) ? "" : combiner.apply(newHashSet(hitField.getValues()));
+    if (null == hitField) {
+      return "";
+    }
+
+    // Most fields are single valued, so skip the set
+    val values = hitField.getValues();
+    val value = (values.size() == 1) ? values.get(0) : null;
+
+    return (null != value) ? value.toString() : combiner.apply(newHashSet(values));
   }
 
   private static String toStringValue(SearchHitField hitField) {
@@ -309,16 +402,19 @@ public class RepositoryFileService {
         .collect(toImmutableList());
   }
 
-  @NonNull
-  private static Map<String, String> toRowValueMap(SearchHit hit) {
+  private static void toRowValues(SearchHit hit, String[] row) {
     val valueMap = hit.getFields();
-    val maps = DATA_TABLE_EXPORT_FIELD_PROCESSORS.entrySet().stream().map(fieldsProcessorPair -> {
-      // Takes a collection of fields and its processor and produces a map of field and its value.
-      return Maps.<String, String> toMap(fieldsProcessorPair.getKey(),
-          field -> fieldsProcessorPair.getValue().apply(valueMap.get(field)));
-    });
+    for (int i = 0; i < row.length; i++) {
+      row[i] = DATA_TABLE_EXPORT_COLUMN_PROCESSORS.get(i).apply(valueMap.get(DATA_TABLE_EXPORT_MAP_FIELD_ARRAY[i]));
+    }
+  }
 
-    return combineMaps(maps);
+  private static Function<SearchHitField, String> getFieldProcessor(String field) {
+    return DATA_TABLE_EXPORT_FIELD_PROCESSORS.entrySet().stream()
+        .filter(fieldsProcessorPair -> fieldsProcessorPair.getKey().contains(field))
+        .findFirst()
+        .get()
+        .getValue();
   }
 
   /**
@@ -356,87 +452,77 @@ public class RepositoryFileService {
     val externalFiles = new RepositoryFiles(convertHitsToRepoFiles(hits));
 
     externalFiles.setTermFacets(
-        repositoryFileRepository.convertAggregationsToFacets(response.getAggregations(), query));
+        repositoryFileRepository.convertAggregationsToFacets(response.getAggregations()));
     externalFiles.setPagination(Pagination.of(hits.getHits().length, hits.getTotalHits(), query));
 
     return externalFiles;
   }
 
+  /**
+   * Streams the matching files into a tar.gz archive with one manifest per repository. Each manifest is spooled to a
+   * temporary file once scrolling ends because a tar entry needs its size before its content.
+   */
   @NonNull
   public void generateManifestArchive(OutputStream output, Date timestamp, Query query, List<String> repoList)
       throws JsonProcessingException, IOException {
-    val data = getData(query);
-
-    @Cleanup
-    val tar = new TarArchiveOutputStream(new GZIPOutputStream(new BufferedOutputStream(output)));
-    tar.setLongFileMode(LONGFILE_GNU);
+    val pqlAst = PQL_CONVERTER.convertToAst(query, REPOSITORY_FILE);
+    log.debug("Received JQL: '{}'; converted to PQL: '{}'.", query.getFilters(), pqlAst);
 
     val repoIncludes = removeEmptyString(repoList);
-    val repoCodeGroups = Multimaps.index(data, m -> m.get(Fields.REPO_CODE));
-
-    // This writes out the results to the tar archive.
-    for (val repoCode : repoCodeGroups.keySet()) {
-      if (shouldRepositoryBeExcluded(repoIncludes, repoCode)) {
-        continue;
+    val spools = Maps.<String, ManifestSpool> newLinkedHashMap();
+
+    try {
+      repositoryFileRepository.scrollDownloadInfo(pqlAst, hit -> {
+        for (final Map<String, String> fileInfo : toValueMap(hit)) {
+          final String repoCode = fileInfo.get(Fields.REPO_CODE);
+
+          if (shouldRepositoryBeExcluded(repoIncludes, repoCode)) {
+            continue;
+          }
+
+          // Entries with the same repoCode should & must have the same repoType.
+          spools.computeIfAbsent(repoCode, code -> new ManifestSpool(code, fileInfo.get(Fields.REPO_TYPE), timestamp))
+              .write(fileInfo);
+        }
+      });
+
+      @Cleanup
+      val tar = new TarArchiveOutputStream(new GZIPOutputStream(new BufferedOutputStream(output)));
+      tar.setLongFileMode(LONGFILE_GNU);
+
+      // This writes out the results to the tar archive.
+      for (val spool : spools.values()) {
+        spool.close();
+        addFileToTar(spool.getFileName(), spool.getFile(), tar);
       }
-
-      val entries = repoCodeGroups.get(repoCode);
-
-      if (isEmpty(entries)) {
-        continue;
-      }
-
-      // Entries with the same repoCode should & must have the same repoType.
-      val repoType = entries.get(0).get(Fields.REPO_TYPE);
-
-      generateTarEntry(tar, entries, repoCode, repoType, timestamp);
+    } finally {
+      spools.values().forEach(ManifestSpool::delete);
     }
   }
 
   @SneakyThrows
-  private void generateRepoManifestFile(OutputStream output, String repoCode, SearchResponse searchResult,
-      Date timestamp) {
-    val data = FluentIterable.from(searchResult.getHits())
-        .transformAndConcat(hit -> toValueMap(hit));
-
+  private static void generateRepoManifestFile(OutputStream output, String repoCode, Date timestamp,
+      Consumer<Consumer<SearchHit>> hits) {
     @Cleanup
-    val buffer = new BufferedOutputStream(output);
-    val repoCodeGroups = Multimaps.index(data, m -> m.get(Fields.REPO_CODE));
-
-    for (val code : repoCodeGroups.keySet()) {
-      // Make sure we process the target repo only.
-      if (!repoCode.equals(code)) {
-        continue;
-      }
-
-      val repoData = repoCodeGroups.get(repoCode);
-
-      if (isEmpty(repoData)) {
-        break;
+    val writer = new ManifestWriter(new BufferedOutputStream(output), timestamp);
+
+    hits.accept(hit -> {
+      for (final Map<String, String> fileInfo : toValueMap(hit)) {
+        // Make sure we process the target repo only.
+        if (repoCode.equals(fileInfo.get(Fields.REPO_CODE))) {
+          writer.write(fileInfo);
+        }
       }
-
-      // Entries with the same repoCode should & must have the same repoType.
-      val repoType = repoData.get(0).get(Fields.REPO_TYPE);
-      val downloadUrlGroups = Multimaps.index(repoData, entry -> buildDownloadUrl(entry));
-
-      if (RepoTypes.isGnos(repoType)) {
-        generateXmlFile(buffer, downloadUrlGroups, timestamp);
-      } else if (RepoTypes.isAws(repoType)) {
-        generateAwsTextFile(buffer, downloadUrlGroups);
-      } else {
-        generateTextFile(buffer, downloadUrlGroups);
-      }
-    }
+    });
   }
 
   @NonNull
   public void generateManifestFile(OutputStream output, Date timestamp, Query query, String repoCode) {
-    val pql = PQL_CONVERTER.convert(query, REPOSITORY_FILE);
-    log.debug("Received JQL: '{}'; converted to PQL: '{}'.", query.getFilters(), pql);
-
-    val searchResult = repositoryFileRepository.findDownloadInfo(pql);
+    val pqlAst = PQL_CONVERTER.convertToAst(query, REPOSITORY_FILE);
+    log.debug("Received JQL: '{}'; converted to PQL: '{}'.", query.getFilters(), pqlAst);
 
-    generateRepoManifestFile(output, repoCode, searchResult, timestamp);
+    generateRepoManifestFile(output, repoCode, timestamp,
+        consumer -> repositoryFileRepository.scrollDownloadInfo(pqlAst, consumer));
   }
 
   @NonNull
@@ -452,19 +538,8 @@ public class RepositoryFileService {
       throw new IllegalArgumentException("Only Collaboratory and AWS - Virginia are supported for this operation.");
     }
 
-    val searchResult = repositoryFileRepository.findDownloadInfoFromSet(setId);
-
-    generateRepoManifestFile(output, repoCode, searchResult, timestamp);
-  }
-
-  private Iterable<Map<String, String>> getData(@NonNull final Query query) {
-    val pql = PQL_CONVERTER.convert(query, REPOSITORY_FILE);
-    log.debug("Received JQL: '{}'; converted to PQL: '{}'.", query.getFilters(), pql);
-
-    val searchResult = repositoryFileRepository.findDownloadInfo(pql);
-
-    return FluentIterable.from(searchResult.getHits())
-        .transformAndConcat(hit -> toValueMap(hit));
+    generateRepoManifestFile(output, repoCode, timestamp,
+        consumer -> repositoryFileRepository.scrollDownloadInfoFromSet(setId, consumer));
   }
 
   private List<String> removeEmptyString(@NonNull Iterable<String> strings) {
@@ -569,97 +644,21 @@ public class RepositoryFileService {
     }
   }
 
-  @SneakyThrows
-  @NonNull
-  private static void generateTarEntry(TarArchiveOutputStream tar, List<Map<String, String>> allFileInfoOfOneRepo,
-      String repoCode, String repoType, Date timestamp) {
-    val isGnos = RepoTypes.isGnos(repoType);
-    val downloadUrlGroups =
-        Multimaps.index(allFileInfoOfOneRepo, entry -> isGnos ? buildGnosDownloadUrl(entry) : buildDownloadUrl(entry));
-
-    @Cleanup
-    val buffer = new ByteArrayOutputStream(BUFFER_SIZE);
-
-    if (isGnos) {
-      generateXmlFile(buffer, downloadUrlGroups, timestamp);
-    } else if (RepoTypes.isAws(repoType)) {
-      generateAwsTextFile(buffer, downloadUrlGroups);
-    } else {
-      generateTextFile(buffer, downloadUrlGroups);
-    }
-
-    addFileToTar(buildFileName(repoCode, repoType, timestamp), buffer, tar);
-  }
-
-  @SneakyThrows
-  @NonNull
-  private static void generateXmlFile(OutputStream buffer, ListMultimap<String, Map<String, String>> downloadUrlGroups,
-      Date timestamp) {
-    int rowCount = 0;
-    // If this is thread-safe, perhaps we can make this static???
-    val factory = XMLOutputFactory.newInstance();
-    @Cleanup
-    val writer = new IndentingXMLStreamWriter(factory.createXMLStreamWriter(buffer, UTF_8));
-
-    startXmlDocument(writer, timestamp);
-
-    for (val url : downloadUrlGroups.keySet()) {
-      val rowInfo = downloadUrlGroups.get(url);
-
-      if (isEmpty(rowInfo)) {
-        continue;
-      }
-
-      // TODO: is this still true that same url has the same data_bundle_id??
-      val repoId = rowInfo.get(0).get(Fields.DATA_BUNDLE_ID);
-
-      writeXmlEntry(writer, repoId, url, rowInfo, ++rowCount);
-    }
-
-    endXmlDocument(writer);
-  }
-
   @SneakyThrows
   private static CsvListWriter createTsv(OutputStream stream) {
     return new CsvListWriter(new OutputStreamWriter(stream, UTF_8), TAB_PREFERENCE);
   }
 
-  @SneakyThrows
-  @NonNull
-  private static void generateTextFile(OutputStream buffer, Multimap<String, Map<String, String>> downloadUrlGroups) {
-    @Cleanup
-    val tsv = createTsv(buffer);
-    tsv.writeHeader(TSV_HEADERS);
+  private static List<String> toTsvRow(String url, Collection<Map<String, String>> fileInfo) {
+    val otherColumns = Lists.transform(TSV_COLUMN_FIELD_NAMES,
+        fieldName -> CONCAT_WITH_COMMA.apply(fileInfo, fieldName));
 
-    for (val url : downloadUrlGroups.keySet()) {
-      val fileInfo = downloadUrlGroups.get(url);
-      val otherColumns = Lists.transform(TSV_COLUMN_FIELD_NAMES,
-          fieldName -> CONCAT_WITH_COMMA.apply(fileInfo, fieldName));
-      val row = combineCollections(Stream.of(newArrayList(url), otherColumns));
-
-      tsv.write(row);
-    }
-
-    tsv.flush();
+    return combineCollections(Stream.of(newArrayList(url), otherColumns));
   }
 
-  @SneakyThrows
-  @NonNull
-  private static void generateAwsTextFile(OutputStream buffer,
-      Multimap<String, Map<String, String>> downloadUrlGroups) {
-    @Cleanup
-    val tsv = createTsv(buffer);
-    tsv.writeHeader(AWS_TSV_HEADERS);
-
-    for (val url : downloadUrlGroups.keySet()) {
-      val fileInfo = downloadUrlGroups.get(url);
-      val row = Lists.transform(AWS_TSV_COLUMN_FIELD_NAMES,
-          fieldName -> CONCAT_WITH_COMMA.apply(fileInfo, fieldName));
-
-      tsv.write(row);
-    }
-
-    tsv.flush();
+  private static List<String> toAwsTsvRow(Collection<Map<String, String>> fileInfo) {
+    return Lists.transform(AWS_TSV_COLUMN_FIELD_NAMES,
+        fieldName -> CONCAT_WITH_COMMA.apply(fileInfo, fieldName));
   }
 
   private static String getFileExtensionOf(String repoType) {
@@ -676,14 +675,13 @@ public class RepositoryFileService {
   }
 
   @NonNull
-  private static void addFileToTar(String fileName, ByteArrayOutputStream content, TarArchiveOutputStream tar)
-      throws IOException {
+  private static void addFileToTar(String fileName, File content, TarArchiveOutputStream tar) throws IOException {
     val tarEntry = new TarArchiveEntry(fileName);
 
-    tarEntry.setSize(content.size());
+    tarEntry.setSize(content.length());
     tar.putArchiveEntry(tarEntry);
 
-    content.writeTo(tar);
+    Files.copy(content.toPath(), tar);
     tar.closeArchiveEntry();
   }
 
@@ -725,6 +723,10 @@ public class RepositoryFileService {
         valueMap.get(Fields.DATA_BUNDLE_ID));
   }
 
+  private static String buildDownloadUrl(String repoType, Map<String, String> valueMap) {
+    return RepoTypes.isGnos(repoType) ? buildGnosDownloadUrl(valueMap) : buildDownloadUrl(valueMap);
+  }
+
   private static String formatToUtc(@NonNull Date timestamp) {
     return formatUTC(timestamp, DATE_FORMAT_PATTERN);
   }
@@ -812,15 +814,131 @@ public class RepositoryFileService {
   }
 
   public Map<String, Long> getSummary(@NonNull Query query) {
-    return repositoryFileRepository.getSummary(query);
+    // The unfiltered summary only changes with the repository index
+    return query.hasFilters() ? repositoryFileRepository.getSummary(query) : repositoryFileStats.getSummary();
   }
 
   public Map<String, Map<String, Map<String, Object>>> getStudyStats(String study) {
-    return repositoryFileRepository.getStudyStats(study);
+    return repositoryFileStats.getStudyStats(study);
   }
 
   public Map<String, Map<String, Map<String, Object>>> getRepoStats(String repoName) {
-    return repositoryFileRepository.getRepoStats(repoName);
+    return repositoryFileStats.getRepoStats(repoName);
+  }
+
+  /**
+   * Writes a single repository manifest. File copies sharing a download url are grouped into one record across the
+   * whole scroll, since they need not arrive consecutively; the records are written in first-seen url order on close.
+   */
+  private static class ManifestWriter implements Closeable {
+
+    private final OutputStream output;
+    private final Date timestamp;
+    private final Map<String, List<Map<String, String>>> downloadUrlGroups = Maps.newLinkedHashMap();
+
+    private String repoType;
+    private boolean closed;
+
+    ManifestWriter(@NonNull OutputStream output, @NonNull Date timestamp) {
+      this.output = output;
+      this.timestamp = timestamp;
+    }
+
+    void write(@NonNull Map<String, String> entry) {
+      if (null == repoType) {
+        // The manifest format is determined by the repository of the first entry.
+        repoType = entry.get(Fields.REPO_TYPE);
+      }
+
+      downloadUrlGroups.computeIfAbsent(buildDownloadUrl(repoType, entry), url -> newArrayList()).add(entry);
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+      if (closed) {
+        return;
+      }
+
+      closed = true;
+      if (null == repoType) {
+        output.close();
+      } else if (RepoTypes.isGnos(repoType)) {
+        writeXml();
+      } else {
+        writeTsv();
+      }
+    }
+
+    private void writeXml() throws XMLStreamException, IOException {
+      val xml = new IndentingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(output, UTF_8));
+      startXmlDocument(xml, timestamp);
+
+      int rowCount = 0;
+      for (val url : downloadUrlGroups.keySet()) {
+        val fileInfo = downloadUrlGroups.get(url);
+
+        // TODO: is this still true that same url has the same data_bundle_id??
+        val repoId = fileInfo.get(0).get(Fields.DATA_BUNDLE_ID);
+
+        writeXmlEntry(xml, repoId, url, fileInfo, ++rowCount);
+      }
+
+      endXmlDocument(xml);
+      xml.close();
+      output.close();
+    }
+
+    private void writeTsv() throws IOException {
+      val isAws = RepoTypes.isAws(repoType);
+
+      @Cleanup
+      val tsv = createTsv(output);
+      tsv.writeHeader(isAws ? AWS_TSV_HEADERS : TSV_HEADERS);
+
+      for (val url : downloadUrlGroups.keySet()) {
+        val fileInfo = downloadUrlGroups.get(url);
+
+        tsv.write(isAws ? toAwsTsvRow(fileInfo) : toTsvRow(url, fileInfo));
+      }
+    }
+
+  }
+
+  /**
+   * A repository manifest spooled to a temporary file.
+   */
+  private static class ManifestSpool {
+
+    @Getter
+    private final String fileName;
+    @Getter
+    private final File file;
+    private final ManifestWriter writer;
+
+    @SneakyThrows
+    ManifestSpool(String repoCode, String repoType, Date timestamp) {
+      this.fileName = buildFileName(repoCode, repoType, timestamp);
+      this.file = File.createTempFile("manifest-" + repoCode + "-", ".tmp");
+      this.writer = new ManifestWriter(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), timestamp);
+    }
+
+    void write(Map<String, String> entry) {
+      writer.write(entry);
+    }
+
+    void close() {
+      writer.close();
+    }
+
+    void delete() {
+      close();
+
+      if (!file.delete()) {
+        log.warn("Could not delete manifest spool file '{}'.", file);
+      }
+    }
+
   }
 
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.icgc.dcc.portal.config.JobConfig.WARMUP_EXECUTOR;
+
+import java.util.Map;
+
+import org.icgc.dcc.portal.model.Query;
+import org.icgc.dcc.portal.repository.RepositoryFileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory statistics of the current build of the repository file index.
+ * <p>
+ * The repository index is rebuilt at most daily, so the unfiltered summary, the repository map and the per repository
+ * and per study statistics are materialized on first use and kept for as long as the {@code _meta} of the index stays
+ * the same. The {@code _meta} is checked at most once a minute; a new build replaces the whole snapshot at once, so
+ * readers never mix the statistics of two builds.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired) )
+public class RepositoryFileStats {
+
+  /**
+   * Constants.
+   */
+  private static final long CHECK_INTERVAL_MILLIS = MINUTES.toMillis(1);
+  private static final String PCAWG_STUDY = "PCAWG";
+
+  /**
+   * Repository and study names come from request parameters, so only the statistics of this many names of each kind are
+   * kept.
+   */
+  static final int MAX_CACHED_STATS = 100;
+
+  /**
+   * Dependencies.
+   */
+  @NonNull
+  private final RepositoryFileRepository repositoryFileRepository;
+
+  /**
+   * State.
+   */
+  private volatile Snapshot snapshot;
+
+  @Async(WARMUP_EXECUTOR)
+  public void init() {
+    val current = getSnapshot();
+    current.summary.get();
+    current.repositoryMap.get();
+    current.studyStats.getUnchecked(PCAWG_STUDY);
+  }
+
+  /**
+   * @return the summary of all the files of the repository index
+   */
+  public Map<String, Long> getSummary() {
+    return getSnapshot().summary.get();
+  }
+
+  public Map<String, String> getRepositoryMap() {
+    return getSnapshot().repositoryMap.get();
+  }
+
+  public Map<String, Map<String, Map<String, Object>>> getRepoStats(@NonNull String repoName) {
+    return getSnapshot().repoStats.getUnchecked(repoName);
+  }
+
+  public Map<String, Map<String, Map<String, Object>>> getStudyStats(@NonNull String study) {
+    return getSnapshot().studyStats.getUnchecked(study);
+  }
+
+  public synchronized void clearCache() {
+    log.info("Clearing repository file statistics snapshot.");
+    snapshot = null;
+  }
+
+  private Snapshot getSnapshot() {
+    val current = snapshot;
+    if (current != null && !current.isCheckDue()) {
+      return current;
+    }
+
+    synchronized (this) {
+      if (snapshot != null && !snapshot.isCheckDue()) {
+        return snapshot;
+      }
+
+      val indexMetaData = repositoryFileRepository.getIndexMetaData();
+      if (snapshot != null && snapshot.indexMetaData.equals(indexMetaData)) {
+        snapshot.checked = currentTimeMillis();
+      } else {
+        log.info("Materializing repository file statistics of index build: {}", indexMetaData);
+        snapshot = new Snapshot(indexMetaData);
+      }
+
+      return snapshot;
+    }
+  }
+
+  private class Snapshot {
+
+    final Map<String, String> indexMetaData;
+    volatile long checked = currentTimeMillis();
+
+    final Supplier<Map<String, Long>> summary =
+        Suppliers.memoize(() -> repositoryFileRepository.getSummary(Query.builder().build()));
+    final Supplier<Map<String, String>> repositoryMap =
+        Suppliers.memoize(repositoryFileRepository::getRepositoryMap);
+    final LoadingCache<String, Map<String, Map<String, Map<String, Object>>>> repoStats =
+        CacheBuilder.newBuilder().maximumSize(MAX_CACHED_STATS)
+            .build(CacheLoader.from(repositoryFileRepository::getRepoStats));
+    final LoadingCache<String, Map<String, Map<String, Map<String, Object>>>> studyStats =
+        CacheBuilder.newBuilder().maximumSize(MAX_CACHED_STATS)
+            .build(CacheLoader.from(repositoryFileRepository::getStudyStats));
+
+    Snapshot(Map<String, String> indexMetaData) {
+      this.indexMetaData = indexMetaData;
+    }
+
+    boolean isCheckDue() {
+      return currentTimeMillis() - checked >= CHECK_INTERVAL_MILLIS;
+    }
+
+  }
+
+}
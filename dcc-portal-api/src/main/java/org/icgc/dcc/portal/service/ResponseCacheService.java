@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server side cache of serialized API responses.
+ * <p>
+ * Entries are scoped to the release date of the index they were computed from. Data is immutable between releases so
+ * entries never expire on their own, but all of them are discarded when a newer release is published. Requests that
+ * started before the switch may still finish afterwards: their responses are neither served nor stored.
+ */
+@Slf4j
+@Service
+public class ResponseCacheService {
+
+  /**
+   * Constants.
+   */
+  private static final long BYTES_PER_MB = 1024L * 1024L;
+
+  /**
+   * State.
+   */
+  private final Cache<String, CachedResponse> cache;
+  private volatile Date releaseDate;
+
+  @Autowired
+  public ResponseCacheService(@NonNull CacheProperties cacheConfig) {
+    this.cache = createStore(cacheConfig.getResponseCacheMaxSizeMB());
+  }
+
+  public Optional<CachedResponse> get(@NonNull String key, @NonNull Date releaseDate) {
+    if (!releaseDate.equals(this.releaseDate)) {
+      return Optional.empty();
+    }
+
+    return Optional.ofNullable(cache.getIfPresent(key));
+  }
+
+  public void put(@NonNull String key, @NonNull Date releaseDate, @NonNull CachedResponse response) {
+    // Synchronized with the release switch so that a response of the previous release is never stored after it
+    synchronized (this) {
+      if (releaseDate.equals(this.releaseDate)) {
+        cache.put(key, response);
+      }
+    }
+  }
+
+  /**
+   * Scopes the cache to {@code releaseDate}, discarding all entries, unless it is not newer than the current release.
+   */
+  public synchronized void publishRelease(@NonNull Date releaseDate) {
+    if (this.releaseDate != null && !releaseDate.after(this.releaseDate)) {
+      if (releaseDate.before(this.releaseDate)) {
+        log.warn("Ignoring release date '{}' older than the current '{}'", releaseDate, this.releaseDate);
+      }
+
+      return;
+    }
+
+    log.info("Release date changed from '{}' to '{}'. Invalidating response cache...", this.releaseDate, releaseDate);
+    cache.invalidateAll();
+    this.releaseDate = releaseDate;
+  }
+
+  public void clearCache() {
+    log.info("Clearing response cache.");
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  private static Cache<String, CachedResponse> createStore(int maxSizeMB) {
+    checkArgument(maxSizeMB > 0, "Response cache size must be positive but was %s MB", maxSizeMB);
+
+    return CacheBuilder
+        .newBuilder()
+        .maximumWeight(maxSizeMB * BYTES_PER_MB)
+        .<String, CachedResponse> weigher((key, value) -> key.length() + value.getBody().length)
+        .build();
+  }
+
+  /**
+   * A serialized response body and the media type and headers it was written with.
+   */
+  @Value
+  public static class CachedResponse {
+
+    @NonNull
+    String mediaType;
+    @NonNull
+    Map<String, List<String>> headers;
+    @NonNull
+    byte[] body;
+
+  }
+
+}
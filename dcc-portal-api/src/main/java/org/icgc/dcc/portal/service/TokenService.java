@@ -30,6 +30,7 @@ import java.util.Set;
 
 import org.icgc.dcc.common.core.util.Splitters;
 import org.icgc.dcc.portal.auth.oauth.OAuthClient;
+import org.icgc.dcc.portal.auth.oauth.TokenValidator;
 import org.icgc.dcc.portal.model.AccessTokenScopes;
 import org.icgc.dcc.portal.model.AccessTokenScopes.AccessTokenScope;
 import org.icgc.dcc.portal.model.Tokens;
@@ -65,6 +66,8 @@ public class TokenService {
 
   @NonNull
   private final OAuthClient client;
+  @NonNull
+  private final TokenValidator tokenValidator;
 
   public String create(User user, String scope, String description) {
     log.debug("Creating access token of scope '{}' for user '{}'...", scope, user);
@@ -87,6 +90,7 @@ public class TokenService {
 
   public void delete(@NonNull String tokenId) {
     client.revokeToken(tokenId);
+    tokenValidator.invalidate(tokenId);
   }
 
   public AccessTokenScopes userScopes(User user) {
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import lombok.Getter;
 import lombok.NonNull;
@@ -76,7 +77,12 @@ public class UnionAnalysisService {
     val insertCount = repository.save(newAnalysis, dataVersion);
     checkState(insertCount == 1, "Could not save analysis. Insert count: %s", insertCount);
 
-    analyzer.calculateUnionUnitCounts(newAnalysis.getId(), request);
+    try {
+      analyzer.calculateUnionUnitCounts(newAnalysis.getId(), request);
+    } catch (RejectedExecutionException e) {
+      log.warn("Could not schedule union analysis '{}': {}", newAnalysis.getId(), e.getMessage());
+      repository.update(newAnalysis.updateStateToError(), dataVersion);
+    }
 
     return newAnalysis;
   }
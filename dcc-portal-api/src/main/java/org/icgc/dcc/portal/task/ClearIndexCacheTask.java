@@ -19,7 +19,12 @@ package org.icgc.dcc.portal.task;
 
 import java.io.PrintWriter;
 
+import org.dcc.portal.pql.query.QueryEngine;
+import org.icgc.dcc.portal.analysis.EntitySetEngine;
+import org.icgc.dcc.portal.analysis.GeneSetMembership;
 import org.icgc.dcc.portal.service.IndexService;
+import org.icgc.dcc.portal.service.RepositoryFileStats;
+import org.icgc.dcc.portal.service.ResponseCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -37,17 +42,34 @@ public class ClearIndexCacheTask extends Task {
    * Dependencies
    */
   private final IndexService indexService;
+  private final ResponseCacheService responseCacheService;
+  private final QueryEngine queryEngine;
+  private final EntitySetEngine entitySetEngine;
+  private final GeneSetMembership geneSetMembership;
+  private final RepositoryFileStats repositoryFileStats;
 
   @Autowired
-  public ClearIndexCacheTask(@NonNull IndexService indexService) {
+  public ClearIndexCacheTask(@NonNull IndexService indexService, @NonNull ResponseCacheService responseCacheService,
+      @NonNull QueryEngine queryEngine, @NonNull EntitySetEngine entitySetEngine,
+      @NonNull GeneSetMembership geneSetMembership, @NonNull RepositoryFileStats repositoryFileStats) {
     super("clearCache");
     this.indexService = indexService;
+    this.responseCacheService = responseCacheService;
+    this.queryEngine = queryEngine;
+    this.entitySetEngine = entitySetEngine;
+    this.geneSetMembership = geneSetMembership;
+    this.repositoryFileStats = repositoryFileStats;
   }
 
   @Override
   public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
     log.info("Requesting clearCache task with parameters '{}'...", parameters);
     indexService.clearCache();
+    responseCacheService.clearCache();
+    queryEngine.clearCache();
+    entitySetEngine.clearCache();
+    geneSetMembership.clearCache();
+    repositoryFileStats.clearCache();
   }
 
 }
@@ -26,12 +26,12 @@ import java.util.List;
 import java.util.Map;
 
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.common.collect.ImmutableList;
 
@@ -49,102 +49,76 @@ public final class BrowserParsers {
    * Constants.
    */
   private static final ObjectMapper MAPPER = new ObjectMapper();
-  private static final ObjectReader READER = MAPPER.reader();
   private static final String EXON_ID_SEPERATOR = ".";
   private static final TypeReference<List<String>> LIST_TYPE_REFERENCE = new TypeReference<List<String>>() {};
 
   /**
-   * Build a fully completed list of Mutation objects.
+   * Build a fully completed Mutation object from a hit of a mutation scroll.
    */
   @SneakyThrows
-  public static List<Object> parseMutations(String segmentId, Long start, Long stop, List<String> consequenceTypes,
-      List<String> projectFilters, SearchResponse searchResponse) {
-
-    String json = searchResponse.toString();
-    JsonNode response = READER.readTree(json);
-
-    List<Object> mutations = newArrayList();
-    for (JsonNode hit : response.get("hits").get("hits")) {
-      val mutation = getMutation(projectFilters, hit);
-      mutations.add(mutation);
-    }
-
-    return mutations;
+  public static Object parseMutation(List<String> projectFilters, SearchHit searchHit) {
+    return getMutation(projectFilters, getHitNode(searchHit));
   }
 
   /**
-   * Build a fully completed list of Gene objects.
+   * Build a fully completed Gene object from a hit of a gene scroll.
    */
-  @SneakyThrows
-  public static List<Object> parseGenes(String segmentId, Long start, Long stop, List<String> biotypes,
-      boolean withTranscripts, SearchResponse searchResponse) {
-    val json = searchResponse.toString();
-    val response = READER.readTree(json);
-
-    int geneId = 1;
-    List<Object> genes = newArrayList();
-    for (JsonNode hit : response.get("hits").get("hits")) {
-      JsonNode fields = hit.path("fields");
-
-      List<Transcript> transcripts = withTranscripts ? getTranscript(hit) : null;
-
-      genes.add(Gene.builder()
-          .geneId(geneId)
-          .stableId(fields.path("_gene_id").get(0).asText())
-          .externalName(fields.path("name").get(0).asText())
-          .biotype(fields.path("biotype").get(0).asText())
-          .chromosome(fields.path("chromosome").get(0).asText())
-          .start(fields.path("start").get(0).asLong())
-          .end(fields.path("end").get(0).asLong())
-          .strand(fields.path("strand").get(0).asText())
-          .description(fields.path("description").isMissingNode() ? "" : fields.path("description").get(0).asText())
-          .transcripts(transcripts)
-          .build());
-
-      geneId++;
-    }
-
-    return genes;
+  public static Object parseGene(int geneId, boolean withTranscripts, SearchHit searchHit) {
+    val hit = getHitNode(searchHit);
+    JsonNode fields = hit.path("fields");
+
+    List<Transcript> transcripts = withTranscripts ? getTranscript(hit) : null;
+
+    return Gene.builder()
+        .geneId(geneId)
+        .stableId(fields.path("_gene_id").get(0).asText())
+        .externalName(fields.path("name").get(0).asText())
+        .biotype(fields.path("biotype").get(0).asText())
+        .chromosome(fields.path("chromosome").get(0).asText())
+        .start(fields.path("start").get(0).asLong())
+        .end(fields.path("end").get(0).asLong())
+        .strand(fields.path("strand").get(0).asText())
+        .description(fields.path("description").isMissingNode() ? "" : fields.path("description").get(0).asText())
+        .transcripts(transcripts)
+        .build();
   }
 
   /**
-   * Build a histogram representation of mutations.
+   * Collects the document counts of the buckets of the histogram aggregation, keyed by bucket start. Empty buckets are
+   * absent.
    */
-  public static List<Object> parseHistogramMutation(String segmentId, Long start, Long stop, Long interval,
-      List<String> consequenceTypes, List<String> projectFilters, SearchResponse searchResponse) {
+  public static Map<Long, Long> parseHistogramCounts(SearchResponse searchResponse) {
     val histogramAggs = (Histogram) searchResponse.getAggregations().get("hf");
 
-    // Find max and index entries by start
-    long highestAbsolute = 0l;
-    Map<String, Histogram.Bucket> buckets = newHashMap();
+    Map<Long, Long> counts = newHashMap();
     for (val bucket : histogramAggs.getBuckets()) {
-      buckets.put(bucket.getKey(), bucket);
-
-      if (bucket.getDocCount() > highestAbsolute) {
-        highestAbsolute = bucket.getDocCount();
-      }
+      counts.put(bucket.getKeyAsNumber().longValue(), bucket.getDocCount());
     }
 
+    return counts;
+  }
+
+  /**
+   * Build a histogram representation of mutations from the {@code counts} of consecutive buckets of {@code interval},
+   * the first of which contains {@code start}.
+   */
+  public static List<Object> parseHistogramMutation(Long start, Long interval, long[] counts) {
+    val highestAbsolute = getHighestAbsolute(counts);
+
     List<Object> mutations = newArrayList();
-    int intervalNumber = 0;
-    long intervalStart = 0;
+    long intervalStart = start / interval * interval;
     long intervalStop = intervalStart + interval - 1;
-    while (intervalStart < stop) {
-      if (intervalStop >= start) {
-        val bucket = buckets.get(String.valueOf(intervalStart));
-        val mutationCount = bucket != null ? bucket.getDocCount() : 0;
+    for (int intervalNumber = 0; intervalNumber < counts.length; intervalNumber++) {
+      val mutationCount = counts[intervalNumber];
 
-        val mutation = new HistogramMutation(
-            intervalStart,
-            intervalStop,
-            intervalNumber,
-            mutationCount,
-            (double) mutationCount / highestAbsolute);
+      val mutation = new HistogramMutation(
+          intervalStart,
+          intervalStop,
+          intervalNumber,
+          mutationCount,
+          (double) mutationCount / highestAbsolute);
 
-        mutations.add(mutation);
-
-        intervalNumber++;
-      }
+      mutations.add(mutation);
 
       // Advance
       intervalStart += interval;
@@ -155,44 +129,26 @@ public final class BrowserParsers {
   }
 
   /**
-   * Build a histogram representation of genes.
+   * Build a histogram representation of genes from the {@code counts} of consecutive buckets of {@code interval}, the
+   * first of which contains {@code start}.
    */
-  public static List<Object> parseHistogramGene(String segmentId, Long start, Long stop, Long interval,
-      List<String> biotypes,
-      SearchResponse searchResponse) {
-    val histogramAggs = (Histogram) searchResponse.getAggregations().get("hf");
-
-    // Find max and index entries by start
-    long highestAbsolute = 0l;
-    Map<String, Histogram.Bucket> buckets = newHashMap();
-    for (val bucket : histogramAggs.getBuckets()) {
-      buckets.put(bucket.getKey(), bucket);
-
-      if (bucket.getDocCount() > highestAbsolute) {
-        highestAbsolute = bucket.getDocCount();
-      }
-    }
+  public static List<Object> parseHistogramGene(Long start, Long interval, long[] counts) {
+    val highestAbsolute = getHighestAbsolute(counts);
 
     val genes = ImmutableList.<Object> builder();
-    int intervalNumber = 0;
-    long intervalStart = 0;
+    long intervalStart = start / interval * interval;
     long intervalStop = intervalStart + interval - 1;
-    while (intervalStart < stop) {
-      if (intervalStop >= start) {
-        val bucket = buckets.get(String.valueOf(intervalStart));
-        val geneCount = bucket != null ? bucket.getDocCount() : 0;
-
-        val gene = new HistogramGene(
-            intervalStart,
-            intervalStop,
-            intervalNumber,
-            geneCount,
-            (double) geneCount / highestAbsolute);
+    for (int intervalNumber = 0; intervalNumber < counts.length; intervalNumber++) {
+      val geneCount = counts[intervalNumber];
 
-        genes.add(gene);
+      val gene = new HistogramGene(
+          intervalStart,
+          intervalStop,
+          intervalNumber,
+          geneCount,
+          (double) geneCount / highestAbsolute);
 
-        intervalNumber++;
-      }
+      genes.add(gene);
 
       // Advance
       intervalStart += interval;
@@ -202,6 +158,17 @@ public final class BrowserParsers {
     return genes.build();
   }
 
+  private static long getHighestAbsolute(long[] counts) {
+    long highestAbsolute = 0l;
+    for (val count : counts) {
+      if (count > highestAbsolute) {
+        highestAbsolute = count;
+      }
+    }
+
+    return highestAbsolute;
+  }
+
   /**
    * Builds a mutation.
    */
@@ -411,6 +378,25 @@ public final class BrowserParsers {
     return transcriptEnd;
   }
 
+  /**
+   * Renders a hit the way it appears in a search response, i.e. with its "fields" and "_source", so that it is parsed
+   * independently of the rest of the response.
+   */
+  private static JsonNode getHitNode(SearchHit searchHit) {
+    val hit = MAPPER.createObjectNode();
+    val fields = hit.putObject("fields");
+    for (val field : searchHit.getFields().values()) {
+      fields.set(field.getName(), MAPPER.valueToTree(field.getValues()));
+    }
+
+    val source = searchHit.getSource();
+    if (source != null) {
+      hit.set("_source", MAPPER.valueToTree(source));
+    }
+
+    return hit;
+  }
+
   /**
    * Readability method to build a list from a JsonNode returned as an array.
    */
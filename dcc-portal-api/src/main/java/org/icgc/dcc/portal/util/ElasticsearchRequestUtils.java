@@ -24,24 +24,29 @@ import static org.elasticsearch.action.search.SearchType.COUNT;
 import static org.elasticsearch.index.query.FilterBuilders.boolFilter;
 import static org.elasticsearch.index.query.QueryBuilders.nestedQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
 import static org.icgc.dcc.portal.model.IndexModel.FIELDS_MAPPING;
 import static org.icgc.dcc.portal.repository.TermsLookupRepository.createTermsLookupFilter;
+import static org.icgc.dcc.portal.util.SearchResponses.getNestedCountName;
 import static org.icgc.dcc.portal.util.SearchResponses.getTotalHitCount;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.function.Function;
 
 import org.dcc.portal.pql.meta.IndexModel;
 import org.dcc.portal.pql.meta.RepositoryFileTypeModel.Fields;
+import org.dcc.portal.pql.meta.Type;
 import org.dcc.portal.pql.meta.TypeModel;
 import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.icgc.dcc.portal.model.BaseEntitySet;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
 import org.icgc.dcc.portal.model.Query;
 import org.icgc.dcc.portal.model.UnionUnit;
-import org.icgc.dcc.portal.repository.TermsLookupRepository;
 
 import com.google.common.collect.Lists;
 
@@ -133,28 +138,28 @@ public class ElasticsearchRequestUtils {
     return boolFilter;
   }
 
-  public static BoolFilterBuilder toDonorBoolFilter(final UnionUnit unionDefinition) {
-
-    val boolFilter = boolFilter();
+  /**
+   * Builds a single count request that evaluates each query of the nested {@code queries} as a filter aggregation
+   * named by {@link SearchResponses#getNestedCountName(int, int)}, rather than a search per query.
+   */
+  public static SearchRequestBuilder buildNestedCountsRequest(@NonNull Client client, @NonNull String index,
+      @NonNull Type type, @NonNull LinkedHashMap<String, LinkedHashMap<String, Query>> queries,
+      @NonNull Function<Query, FilterBuilder> countFilter) {
+    val request = client.prepareSearch(index)
+        .setTypes(type.getId())
+        .setSearchType(COUNT);
+
+    int i = 0;
+    for (val innerQueries : queries.values()) {
+      int j = 0;
+      for (val query : innerQueries.values()) {
+        request.addAggregation(filter(getNestedCountName(i, j++)).filter(countFilter.apply(query)));
+      }
 
-    // Adding Musts
-    val intersectionUnits = unionDefinition.getIntersection();
-    for (val mustId : intersectionUnits) {
-      val mustTerms =
-          TermsLookupRepository.createTermsLookupFilter(FIELD_NAME, TermsLookupRepository.TermLookupType.DONOR_IDS,
-              mustId);
-      boolFilter.must(mustTerms);
+      i++;
     }
 
-    // Adding MustNots
-    val exclusionUnits = unionDefinition.getExclusions();
-    for (val notId : exclusionUnits) {
-      val mustNotTerms =
-          TermsLookupRepository.createTermsLookupFilter(FIELD_NAME, TermsLookupRepository.TermLookupType.DONOR_IDS,
-              notId);
-      boolFilter.mustNot(mustNotTerms);
-    }
-    return boolFilter;
+    return request;
   }
 
   private static boolean isRepositoryDonorExecute(Client client, String fieldAlias, String value,
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.util;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.Timer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fixed size thread pool with a bounded queue that reports its queue depth, active threads, run times and rejections.
+ * <p>
+ * Work submitted while all threads are busy and the queue is full is rejected with a
+ * {@link RejectedExecutionException} instead of growing the pool.
+ */
+@Slf4j
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+  @Getter
+  private final String name;
+  private final Timer runTime;
+  private final Meter rejected;
+  private final ThreadLocal<Long> startTime = new ThreadLocal<Long>();
+
+  public InstrumentedThreadPoolExecutor(@NonNull String name, int threads, int queueSize) {
+    super(threads, threads, 0, MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueSize),
+        new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+    this.name = name;
+    this.runTime = Metrics.newTimer(InstrumentedThreadPoolExecutor.class, "run-time", name, MILLISECONDS, SECONDS);
+    this.rejected = Metrics.newMeter(InstrumentedThreadPoolExecutor.class, "rejected", name, "jobs", SECONDS);
+
+    Metrics.newGauge(InstrumentedThreadPoolExecutor.class, "queue-depth", name, new Gauge<Integer>() {
+
+      @Override
+      public Integer value() {
+        return getQueue().size();
+      }
+
+    });
+    Metrics.newGauge(InstrumentedThreadPoolExecutor.class, "active-threads", name, new Gauge<Integer>() {
+
+      @Override
+      public Integer value() {
+        return getActiveCount();
+      }
+
+    });
+
+    setRejectedExecutionHandler(new RejectedExecutionHandler() {
+
+      @Override
+      public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        rejected.mark();
+        log.warn("Rejecting job in '{}' pool: {} running, {} queued.",
+            new Object[] { name, executor.getActiveCount(), executor.getQueue().size() });
+
+        throw new RejectedExecutionException("The '" + name + "' job pool is saturated");
+      }
+
+    });
+  }
+
+  @Override
+  protected void beforeExecute(Thread thread, Runnable runnable) {
+    super.beforeExecute(thread, runnable);
+    startTime.set(System.nanoTime());
+  }
+
+  @Override
+  protected void afterExecute(Runnable runnable, Throwable throwable) {
+    try {
+      runTime.update(System.nanoTime() - startTime.get(), NANOSECONDS);
+      startTime.remove();
+    } finally {
+      super.afterExecute(runnable, throwable);
+    }
+  }
+
+}
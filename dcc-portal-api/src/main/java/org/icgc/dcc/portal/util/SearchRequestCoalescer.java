@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.util;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static lombok.AccessLevel.PRIVATE;
+import static org.dcc.portal.pql.query.ActionFutures.execute;
+import static org.dcc.portal.pql.query.ActionFutures.join;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+
+import com.google.common.collect.Maps;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Meter;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+
+/**
+ * Executes Elasticsearch search requests so that concurrent identical requests share a single execution.
+ * <p>
+ * Requests are identical when they target the same indices, types, search type, routing and preference with the same
+ * serialized source. The first caller executes the request while the others wait for and receive the same
+ * {@link SearchResponse}, which must therefore be treated as read-only. Nothing is kept once the execution completes,
+ * so a response is never served to a request issued after it was received. Scroll requests are never shared.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class SearchRequestCoalescer {
+
+  /**
+   * State.
+   */
+  private static final ConcurrentMap<Key, CompletableFuture<SearchResponse>> IN_FLIGHT = Maps.newConcurrentMap();
+
+  /**
+   * Metrics.
+   */
+  private static final Meter EXECUTED =
+      Metrics.newMeter(SearchRequestCoalescer.class, "executed", "requests", SECONDS);
+  private static final Meter COALESCED =
+      Metrics.newMeter(SearchRequestCoalescer.class, "coalesced", "requests", SECONDS);
+
+  static {
+    Metrics.newGauge(SearchRequestCoalescer.class, "in-flight", new Gauge<Integer>() {
+
+      @Override
+      public Integer value() {
+        return IN_FLIGHT.size();
+      }
+
+    });
+  }
+
+  /**
+   * Executes {@code search}, or waits for an identical request that is already executing.
+   * 
+   * @return the response, possibly shared with other callers
+   */
+  public static SearchResponse coalesce(@NonNull SearchRequestBuilder search) {
+    return join(coalesceAsync(search));
+  }
+
+  /**
+   * Executes {@code search} without blocking, or joins an identical request that is already executing.
+   * 
+   * @return the pending response, possibly shared with other callers
+   */
+  public static CompletableFuture<SearchResponse> coalesceAsync(@NonNull SearchRequestBuilder search) {
+    val request = search.request();
+    if (request.scroll() != null) {
+      return execute(search);
+    }
+
+    val key = new Key(request.indices(), request.types(), request.searchType(), request.routing(),
+        request.preference(), search.toString());
+    val execution = new CompletableFuture<SearchResponse>();
+    val inFlight = IN_FLIGHT.putIfAbsent(key, execution);
+    if (inFlight != null) {
+      COALESCED.mark();
+      return inFlight;
+    }
+
+    EXECUTED.mark();
+    try {
+      execute(search).whenComplete((response, failure) -> {
+        // Stop sharing before completing so that later requests are never served a response received before them
+        IN_FLIGHT.remove(key, execution);
+
+        if (failure == null) {
+          execution.complete(response);
+        } else {
+          execution.completeExceptionally(failure);
+        }
+      });
+    } catch (RuntimeException e) {
+      IN_FLIGHT.remove(key, execution);
+      execution.completeExceptionally(e);
+    }
+
+    return execution;
+  }
+
+  @Value
+  private static class Key {
+
+    String[] indices;
+    String[] types;
+    SearchType searchType;
+    String routing;
+    String preference;
+    String source;
+
+  }
+
+}
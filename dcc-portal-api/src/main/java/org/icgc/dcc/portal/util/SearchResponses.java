@@ -19,13 +19,13 @@ package org.icgc.dcc.portal.util;
 
 import static lombok.AccessLevel.PRIVATE;
 
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 
 import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.icgc.dcc.portal.model.Query;
 
 import com.google.common.collect.Lists;
@@ -87,31 +87,32 @@ public final class SearchResponses {
     return counts;
   }
 
+  /**
+   * Name of the filter aggregation holding the count of the {@code j}th inner query of the {@code i}th outer query of
+   * a nested counts request.
+   */
+  public static String getNestedCountName(int i, int j) {
+    return "count-" + i + "-" + j;
+  }
+
   public static LinkedHashMap<String, LinkedHashMap<String, Long>> getNestedCounts(
       LinkedHashMap<String, LinkedHashMap<String, Query>> queries,
-      MultiSearchResponse sr) {
+      SearchResponse sr) {
     val counts = Maps.<String, LinkedHashMap<String, Long>> newLinkedHashMap();
 
-    val idSet = queries.keySet();
-    val firstId = idSet.iterator().next();
-    val subIdSet = queries.get(firstId).keySet();
+    int i = 0;
+    for (val entry : queries.entrySet()) {
+      val subCounts = Maps.<String, Long> newLinkedHashMap();
 
-    val ids = idSet.iterator();
-    Iterator<String> subIds = subIdSet.iterator();
-    LinkedHashMap<String, Long> subCounts = Maps.<String, Long> newLinkedHashMap();
-
-    for (val item : sr.getResponses()) {
-      SearchResponse r = item.getResponse();
-      if (!subIds.hasNext()) {
-        counts.put(ids.next(), subCounts);
-        subIds = subIdSet.iterator();
-        subCounts = Maps.<String, Long> newLinkedHashMap();
+      int j = 0;
+      for (val subId : entry.getValue().keySet()) {
+        Filter count = sr.getAggregations().get(getNestedCountName(i, j++));
+        subCounts.put(subId, count.getDocCount());
       }
-      subCounts.put(subIds.next(), r.getHits().getTotalHits());
-    }
 
-    // catch last set of subCounts
-    counts.put(ids.next(), subCounts);
+      counts.put(entry.getKey(), subCounts);
+      i++;
+    }
 
     return counts;
   }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.model.Universe.GO_BIOLOGICAL_PROCESS;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHits;
+import org.icgc.dcc.portal.config.PortalProperties.EnrichmentProperties;
+import org.icgc.dcc.portal.model.EnrichmentAnalysis.Result;
+import org.icgc.dcc.portal.model.FiltersParam;
+import org.icgc.dcc.portal.model.Query;
+import org.icgc.dcc.portal.repository.DonorRepository;
+import org.icgc.dcc.portal.repository.EnrichmentAnalysisRepository;
+import org.icgc.dcc.portal.repository.GeneRepository;
+import org.icgc.dcc.portal.repository.GeneSetRepository;
+import org.icgc.dcc.portal.repository.MutationRepository;
+import org.icgc.dcc.portal.repository.TermsLookupRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.val;
+
+/**
+ * Post-processing of {@link EnrichmentAnalyzer} against mocked repositories.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EnrichmentAnalyzerPostProcessingTest {
+
+  private static final int GENE_SET_COUNT = 7;
+  private static final UUID INPUT_GENE_LIST_ID = UUID.randomUUID();
+  private static final Query QUERY = Query.builder().filters(new FiltersParam("{}").get()).build();
+
+  @Mock
+  TermsLookupRepository termsLookupRepository;
+  @Mock
+  EnrichmentAnalysisRepository analysisRepository;
+  @Mock
+  GeneRepository geneRepository;
+  @Mock
+  GeneSetRepository geneSetRepository;
+  @Mock
+  DonorRepository donorRepository;
+  @Mock
+  MutationRepository mutationRepository;
+  @Mock
+  GeneSetMembership geneSetMembership;
+
+  ExecutorService executor = newFixedThreadPool(4);
+
+  /**
+   * Count search responses by gene set id. Counts depend on the gene set so that results mixed up between batches are
+   * detected.
+   */
+  Map<String, SearchResponse> donorCounts = Maps.newHashMap();
+  Map<String, SearchResponse> mutationCounts = Maps.newHashMap();
+
+  @Before
+  public void setUp() {
+    for (int i = 0; i < GENE_SET_COUNT; i++) {
+      donorCounts.put(geneSetId(i), countResponse(10 * i));
+      mutationCounts.put(geneSetId(i), countResponse(100 * i));
+    }
+
+    when(donorRepository.counts(any(LinkedHashMap.class)))
+        .then(invocation -> countsResponse(invocation.getArguments()[0], donorCounts));
+    when(mutationRepository.counts(any(LinkedHashMap.class)))
+        .then(invocation -> countsResponse(invocation.getArguments()[0], mutationCounts));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testBatchedResultsMatchSequentialResults() {
+    val sequential = createResults();
+    createAnalyzer(executor, GENE_SET_COUNT).postProcessGeneSetResults(QUERY, GO_BIOLOGICAL_PROCESS,
+        INPUT_GENE_LIST_ID, sequential);
+
+    val batched = createResults();
+    createAnalyzer(executor, 2).postProcessGeneSetResults(QUERY, GO_BIOLOGICAL_PROCESS, INPUT_GENE_LIST_ID, batched);
+
+    assertThat(batched).isEqualTo(sequential);
+    for (int i = 0; i < GENE_SET_COUNT; i++) {
+      val result = batched.get(i);
+      assertThat(result.getGeneSetId()).isEqualTo(geneSetId(i));
+      assertThat(result.getOverlapGeneSetGeneCount()).isEqualTo(i);
+      assertThat(result.getOverlapGeneSetDonorCount()).isEqualTo(10 * i);
+      assertThat(result.getOverlapGeneSetMutationCount()).isEqualTo(100 * i);
+    }
+  }
+
+  @Test
+  public void testRejectedBatchFailsPostProcessing() {
+    val submitted = Lists.<Future<?>> newArrayList();
+    val saturated = mock(ExecutorService.class);
+    when(saturated.submit(any(Runnable.class))).then(invocation -> {
+      if (submitted.size() == 2) {
+        throw new RejectedExecutionException("The 'enrichment-post-processing' job pool is saturated");
+      }
+
+      val future = executor.submit((Runnable) invocation.getArguments()[0]);
+      submitted.add(future);
+      return future;
+    });
+
+    try {
+      createAnalyzer(saturated, 2).postProcessGeneSetResults(QUERY, GO_BIOLOGICAL_PROCESS, INPUT_GENE_LIST_ID,
+          createResults());
+      throw new AssertionError("Expected the rejection of the second batch");
+    } catch (RejectedExecutionException e) {
+      // Expected
+    }
+
+    assertThat(submitted).hasSize(2);
+    for (val future : submitted) {
+      assertThat(future.isDone()).isTrue();
+    }
+  }
+
+  private EnrichmentAnalyzer createAnalyzer(ExecutorService postProcessingExecutor, int batchSize) {
+    val enrichment = new EnrichmentProperties();
+    enrichment.setPostProcessingBatchSize(batchSize);
+
+    return new EnrichmentAnalyzer(termsLookupRepository, analysisRepository, geneRepository, geneSetRepository,
+        donorRepository, mutationRepository, geneSetMembership, postProcessingExecutor, enrichment);
+  }
+
+  private static List<Result> createResults() {
+    val results = ImmutableList.<Result> builder();
+    for (int i = 0; i < GENE_SET_COUNT; i++) {
+      results.add(new Result().setGeneSetId(geneSetId(i)).setOverlapGeneSetGeneCount(i));
+    }
+
+    return results.build();
+  }
+
+  private static String geneSetId(int i) {
+    return "GS" + i;
+  }
+
+  private static MultiSearchResponse countsResponse(Object queries, Map<String, SearchResponse> counts) {
+    @SuppressWarnings("unchecked")
+    final Map<String, Query> overlapQueries = (Map<String, Query>) queries;
+    val items = Lists.<MultiSearchResponse.Item> newArrayList();
+    for (val overlapQuery : overlapQueries.entrySet()) {
+      val geneSetId = overlapQuery.getKey();
+      assertThat(overlapQuery.getValue().getFilters().toString()).contains("\"" + geneSetId + "\"");
+
+      items.add(new MultiSearchResponse.Item(counts.get(geneSetId), null));
+    }
+
+    return new MultiSearchResponse(items.toArray(new MultiSearchResponse.Item[items.size()]));
+  }
+
+  private static SearchResponse countResponse(long count) {
+    val hits = mock(SearchHits.class);
+    when(hits.getTotalHits()).thenReturn(count);
+    val response = mock(SearchResponse.class);
+    when(response.getHits()).thenReturn(hits);
+
+    return response;
+  }
+
+}
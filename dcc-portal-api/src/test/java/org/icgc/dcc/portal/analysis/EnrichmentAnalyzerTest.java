@@ -1,5 +1,6 @@
 package org.icgc.dcc.portal.analysis;
 
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.icgc.dcc.portal.model.EnrichmentAnalysis.State.PENDING;
 import static org.icgc.dcc.portal.model.EnrichmentParams.DEFAULT_FDR;
@@ -9,6 +10,7 @@ import static org.icgc.dcc.portal.test.JsonNodes.$;
 
 import java.util.UUID;
 
+import org.icgc.dcc.portal.config.PortalProperties.EnrichmentProperties;
 import org.icgc.dcc.portal.model.EnrichmentAnalysis;
 import org.icgc.dcc.portal.model.EnrichmentParams;
 import org.icgc.dcc.portal.model.Query;
@@ -62,7 +64,10 @@ public class EnrichmentAnalyzerTest extends AbstractSpringIntegrationTest {
         geneRepository,
         geneSetRepository,
         donorRepository,
-        mutationRepository);
+        mutationRepository,
+        new GeneSetMembership(geneRepository, geneSetRepository),
+        newFixedThreadPool(2),
+        new EnrichmentProperties());
   }
 
   @Test
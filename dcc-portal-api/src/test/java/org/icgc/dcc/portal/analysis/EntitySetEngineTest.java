@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.model.BaseEntitySet.Type.DONOR;
+import static org.icgc.dcc.portal.model.EntitySet.State.FINISHED;
+import static org.icgc.dcc.portal.model.EntitySet.State.IN_PROGRESS;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.icgc.dcc.portal.model.EntitySet;
+import org.icgc.dcc.portal.model.UnionUnit;
+import org.icgc.dcc.portal.repository.EntityListRepository;
+import org.icgc.dcc.portal.repository.TermsLookupRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntitySetEngineTest {
+
+  private static final UUID SET_A = UUID.randomUUID();
+  private static final UUID SET_B = UUID.randomUUID();
+  private static final UUID SET_C = UUID.randomUUID();
+
+  private static final Map<UUID, List<String>> SETS = ImmutableMap.of(
+      SET_A, ImmutableList.of("DO1", "DO2", "DO3", "DO4"),
+      SET_B, ImmutableList.of("DO3", "DO4", "DO5"),
+      SET_C, ImmutableList.of("DO4", "DO6"));
+
+  @Mock
+  TermsLookupRepository termsLookupRepository;
+  @Mock
+  EntityListRepository entityListRepository;
+
+  EntitySetEngine engine;
+
+  @Before
+  public void setUp() {
+    doAnswer(invocation -> {
+      UUID setId = (UUID) invocation.getArguments()[1];
+      @SuppressWarnings("unchecked")
+      Consumer<String> consumer = (Consumer<String>) invocation.getArguments()[2];
+      SETS.get(setId).forEach(consumer);
+
+      return null;
+    }).when(termsLookupRepository).scrollEntitySetIds(eq(DONOR), any(UUID.class), any());
+
+    val finished = createEntitySet(FINISHED);
+    when(entityListRepository.find(any(UUID.class))).thenReturn(finished);
+
+    engine = new EntitySetEngine(termsLookupRepository, entityListRepository);
+  }
+
+  @Test
+  public void testCount() {
+    // A & B - C
+    val definition = new UnionUnit(ImmutableSet.of(SET_A, SET_B), ImmutableSet.of(SET_C));
+
+    assertThat(engine.count(definition, DONOR)).isEqualTo(1);
+  }
+
+  @Test
+  public void testUnion() {
+    // (A - B) | (B & C) | (C - A - B)
+    val definitions = ImmutableList.of(
+        new UnionUnit(ImmutableSet.of(SET_A), ImmutableSet.of(SET_B)),
+        new UnionUnit(ImmutableSet.of(SET_B, SET_C), ImmutableSet.of()),
+        new UnionUnit(ImmutableSet.of(SET_C), ImmutableSet.of(SET_A, SET_B)));
+
+    val members = engine.union(definitions, DONOR);
+
+    assertThat(members.size()).isEqualTo(4);
+    assertThat(members.getIds()).containsOnly("DO1", "DO2", "DO4", "DO6");
+    assertThat(members.getIds(2)).hasSize(2);
+  }
+
+  @Test
+  public void testSetsAreMaterializedOnce() {
+    val definition = UnionUnit.noExclusionInstance(ImmutableSet.of(SET_A));
+
+    engine.count(definition, DONOR);
+    engine.count(definition, DONOR);
+    verify(termsLookupRepository, times(1)).scrollEntitySetIds(eq(DONOR), eq(SET_A), any());
+
+    engine.clearCache();
+    engine.count(definition, DONOR);
+    verify(termsLookupRepository, times(2)).scrollEntitySetIds(eq(DONOR), eq(SET_A), any());
+  }
+
+  @Test
+  public void testFinishedStateIsLookedUpOnce() {
+    val definition = UnionUnit.noExclusionInstance(ImmutableSet.of(SET_A));
+
+    engine.count(definition, DONOR);
+    engine.count(definition, DONOR);
+    engine.clearCache();
+    engine.count(definition, DONOR);
+    verify(entityListRepository, times(1)).find(SET_A);
+  }
+
+  @Test
+  public void testUnfinishedSetsAreNotCached() {
+    val inProgress = createEntitySet(IN_PROGRESS);
+    when(entityListRepository.find(SET_C)).thenReturn(inProgress);
+    val definition = UnionUnit.noExclusionInstance(ImmutableSet.of(SET_C));
+
+    engine.count(definition, DONOR);
+    engine.count(definition, DONOR);
+    verify(termsLookupRepository, times(2)).scrollEntitySetIds(eq(DONOR), eq(SET_C), any());
+  }
+
+  @Test
+  public void testEmptyIntersection() {
+    // The UnionUnit constructor rejects empty intersections but the engine must not rely on it
+    val definition = mock(UnionUnit.class);
+    when(definition.getIntersection()).thenReturn(ImmutableSet.of());
+    when(definition.getExclusions()).thenReturn(ImmutableSet.of(SET_A));
+
+    assertThat(engine.count(definition, DONOR)).isEqualTo(0);
+  }
+
+  private static EntitySet createEntitySet(EntitySet.State state) {
+    val entitySet = mock(EntitySet.class);
+    when(entitySet.getState()).thenReturn(state);
+
+    return entitySet;
+  }
+
+}
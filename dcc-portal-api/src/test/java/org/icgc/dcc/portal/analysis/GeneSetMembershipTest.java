@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.model.Universe.GO_BIOLOGICAL_PROCESS;
+import static org.icgc.dcc.portal.model.Universe.REACTOME_PATHWAYS;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.icgc.dcc.portal.repository.GeneRepository;
+import org.icgc.dcc.portal.repository.GeneSetRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GeneSetMembershipTest {
+
+  private static final String PATHWAY = REACTOME_PATHWAYS.getGeneSetFacetName();
+  private static final String BIOLOGICAL_PROCESS = GO_BIOLOGICAL_PROCESS.getGeneSetFacetName();
+
+  private static final Map<String, Map<String, List<Object>>> GENES = ImmutableMap.of(
+      "G1", ImmutableMap.of(PATHWAY, ImmutableList.of("R1", "R2"), BIOLOGICAL_PROCESS, ImmutableList.of("GO:1")),
+      "G2", ImmutableMap.of(PATHWAY, ImmutableList.of("R2")),
+      "G3", ImmutableMap.of(PATHWAY, ImmutableList.of("R2", "R3")),
+      "G4", ImmutableMap.of());
+
+  private static final Map<String, Integer> GENE_COUNTS = ImmutableMap.of("R1", 1, "R2", 3, "R3", 1, "GO:1", 1);
+
+  @Mock
+  GeneRepository geneRepository;
+  @Mock
+  GeneSetRepository geneSetRepository;
+
+  GeneSetMembership membership;
+
+  @Before
+  public void setUp() {
+    doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      BiConsumer<String, Map<String, List<Object>>> consumer =
+          (BiConsumer<String, Map<String, List<Object>>>) invocation.getArguments()[1];
+      GENES.forEach(consumer);
+
+      return null;
+    }).when(geneRepository).scrollGeneSetMemberships(anyListOf(String.class), any());
+
+    doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      BiConsumer<String, Integer> consumer = (BiConsumer<String, Integer>) invocation.getArguments()[0];
+      GENE_COUNTS.forEach(consumer);
+
+      return null;
+    }).when(geneSetRepository).scrollGeneCounts(any());
+
+    membership = new GeneSetMembership(geneRepository, geneSetRepository);
+  }
+
+  @Test
+  public void testCountOverlaps() {
+    val overlaps = membership.countOverlaps(REACTOME_PATHWAYS, ImmutableList.of("G1", "G3", "G4", "unknown"));
+
+    assertThat(overlaps).isEqualTo(ImmutableMap.of("R2", 2L, "R1", 1L, "R3", 1L));
+    assertThat(overlaps.keySet()).containsExactly("R2", "R1", "R3");
+  }
+
+  @Test
+  public void testCountOverlaps_universe() {
+    val overlaps = membership.countOverlaps(GO_BIOLOGICAL_PROCESS, ImmutableList.of("G1", "G2"));
+
+    assertThat(overlaps).isEqualTo(ImmutableMap.of("GO:1", 1L));
+  }
+
+  @Test
+  public void testCountGenes() {
+    val counts = membership.countGenes(ImmutableList.of("R2", "unknown", "R1"));
+
+    assertThat(counts.keySet()).containsExactly("R2", "R1");
+    assertThat(counts.get("R2")).isEqualTo(3);
+  }
+
+  @Test
+  public void testSnapshotIsLoadedOnce() {
+    membership.countGenes(ImmutableList.of("R1"));
+    membership.countOverlaps(REACTOME_PATHWAYS, ImmutableList.of("G1"));
+    verify(geneRepository, times(1)).scrollGeneSetMemberships(anyListOf(String.class), any());
+
+    // Reloaded eagerly rather than on the next use
+    membership.clearCache();
+    verify(geneRepository, times(2)).scrollGeneSetMemberships(anyListOf(String.class), any());
+
+    membership.countGenes(ImmutableList.of("R1"));
+    verify(geneRepository, times(2)).scrollGeneSetMemberships(anyListOf(String.class), any());
+  }
+
+}
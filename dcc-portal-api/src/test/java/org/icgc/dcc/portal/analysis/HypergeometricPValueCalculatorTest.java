@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.util.Random;
+
+import org.apache.commons.math3.distribution.HypergeometricDistribution;
+import org.junit.Test;
+
+import lombok.val;
+
+public class HypergeometricPValueCalculatorTest {
+
+  private static final int TRIALS = 2000;
+
+  @Test
+  public void testCalculateMatchesCumulativeProbability() {
+    val random = new Random(2851);
+    for (int i = 0; i < TRIALS; i++) {
+      val n = 1 + random.nextInt(20000); // universeGeneCount
+      val k = random.nextInt(Math.min(n, 1000) + 1); // overlapGeneCount
+      val m = random.nextInt(Math.min(n, 2000) + 1); // geneSetGeneCount
+      val q = random.nextInt(Math.min(k, m) + 2); // geneSetOverlapGeneCount
+
+      val expected = 1 - Math.min(1, new HypergeometricDistribution(n, m, k).cumulativeProbability(q - 1));
+      val actual = new HypergeometricPValueCalculator(n, k).calculate(q, m);
+
+      assertThat(actual).as("q = %s, k = %s, m = %s, n = %s", q, k, m, n).isCloseTo(expected, offset(1e-9));
+    }
+  }
+
+  @Test
+  public void testCalculateSmallPValues() {
+    val random = new Random(2856);
+    for (int i = 0; i < TRIALS; i++) {
+      val n = 5000 + random.nextInt(20000);
+      val k = 1 + random.nextInt(500);
+      val m = 5 + random.nextInt(500);
+      val q = Math.min(k, m) - random.nextInt(Math.min(k, m)) / 4;
+
+      // The upper tail is summed directly so tiny p-values keep their relative precision
+      val expected = new HypergeometricDistribution(n, m, k).upperCumulativeProbability(q);
+      val actual = new HypergeometricPValueCalculator(n, k).calculate(q, m);
+
+      assertThat(actual).as("q = %s, k = %s, m = %s, n = %s", q, k, m, n)
+          .isCloseTo(expected, offset(Math.max(expected * 1e-8, Double.MIN_VALUE)));
+    }
+  }
+
+  @Test
+  public void testCalculateReusesCalculator() {
+    val calculator = new HypergeometricPValueCalculator(7951, 5);
+
+    assertThat(calculator.calculate(1, 1)).isCloseTo(0.0006288517, offset(1e-9));
+    assertThat(calculator.calculate(4, 28)).isCloseTo(6.137557e-10, offset(1e-15));
+    assertThat(calculator.calculate(4, 33)).isCloseTo(1.225993e-09, offset(1e-15));
+    assertThat(calculator.calculate(2, 5)).isCloseTo(3.161646e-06, offset(1e-12));
+  }
+
+  @Test
+  public void testCalculateBounds() {
+    val calculator = new HypergeometricPValueCalculator(100, 10);
+
+    assertThat(calculator.calculate(0, 20)).isEqualTo(1.0);
+    assertThat(calculator.calculate(-1, 20)).isEqualTo(1.0);
+    assertThat(calculator.calculate(11, 20)).isEqualTo(0.0);
+    assertThat(calculator.calculate(6, 5)).isEqualTo(0.0);
+    assertThat(calculator.calculate(1, 0)).isEqualTo(0.0);
+    assertThat(new HypergeometricPValueCalculator(100, 0).calculate(1, 20)).isEqualTo(0.0);
+
+    // Every sample of 95 from 100 draws at least 5 of the 10 successes
+    assertThat(new HypergeometricPValueCalculator(100, 95).calculate(5, 10)).isEqualTo(1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCalculateInvalidGeneSetGeneCount() {
+    new HypergeometricPValueCalculator(100, 10).calculate(1, 101);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidOverlapGeneCount() {
+    new HypergeometricPValueCalculator(100, 101);
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.auth.oauth;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.icgc.dcc.portal.config.PortalProperties.OAuthProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.common.io.CharStreams;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Exercises {@link TokenValidator} against a stub OAuth server.
+ */
+public class TokenValidatorTest {
+
+  private static final String SCOPE = "portal.download";
+  private static final String VALID_TOKEN = "valid";
+  private static final String INVALID_TOKEN = "invalid";
+  private static final String FAILING_TOKEN = "failing";
+
+  /**
+   * Stub OAuth server.
+   */
+  HttpServer server;
+  final Map<String, String> checkTokenResponses = Maps.newConcurrentMap();
+  final AtomicInteger checkTokenRequests = new AtomicInteger();
+
+  final AtomicLong time = new AtomicLong();
+
+  TokenValidator validator;
+
+  @Before
+  @SneakyThrows
+  public void setUp() {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/oauth/check_token", exchange -> {
+      checkTokenRequests.incrementAndGet();
+      final String body = CharStreams.toString(new InputStreamReader(exchange.getRequestBody(), UTF_8));
+      final String token = URLDecoder.decode(body.replaceFirst("^token=", ""), UTF_8.name());
+
+      final String response;
+      final int status;
+      if (token.equals(FAILING_TOKEN)) {
+        status = 500;
+        response = "{}";
+      } else if (checkTokenResponses.containsKey(token)) {
+        status = 200;
+        response = checkTokenResponses.get(token);
+      } else {
+        status = 400;
+        response = "{\"error\":\"invalid_token\"}";
+      }
+
+      final byte[] bytes = response.getBytes(UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.start();
+
+    val config = new OAuthProperties();
+    config.setServiceUrl("http://localhost:" + server.getAddress().getPort());
+    config.setClientId("mgmt");
+    config.setClientSecret("pass");
+
+    validator = new TokenValidator(new OAuthClient(config), config, new Ticker() {
+
+      @Override
+      public long read() {
+        return time.get();
+      }
+
+    });
+
+    checkTokenResponses.put(VALID_TOKEN, checkTokenResponse(SCOPE, 3600));
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testValidTokenIsCached() {
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+    assertThat(validator.checkToken(VALID_TOKEN, "aws.upload")).isFalse();
+    assertThat(checkTokenRequests.get()).isEqualTo(1);
+
+    advance(301);
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testTokenExpiryIsHonored() {
+    checkTokenResponses.put(VALID_TOKEN, checkTokenResponse(SCOPE, 10));
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+
+    advance(11);
+    checkTokenResponses.remove(VALID_TOKEN);
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isFalse();
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testExpiringTokenIsCheckedOnce() {
+    checkTokenResponses.put(VALID_TOKEN, checkTokenResponse(SCOPE, 0));
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+    assertThat(checkTokenRequests.get()).isEqualTo(1);
+
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidTokenIsCachedBriefly() {
+    assertThat(validator.checkToken(INVALID_TOKEN, SCOPE)).isFalse();
+    assertThat(validator.checkToken(INVALID_TOKEN, SCOPE)).isFalse();
+    assertThat(checkTokenRequests.get()).isEqualTo(1);
+
+    advance(31);
+    checkTokenResponses.put(INVALID_TOKEN, checkTokenResponse(SCOPE, 3600));
+    assertThat(validator.checkToken(INVALID_TOKEN, SCOPE)).isTrue();
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testInvalidate() {
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isTrue();
+
+    validator.invalidate(VALID_TOKEN);
+    checkTokenResponses.remove(VALID_TOKEN);
+    assertThat(validator.checkToken(VALID_TOKEN, SCOPE)).isFalse();
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testServerErrorIsNotCached() {
+    int failures = 0;
+    for (int i = 0; i < 2; i++) {
+      try {
+        validator.checkToken(FAILING_TOKEN, SCOPE);
+      } catch (IllegalStateException e) {
+        failures++;
+      }
+    }
+
+    assertThat(failures).isEqualTo(2);
+    assertThat(checkTokenRequests.get()).isEqualTo(2);
+  }
+
+  private void advance(long seconds) {
+    time.addAndGet(SECONDS.toNanos(seconds));
+  }
+
+  private static String checkTokenResponse(String scope, long expiresIn) {
+    val expiration = SECONDS.convert(System.currentTimeMillis(), MILLISECONDS) + expiresIn;
+    return "{\"scope\":[\"" + scope + "\"],\"exp\":" + expiration + "}";
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.filter;
+
+import static com.github.tlrx.elasticsearch.test.EsSetup.createIndex;
+import static com.google.common.base.Strings.repeat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.HttpHeaders.ETAG;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.EntityTag;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
+import org.icgc.dcc.portal.test.TestIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.WebApplication;
+
+import lombok.val;
+
+public class CachingFilterTest extends BaseElasticSearchTest {
+
+  private static final String BODY = "{\"hits\":[{\"id\":\"DO1\"}]}";
+
+  private CachingFilter filter;
+
+  private ContainerResponse response;
+  private ContainerResponseWriter delegate;
+  private OutBoundHeaders headers;
+  private ByteArrayOutputStream output;
+
+  @Before
+  public void setUp() throws IOException {
+    this.testIndex = TestIndex.RELEASE;
+
+    es.execute(createIndex(testIndex.getName()));
+    es.client().prepareIndex(testIndex.getName(), "release", "1")
+        .setSource("date", "2016-05-20T12:00:00.000Z")
+        .setRefresh(true)
+        .execute()
+        .actionGet();
+
+    val cacheConfig = new CacheProperties();
+    cacheConfig.setEnableETag(true);
+    cacheConfig.setEtagMaxEntitySizeKB(1);
+    filter = new CachingFilter(es.client(), testIndex.getModel(), cacheConfig);
+
+    setUpResponse();
+  }
+
+  @Test
+  public void testEtagOnOk() throws IOException {
+    serve(request(null), BODY);
+
+    assertThat(headers.getFirst(ETAG)).isInstanceOf(EntityTag.class);
+    assertThat(new String(output.toByteArray(), UTF_8)).isEqualTo(BODY);
+    verify(delegate).writeStatusAndHeaders(BODY.length(), response);
+    verify(response, never()).setStatus(anyInt());
+  }
+
+  @Test
+  public void testNotModifiedOnIfNoneMatch() throws IOException {
+    serve(request(null), BODY);
+    val etag = (EntityTag) headers.getFirst(ETAG);
+
+    setUpResponse();
+    serve(request("\"" + etag.getValue() + "-gzip\""), BODY);
+
+    assertThat(headers.getFirst(ETAG)).isEqualTo(etag);
+    assertThat(output.size()).isZero();
+    verify(response).setStatus(NOT_MODIFIED.getStatusCode());
+    verify(delegate).writeStatusAndHeaders(-1, response);
+  }
+
+  @Test
+  public void testModifiedOnOtherIfNoneMatch() throws IOException {
+    serve(request("\"other-gzip\""), BODY);
+
+    assertThat(new String(output.toByteArray(), UTF_8)).isEqualTo(BODY);
+    verify(response, never()).setStatus(anyInt());
+  }
+
+  @Test
+  public void testLargeEntityIsStreamedWithoutEtag() throws IOException {
+    val body = repeat(BODY, 1000);
+    serve(request(null), body);
+
+    assertThat(headers).doesNotContainKey(ETAG);
+    assertThat(new String(output.toByteArray(), UTF_8)).isEqualTo(body);
+    verify(delegate).writeStatusAndHeaders(-1, response);
+  }
+
+  private void setUpResponse() throws IOException {
+    headers = new OutBoundHeaders();
+    output = new ByteArrayOutputStream();
+    delegate = mock(ContainerResponseWriter.class);
+    when(delegate.writeStatusAndHeaders(anyLong(), any(ContainerResponse.class))).thenReturn(output);
+    response = mock(ContainerResponse.class);
+    when(response.getHttpHeaders()).thenReturn(headers);
+    when(response.getContainerResponseWriter()).thenReturn(delegate);
+  }
+
+  private static ContainerRequest request(String ifNoneMatch) {
+    val headers = new InBoundHeaders();
+    if (ifNoneMatch != null) {
+      headers.add(IF_NONE_MATCH, ifNoneMatch);
+    }
+
+    return new ContainerRequest(mock(WebApplication.class), HttpMethod.GET, URI.create("http://localhost/"),
+        URI.create("http://localhost/v1/donors"), headers, null);
+  }
+
+  /**
+   * Runs {@code request} through both filters and writes {@code body} in small chunks with the resulting writer.
+   */
+  private void serve(ContainerRequest request, String body) throws IOException {
+    when(response.getEntity()).thenReturn(body);
+
+    final AtomicReference<ContainerResponseWriter> writer = new AtomicReference<>(delegate);
+    doAnswer(invocation -> {
+      writer.set((ContainerResponseWriter) invocation.getArguments()[0]);
+      return null;
+    }).when(response).setContainerResponseWriter(any(ContainerResponseWriter.class));
+
+    assertThat(filter.filter(request)).isSameAs(request);
+    assertThat(filter.filter(request, response)).isSameAs(response);
+
+    val bytes = body.getBytes(UTF_8);
+    val stream = writer.get().writeStatusAndHeaders(bytes.length, response);
+    for (int offset = 0; offset < bytes.length; offset += 100) {
+      stream.write(bytes, offset, Math.min(100, bytes.length - offset));
+    }
+    writer.get().finish();
+  }
+
+}
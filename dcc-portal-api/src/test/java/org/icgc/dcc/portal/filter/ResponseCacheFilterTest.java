@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.filter;
+
+import static com.github.tlrx.elasticsearch.test.EsSetup.createIndex;
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CACHE_CONTROL;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.HttpHeaders.DATE;
+import static com.google.common.net.HttpHeaders.SET_COOKIE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.Response;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.config.PortalProperties.CrowdProperties;
+import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
+import org.icgc.dcc.portal.service.ResponseCacheService;
+import org.icgc.dcc.portal.test.TestIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+import lombok.val;
+
+public class ResponseCacheFilterTest extends BaseElasticSearchTest {
+
+  private static final String BODY = "{\"hits\":[{\"id\":\"DO1\"}]}";
+
+  private ResponseCacheService responseCache;
+  private ResponseCacheFilter filter;
+
+  @Before
+  public void setUp() {
+    this.testIndex = TestIndex.RELEASE;
+
+    // The filter scopes its entries to the date of the release document
+    es.execute(createIndex(testIndex.getName()));
+    es.client().prepareIndex(testIndex.getName(), "release", "1")
+        .setSource("date", "2016-05-20T12:00:00.000Z")
+        .setRefresh(true)
+        .execute()
+        .actionGet();
+
+    val cacheConfig = new CacheProperties();
+    cacheConfig.setEnableResponseCache(true);
+    cacheConfig.setExcludeResponseCache(ImmutableList.of(
+        "^v\\d+/analysis.*$",
+        "^v\\d+/entityset.*$",
+        "^v\\d+/repository/files.*$"));
+
+    responseCache = new ResponseCacheService(cacheConfig);
+    filter = new ResponseCacheFilter(es.client(), testIndex.getModel(), cacheConfig, responseCache);
+  }
+
+  @Test
+  public void testMissIsStored() throws IOException {
+    val output = serve(request("v1/donors", "size=10"), OK.getStatusCode());
+
+    assertThat(new String(output.toByteArray(), UTF_8)).isEqualTo(BODY);
+    assertThat(responseCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testHitReplaysStatusHeadersAndBody() throws IOException {
+    serve(request("v1/donors", "size=10"), OK.getStatusCode());
+
+    val request = request("v1/donors", "size=10");
+    val cached = hit(request);
+    assertThat(cached.getStatus()).isEqualTo(OK.getStatusCode());
+    assertThat(new String((byte[]) cached.getEntity(), UTF_8)).isEqualTo(BODY);
+    assertThat(cached.getMetadata().getFirst(CONTENT_TYPE)).hasToString(APPLICATION_JSON);
+
+    val response = mock(ContainerResponse.class);
+    val headers = new OutBoundHeaders();
+    headers.putSingle(CONTENT_TYPE, APPLICATION_JSON_TYPE);
+    when(response.getHttpHeaders()).thenReturn(headers);
+
+    assertThat(filter.filter(request, response)).isSameAs(response);
+    assertThat(headers.get(CONTENT_TYPE)).containsExactly(APPLICATION_JSON);
+    assertThat(headers.get(CACHE_CONTROL)).containsExactly("max-age=60");
+    assertThat(headers).doesNotContainKey(SET_COOKIE).doesNotContainKey(DATE);
+  }
+
+  @Test
+  public void testErrorIsNotStored() throws IOException {
+    serve(request("v1/donors/DO0", ""), NOT_FOUND.getStatusCode());
+
+    assertThat(responseCache.size()).isZero();
+
+    val request = request("v1/donors/DO0", "");
+    assertThat(filter.filter(request)).isSameAs(request);
+  }
+
+  @Test
+  public void testQueryParametersAreNormalized() throws IOException {
+    serve(request("v1/donors", "size=10&from=1&include=b&include=a"), OK.getStatusCode());
+
+    hit(request("v1/donors", "include=a&from=1&size=10&include=b"));
+  }
+
+  @Test
+  public void testAcceptIsPartOfKey() throws IOException {
+    serve(request("v1/donors", "size=10"), OK.getStatusCode());
+
+    val request = request("v1/donors", "size=10");
+    when(request.getHeaderValue(ACCEPT)).thenReturn("text/tsv");
+
+    assertThat(filter.filter(request)).isSameAs(request);
+  }
+
+  @Test
+  public void testAuthorizationBypassesCache() throws IOException {
+    val request = request("v1/donors", "size=10");
+    when(request.getRequestHeader(AUTHORIZATION)).thenReturn(ImmutableList.of("Bearer token"));
+
+    assertBypassed(request);
+  }
+
+  @Test
+  public void testSessionCookieBypassesCache() throws IOException {
+    val sessionToken = CrowdProperties.SESSION_TOKEN_NAME;
+    val request = request("v1/donors", "size=10");
+    when(request.getCookies()).thenReturn(ImmutableMap.of(sessionToken, new Cookie(sessionToken, "token")));
+
+    assertBypassed(request);
+  }
+
+  @Test
+  public void testExcludedPathsBypassCache() throws IOException {
+    assertBypassed(request("v1/repository/files", "size=10"));
+    assertBypassed(request("v1/entityset/6f1e52e9-4c87-4fd9-b8c7-2bb3f5d0f0a4", ""));
+    assertBypassed(request("v1/analysis/enrichment/6f1e52e9-4c87-4fd9-b8c7-2bb3f5d0f0a4", ""));
+  }
+
+  @Test
+  public void testPostBypassesCache() throws IOException {
+    val request = request("v1/donors", "size=10");
+    when(request.getMethod()).thenReturn(HttpMethod.POST);
+
+    assertBypassed(request);
+  }
+
+  private void assertBypassed(ContainerRequest request) throws IOException {
+    serve(request, OK.getStatusCode());
+    assertThat(responseCache.size()).isZero();
+
+    // The same request must never be served from the cache either
+    assertThat(filter.filter(request)).isSameAs(request);
+  }
+
+  private static ContainerRequest request(String path, String query) {
+    val parameters = new MultivaluedMapImpl();
+    for (val parameter : query.split("&")) {
+      if (!parameter.isEmpty()) {
+        val pair = parameter.split("=");
+        parameters.add(pair[0], pair[1]);
+      }
+    }
+
+    val request = mock(ContainerRequest.class);
+    when(request.getMethod()).thenReturn(HttpMethod.GET);
+    when(request.getPath()).thenReturn(path);
+    when(request.getQueryParameters()).thenReturn(parameters);
+    when(request.getCookies()).thenReturn(ImmutableMap.<String, Cookie> of());
+    when(request.getHeaderValue(ACCEPT)).thenReturn(APPLICATION_JSON);
+    when(request.getProperties()).thenReturn(Maps.<String, Object> newHashMap());
+
+    return request;
+  }
+
+  /**
+   * Runs {@code request} through both filters and writes {@link #BODY} with the resulting writer.
+   */
+  private ByteArrayOutputStream serve(ContainerRequest request, int status) throws IOException {
+    assertThat(filter.filter(request)).isSameAs(request);
+
+    val headers = new OutBoundHeaders();
+    headers.putSingle(CONTENT_TYPE, APPLICATION_JSON_TYPE);
+    headers.putSingle(CACHE_CONTROL, "max-age=60");
+    headers.putSingle(SET_COOKIE, "tracking=1");
+    headers.putSingle(DATE, "Fri, 20 May 2016 12:00:00 GMT");
+
+    val output = new ByteArrayOutputStream();
+    val response = mock(ContainerResponse.class);
+    val delegate = mock(ContainerResponseWriter.class);
+    when(delegate.writeStatusAndHeaders(anyLong(), any(ContainerResponse.class))).thenReturn(output);
+    when(response.getStatus()).thenReturn(status);
+    when(response.getEntity()).thenReturn(BODY);
+    when(response.getHttpHeaders()).thenReturn(headers);
+    when(response.getContainerResponseWriter()).thenReturn(delegate);
+
+    // A cacheable response replaces the writer of the container
+    final AtomicReference<ContainerResponseWriter> writer = new AtomicReference<>(delegate);
+    doAnswer(invocation -> {
+      writer.set((ContainerResponseWriter) invocation.getArguments()[0]);
+      return null;
+    }).when(response).setContainerResponseWriter(any(ContainerResponseWriter.class));
+
+    filter.filter(request, response);
+
+    val body = BODY.getBytes(UTF_8);
+    writer.get().writeStatusAndHeaders(body.length, response).write(body);
+    writer.get().finish();
+
+    return output;
+  }
+
+  private Response hit(ContainerRequest request) {
+    try {
+      filter.filter(request);
+      fail("Expected a cached response");
+
+      return null;
+    } catch (WebApplicationException e) {
+      return e.getResponse();
+    }
+  }
+
+}
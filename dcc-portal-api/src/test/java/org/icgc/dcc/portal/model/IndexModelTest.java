@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.model;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import lombok.SneakyThrows;
+import lombok.val;
+
+public class IndexModelTest {
+
+  private static final String SERVED_INDEX = "served-release";
+  private static final String PINNED_INDEX = "pinned-release";
+
+  IndexModel indexModel = new IndexModel(SERVED_INDEX, "repository");
+
+  @Test
+  public void testWithIndexPinsCurrentThreadOnly() {
+    val indices = indexModel.withIndex(PINNED_INDEX, () -> new String[] { indexModel.getIndex(), servedIndex() });
+
+    assertThat(indices).containsExactly(PINNED_INDEX, SERVED_INDEX);
+    assertThat(indexModel.getIndex()).isEqualTo(SERVED_INDEX);
+  }
+
+  @Test
+  public void testWithIndexUnpinsOnFailure() {
+    try {
+      indexModel.withIndex(PINNED_INDEX, () -> {
+        throw new IllegalStateException("Warm up failed");
+      });
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+
+    assertThat(indexModel.getIndex()).isEqualTo(SERVED_INDEX);
+  }
+
+  @Test
+  public void testSetIndexWhilePinned() {
+    val pinned = indexModel.withIndex(PINNED_INDEX, () -> {
+      indexModel.setIndex("next-release");
+
+      return indexModel.getIndex();
+    });
+
+    assertThat(pinned).isEqualTo(PINNED_INDEX);
+    assertThat(indexModel.getIndex()).isEqualTo("next-release");
+  }
+
+  /**
+   * @return the index seen by another thread
+   */
+  @SneakyThrows
+  private String servedIndex() {
+    val executor = newSingleThreadExecutor();
+    try {
+      return executor.submit(indexModel::getIndex).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -20,6 +20,7 @@ package org.icgc.dcc.portal.pql.convert;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.dcc.portal.pql.query.PqlParser.parse;
 
 import org.dcc.portal.pql.meta.Type;
 import org.icgc.dcc.portal.model.FiltersParam;
@@ -168,6 +169,41 @@ public class Jql2PqlConverterTest {
     assertCountQueryResponse(query, "count(),facets(*),ne(donor.id,1)");
   }
 
+  @Test
+  public void convertToAstTest() {
+    val query = Query.builder()
+        .fields(ImmutableList.of("id", "age"))
+        .includes(ImmutableList.of("facets", "specimen"))
+        .filters(new FiltersParam("{donor:{id:{is:['DO1','ES:abc']},ageAtDiagnosis:{is:['_missing',45]}},"
+            + "gene:{type:{all:['protein_coding','lincRNA']}},"
+            + "mutation:{consequenceType:{not:['missense']},platform:{is:'Illumina'}}}").get())
+        .sort("id")
+        .order("desc")
+        .size(10)
+        .from(5)
+        .build();
+
+    for (val type : ImmutableList.of(Type.DONOR_CENTRIC, Type.GENE_CENTRIC, Type.MUTATION_CENTRIC)) {
+      val expected = parse(CONVERTER.convert(query, type));
+      assertThat(CONVERTER.convertToAst(query, type).toString()).isEqualTo(expected.toString());
+    }
+  }
+
+  @Test
+  public void convertCountToAstTest() {
+    val query = Query.builder()
+        .filters(new FiltersParam("{donor:{gender:{not:'male'}},gene:{id:{is:['ENSG1','ENSG2']}}}").get())
+        .includes(singletonList("facets"))
+        .build();
+
+    val expected = parse(CONVERTER.convert(query, Type.DONOR_CENTRIC));
+    val result = CONVERTER.convertCountToAst(query, Type.DONOR_CENTRIC);
+
+    assertThat(result.isCount()).isTrue();
+    assertThat(result.getFilters().toString()).isEqualTo(expected.getFilters().toString());
+    assertThat(result.getFacets().toString()).isEqualTo(expected.getFacets().toString());
+  }
+
   private void assertResponse(Query query, String exectedResult) {
     val result = CONVERTER.convert(query, Type.DONOR_CENTRIC);
     log.debug("{}", result);
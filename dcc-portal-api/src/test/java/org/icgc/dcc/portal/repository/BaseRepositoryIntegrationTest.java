@@ -18,6 +18,7 @@
 package org.icgc.dcc.portal.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.util.SearchResponses.getNestedCounts;
 
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -30,7 +31,6 @@ import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
-import org.elasticsearch.search.aggregations.bucket.terms.Terms.Bucket;
 import org.icgc.dcc.portal.model.FiltersParam;
 import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.IndexModel.Kind;
@@ -230,36 +230,28 @@ public class BaseRepositoryIntegrationTest {
       val queries = generateAggsQueries(filter, response, sort, kind);
 
       // Execute MultiSearch Request for all Entry values for Facet
-      val csr = repo.nestedCounts(queries);
+      val counts = getNestedCounts(queries, repo.nestedCounts(queries));
 
-      verifyAggregationCounts(response, csr);
+      verifyAggregationCounts(response, counts);
     }
   }
 
-  void verifyAggregationCounts(SearchResponse r, MultiSearchResponse csr) {
+  void verifyAggregationCounts(SearchResponse r, LinkedHashMap<String, LinkedHashMap<String, Long>> counts) {
     // Compare entry count to count response;
-    val aggsIter = r.getAggregations().iterator();
-    Terms aggs = (Terms) aggsIter.next();
-    Iterator<Bucket> entryIter = aggs.getBuckets().iterator();
-
-    for (val countResponse : csr.getResponses()) {
-      val cr = countResponse.getResponse();
-
-      while (!entryIter.hasNext()) {
-        aggs = (Terms) aggsIter.next();
-        entryIter = aggs.getBuckets().iterator();
-      }
-
-      val entry = entryIter.next();
-
-      // Needed for Mutation Repo test - these facet are known to fail
-      if (!aggs.getName().endsWith("Nested") &&
-          !Lists.newArrayList(
-              "consequenceType",
-              "functionalImpact",
-              "platform",
-              "verificationStatus").contains(aggs.getName())) {
-        assertAggregation(aggs.getName(), entry, cr.getHits().getTotalHits());
+    for (val agg : r.getAggregations()) {
+      val aggs = (Terms) agg;
+      val entryCounts = counts.get(aggs.getName());
+
+      for (val entry : aggs.getBuckets()) {
+        // Needed for Mutation Repo test - these facet are known to fail
+        if (!aggs.getName().endsWith("Nested") &&
+            !Lists.newArrayList(
+                "consequenceType",
+                "functionalImpact",
+                "platform",
+                "verificationStatus").contains(aggs.getName())) {
+          assertAggregation(aggs.getName(), entry, entryCounts.get(entry.getKey()));
+        }
       }
     }
   }
@@ -324,31 +316,19 @@ public class BaseRepositoryIntegrationTest {
   protected void nestedCounts(Repository repo, List<String> ids, List<String> subIds, String filterTemplate,
       String sort) {
     val queries = generateNestedCountsQueries(ids, subIds, filterTemplate, sort);
-    val sr = repo.nestedCounts(queries);
+    val counts = getNestedCounts(queries, repo.nestedCounts(queries));
 
-    val idSet = queries.keySet();
-    val firstId = idSet.iterator().next();
-    val subIdSet = (queries.get(firstId)).keySet();
-    val idIter = idSet.iterator();
+    for (val id : ids) {
+      for (val subId : subIds) {
+        val nestedCount = counts.get(id).get(subId);
+        assertThat(nestedCount).isNotEqualTo(0L);
 
-    Iterator<String> subIdIter = subIdSet.iterator();
-    String id = idIter.next();
+        val filter = new FiltersParam(String.format(filterTemplate, subId, id));
+        long count = repo.count(query(sort).filters(filter.get()).build());
 
-    for (val r : sr.getResponses()) {
-      val response = r.getResponse();
-      checkEmpty(response);
-
-      while (!subIdIter.hasNext()) {
-        id = idIter.next();
-        subIdIter = subIdSet.iterator();
+        assertCount(id, nestedCount, count);
       }
-      val filter = new FiltersParam(String.format(filterTemplate, subIdIter.next(), id));
-
-      long count = repo.count(query(sort).filters(filter.get()).build());
-
-      assertCount(id, response.getHits().getTotalHits(), count);
     }
-
   }
 
   LinkedHashMap<String, LinkedHashMap<String, Query>> generateNestedCountsQueries(List<String> ids,
@@ -44,7 +44,7 @@ public class DiagramRepositoryTest extends BaseElasticSearchTest {
         createIndexMapping(Type.DIAGRAM)
             .withData(bulkFile(getClass())));
     diagramRepository =
-        new DiagramRepository(es.client(), testIndex.getName(), new QueryEngine(es.client(), testIndex.getName()));
+        new DiagramRepository(es.client(), testIndex.getModel(), new QueryEngine(es.client(), testIndex.getName()));
   }
 
   @Test
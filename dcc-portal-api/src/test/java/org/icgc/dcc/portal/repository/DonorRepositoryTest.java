@@ -320,8 +320,7 @@ public class DonorRepositoryTest extends BaseElasticSearchTest {
 
   private void setUpTermsLookup(final UUID id1, final UUID id2) {
     val termsLookupRepository =
-        new TermsLookupRepository(es.client(), TestIndex.RELEASE.getName(), TestIndex.REPOSITORY.getName(),
-            new PortalProperties());
+        new TermsLookupRepository(es.client(), TestIndex.RELEASE.getModel(), new PortalProperties());
     val lookupType = TermLookupType.DONOR_IDS;
 
     val donorSet1 = newArrayList("DO1", "DO3", "DO5", "DO7", "DO9");
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.repository.RepositoryFileRepository.EXACT_REPO_DONOR_COUNTS;
+import static org.icgc.dcc.portal.util.JsonUtils.merge;
+
+import org.icgc.dcc.portal.model.FiltersParam;
+import org.icgc.dcc.portal.model.IndexModel.Type;
+import org.icgc.dcc.portal.model.Query;
+import org.icgc.dcc.portal.model.TermFacet.Term;
+import org.icgc.dcc.portal.service.IndexService;
+import org.icgc.dcc.portal.test.TestIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+
+import lombok.val;
+
+public class RepositoryFileRepositoryTest extends BaseElasticSearchTest {
+
+  private static final String HEIDELBERG = "PCAWG - Heidelberg";
+  private static final String TORONTO = "Collaboratory - Toronto";
+  private static final String REPO_NAME_FACET = "repositoryNamesFiltered";
+  private static final String REPO_DONOR_COUNT_FACET = "repositoryDonors";
+
+  RepositoryFileRepository repository;
+
+  @Before
+  public void setUp() {
+    this.testIndex = TestIndex.REPOSITORY;
+    es.execute(createIndexMapping(Type.REPOSITORY_FILE_CENTRIC)
+        .withData(bulkFile(getClass())));
+
+    repository = new RepositoryFileRepository(es.client(), testIndex.getName(), new IndexService(es.client()));
+  }
+
+  @Test
+  public void testRepoDonorCountsIgnoreRepoNameFilter() {
+    val filters = repoNameFilter(HEIDELBERG);
+    val query = Query.builder().from(1).size(10).sort("id").order("desc").filters(filters)
+        .includes(ImmutableList.of(EXACT_REPO_DONOR_COUNTS))
+        .build();
+
+    val facets = repository.convertAggregationsToFacets(repository.findAll(query).getAggregations());
+    val repoDonorCounts = facets.get(REPO_DONOR_COUNT_FACET).getTerms();
+
+    assertThat(repoDonorCounts).extracting("term").containsExactly(
+        facets.get(REPO_NAME_FACET).getTerms().stream()
+            .map(Term::getTerm).toArray());
+    assertThat(repoDonorCounts).extracting("term").containsOnly(HEIDELBERG, TORONTO);
+
+    // Must agree with the per repository donor count of the repository selected on its own
+    for (val repoDonorCount : repoDonorCounts) {
+      val repoQuery = Query.builder().filters(merge(filters, repoNameFilter(repoDonorCount.getTerm()))).build();
+
+      assertThat(repoDonorCount.getCount()).isEqualTo(repository.getDonorCount(repoQuery));
+    }
+  }
+
+  private static ObjectNode repoNameFilter(String repoName) {
+    return new FiltersParam("{file:{repoName:{is:[\"" + repoName + "\"]}}}").get();
+  }
+
+}
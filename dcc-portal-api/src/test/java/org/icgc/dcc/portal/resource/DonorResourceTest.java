@@ -17,6 +17,7 @@
 
 package org.icgc.dcc.portal.resource;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.COUNT_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.COUNT_MAP_RESULT;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.DONOR;
@@ -25,6 +26,7 @@ import static org.icgc.dcc.portal.resource.ResourceTestUtils.GENES;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.MUTATIONS;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.NESTED_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.NESTED_MAP_RESULT;
+import static org.icgc.dcc.portal.resource.ResourceTestUtils.TOTAL_COUNT_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.anyCountQuery;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.anyNestedCountQuery;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.assertEntityEquals;
@@ -133,7 +135,7 @@ public class DonorResourceTest extends ResourceTest {
   @Test
   public void test_countsGenes() throws IOException {
     when(geneService.counts(anyCountQuery())).thenReturn(COUNT_MAP_REQUEST);
-    when(geneService.count(any(Query.class))).thenReturn(2L);
+    when(geneService.countAsync(any(Query.class))).thenReturn(completedFuture(2L));
 
     val response = resource("A,B/genes/counts");
 
@@ -153,7 +155,7 @@ public class DonorResourceTest extends ResourceTest {
   @Test
   public void test_countsGeneMutations() throws IOException {
     when(mutationService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(mutationService.count(any(Query.class))).thenReturn(2L);
+    when(mutationService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/genes/AA,BB/mutations/counts");
 
@@ -183,7 +185,7 @@ public class DonorResourceTest extends ResourceTest {
   @Test
   public void test_countsMutations() throws IOException {
     when(mutationService.counts(anyCountQuery())).thenReturn(COUNT_MAP_REQUEST);
-    when(mutationService.count(any(Query.class))).thenReturn(2L);
+    when(mutationService.countAsync(any(Query.class))).thenReturn(completedFuture(2L));
 
     val response = resource("A,B/mutations/counts");
 
@@ -203,7 +205,7 @@ public class DonorResourceTest extends ResourceTest {
   @Test
   public void test_countsMutationGenes() throws IOException {
     when(geneService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(geneService.count(any(Query.class))).thenReturn(2L);
+    when(geneService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/mutations/AA,BB/genes/counts");
 
@@ -48,7 +48,7 @@ import org.icgc.dcc.downloader.core.ArchiveJobManager.JobStatus;
 import org.icgc.dcc.downloader.core.DataType;
 import org.icgc.dcc.portal.auth.UserAuthProvider;
 import org.icgc.dcc.portal.auth.UserAuthenticator;
-import org.icgc.dcc.portal.auth.oauth.OAuthClient;
+import org.icgc.dcc.portal.auth.oauth.TokenValidator;
 import org.icgc.dcc.portal.config.PortalProperties.CrowdProperties;
 import org.icgc.dcc.portal.mapper.BadRequestExceptionMapper;
 import org.icgc.dcc.portal.model.User;
@@ -84,7 +84,7 @@ public class DownloadResourceTest extends ResourceTest {
   @Mock
   private DownloaderClient downloader;
   @Mock
-  private OAuthClient oauthClient;
+  private TokenValidator tokenValidator;
   @Mock
   private ExportedDataFileSystem fs;
 
@@ -101,7 +101,7 @@ public class DownloadResourceTest extends ResourceTest {
   protected final void setUpResources() {
     addResource(new DownloadResource(donorService, downloader, fs, Stage.PRODUCTION));
     addProvider(BadRequestExceptionMapper.class);
-    addProvider(new UserAuthProvider(new UserAuthenticator(sessionService, oauthClient), "openid"));
+    addProvider(new UserAuthProvider(new UserAuthenticator(sessionService, tokenValidator), "openid"));
   }
 
   @Test
@@ -17,6 +17,7 @@
 
 package org.icgc.dcc.portal.resource;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.COUNT_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.COUNT_MAP_RESULT;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.DONORS;
@@ -26,6 +27,7 @@ import static org.icgc.dcc.portal.resource.ResourceTestUtils.NESTED_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.NESTED_MAP_RESULT;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.PROJECT;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.PROJECTS;
+import static org.icgc.dcc.portal.resource.ResourceTestUtils.TOTAL_COUNT_MAP_REQUEST;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.anyCountQuery;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.anyNestedCountQuery;
 import static org.icgc.dcc.portal.resource.ResourceTestUtils.assertEntityEquals;
@@ -139,7 +141,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsDonors() throws IOException {
     when(donorService.counts(anyCountQuery())).thenReturn(COUNT_MAP_REQUEST);
-    when(donorService.count(any(Query.class))).thenReturn(2L);
+    when(donorService.countAsync(any(Query.class))).thenReturn(completedFuture(2L));
 
     val response = resource("A,B/donors/counts");
 
@@ -160,7 +162,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsDonorGenes() throws IOException {
     when(geneService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(geneService.count(any(Query.class))).thenReturn(2L);
+    when(geneService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/donors/AA,BB/genes/counts");
 
@@ -180,7 +182,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsDonorMutations() throws IOException {
     when(mutationService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(mutationService.count(any(Query.class))).thenReturn(2L);
+    when(mutationService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/donors/AA,BB/mutations/counts");
 
@@ -210,7 +212,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsGenes() throws IOException {
     when(geneService.counts(anyCountQuery())).thenReturn(COUNT_MAP_REQUEST);
-    when(geneService.count(any(Query.class))).thenReturn(2L);
+    when(geneService.countAsync(any(Query.class))).thenReturn(completedFuture(2L));
 
     val response = resource("A,B/genes/counts");
 
@@ -229,7 +231,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsGeneMutations() throws IOException {
     when(mutationService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(mutationService.count(any(Query.class))).thenReturn(2L);
+    when(mutationService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
     val response = resource("A,B/genes/AA,BB/mutations/counts");
 
     assertOK(response);
@@ -247,7 +249,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsGeneDonors() throws IOException {
     when(donorService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(donorService.count(any(Query.class))).thenReturn(2L);
+    when(donorService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
     val response = resource("A,B/genes/AA,BB/donors/counts");
 
     assertOK(response);
@@ -274,7 +276,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsMutations() throws IOException {
     when(mutationService.counts(anyCountQuery())).thenReturn(COUNT_MAP_REQUEST);
-    when(mutationService.count(any(Query.class))).thenReturn(2L);
+    when(mutationService.countAsync(any(Query.class))).thenReturn(completedFuture(2L));
 
     val response = resource("A,B/mutations/counts");
 
@@ -294,7 +296,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsMutationDonors() throws IOException {
     when(donorService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(donorService.count(any(Query.class))).thenReturn(2L);
+    when(donorService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/mutations/AA,BB/donors/counts");
 
@@ -314,7 +316,7 @@ public class ProjectResourceTest extends ResourceTest {
   @Test
   public void test_countsMutationGenes() throws IOException {
     when(geneService.nestedCounts(anyNestedCountQuery())).thenReturn(NESTED_MAP_REQUEST);
-    when(geneService.count(any(Query.class))).thenReturn(2L);
+    when(geneService.countsAsync(anyCountQuery())).thenReturn(completedFuture(TOTAL_COUNT_MAP_REQUEST));
 
     val response = resource("A,B/mutations/AA,BB/genes/counts");
 
@@ -29,9 +29,12 @@ public class ResourceTestUtils {
 
   static final LinkedHashMap<String, Long> COUNT_MAP_REQUEST = Maps.newLinkedHashMap();
   static final LinkedHashMap<String, LinkedHashMap<String, Long>> NESTED_MAP_REQUEST = Maps.newLinkedHashMap();
+  static final LinkedHashMap<String, Long> TOTAL_COUNT_MAP_REQUEST = Maps.newLinkedHashMap();
   static {
     COUNT_MAP_REQUEST.put("A", 1L);
     COUNT_MAP_REQUEST.put("B", 1L);
+    TOTAL_COUNT_MAP_REQUEST.put("A", 2L);
+    TOTAL_COUNT_MAP_REQUEST.put("B", 2L);
     NESTED_MAP_REQUEST.put("A", Maps.<String, Long> newLinkedHashMap());
     NESTED_MAP_REQUEST.put("B", Maps.<String, Long> newLinkedHashMap());
     NESTED_MAP_REQUEST.get("A").put("AA", 1L);
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.repository.MutationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BeaconIndexTest {
+
+  private static final List<Map<String, List<Object>>> MUTATIONS = ImmutableList.of(
+      mutation("19", 1207014, 1207014, "C>T", "P1"),
+      mutation("19", 1000, 1001, "AG>TC", "P1", "P2"),
+      mutation("19", 2000, 2000, "->AC", "P2"),
+      mutation("X", 1207014, 1207014, "G>A"));
+
+  @Mock
+  MutationRepository mutationRepository;
+
+  @Before
+  public void setUp() {
+    doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      Consumer<Map<String, List<Object>>> consumer =
+          (Consumer<Map<String, List<Object>>>) invocation.getArguments()[1];
+      MUTATIONS.forEach(consumer);
+
+      return null;
+    }).when(mutationRepository).scrollMutations(anyListOf(String.class), any());
+  }
+
+  @Test
+  public void testSubstitution() {
+    BeaconIndex index = createIndex(true);
+
+    assertThat(index.query("19", 1207014, "T", "")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("19", 1207014, "C", "")).isEqualTo(Optional.of("false"));
+    assertThat(index.query("X", 1207014, "A", "")).isEqualTo(Optional.of("true"));
+  }
+
+  @Test
+  public void testMultipleBaseSubstitution() {
+    BeaconIndex index = createIndex(true);
+
+    assertThat(index.query("19", 1000, "TC", "")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("19", 1001, "C", "")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("19", 1001, "T", "")).isEqualTo(Optional.of("false"));
+  }
+
+  @Test
+  public void testInsertion() {
+    BeaconIndex index = createIndex(true);
+
+    assertThat(index.query("19", 2000, "->AC", "")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("19", 2000, "->GG", "")).isEqualTo(Optional.of("false"));
+  }
+
+  @Test
+  public void testNothingFound() {
+    BeaconIndex index = createIndex(true);
+
+    assertThat(index.query("11", 11111, "T", "")).isEqualTo(Optional.of("null"));
+    assertThat(index.query("19", 11111, "T", "")).isEqualTo(Optional.of("null"));
+    assertThat(index.query("19", 1207016, "T", "")).isEqualTo(Optional.of("null"));
+  }
+
+  @Test
+  public void testSpecificDataset() {
+    BeaconIndex index = createIndex(true);
+
+    assertThat(index.query("19", 1207014, "T", "P1")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("19", 1207014, "T", "P2")).isEqualTo(Optional.of("null"));
+    assertThat(index.query("19", 1001, "C", "P2")).isEqualTo(Optional.of("true"));
+    assertThat(index.query("X", 1207014, "A", "MADE-UP")).isEqualTo(Optional.of("null"));
+  }
+
+  @Test
+  public void testNotLoaded() {
+    assertThat(createIndex(false).query("19", 1207014, "T", "")).isEqualTo(Optional.empty());
+    assertThat(new BeaconIndex(mutationRepository, cacheProperties(true)).query("19", 1207014, "T", ""))
+        .isEqualTo(Optional.empty());
+  }
+
+  private BeaconIndex createIndex(boolean enabled) {
+    BeaconIndex index = new BeaconIndex(mutationRepository, cacheProperties(enabled));
+    index.prepareRelease().run();
+
+    return index;
+  }
+
+  private static CacheProperties cacheProperties(boolean enableBeaconIndex) {
+    CacheProperties cacheProperties = new CacheProperties();
+    cacheProperties.setEnableBeaconIndex(enableBeaconIndex);
+
+    return cacheProperties;
+  }
+
+  private static Map<String, List<Object>> mutation(String chromosome, int start, int end, String mutation,
+      Object... projectIds) {
+    ImmutableMap.Builder<String, List<Object>> values = ImmutableMap.<String, List<Object>> builder()
+        .put("chromosome", ImmutableList.of(chromosome))
+        .put("chromosome_start", ImmutableList.of(start))
+        .put("chromosome_end", ImmutableList.of(end))
+        .put("mutation", ImmutableList.of(mutation));
+    if (projectIds.length > 0) {
+      values.put("ssm_occurrence.project._project_id", ImmutableList.copyOf(projectIds));
+    }
+
+    return values.build();
+  }
+
+}
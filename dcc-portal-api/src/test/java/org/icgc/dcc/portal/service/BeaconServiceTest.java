@@ -18,11 +18,14 @@
 package org.icgc.dcc.portal.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
 import org.icgc.dcc.portal.model.AlleleMutation;
 import org.icgc.dcc.portal.model.Beacon;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
+import org.icgc.dcc.portal.repository.MutationRepository;
 import org.icgc.dcc.portal.test.TestIndex;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,7 +40,8 @@ public class BeaconServiceTest extends BaseElasticSearchTest {
     es.execute(
         createIndexMappings(Type.MUTATION_CENTRIC)
             .withData(bulkFile("BeaconServiceTest.json")));
-    service = new BeaconService(es.client(), testIndex.getName());
+    service = new BeaconService(es.client(), testIndex.getModel(),
+        new BeaconIndex(mock(MutationRepository.class), new CacheProperties()));
   }
 
   @Test
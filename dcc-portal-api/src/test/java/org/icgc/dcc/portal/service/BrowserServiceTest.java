@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.util.JsonUtils.MAPPER;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.icgc.dcc.portal.model.IndexModel;
+import org.icgc.dcc.portal.repository.BrowserRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BrowserServiceTest {
+
+  private static final List<Long> MUTATION_STARTS = ImmutableList.of(5L, 20L, 300L, 1000L, 5000L, 20000L);
+
+  @Mock
+  BrowserRepository browserRepository;
+
+  BrowserService service;
+
+  @Before
+  public void setUp() {
+    doAnswer(invocation -> {
+      final Object[] arguments = invocation.getArguments();
+      return histogram((Long) arguments[0], (Long) arguments[2], (Long) arguments[3]);
+    }).when(browserRepository).getMutationHistogram(anyLong(), anyString(), anyLong(), anyLong(),
+        anyListOf(String.class), anyListOf(String.class), anyListOf(String.class));
+
+    service = new BrowserService(browserRepository, new IndexModel("test-index", "test-repo-index"));
+  }
+
+  @Test
+  public void testHistogram() {
+    val histogram = getMutationHistogram("1:1-1000", "100");
+
+    // Interval is rounded up to 128
+    assertThat(histogram.size()).isEqualTo(8);
+    assertThat(histogram.get(0).get("start").asLong()).isEqualTo(0);
+    assertThat(histogram.get(7).get("end").asLong()).isEqualTo(1023);
+    assertThat(getAbsolutes(histogram)).containsExactly(2L, 0L, 1L, 0L, 0L, 0L, 0L, 1L);
+    assertThat(histogram.get(0).get("value").asDouble()).isEqualTo(1.0);
+    assertThat(histogram.get(2).get("value").asDouble()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void testHistogramTilesAreShared() {
+    getMutationHistogram("1:1-1000", "128");
+    val histogram = getMutationHistogram("1:900-5100", "128");
+
+    assertThat(histogram.get(0).get("start").asLong()).isEqualTo(896);
+    assertThat(getAbsolutes(histogram)).startsWith(1L).endsWith(0L, 1L);
+    verify(browserRepository, times(1)).getMutationHistogram(eq(128L), eq("1"), eq(0L), eq(16383L),
+        anyListOf(String.class), anyListOf(String.class), anyListOf(String.class));
+  }
+
+  @Test
+  public void testHistogramMissingTiles() {
+    getMutationHistogram("1:1-1000", "128");
+    val histogram = getMutationHistogram("1:1-20000", "128");
+
+    assertThat(getAbsolutes(histogram).stream().mapToLong(Long::longValue).sum()).isEqualTo(6L);
+    verify(browserRepository, times(1)).getMutationHistogram(eq(128L), eq("1"), eq(16384L), eq(32767L),
+        anyListOf(String.class), anyListOf(String.class), anyListOf(String.class));
+  }
+
+  @Test
+  public void testHistogramIntervalRaisedForRange() {
+    val histogram = getMutationHistogram("1:1-100000000", "1");
+
+    // At most 10000 buckets of 100000000 bases need an interval of 10000, rounded up to 16384
+    assertThat(histogram.size()).isEqualTo(6104);
+    verify(browserRepository, times(1)).getMutationHistogram(eq(16384L), eq("1"), eq(0L), anyLong(),
+        anyListOf(String.class), anyListOf(String.class), anyListOf(String.class));
+  }
+
+  @Test
+  public void testHistogramIntervalMissing() {
+    assertThat(BrowserService.getHistogramInterval(ImmutableMap.of(), 0L, 1000L)).isEqualTo(1L);
+    assertThat(BrowserService.getHistogramInterval(ImmutableMap.of(), 0L, 1000000L)).isEqualTo(128L);
+    assertThat(BrowserService.getHistogramInterval(ImmutableMap.of("interval", "0"), 0L, 1000000L)).isEqualTo(128L);
+  }
+
+  @Test
+  public void testRecords() {
+    mockGenes(3, 10L, 10L, 100L);
+    val records = getGeneRecords("1:1-20000");
+
+    assertThat(records.size()).isEqualTo(1);
+    assertThat(getStarts(records.get(0))).containsExactly(10L, 10L, 100L);
+    assertThat(records.get(0).get(2).get("geneId").asInt()).isEqualTo(3);
+  }
+
+  @Test
+  public void testRecordsDownsampled() {
+    // More genes than can be rendered, so the window is split into bins of 2 bases
+    mockGenes(20000, 10L, 10L, 11L, 12L, 100L);
+    val records = getGeneRecords("1:1-20000");
+
+    assertThat(getStarts(records.get(0))).containsExactly(10L, 11L, 100L);
+    assertThat(records.get(0).get(2).get("geneId").asInt()).isEqualTo(3);
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testRecordsInvalidSegment() {
+    service.getRecords(ImmutableMap.of("segment", "1:1-20000,Z:1-2", "resource", "gene"));
+  }
+
+  @SneakyThrows
+  private JsonNode getGeneRecords(String segment) {
+    val records = service.getRecords(ImmutableMap.of("segment", segment, "resource", "gene"));
+
+    val writer = new StringWriter();
+    @Cleanup
+    val generator = MAPPER.getFactory().createGenerator(writer);
+    records.accept(generator);
+    generator.flush();
+
+    return MAPPER.readTree(writer.toString());
+  }
+
+  private void mockGenes(long total, Long... starts) {
+    val hits = Lists.<SearchHit> newArrayList();
+    for (val start : starts) {
+      hits.add(gene(start));
+    }
+
+    SearchHits searchHits = mock(SearchHits.class);
+    when(searchHits.getTotalHits()).thenReturn(total);
+    when(searchHits.iterator()).thenReturn(hits.iterator());
+
+    doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      final Consumer<SearchHits> consumer = (Consumer<SearchHits>) invocation.getArguments()[6];
+      consumer.accept(searchHits);
+      return null;
+    }).when(browserRepository).scrollGenes(anyString(), anyLong(), anyLong(), anyListOf(String.class),
+        anyBoolean(), anyListOf(String.class), any());
+  }
+
+  private static List<Long> getStarts(JsonNode features) {
+    val starts = Lists.<Long> newArrayList();
+    for (val feature : features) {
+      starts.add(feature.get("start").asLong());
+    }
+
+    return starts;
+  }
+
+  private static SearchHit gene(long start) {
+    val fields = ImmutableMap.<String, SearchHitField> builder()
+        .put("_gene_id", field("_gene_id", "ENSG" + start))
+        .put("name", field("name", "G" + start))
+        .put("biotype", field("biotype", "protein_coding"))
+        .put("chromosome", field("chromosome", "1"))
+        .put("start", field("start", start))
+        .put("end", field("end", start + 50))
+        .put("strand", field("strand", 1))
+        .build();
+
+    SearchHit hit = mock(SearchHit.class);
+    when(hit.getFields()).thenReturn(fields);
+    when(hit.field(anyString())).thenAnswer(invocation -> fields.get(invocation.getArguments()[0]));
+
+    return hit;
+  }
+
+  private static SearchHitField field(String name, Object value) {
+    SearchHitField field = mock(SearchHitField.class);
+    when(field.getName()).thenReturn(name);
+    when(field.getValue()).thenReturn(value);
+    when(field.getValues()).thenReturn(ImmutableList.of(value));
+
+    return field;
+  }
+
+  private JsonNode getMutationHistogram(String segment, String interval) {
+    Map<String, String> queryMap = ImmutableMap.of("segment", segment, "resource", "mutation", "interval", interval);
+    return MAPPER.valueToTree(service.getHistogram(queryMap));
+  }
+
+  private static List<Long> getAbsolutes(JsonNode histogram) {
+    val absolutes = Lists.<Long> newArrayList();
+    for (val bucket : histogram) {
+      absolutes.add(bucket.get("absolute").asLong());
+    }
+
+    return absolutes;
+  }
+
+  private static SearchResponse histogram(long interval, long start, long stop) {
+    val counts = Maps.<Long, Long> newTreeMap();
+    for (val mutationStart : MUTATION_STARTS) {
+      if (mutationStart >= start && mutationStart <= stop) {
+        counts.merge(mutationStart / interval * interval, 1L, Long::sum);
+      }
+    }
+
+    val buckets = Lists.<Histogram.Bucket> newArrayList();
+    for (val count : counts.entrySet()) {
+      Histogram.Bucket bucket = mock(Histogram.Bucket.class);
+      when(bucket.getKeyAsNumber()).thenReturn(count.getKey());
+      when(bucket.getDocCount()).thenReturn(count.getValue());
+      buckets.add(bucket);
+    }
+
+    Histogram histogram = mock(Histogram.class);
+    doReturn(buckets).when(histogram).getBuckets();
+    Aggregations aggregations = mock(Aggregations.class);
+    doReturn(histogram).when(aggregations).get("hf");
+    SearchResponse response = mock(SearchResponse.class);
+    when(response.getAggregations()).thenReturn(aggregations);
+
+    return response;
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.model.BaseEntitySet.Type.DONOR;
+import static org.icgc.dcc.portal.model.EntitySet.State.ERROR;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.icgc.dcc.portal.analysis.UnionAnalyzer;
+import org.icgc.dcc.portal.config.PortalProperties;
+import org.icgc.dcc.portal.model.DerivedEntitySetDefinition;
+import org.icgc.dcc.portal.model.EntitySet;
+import org.icgc.dcc.portal.model.EntitySetDefinition;
+import org.icgc.dcc.portal.model.UnionUnit;
+import org.icgc.dcc.portal.repository.EntityListRepository;
+import org.icgc.dcc.portal.repository.RepositoryFileRepository;
+import org.icgc.dcc.portal.repository.TermsLookupRepository;
+import org.icgc.dcc.portal.util.InstrumentedThreadPoolExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EntityListServiceTest {
+
+  private static final int DATA_VERSION = 2;
+
+  @Mock
+  EntityListRepository repository;
+  @Mock
+  TermsLookupRepository termsLookupRepository;
+  @Mock
+  RepositoryFileRepository repositoryFileRepository;
+  @Mock
+  UnionAnalyzer analyzer;
+
+  CountDownLatch release;
+  InstrumentedThreadPoolExecutor executor;
+  EntityListService service;
+
+  @Before
+  public void setUp() {
+    // One running and one queued job saturate the pool
+    release = new CountDownLatch(1);
+    executor = new InstrumentedThreadPoolExecutor("entity-list-service-test", 1, 1);
+    executor.execute(this::awaitRelease);
+    executor.execute(this::awaitRelease);
+
+    val properties = new PortalProperties();
+    properties.getRelease().setDataVersion(DATA_VERSION);
+    when(repository.save(any(EntitySet.class), anyInt())).thenReturn(1);
+
+    service = new EntityListService(repository, termsLookupRepository, repositoryFileRepository, repository, analyzer,
+        properties, null, executor);
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  public void testCreateEntityListRejected() {
+    val definition = new EntitySetDefinition("{}", "ssmAffectedGenes", null, "rejected", "", DONOR, 10, false);
+
+    val entitySet = service.createEntityList(definition, true);
+
+    assertThat(entitySet.getState()).isEqualTo(ERROR);
+    verify(repository).update(entitySet, DATA_VERSION);
+  }
+
+  @Test
+  public void testComputeEntityListRejected() {
+    val definition = new DerivedEntitySetDefinition(
+        ImmutableList.of(new UnionUnit(ImmutableSet.of(UUID.randomUUID()), ImmutableSet.of())),
+        "rejected", "", DONOR, false);
+    // What the @Async proxy throws when the set operation pool is saturated
+    doThrow(new RejectedExecutionException("The 'set-operation' job pool is saturated"))
+        .when(analyzer).combineListsAsync(any(UUID.class), eq(definition));
+
+    val entitySet = service.computeEntityList(definition, true);
+
+    assertThat(entitySet.getState()).isEqualTo(ERROR);
+    verify(repository).update(entitySet, DATA_VERSION);
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.val;
+
+public class IndexServiceTest extends BaseElasticSearchTest {
+
+  private static final String ALIAS = "test-icgc-release-alias";
+  private static final String INDEX_A = "test-icgc-release-a";
+  private static final String INDEX_B = "test-icgc-release-b";
+
+  private IndexService indexService;
+
+  @Before
+  public void setUp() {
+    createIndex(INDEX_A, "{\"release\":{\"_meta\":{\"build\":\"a\"}}}");
+    createIndex(INDEX_B, "{\"release\":{\"_meta\":{\"build\":\"b\"}}}");
+    es.client().admin().indices().prepareAliases()
+        .addAlias(INDEX_A, ALIAS)
+        .execute().actionGet();
+
+    indexService = new IndexService(es.client());
+  }
+
+  @Test
+  public void testResolveAlias() {
+    assertThat(indexService.getRealIndexName(ALIAS)).isEqualTo(INDEX_A);
+    assertThat(indexService.getRealIndexName(INDEX_B)).isEqualTo(INDEX_B);
+    assertThat(indexService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "a"));
+  }
+
+  @Test
+  public void testLookupsAreCachedUntilRefresh() {
+    indexService.getIndexMetaData(ALIAS);
+    moveAlias(INDEX_A, INDEX_B);
+
+    assertThat(indexService.getRealIndexName(ALIAS)).isEqualTo(INDEX_A);
+    assertThat(indexService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "a"));
+
+    indexService.refresh();
+
+    assertThat(indexService.getRealIndexName(ALIAS)).isEqualTo(INDEX_B);
+    assertThat(indexService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "b"));
+  }
+
+  @Test
+  public void testAliasIsKeptUntilMetaDataLoads() {
+    // An index without mappings has no _meta to serve
+    val unmapped = "test-icgc-release-unmapped";
+    es.client().admin().indices().prepareCreate(unmapped).execute().actionGet();
+
+    indexService.getIndexMetaData(ALIAS);
+    moveAlias(INDEX_A, unmapped);
+    indexService.refresh();
+
+    assertThat(indexService.getRealIndexName(ALIAS)).isEqualTo(INDEX_A);
+    assertThat(indexService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "a"));
+
+    moveAlias(unmapped, INDEX_B);
+    indexService.refresh();
+
+    assertThat(indexService.getRealIndexName(ALIAS)).isEqualTo(INDEX_B);
+    assertThat(indexService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "b"));
+  }
+
+  @Test
+  public void testBackgroundRefresh() throws InterruptedException {
+    val refreshingService = new IndexService(es.client(), 50, MILLISECONDS);
+    refreshingService.start();
+    try {
+      assertThat(refreshingService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "a"));
+      assertThat(findThread("index-alias-refresher-0").isDaemon()).isTrue();
+
+      moveAlias(INDEX_A, INDEX_B);
+
+      val deadline = System.nanoTime() + SECONDS.toNanos(10);
+      while (!refreshingService.getRealIndexName(ALIAS).equals(INDEX_B) && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+      }
+
+      assertThat(refreshingService.getRealIndexName(ALIAS)).isEqualTo(INDEX_B);
+      assertThat(refreshingService.getIndexMetaData(ALIAS)).isEqualTo(ImmutableMap.of("build", "b"));
+    } finally {
+      refreshingService.stop();
+    }
+  }
+
+  private void createIndex(String indexName, String mapping) {
+    es.client().admin().indices().prepareCreate(indexName)
+        .addMapping("release", mapping)
+        .execute().actionGet();
+  }
+
+  private void moveAlias(String fromIndexName, String toIndexName) {
+    es.client().admin().indices().prepareAliases()
+        .removeAlias(fromIndexName, ALIAS)
+        .addAlias(toIndexName, ALIAS)
+        .execute().actionGet();
+  }
+
+  private static Thread findThread(String name) {
+    for (val thread : Thread.getAllStackTraces().keySet()) {
+      if (name.equals(thread.getName())) {
+        return thread;
+      }
+    }
+
+    throw new AssertionError("No thread named " + name);
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.icgc.dcc.portal.analysis.EntitySetEngine;
+import org.icgc.dcc.portal.analysis.GeneSetMembership;
+import org.icgc.dcc.portal.config.PortalProperties.ElasticSearchProperties;
+import org.icgc.dcc.portal.filter.CachingFilter;
+import org.icgc.dcc.portal.filter.ResponseCacheFilter;
+import org.icgc.dcc.portal.model.IndexModel;
+import org.icgc.dcc.portal.model.Versions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseWatcherTest {
+
+  private static final String OLD_INDEX = "old-release";
+  private static final String NEW_INDEX = "new-release";
+
+  @Mock
+  IndexService indexService;
+  @Mock
+  CachingFilter cachingFilter;
+  @Mock
+  ResponseCacheFilter responseCacheFilter;
+  @Mock
+  ResponseCacheService responseCacheService;
+  @Mock
+  GeneService geneService;
+  @Mock
+  OccurrenceService occurrenceService;
+  @Mock
+  GeneSetMembership geneSetMembership;
+  @Mock
+  BeaconIndex beaconIndex;
+  @Mock
+  EntitySetEngine entitySetEngine;
+
+  IndexModel indexModel = new IndexModel(OLD_INDEX, "repository");
+  Versions versions = new Versions("api", "portal", "portalCommit", "oldCommit", OLD_INDEX);
+
+  /**
+   * Indices served while the release was being warmed up and while it was being switched over.
+   */
+  List<String> warmedUpIndices = Lists.newArrayList();
+  List<String> switchedIndices = Lists.newArrayList();
+
+  ReleaseWatcher watcher;
+
+  @Before
+  public void setUp() {
+    when(indexService.getIndexMetaData(NEW_INDEX)).thenReturn(ImmutableMap.of("git.commit.id.abbrev", "newCommit"));
+    when(cachingFilter.prepareRelease()).then(invocation -> prepareRelease());
+    when(responseCacheFilter.prepareRelease()).then(invocation -> prepareRelease());
+    when(geneService.prepareRelease()).then(invocation -> prepareRelease());
+    when(occurrenceService.prepareRelease()).then(invocation -> prepareRelease());
+    when(geneSetMembership.prepareRelease()).then(invocation -> prepareRelease());
+    when(beaconIndex.prepareRelease()).then(invocation -> prepareRelease());
+
+    watcher = new ReleaseWatcher(new ElasticSearchProperties(), indexService, indexModel, versions, cachingFilter,
+        responseCacheFilter, responseCacheService, geneService, occurrenceService, geneSetMembership, beaconIndex,
+        entitySetEngine);
+  }
+
+  @Test
+  public void testPollPublishesNewRelease() {
+    when(indexService.getRealIndexName(anyString())).thenReturn(NEW_INDEX);
+
+    watcher.poll();
+
+    assertThat(warmedUpIndices).hasSize(6).containsOnly(NEW_INDEX);
+    assertThat(switchedIndices).hasSize(6).containsOnly(NEW_INDEX);
+    assertThat(indexModel.getIndex()).isEqualTo(NEW_INDEX);
+    assertThat(versions.getIndexName()).isEqualTo(NEW_INDEX);
+    assertThat(versions.getIndexCommit()).isEqualTo("newCommit");
+    verify(entitySetEngine).clearCache();
+    verify(responseCacheService).clearCache();
+  }
+
+  @Test
+  public void testPollKeepsCurrentRelease() {
+    when(indexService.getRealIndexName(anyString())).thenReturn(OLD_INDEX);
+
+    watcher.poll();
+
+    verifyZeroInteractions(cachingFilter, responseCacheFilter, geneService, entitySetEngine, responseCacheService);
+    assertThat(indexModel.getIndex()).isEqualTo(OLD_INDEX);
+  }
+
+  @Test
+  public void testPollRetriesFailedWarmUp() {
+    when(indexService.getRealIndexName(anyString())).thenReturn(NEW_INDEX);
+    when(geneService.prepareRelease())
+        .thenThrow(new IllegalStateException("Warm up failed"))
+        .then(invocation -> prepareRelease());
+
+    watcher.poll();
+
+    assertThat(switchedIndices).isEmpty();
+    assertThat(indexModel.getIndex()).isEqualTo(OLD_INDEX);
+    assertThat(versions.getIndexName()).isEqualTo(OLD_INDEX);
+    verify(responseCacheService, never()).clearCache();
+
+    watcher.poll();
+
+    assertThat(switchedIndices).hasSize(6).containsOnly(NEW_INDEX);
+    assertThat(indexModel.getIndex()).isEqualTo(NEW_INDEX);
+  }
+
+  private Runnable prepareRelease() {
+    warmedUpIndices.add(indexModel.getIndex());
+
+    return () -> switchedIndices.add(indexModel.getIndex());
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.repository.TermsLookupRepository.TermLookupType.FILE_IDS;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.icgc.dcc.portal.config.PortalProperties;
+import org.icgc.dcc.portal.model.FiltersParam;
+import org.icgc.dcc.portal.model.IndexModel;
+import org.icgc.dcc.portal.model.IndexModel.Type;
+import org.icgc.dcc.portal.model.Query;
+import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
+import org.icgc.dcc.portal.repository.RepositoryFileRepository;
+import org.icgc.dcc.portal.repository.TermsLookupRepository;
+import org.icgc.dcc.portal.test.TestIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Compares the manifests of {@link RepositoryFileService} with the output of the original in-memory implementation,
+ * which grouped the file copies of a repository by download url regardless of their order.
+ * <p>
+ * See /dcc-portal/dcc-portal-api/src/test/resources/fixtures/RepositoryFileServiceManifestTest.json for the data.
+ * FI2001 and FI2003 share the download url of {@code shared.txt} in the {@code web} repository but are not adjacent in
+ * the scroll, and FI2001 and FI2002 share the data bundle, hence the GNOS url, of {@code pcawg-heidelberg}.
+ */
+public class RepositoryFileServiceManifestTest extends BaseElasticSearchTest {
+
+  private static final Date TIMESTAMP = new Date(1443223440000L);
+  private static final Query QUERY = Query.builder().filters(new FiltersParam("{}").get()).build();
+
+  private static final String TERMS_LOOKUP = "terms-lookup";
+
+  private static final String WEB_MANIFEST = "manifest.web." + TIMESTAMP.getTime() + ".txt";
+  private static final String GNOS_MANIFEST = "manifest.pcawg-heidelberg." + TIMESTAMP.getTime() + ".xml";
+  private static final String AWS_MANIFEST = "manifest.aws-virginia." + TIMESTAMP.getTime() + ".txt";
+
+  private static final List<String> WEB_CONTENT = ImmutableList.of(
+      "url\tfile_name\tfile_size\tmd5_sum\tstudy",
+      "https://web.example.org/data/shared.txt\tshared.txt,shared.txt\t1,3\tmd5-web-1,md5-web-3\tPCAWG,PCAWG",
+      "https://web.example.org/data/other.txt\tother.txt\t2\tmd5-web-2\tPCAWG");
+  private static final String GNOS_CONTENT = "<ResultSet date=\"\">"
+      + "<Result id=\"1\">"
+      + "<analysis_id>BU2001</analysis_id>"
+      + "<analysis_data_uri>https://gnos.example.org/cghub/data/analysis/download/BU2001</analysis_data_uri>"
+      + "<files>"
+      + "<file><filename>a.bam</filename><filesize>10</filesize><checksum type=\"md5\">md5-a</checksum></file>"
+      + "<file><filename>a.bam.bai</filename><filesize>20</filesize><checksum type=\"md5\">md5-a-bai</checksum></file>"
+      + "</files>"
+      + "</Result>"
+      + "</ResultSet>";
+  private static final String AWS_HEADER = "repo_code\tfile_id\tobject_id\tfile_format\tfile_name\tfile_size\tmd5_sum\t"
+      + "index_object_id\tdonor_id/donor_count\tproject_id/project_count\tstudy";
+  private static final String AWS_ROW_1 =
+      "aws-virginia\tFI2001\t00000000-0000-0000-0000-000000002001\tBAM\ta.bam\t10\tmd5-a\t\tDO2001\tPBCA-DE\tPCAWG";
+  private static final String AWS_ROW_2 =
+      "aws-virginia\tFI2002\t00000000-0000-0000-0000-000000002002\tBAM\tb.bam\t20\tmd5-b\t\tDO2002\tPBCA-DE\tPCAWG";
+  private static final String AWS_ROW_3 =
+      "aws-virginia\tFI2003\t00000000-0000-0000-0000-000000002003\tBAM\tc.bam\t30\tmd5-c\t\tDO2003\tBRCA-UK\tPCAWG";
+
+  private RepositoryFileService service;
+  private TermsLookupRepository termsLookupRepository;
+  private ExecutorService exportExecutor = newFixedThreadPool(2);
+
+  @Before
+  public void setUp() {
+    this.testIndex = TestIndex.REPOSITORY;
+
+    es.execute(createIndexMapping(Type.REPOSITORY_FILE_CENTRIC)
+        .withData(bulkFile(getClass())));
+    val repository = new RepositoryFileRepository(es.client(), testIndex.getName(), new IndexService(es.client()));
+    termsLookupRepository = new TermsLookupRepository(es.client(), new IndexModel(TERMS_LOOKUP, testIndex.getName()),
+        new PortalProperties());
+    service = new RepositoryFileService(repository, termsLookupRepository, new RepositoryFileStats(repository),
+        exportExecutor);
+  }
+
+  @After
+  public void tearDown() {
+    exportExecutor.shutdownNow();
+  }
+
+  @Test
+  @SneakyThrows
+  public void testManifestArchive() {
+    val output = new ByteArrayOutputStream();
+    service.generateManifestArchive(output, TIMESTAMP, QUERY, ImmutableList.of());
+
+    val manifests = readArchive(output.toByteArray());
+    assertThat(manifests.keySet()).containsExactly(WEB_MANIFEST, GNOS_MANIFEST, AWS_MANIFEST);
+    assertThat(lines(manifests.get(WEB_MANIFEST))).isEqualTo(WEB_CONTENT);
+    assertThat(compactXml(manifests.get(GNOS_MANIFEST))).isEqualTo(GNOS_CONTENT);
+    assertThat(lines(manifests.get(AWS_MANIFEST))).containsExactly(AWS_HEADER, AWS_ROW_1, AWS_ROW_2, AWS_ROW_3);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testManifestArchiveRepoInclusion() {
+    val output = new ByteArrayOutputStream();
+    service.generateManifestArchive(output, TIMESTAMP, QUERY, ImmutableList.of("pcawg-heidelberg", ""));
+
+    val manifests = readArchive(output.toByteArray());
+    assertThat(manifests.keySet()).containsExactly(GNOS_MANIFEST);
+    assertThat(compactXml(manifests.get(GNOS_MANIFEST))).isEqualTo(GNOS_CONTENT);
+  }
+
+  @Test
+  public void testManifestFileGroupsNonAdjacentUrls() {
+    val output = new ByteArrayOutputStream();
+    service.generateManifestFile(output, TIMESTAMP, QUERY, "web");
+
+    assertThat(lines(new String(output.toByteArray(), UTF_8))).isEqualTo(WEB_CONTENT);
+  }
+
+  @Test
+  public void testManifestFileGroupsDataBundle() {
+    val output = new ByteArrayOutputStream();
+    service.generateManifestFile(output, TIMESTAMP, QUERY, "pcawg-heidelberg");
+
+    assertThat(compactXml(new String(output.toByteArray(), UTF_8))).isEqualTo(GNOS_CONTENT);
+  }
+
+  @Test
+  public void testManifestFileFromSet() {
+    val setId = UUID.randomUUID();
+    termsLookupRepository.createTermsLookup(FILE_IDS, setId, ImmutableList.of("FI2001", "FI2003"), "AWS - Virginia");
+
+    val output = new ByteArrayOutputStream();
+    service.generateManifestFileFromSet(output, TIMESTAMP, setId.toString());
+
+    assertThat(lines(new String(output.toByteArray(), UTF_8))).containsExactly(AWS_HEADER, AWS_ROW_1, AWS_ROW_3);
+  }
+
+  @SneakyThrows
+  private static Map<String, String> readArchive(byte[] archive) {
+    @Cleanup
+    val tar = new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(archive)));
+
+    val manifests = Maps.<String, String> newLinkedHashMap();
+    TarArchiveEntry entry;
+    while ((entry = tar.getNextTarEntry()) != null) {
+      manifests.put(entry.getName(), IOUtils.toString(tar, UTF_8.name()));
+    }
+
+    return manifests;
+  }
+
+  private static List<String> lines(String manifest) {
+    return ImmutableList.copyOf(manifest.split("\r?\n"));
+  }
+
+  private static String compactXml(String manifest) {
+    return manifest.substring(manifest.indexOf("<ResultSet"))
+        .replaceAll(">\\s+<", "><")
+        .replaceAll("date=\"[^\"]*\"", "date=\"\"")
+        .trim();
+  }
+
+}
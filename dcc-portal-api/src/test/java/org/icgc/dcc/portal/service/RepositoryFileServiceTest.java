@@ -18,13 +18,24 @@
 package org.icgc.dcc.portal.service;
 
 import static com.google.common.io.Files.getFileExtension;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.apache.commons.lang.StringUtils.isBlank;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.icgc.dcc.common.core.util.Joiners.DOT;
 import static org.icgc.dcc.common.core.util.Splitters.WHITESPACE;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.supercsv.prefs.CsvPreference.TAB_PREFERENCE;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -34,6 +45,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.stream.XMLInputFactory;
@@ -44,12 +57,14 @@ import org.apache.commons.io.IOUtils;
 import org.codehaus.staxmate.SMInputFactory;
 import org.icgc.dcc.portal.config.PortalProperties;
 import org.icgc.dcc.portal.model.FiltersParam;
+import org.icgc.dcc.portal.model.IndexModel;
 import org.icgc.dcc.portal.model.IndexModel.Type;
 import org.icgc.dcc.portal.model.Query;
 import org.icgc.dcc.portal.repository.BaseElasticSearchTest;
 import org.icgc.dcc.portal.repository.RepositoryFileRepository;
 import org.icgc.dcc.portal.repository.TermsLookupRepository;
 import org.icgc.dcc.portal.test.TestIndex;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -110,6 +125,7 @@ public class RepositoryFileServiceTest extends BaseElasticSearchTest {
   }
 
   private RepositoryFileService service;
+  private ExecutorService exportExecutor = newFixedThreadPool(2);
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -121,9 +137,79 @@ public class RepositoryFileServiceTest extends BaseElasticSearchTest {
     // This creates and populates the test index with fixture data.
     es.execute(createIndexMapping(Type.REPOSITORY_FILE_CENTRIC)
         .withData(bulkFile(getClass())));
+    val repository = new RepositoryFileRepository(es.client(), testIndex.getName(), new IndexService(es.client()));
     service =
-        new RepositoryFileService(new RepositoryFileRepository(es.client(), testIndex.getName(), new IndexService()),
-            new TermsLookupRepository(es.client(), TERMS_LOOKUP, testIndex.getName(), new PortalProperties()));
+        new RepositoryFileService(repository,
+            new TermsLookupRepository(es.client(), new IndexModel(TERMS_LOOKUP, testIndex.getName()),
+                new PortalProperties()),
+            new RepositoryFileStats(repository), exportExecutor);
+  }
+
+  @After
+  public void tearDown() {
+    exportExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testExportTableData() {
+    val output = new ByteArrayOutputStream();
+    service.exportTableData(output, Query.builder().filters(EMPTY_FILTER).build(), false);
+
+    assertExportTableData(new String(output.toByteArray(), UTF_8));
+  }
+
+  @Test
+  @SneakyThrows
+  public void testExportTableDataCompressed() {
+    val output = new ByteArrayOutputStream();
+    service.exportTableData(output, Query.builder().filters(EMPTY_FILTER).build(), true);
+
+    @Cleanup
+    val input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()));
+    assertExportTableData(IOUtils.toString(input, UTF_8.name()));
+  }
+
+  @Test
+  public void testExportTableDataWaitsForSlicesOnFailure() {
+    val repository = mock(RepositoryFileRepository.class);
+    when(repository.getDataExportSliceCount()).thenReturn(2);
+    doThrow(new IllegalStateException("Slice 0 failed"))
+        .when(repository).scrollDataExport(any(Query.class), any(String[].class), eq(0), any());
+
+    val output = new ClosedFlagOutputStream();
+    val sliceFinished = new AtomicBoolean();
+    val outputClosedWhileRunning = new AtomicBoolean();
+    doAnswer(invocation -> {
+      Thread.sleep(200);
+      outputClosedWhileRunning.set(output.closed);
+      sliceFinished.set(true);
+
+      return null;
+    }).when(repository).scrollDataExport(any(Query.class), any(String[].class), eq(1), any());
+
+    val failingService = new RepositoryFileService(repository, mock(TermsLookupRepository.class),
+        mock(RepositoryFileStats.class), exportExecutor);
+    try {
+      failingService.exportTableData(output, Query.builder().filters(EMPTY_FILTER).build(), false);
+      fail("Expected the failure of slice 0");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+
+    assertThat(sliceFinished.get()).isTrue();
+    assertThat(outputClosedWhileRunning.get()).isFalse();
+    assertThat(output.closed).isTrue();
+  }
+
+  private static void assertExportTableData(String export) {
+    val lines = export.split("\r?\n");
+
+    // Header and both fixture documents, which may come in any order
+    assertThat(lines).hasSize(3);
+    assertThat(lines[0]).startsWith("Access\t");
+    for (val line : lines) {
+      assertThat(line.split("\t", -1)).hasSize(10);
+    }
   }
 
   @Test
@@ -172,6 +258,17 @@ public class RepositoryFileServiceTest extends BaseElasticSearchTest {
 
   }
 
+  private static class ClosedFlagOutputStream extends ByteArrayOutputStream {
+
+    volatile boolean closed;
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+  }
+
   private static boolean isXmlFile(String fileName) {
     return XML_FILE_EXTENSION.equalsIgnoreCase(getFileExtension(fileName));
   }
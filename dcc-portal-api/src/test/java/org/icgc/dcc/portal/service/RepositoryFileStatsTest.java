@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.icgc.dcc.portal.service.RepositoryFileStats.MAX_CACHED_STATS;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.icgc.dcc.portal.repository.RepositoryFileRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RepositoryFileStatsTest {
+
+  @InjectMocks
+  RepositoryFileStats stats;
+
+  @Mock
+  RepositoryFileRepository repositoryFileRepository;
+
+  @Before
+  public void setUp() {
+    when(repositoryFileRepository.getIndexMetaData()).thenReturn(ImmutableMap.of("build", "1"));
+    when(repositoryFileRepository.getRepoStats(anyString())).thenReturn(Collections.emptyMap());
+    when(repositoryFileRepository.getStudyStats(anyString())).thenReturn(Collections.emptyMap());
+  }
+
+  @Test
+  public void testRepoStatsAreCached() {
+    stats.getRepoStats("repo");
+    stats.getRepoStats("repo");
+
+    verify(repositoryFileRepository, times(1)).getRepoStats("repo");
+  }
+
+  @Test
+  public void testRepoStatsAreBounded() {
+    stats.getRepoStats("repo");
+    for (int i = 0; i < 10 * MAX_CACHED_STATS; i++) {
+      stats.getRepoStats("repo" + i);
+    }
+    stats.getRepoStats("repo");
+
+    verify(repositoryFileRepository, times(2)).getRepoStats("repo");
+  }
+
+  @Test
+  public void testStudyStatsAreBounded() {
+    stats.getStudyStats("study");
+    for (int i = 0; i < 10 * MAX_CACHED_STATS; i++) {
+      stats.getStudyStats("study" + i);
+    }
+    stats.getStudyStats("study");
+
+    verify(repositoryFileRepository, times(2)).getStudyStats("study");
+  }
+
+}
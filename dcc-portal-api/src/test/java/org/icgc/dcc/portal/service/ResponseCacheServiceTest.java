@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.icgc.dcc.portal.config.PortalProperties.CacheProperties;
+import org.icgc.dcc.portal.service.ResponseCacheService.CachedResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ResponseCacheServiceTest {
+
+  private static final Date OLD_RELEASE = new Date(1000L);
+  private static final Date NEW_RELEASE = new Date(2000L);
+
+  ResponseCacheService responseCache;
+
+  @Before
+  public void setUp() {
+    responseCache = new ResponseCacheService(new CacheProperties());
+    responseCache.publishRelease(OLD_RELEASE);
+  }
+
+  @Test
+  public void testGetAndPut() {
+    responseCache.put("key", OLD_RELEASE, response("old"));
+
+    assertThat(responseCache.get("key", OLD_RELEASE).get().getBody()).isEqualTo(body("old"));
+    assertThat(responseCache.get("other", OLD_RELEASE).isPresent()).isFalse();
+  }
+
+  @Test
+  public void testPublishReleaseInvalidates() {
+    responseCache.put("key", OLD_RELEASE, response("old"));
+    responseCache.publishRelease(NEW_RELEASE);
+
+    assertThat(responseCache.size()).isZero();
+    assertThat(responseCache.get("key", NEW_RELEASE).isPresent()).isFalse();
+  }
+
+  @Test
+  public void testInterleavedPutsOfOldAndNewRelease() {
+    // A request of the old release is still running when the new release is published
+    responseCache.publishRelease(NEW_RELEASE);
+    responseCache.put("key", NEW_RELEASE, response("new"));
+    responseCache.put("key", OLD_RELEASE, response("old"));
+    responseCache.put("other", OLD_RELEASE, response("old"));
+
+    assertThat(responseCache.get("key", NEW_RELEASE).get().getBody()).isEqualTo(body("new"));
+    assertThat(responseCache.get("other", NEW_RELEASE).isPresent()).isFalse();
+
+    // Lookups of requests that started before the switch are misses rather than entries of the new release
+    assertThat(responseCache.get("key", OLD_RELEASE).isPresent()).isFalse();
+
+    // Old requests never move the scope back
+    responseCache.put("other", OLD_RELEASE, response("old"));
+    assertThat(responseCache.get("key", NEW_RELEASE).isPresent()).isTrue();
+    assertThat(responseCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPublishReleaseNeverMovesBackwards() {
+    responseCache.publishRelease(NEW_RELEASE);
+    responseCache.put("key", NEW_RELEASE, response("new"));
+    responseCache.publishRelease(OLD_RELEASE);
+
+    assertThat(responseCache.get("key", NEW_RELEASE).isPresent()).isTrue();
+
+    responseCache.put("other", OLD_RELEASE, response("old"));
+    assertThat(responseCache.get("other", OLD_RELEASE).isPresent()).isFalse();
+  }
+
+  @Test
+  public void testPublishSameReleaseKeepsEntries() {
+    responseCache.put("key", OLD_RELEASE, response("old"));
+    responseCache.publishRelease(new Date(OLD_RELEASE.getTime()));
+
+    assertThat(responseCache.get("key", OLD_RELEASE).isPresent()).isTrue();
+  }
+
+  private static CachedResponse response(String body) {
+    return new CachedResponse("application/json", ImmutableMap.of(), body(body));
+  }
+
+  private static byte[] body(String body) {
+    return body.getBytes(UTF_8);
+  }
+
+}
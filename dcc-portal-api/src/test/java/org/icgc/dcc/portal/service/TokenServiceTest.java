@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 import java.util.Set;
 
 import org.icgc.dcc.portal.auth.oauth.OAuthClient;
+import org.icgc.dcc.portal.auth.oauth.TokenValidator;
 import org.icgc.dcc.portal.auth.oauth.UserScopesResponse;
 import org.icgc.dcc.portal.model.AccessToken;
 import org.icgc.dcc.portal.model.AccessTokenScopes.AccessTokenScope;
@@ -63,6 +64,8 @@ public class TokenServiceTest {
 
   @Mock
   OAuthClient client;
+  @Mock
+  TokenValidator tokenValidator;
 
   @Test
   public void createTest_successful() {
@@ -82,6 +85,7 @@ public class TokenServiceTest {
   public void deleteTest() {
     tokenService.delete(TOKEN_ID);
     verify(client).revokeToken(TOKEN_ID);
+    verify(tokenValidator).invalidate(TOKEN_ID);
   }
 
   @Test
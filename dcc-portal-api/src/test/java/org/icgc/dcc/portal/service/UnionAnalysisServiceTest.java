@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.model.BaseEntitySet.Type.DONOR;
+import static org.icgc.dcc.portal.model.UnionAnalysisResult.State.ERROR;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.icgc.dcc.portal.analysis.UnionAnalyzer;
+import org.icgc.dcc.portal.config.PortalProperties;
+import org.icgc.dcc.portal.model.UnionAnalysisRequest;
+import org.icgc.dcc.portal.model.UnionAnalysisResult;
+import org.icgc.dcc.portal.repository.UnionAnalysisRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UnionAnalysisServiceTest {
+
+  private static final int DATA_VERSION = 2;
+
+  @Mock
+  UnionAnalysisRepository repository;
+  @Mock
+  UnionAnalyzer analyzer;
+
+  UnionAnalysisService service;
+
+  @Before
+  public void setUp() {
+    val properties = new PortalProperties();
+    properties.getRelease().setDataVersion(DATA_VERSION);
+    when(repository.save(any(UnionAnalysisResult.class), anyInt())).thenReturn(1);
+
+    service = new UnionAnalysisService(repository, analyzer, properties);
+  }
+
+  @Test
+  public void testSubmitAnalysisRejected() {
+    val request = new UnionAnalysisRequest(ImmutableList.of(UUID.randomUUID(), UUID.randomUUID()), DONOR);
+    // What the @Async proxy throws when the set operation pool is saturated
+    doThrow(new RejectedExecutionException("The 'set-operation' job pool is saturated"))
+        .when(analyzer).calculateUnionUnitCounts(any(UUID.class), eq(request));
+
+    val analysis = service.submitAnalysis(request);
+
+    assertThat(analysis.getState()).isEqualTo(ERROR);
+    verify(repository).update(analysis, DATA_VERSION);
+  }
+
+}
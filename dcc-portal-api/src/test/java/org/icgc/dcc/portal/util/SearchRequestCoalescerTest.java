@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.portal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesce;
+import static org.icgc.dcc.portal.util.SearchRequestCoalescer.coalesceAsync;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.Test;
+
+import lombok.val;
+
+public class SearchRequestCoalescerTest {
+
+  @Test
+  public void testCoalesceIdentical() throws Exception {
+    val finish = new CountDownLatch(1);
+    val response = mock(SearchResponse.class);
+
+    val first = mockSearch("{\"size\":10}", () -> {
+      finish.await();
+      return response;
+    });
+    val second = mockSearch("{\"size\":10}", () -> mock(SearchResponse.class));
+
+    val firstResponse = coalesceAsync(first);
+    val secondResponse = coalesceAsync(second);
+    finish.countDown();
+
+    assertThat(firstResponse.get()).isSameAs(response);
+    assertThat(secondResponse.get()).isSameAs(response);
+    verify(second, never()).execute(any(ActionListener.class));
+  }
+
+  @Test
+  public void testExecuteDifferent() throws Exception {
+    val first = mock(SearchResponse.class);
+    val second = mock(SearchResponse.class);
+
+    assertThat(coalesce(mockSearch("{\"size\":10}", () -> first))).isSameAs(first);
+    assertThat(coalesce(mockSearch("{\"size\":20}", () -> second))).isSameAs(second);
+  }
+
+  @Test
+  public void testExecuteSequential() throws Exception {
+    val first = mock(SearchResponse.class);
+    val second = mock(SearchResponse.class);
+
+    // Completed executions are never reused
+    assertThat(coalesce(mockSearch("{\"size\":10}", () -> first))).isSameAs(first);
+    assertThat(coalesce(mockSearch("{\"size\":10}", () -> second))).isSameAs(second);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFailure() throws Exception {
+    coalesce(mockSearch("{\"size\":30}", () -> {
+      throw new IllegalStateException();
+    }));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SearchRequestBuilder mockSearch(String source, Callable<SearchResponse> execution) {
+    val search = mock(SearchRequestBuilder.class);
+    when(search.request()).thenReturn(new SearchRequest("index").types("type"));
+    when(search.toString()).thenReturn(source);
+    when(search.setListenerThreaded(true)).thenReturn(search);
+    doAnswer(invocation -> {
+      final ActionListener<SearchResponse> listener = (ActionListener<SearchResponse>) invocation.getArguments()[0];
+      new Thread(() -> {
+        try {
+          listener.onResponse(execution.call());
+        } catch (Exception e) {
+          listener.onFailure(e);
+        }
+      }).start();
+
+      return null;
+    }).when(search).execute(any(ActionListener.class));
+
+    return search;
+  }
+
+}
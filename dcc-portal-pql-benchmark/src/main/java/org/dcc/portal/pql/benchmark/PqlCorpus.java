@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.benchmark;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+import static org.dcc.portal.pql.meta.Type.DIAGRAM;
+import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.DRUG;
+import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.OBSERVATION_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.PROJECT;
+import static org.dcc.portal.pql.meta.Type.REPOSITORY_FILE;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.dcc.portal.pql.meta.Type;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Named PQL queries shaped like the ones the portal compiles for its pages: plain facet filters, filters across the
+ * nested donor, gene and mutation documents, huge {@code in} lists pasted by users and entity set filters.
+ */
+@UtilityClass
+public class PqlCorpus {
+
+  /**
+   * Constants.
+   */
+  private final int IN_LIST_SIZE = 1000;
+  private final String DONOR_SET_ID = "'b9b06e98-351a-4fd2-a86e-5071c78c66eb'";
+  private final String GENE_SET_ID = "'6f3a9fb4-3f5c-4e1b-8bfc-5b1d1e1fb2c7'";
+  private final String MUTATION_SET_ID = "'0c2b3f6e-1d8b-4b4e-9a8e-2f5f1b7f4a10'";
+
+  /**
+   * Filters the advanced search page sends for each of its tabs.
+   */
+  private final String DONOR_FILTERS = "in(donor.primarySite,'Brain','Blood'),in(donor.gender,'female')";
+  private final String NESTED_FILTERS =
+      "in(donor.projectId,'BRCA-US','LIRI-JP','PACA-CA'),"
+          + "or(missing(donor.tumourStageAtDiagnosis),in(donor.tumourStageAtDiagnosis,'T2N0M0')),"
+          + "in(gene.type,'protein_coding'),"
+          + "in(gene.pathwayId,'REACT_6326'),"
+          + "in(gene.goTermId,'GO:0003674'),"
+          + "in(mutation.consequenceType,'missense_variant','frameshift_variant','stop_gained'),"
+          + "in(mutation.functionalImpact,'High'),"
+          + "in(mutation.location,'chr12:43566-3457633'),"
+          + "not(in(mutation.platform,'Illumina GA sequencing'))";
+
+  private final Map<String, Query> QUERIES = ImmutableMap.<String, Query> builder()
+      .put("donor-facets", query(DONOR_CENTRIC, "select(*),facets(*),%s,limit(0,10)", DONOR_FILTERS))
+      .put("donor-count", query(DONOR_CENTRIC, "count(),%s", DONOR_FILTERS))
+      .put("donor-nested", query(DONOR_CENTRIC, "select(*),facets(*),%s,limit(0,10)", NESTED_FILTERS))
+      .put("donor-in-list", query(DONOR_CENTRIC, "select(*),facets(*),%s,limit(0,10)", inList("donor.id", "DO")))
+      .put("donor-entity-set", query(DONOR_CENTRIC, "select(*),facets(*),%s,limit(0,10)", entitySets()))
+      .put("gene-facets", query(GENE_CENTRIC, "select(*),facets(*),%s,limit(0,10)", DONOR_FILTERS))
+      .put("gene-nested", query(GENE_CENTRIC, "select(*),facets(*),%s,limit(0,10)", NESTED_FILTERS))
+      .put("gene-in-list", query(GENE_CENTRIC, "select(*),facets(*),%s,limit(0,10)", inList("gene.id", "ENSG")))
+      .put("gene-entity-set", query(GENE_CENTRIC, "select(*),facets(*),%s,limit(0,10)", entitySets()))
+      .put("mutation-facets", query(MUTATION_CENTRIC, "select(*),facets(*),%s,limit(0,10)", DONOR_FILTERS))
+      .put("mutation-nested", query(MUTATION_CENTRIC, "select(*),facets(*),%s,limit(0,10)", NESTED_FILTERS))
+      .put("mutation-in-list",
+          query(MUTATION_CENTRIC, "select(*),facets(*),%s,limit(0,10)", inList("mutation.id", "MU")))
+      .put("mutation-entity-set", query(MUTATION_CENTRIC, "select(*),facets(*),%s,limit(0,10)", entitySets()))
+      .put("observation-nested", query(OBSERVATION_CENTRIC, "select(*),%s,limit(0,100)", NESTED_FILTERS))
+      .put("project-facets",
+          query(PROJECT, "select(*),facets(*),%s,limit(0,100)", "in(primarySite,'Brain','Blood')"))
+      .put("file-facets", query(REPOSITORY_FILE, "select(*),facets(*),%s,limit(0,25)",
+          "in(projectCode,'BRCA-US','LIRI-JP'),in(dataType,'SSM'),in(repoName,'Collaboratory')"))
+      .put("drug-filter", query(DRUG, "select(*),%s,limit(0,10)", "in(drugClass,'fda')"))
+      .put("diagram-lookup", query(DIAGRAM, "select(*),%s", "in(pathwayId,'REACT_6326')"))
+      .build();
+
+  public Query get(@NonNull String name) {
+    final Query query = QUERIES.get(name);
+    if (query == null) {
+      throw new IllegalArgumentException(format("Unknown query '%s'. Known queries: %s", name, QUERIES.keySet()));
+    }
+
+    return query;
+  }
+
+  private Query query(Type type, String template, String filters) {
+    return new Query(type, format(template, filters));
+  }
+
+  private String inList(String field, String idPrefix) {
+    return IntStream.rangeClosed(1, IN_LIST_SIZE)
+        .mapToObj(i -> format("'%s%d'", idPrefix, i))
+        .collect(joining(",", "in(" + field + ",", ")"));
+  }
+
+  private String entitySets() {
+    return format("in(donor.entitySetId,%s),in(gene.entitySetId,%s),in(mutation.entitySetId,%s)",
+        DONOR_SET_ID, GENE_SET_ID, MUTATION_SET_ID);
+  }
+
+  @Value
+  public static class Query {
+
+    Type type;
+    String pql;
+
+  }
+
+}
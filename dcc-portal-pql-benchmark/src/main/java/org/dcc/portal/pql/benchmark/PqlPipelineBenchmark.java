@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.benchmark;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.dcc.portal.pql.ast.visitor.Visitors.createEsAstVisitor;
+import static org.dcc.portal.pql.meta.IndexModel.getTypeModel;
+
+import java.util.Optional;
+
+import org.dcc.portal.pql.ast.StatementNode;
+import org.dcc.portal.pql.es.ast.ExpressionNode;
+import org.dcc.portal.pql.es.utils.EsAstTransformer;
+import org.dcc.portal.pql.query.EsRequestBuilder;
+import org.dcc.portal.pql.query.PqlParser;
+import org.dcc.portal.pql.query.QueryContext;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lombok.val;
+
+/**
+ * Measures each stage of compiling a PQL query into an Elasticsearch request, the way {@code QueryEngine} does on a
+ * plan cache miss, for each query of the {@link PqlCorpus}.
+ * <p>
+ * The ES AST transformations are not guaranteed to leave their input intact, so they are measured together with the
+ * resolution they depend on: the cost of {@code transform} is that of {@link #resolveAndTransform()} less that of
+ * {@link #resolve()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PqlPipelineBenchmark {
+
+  /**
+   * Constants.
+   */
+  private static final String INDEX = "benchmark-index";
+
+  @Param({
+      "donor-facets", "donor-count", "donor-nested", "donor-in-list", "donor-entity-set",
+      "gene-facets", "gene-nested", "gene-in-list", "gene-entity-set",
+      "mutation-facets", "mutation-nested", "mutation-in-list", "mutation-entity-set",
+      "observation-nested",
+      "project-facets",
+      "file-facets",
+      "drug-filter",
+      "diagram-lookup" })
+  String query;
+
+  /**
+   * Dependencies.
+   */
+  Client client;
+  EsRequestBuilder requestBuilder;
+  EsAstTransformer transformer;
+
+  /**
+   * Inputs of the stages.
+   */
+  String pql;
+  QueryContext context;
+  StatementNode pqlAst;
+  ExpressionNode esAst;
+
+  @Setup
+  public void setUp() {
+    // Requests are only built, so the client never connects to anything
+    client = new TransportClient();
+    requestBuilder = new EsRequestBuilder(client);
+    transformer = new EsAstTransformer();
+
+    val corpusQuery = PqlCorpus.get(query);
+    pql = corpusQuery.getPql();
+    context = new QueryContext(INDEX, corpusQuery.getType());
+    pqlAst = PqlParser.parse(pql);
+    esAst = transformer.process(resolve(), context);
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+  }
+
+  @Benchmark
+  public StatementNode parse() {
+    return PqlParser.parse(pql);
+  }
+
+  @Benchmark
+  public ExpressionNode resolve() {
+    return pqlAst.accept(createEsAstVisitor(), Optional.of(getTypeModel(context.getType())));
+  }
+
+  @Benchmark
+  public ExpressionNode resolveAndTransform() {
+    return transformer.process(resolve(), context);
+  }
+
+  @Benchmark
+  public BytesReference build() {
+    return build(esAst);
+  }
+
+  @Benchmark
+  public BytesReference compile() {
+    val statement = PqlParser.parse(pql);
+    val resolved = statement.accept(createEsAstVisitor(), Optional.of(getTypeModel(context.getType())));
+
+    return build(transformer.process(resolved, context));
+  }
+
+  /**
+   * Builds the request and serializes its body, as executing it would.
+   */
+  private BytesReference build(ExpressionNode esAst) {
+    return requestBuilder.buildSearchRequest(esAst, context).internalBuilder().buildAsBytes();
+  }
+
+}
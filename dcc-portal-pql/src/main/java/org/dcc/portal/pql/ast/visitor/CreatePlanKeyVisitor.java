@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2015 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.ast.visitor;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import lombok.NonNull;
+import lombok.val;
+
+import org.dcc.portal.pql.ast.PqlNode;
+import org.dcc.portal.pql.ast.StatementNode;
+import org.dcc.portal.pql.ast.filter.AndNode;
+import org.dcc.portal.pql.ast.filter.EqNode;
+import org.dcc.portal.pql.ast.filter.EqualityFilterNode;
+import org.dcc.portal.pql.ast.filter.ExistsNode;
+import org.dcc.portal.pql.ast.filter.GeNode;
+import org.dcc.portal.pql.ast.filter.GtNode;
+import org.dcc.portal.pql.ast.filter.InNode;
+import org.dcc.portal.pql.ast.filter.LeNode;
+import org.dcc.portal.pql.ast.filter.LtNode;
+import org.dcc.portal.pql.ast.filter.MissingNode;
+import org.dcc.portal.pql.ast.filter.NeNode;
+import org.dcc.portal.pql.ast.filter.NestedNode;
+import org.dcc.portal.pql.ast.filter.NotNode;
+import org.dcc.portal.pql.ast.filter.OrNode;
+import org.dcc.portal.pql.ast.function.CountNode;
+import org.dcc.portal.pql.ast.function.FacetsNode;
+import org.dcc.portal.pql.ast.function.LimitNode;
+import org.dcc.portal.pql.ast.function.SelectNode;
+import org.dcc.portal.pql.ast.function.SortNode;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Creates a structural key of a PQL AST. Two ASTs have equal keys if and only if they consist of the same node types,
+ * attributes and children in the same order.
+ * <p>
+ * Unlike the rendered PQL the key keeps the type of values and cannot confuse quotes inside a value with value
+ * separators. It copies the attributes so it neither references nor reorders the visited AST.
+ */
+public class CreatePlanKeyVisitor extends PqlNodeVisitor<List<Object>, Void> {
+
+  @Override
+  public List<Object> visitStatement(@NonNull StatementNode node, Optional<Void> context) {
+    return key(node);
+  }
+
+  @Override
+  public List<Object> visitEq(@NonNull EqNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitNe(@NonNull NeNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitGt(@NonNull GtNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitGe(@NonNull GeNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitLt(@NonNull LtNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitLe(@NonNull LeNode node, Optional<Void> context) {
+    return visitEqualityNode(node);
+  }
+
+  @Override
+  public List<Object> visitAnd(@NonNull AndNode node, Optional<Void> context) {
+    return key(node);
+  }
+
+  @Override
+  public List<Object> visitOr(@NonNull OrNode node, Optional<Void> context) {
+    return key(node);
+  }
+
+  @Override
+  public List<Object> visitNot(@NonNull NotNode node, Optional<Void> context) {
+    return key(node);
+  }
+
+  @Override
+  public List<Object> visitNested(@NonNull NestedNode node, Optional<Void> context) {
+    return key(node, node.getPath());
+  }
+
+  @Override
+  public List<Object> visitExists(@NonNull ExistsNode node, Optional<Void> context) {
+    return key(node, node.getField());
+  }
+
+  @Override
+  public List<Object> visitMissing(@NonNull MissingNode node, Optional<Void> context) {
+    return key(node, node.getField());
+  }
+
+  @Override
+  public List<Object> visitIn(@NonNull InNode node, Optional<Void> context) {
+    return key(node, node.getField(), ImmutableList.copyOf(node.getValues()));
+  }
+
+  @Override
+  public List<Object> visitCount(@NonNull CountNode node, Optional<Void> context) {
+    return key(node);
+  }
+
+  @Override
+  public List<Object> visitFacets(@NonNull FacetsNode node, Optional<Void> context) {
+    return key(node, ImmutableList.copyOf(node.getFacets()));
+  }
+
+  @Override
+  public List<Object> visitLimit(@NonNull LimitNode node, Optional<Void> context) {
+    return key(node, node.getFrom(), node.getSize());
+  }
+
+  @Override
+  public List<Object> visitSelect(@NonNull SelectNode node, Optional<Void> context) {
+    return key(node, ImmutableList.copyOf(node.getFields()));
+  }
+
+  @Override
+  public List<Object> visitSort(@NonNull SortNode node, Optional<Void> context) {
+    // Map equality ignores order, which is significant for sorting
+    return key(node, ImmutableList.copyOf(node.getFields().entrySet()));
+  }
+
+  private List<Object> visitEqualityNode(EqualityFilterNode node) {
+    return key(node, node.getField(), node.getValue());
+  }
+
+  private List<Object> key(PqlNode node, Object... attributes) {
+    val children = node.getChildren().stream()
+        .map(child -> child.accept(this, Optional.<Void> empty()))
+        .collect(toList());
+
+    // Values may be null so plain lists are used
+    return Arrays.asList(node.type(), Arrays.asList(attributes), children);
+  }
+
+}
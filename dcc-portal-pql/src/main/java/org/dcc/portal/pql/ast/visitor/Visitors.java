@@ -24,6 +24,7 @@ import lombok.NoArgsConstructor;
 public final class Visitors {
 
   private static final CreatePqlStringVisitor PQL_STRING_VISITOR = new CreatePqlStringVisitor();
+  private static final CreatePlanKeyVisitor PLAN_KEY_VISITOR = new CreatePlanKeyVisitor();
   private static final CreatePqlAstVisitor CREATE_PQL_AST_VISITOR = new CreatePqlAstVisitor();
   private static final CreateEsAstVisitor CREATE_ES_AST_VISITOR = new CreateEsAstVisitor();
 
@@ -31,6 +32,10 @@ public final class Visitors {
     return PQL_STRING_VISITOR;
   }
 
+  public static CreatePlanKeyVisitor createPlanKeyVisitor() {
+    return PLAN_KEY_VISITOR;
+  }
+
   public static CreatePqlAstVisitor createPqlAstVisitor() {
     return CREATE_PQL_AST_VISITOR;
   }
@@ -20,15 +20,12 @@ package org.dcc.portal.pql.es.utils;
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.dcc.portal.pql.es.utils.Visitors.createAggregationsResolverVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createEmptyNodesCleanerVisitor;
-import static org.dcc.portal.pql.es.utils.Visitors.createEntitySetVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createFieldsToSourceVisitor;
-import static org.dcc.portal.pql.es.utils.Visitors.createGeneSetFilterVisitor;
-import static org.dcc.portal.pql.es.utils.Visitors.createLocationFilterVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createFilterRewriteVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createMissingAggregationVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createNestedAggregationVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createQuerySimplifierVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createRemoveAggregationFilterVisitor;
-import static org.dcc.portal.pql.es.utils.Visitors.createResolveNestedFieldVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createScoreSortVisitor;
 import static org.dcc.portal.pql.meta.IndexModel.getDiagramTypeModel;
 import static org.dcc.portal.pql.meta.IndexModel.getDonorCentricTypeModel;
@@ -65,7 +62,11 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Performs series of transformations to resolve different processing rules and to optimize the AST
+ * Performs series of transformations to resolve different processing rules and to optimize the AST.<br>
+ * <br>
+ * The independent filter rewrites are fused into a single traversal (see {@link #resolveSpecialCases}). The remaining
+ * steps depend on each other and run in order: facets are resolved against the nested filters, the score wraps the
+ * resolved query and the optimization cleans up after all of them.
  */
 @Slf4j
 @NoArgsConstructor
@@ -86,11 +87,6 @@ public class EsAstTransformer {
   public ExpressionNode process(@NonNull ExpressionNode esAst, @NonNull QueryContext context) {
     log.debug("Running all ES AST Transformators. Original ES AST: {}", esAst);
     esAst = resolveSpecialCases(esAst, context);
-
-    log.debug("Resolving filters on nested fields...");
-    esAst = esAst.accept(createResolveNestedFieldVisitor(), Optional.of(context.getTypeModel())).get();
-    log.debug("Resolved nested filters. Resulting AST: {}", esAst);
-
     esAst = resolveFacets(esAst, context.getTypeModel());
     esAst = score(esAst, context);
     esAst = optimize(esAst);
@@ -108,6 +104,10 @@ public class EsAstTransformer {
     return result;
   }
 
+  /**
+   * Moves object fields to {@code _source}, adds sorting by score and rewrites the filters. EntitySets, GeneSets,
+   * locations and filters on nested fields are resolved in a single traversal of the query.
+   */
   public ExpressionNode resolveSpecialCases(@NonNull ExpressionNode esAst, @NonNull QueryContext context) {
     val tag = "[resoveSpecialCases]";
     log.debug("Resolving the special cases...");
@@ -116,21 +116,13 @@ public class EsAstTransformer {
     esAst = esAst.accept(createFieldsToSourceVisitor(), Optional.of(context)).get();
     log.debug("{} Moved object fields to _source. Resulting AST: {}", tag, esAst);
 
-    log.debug("{} Resolving EntitySets...", tag);
-    esAst = esAst.accept(createEntitySetVisitor(), Optional.of(context)).get();
-    log.debug("{} Resolved EntitySets. Resulting AST: {}", tag, esAst);
-
     log.debug("{} Resolving sorting by score...", tag);
     esAst = esAst.accept(createScoreSortVisitor(), Optional.empty());
     log.debug("{} Resolved sorting by score. Resulting AST: {}", tag, esAst);
 
-    log.debug("{} Resolving GeneSets...", tag);
-    esAst = esAst.accept(createGeneSetFilterVisitor(), Optional.of(context)).get();
-    log.debug("{} Resolved GeneSets. Resulting AST: {}", tag, esAst);
-
-    log.debug("{} Resolving location filters...", tag);
-    esAst = esAst.accept(createLocationFilterVisitor(), Optional.of(context)).get();
-    log.debug("{} Resolved location filters. Resulting AST: {}", tag, esAst);
+    log.debug("{} Resolving EntitySets, GeneSets, locations and nested fields...", tag);
+    esAst = esAst.accept(createFilterRewriteVisitor(), Optional.of(context)).get();
+    log.debug("{} Resolved filters. Resulting AST: {}", tag, esAst);
 
     return esAst;
   }
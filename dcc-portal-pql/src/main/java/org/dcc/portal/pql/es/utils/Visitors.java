@@ -53,6 +53,7 @@ import org.dcc.portal.pql.es.visitor.score.NonNestedFieldsVisitor;
 import org.dcc.portal.pql.es.visitor.score.ScoreQueryVisitor;
 import org.dcc.portal.pql.es.visitor.special.EntitySetVisitor;
 import org.dcc.portal.pql.es.visitor.special.FieldsToSourceVisitor;
+import org.dcc.portal.pql.es.visitor.special.FilterRewriteVisitor;
 import org.dcc.portal.pql.es.visitor.special.GeneSetFilterVisitor;
 import org.dcc.portal.pql.es.visitor.special.LocationFilterVisitor;
 import org.dcc.portal.pql.es.visitor.special.ScoreSortVisitor;
@@ -118,6 +119,7 @@ public final class Visitors {
   private static final ResolveNestedFilterFieldVisitor RESOLVE_NESTED_FIELD_VISITOR =
       new ResolveNestedFilterFieldVisitor();
   private static final VerifyNestedFilterVisitor VERIFY_NESTED_FILTER_VISITOR = new VerifyNestedFilterVisitor();
+  private static final FilterRewriteVisitor FILTER_REWRITE_VISITOR = new FilterRewriteVisitor();
 
   private static final Map<Type, ScoreQueryVisitor> META_TYPE_SCORE_VISITOR_MAPPING =
       ImmutableMap.<Type, ScoreQueryVisitor> builder()
@@ -163,6 +165,10 @@ public final class Visitors {
     return FIELDS_TO_SOURCE_VISITOR;
   }
 
+  public static FilterRewriteVisitor createFilterRewriteVisitor() {
+    return FILTER_REWRITE_VISITOR;
+  }
+
   public static EntitySetVisitor createEntitySetVisitor() {
     return ENTITY_SET_VISITOR;
   }
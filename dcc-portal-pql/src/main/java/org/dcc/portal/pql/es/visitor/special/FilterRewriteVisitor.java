@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.es.visitor.special;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.dcc.portal.pql.es.utils.VisitorHelpers.checkOptional;
+import static org.dcc.portal.pql.es.utils.Visitors.createResolveNestedFieldVisitor;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.dcc.portal.pql.es.ast.ExpressionNode;
+import org.dcc.portal.pql.es.ast.NestedNode;
+import org.dcc.portal.pql.es.ast.RootNode;
+import org.dcc.portal.pql.es.ast.filter.BoolNode;
+import org.dcc.portal.pql.es.ast.filter.ExistsNode;
+import org.dcc.portal.pql.es.ast.filter.FilterNode;
+import org.dcc.portal.pql.es.ast.filter.MissingNode;
+import org.dcc.portal.pql.es.ast.filter.MustBoolNode;
+import org.dcc.portal.pql.es.ast.filter.NotNode;
+import org.dcc.portal.pql.es.ast.filter.RangeNode;
+import org.dcc.portal.pql.es.ast.filter.ShouldBoolNode;
+import org.dcc.portal.pql.es.ast.filter.TermNode;
+import org.dcc.portal.pql.es.ast.filter.TermsNode;
+import org.dcc.portal.pql.es.ast.query.QueryNode;
+import org.dcc.portal.pql.es.visitor.NodeVisitor;
+import org.dcc.portal.pql.es.visitor.ResolveNestedFilterFieldVisitor;
+import org.dcc.portal.pql.meta.TypeModel;
+import org.dcc.portal.pql.query.QueryContext;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+import lombok.val;
+
+/**
+ * Resolves the special filters and encloses filters on nested fields in {@link NestedNode}s in a single traversal of
+ * the {@link QueryNode}.<br>
+ * <br>
+ * Produces the same AST as running {@link EntitySetVisitor}, {@link GeneSetFilterVisitor},
+ * {@link LocationFilterVisitor} and {@link ResolveNestedFilterFieldVisitor} one after another. The special visitors
+ * match disjoint fields, so at most one of them rewrites a given filter. Their results are then resolved the same way
+ * {@link ResolveNestedFilterFieldVisitor} would resolve them.
+ */
+public class FilterRewriteVisitor extends NodeVisitor<Optional<ExpressionNode>, QueryContext> {
+
+  /**
+   * The visitors are stateless. Own instances avoid a circular initialization with {@code Visitors}.
+   */
+  private static final List<NodeVisitor<Optional<ExpressionNode>, QueryContext>> SPECIAL_FILTER_VISITORS =
+      ImmutableList.<NodeVisitor<Optional<ExpressionNode>, QueryContext>> of(
+          new EntitySetVisitor(),
+          new GeneSetFilterVisitor(),
+          new LocationFilterVisitor());
+
+  /**
+   * {@link ResolveNestedFilterFieldVisitor} does not descend into {@link NestedNode}s. This flag turns off the nested
+   * fields resolution for their subtrees, while the special filters are still resolved.
+   */
+  private final boolean resolveNestedFields;
+  private final FilterRewriteVisitor nestedNodeVisitor;
+
+  public FilterRewriteVisitor() {
+    this(true);
+  }
+
+  private FilterRewriteVisitor(boolean resolveNestedFields) {
+    this.resolveNestedFields = resolveNestedFields;
+    this.nestedNodeVisitor = resolveNestedFields ? new FilterRewriteVisitor(false) : this;
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitRoot(@NonNull RootNode node, @NonNull Optional<QueryContext> context) {
+    checkOptional(context);
+    val typeModel = Optional.of(context.get().getTypeModel());
+
+    for (int i = 0; i < node.childrenCount(); i++) {
+      val child = node.getChild(i);
+
+      // Only the query is subject to the special filters. The rest of the tree is only resolved for nested fields.
+      val result = child instanceof QueryNode ? child.accept(this, context) : child.accept(
+          createResolveNestedFieldVisitor(), typeModel);
+      if (result.isPresent()) {
+        replaceChild(node, i, result.get());
+      }
+    }
+
+    return Optional.of(node);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitQuery(@NonNull QueryNode node, @NonNull Optional<QueryContext> context) {
+    checkState(node.childrenCount() == 1, "Malformed QueryNode %s", node);
+
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitFilter(@NonNull FilterNode node, @NonNull Optional<QueryContext> context) {
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitBool(@NonNull BoolNode node, @NonNull Optional<QueryContext> context) {
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitMustBool(@NonNull MustBoolNode node, @NonNull Optional<QueryContext> context) {
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitShouldBool(@NonNull ShouldBoolNode node,
+      @NonNull Optional<QueryContext> context) {
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitNot(@NonNull NotNode node, @NonNull Optional<QueryContext> context) {
+    return visitChildren(this, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitNested(@NonNull NestedNode node, @NonNull Optional<QueryContext> context) {
+    return visitChildren(nestedNodeVisitor, node, context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitTerms(@NonNull TermsNode node, @NonNull Optional<QueryContext> context) {
+    return resolveNestedField(node.getField(), node, resolveSpecialFilter(node, context), context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitTerm(@NonNull TermNode node, @NonNull Optional<QueryContext> context) {
+    val field = node.getNameNode().getValueAsString();
+
+    return resolveNestedField(field, node, resolveSpecialFilter(node, context), context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitRange(@NonNull RangeNode node, @NonNull Optional<QueryContext> context) {
+    return resolveNestedField(node.getFieldName(), node, Optional.empty(), context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitExists(@NonNull ExistsNode node, @NonNull Optional<QueryContext> context) {
+    return resolveNestedField(node.getField(), node, Optional.empty(), context);
+  }
+
+  @Override
+  public Optional<ExpressionNode> visitMissing(@NonNull MissingNode node, @NonNull Optional<QueryContext> context) {
+    return resolveNestedField(node.getField(), node, Optional.empty(), context);
+  }
+
+  private static Optional<ExpressionNode> resolveSpecialFilter(ExpressionNode node, Optional<QueryContext> context) {
+    for (val visitor : SPECIAL_FILTER_VISITORS) {
+      val result = node.accept(visitor, context);
+
+      // GeneSetFilterVisitor returns the node itself when there is nothing to resolve
+      if (result.isPresent() && result.get() != node) {
+        return result;
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  private Optional<ExpressionNode> resolveNestedField(String field, ExpressionNode node,
+      Optional<ExpressionNode> specialFilter, Optional<QueryContext> context) {
+    if (!resolveNestedFields) {
+      return specialFilter;
+    }
+
+    val typeModel = context.get().getTypeModel();
+    if (specialFilter.isPresent()) {
+      val result = specialFilter.get().accept(createResolveNestedFieldVisitor(), Optional.of(typeModel));
+
+      return result.isPresent() ? result : specialFilter;
+    }
+
+    return encloseInNestedNode(field, node, typeModel);
+  }
+
+  /**
+   * Unlike {@link ResolveNestedFilterFieldVisitor} moves the {@code node} to the {@link NestedNode} instead of cloning
+   * it. The parent is restored by {@link #replaceChild(ExpressionNode, int, ExpressionNode)}.
+   */
+  private static Optional<ExpressionNode> encloseInNestedNode(String field, ExpressionNode node, TypeModel typeModel) {
+    if (!typeModel.isNested(field)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new NestedNode(typeModel.getNestedPath(field), node));
+  }
+
+  private static Optional<ExpressionNode> visitChildren(FilterRewriteVisitor visitor, ExpressionNode parent,
+      Optional<QueryContext> context) {
+    for (int i = 0; i < parent.childrenCount(); i++) {
+      val result = parent.getChild(i).accept(visitor, context);
+      if (result.isPresent()) {
+        replaceChild(parent, i, result.get());
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  private static void replaceChild(ExpressionNode parent, int index, ExpressionNode newChild) {
+    val oldChild = parent.getChild(index);
+    parent.setChild(index, newChild);
+
+    // setChild() detaches the old child. Re-attach it if it was moved to the new child.
+    if (newChild.childrenCount() == 1 && newChild.getFirstChild() == oldChild) {
+      oldChild.setParent(newChild);
+    }
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.query;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Adapts Elasticsearch {@link ActionListener}s to {@link CompletableFuture}s.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class ActionFutures {
+
+  /**
+   * Executes {@code request} without blocking the calling thread.
+   * <p>
+   * The future is completed on an Elasticsearch listener thread rather than on a transport thread, so that dependent
+   * stages never hold up network I/O.
+   */
+  public static <T extends ActionResponse> CompletableFuture<T> execute(
+      @NonNull ActionRequestBuilder<?, T, ?> request) {
+    val future = new CompletableFuture<T>();
+    request.setListenerThreaded(true);
+    request.execute(new ActionListener<T>() {
+
+      @Override
+      public void onResponse(T response) {
+        future.complete(response);
+      }
+
+      @Override
+      public void onFailure(Throwable e) {
+        future.completeExceptionally(e);
+      }
+
+    });
+
+    return future;
+  }
+
+  /**
+   * Waits for {@code future} and rethrows its failure as is, as {@code actionGet()} would.
+   */
+  @SneakyThrows
+  public static <T> T join(@NonNull CompletableFuture<T> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException | CompletionException e) {
+      throw e.getCause();
+    }
+  }
+
+}
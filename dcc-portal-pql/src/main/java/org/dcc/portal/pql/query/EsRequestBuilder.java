@@ -17,11 +17,15 @@
  */
 package org.dcc.portal.pql.query;
 
+import static com.google.common.collect.Iterables.toArray;
 import static org.dcc.portal.pql.es.utils.Visitors.createAggregationBuilderVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.createQueryBuilderVisitor;
 import static org.dcc.portal.pql.es.utils.Visitors.filterBuilderVisitor;
 import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
 import static org.elasticsearch.action.search.SearchType.COUNT;
+import static org.elasticsearch.index.query.FilterBuilders.boolFilter;
+import static org.elasticsearch.index.query.FilterBuilders.matchAllFilter;
+import static org.elasticsearch.index.query.FilterBuilders.queryFilter;
 
 import java.util.Collection;
 import java.util.Optional;
@@ -43,8 +47,11 @@ import org.dcc.portal.pql.es.ast.query.QueryNode;
 import org.dcc.portal.pql.es.visitor.NodeVisitor;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 
+import com.google.common.collect.Lists;
+
 @Slf4j
 @RequiredArgsConstructor
 public class EsRequestBuilder {
@@ -92,6 +99,27 @@ public class EsRequestBuilder {
     return result;
   }
 
+  /**
+   * Builds a single filter that matches exactly the documents counted by the hit total of the request built from
+   * {@code esAst}, i.e. the documents matching both its query and its post filter.
+   */
+  public FilterBuilder buildCountFilter(@NonNull ExpressionNode esAst, @NonNull QueryContext queryContext) {
+    val clauses = Lists.<FilterBuilder> newArrayList();
+    for (val child : esAst.getChildren()) {
+      if (child instanceof FilterNode) {
+        clauses.add(toBuilder(child, filterBuilderVisitor(), queryContext));
+      } else if (child instanceof QueryNode) {
+        clauses.add(queryFilter(toBuilder(child, createQueryBuilderVisitor(), queryContext)));
+      }
+    }
+
+    if (clauses.isEmpty()) {
+      return matchAllFilter();
+    }
+
+    return clauses.size() == 1 ? clauses.get(0) : boolFilter().must(toArray(clauses, FilterBuilder.class));
+  }
+
   private static void addAggregations(SearchRequestBuilder result, ExpressionNode aggregations, QueryContext context) {
     log.debug("Adding aggregations for AggregationsNode\n{}", aggregations);
 
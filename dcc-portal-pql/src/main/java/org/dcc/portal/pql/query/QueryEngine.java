@@ -19,71 +19,123 @@ package org.dcc.portal.pql.query;
 
 import static java.lang.String.format;
 import static org.dcc.portal.pql.ast.visitor.Visitors.createEsAstVisitor;
+import static org.dcc.portal.pql.ast.visitor.Visitors.createPlanKeyVisitor;
 import static org.dcc.portal.pql.meta.IndexModel.getTypeModel;
-import static org.dcc.portal.pql.meta.Type.DIAGRAM;
-import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
-import static org.dcc.portal.pql.meta.Type.DRUG;
-import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
-import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
-import static org.dcc.portal.pql.meta.Type.OBSERVATION_CENTRIC;
-import static org.dcc.portal.pql.meta.Type.PROJECT;
-import static org.dcc.portal.pql.meta.Type.REPOSITORY_FILE;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 import org.dcc.portal.pql.ast.StatementNode;
 import org.dcc.portal.pql.es.ast.ExpressionNode;
 import org.dcc.portal.pql.es.utils.EsAstTransformer;
 import org.dcc.portal.pql.meta.Type;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.FilterBuilder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class QueryEngine {
 
+  public static final int DEFAULT_PLAN_CACHE_SIZE = 1000;
+
   private static final EsAstTransformer esAstTransformator = new EsAstTransformer();
   private final EsRequestBuilder requestBuilder;
 
-  private final QueryContext donorContext;
-  private final QueryContext geneContext;
-  private final QueryContext mutationContext;
-  private final QueryContext observationContext;
-  private final QueryContext projectContext;
-  private final QueryContext repositoryFileContext;
-  private final QueryContext drugContext;
-  private final QueryContext diagramContext;
+  /**
+   * Compiled (parsed, resolved and transformed) ES ASTs keyed by type and PQL string or AST structure. The cached ASTs
+   * are never modified after they are compiled so they are shared between executions. Each execution builds its own
+   * request from them because callers are free to modify the returned {@link QueryRequest}.
+   */
+  private final Cache<PlanKey, ExpressionNode> planCache;
+
+  /**
+   * Name of the index requests are built against, read for every request so that it may change over time.
+   */
+  private final Supplier<String> index;
 
   public QueryEngine(@NonNull Client client, @NonNull String index) {
-    this.requestBuilder = new EsRequestBuilder(client);
+    this(client, index, DEFAULT_PLAN_CACHE_SIZE);
+  }
 
-    this.donorContext = new QueryContext(index, DONOR_CENTRIC);
-    this.geneContext = new QueryContext(index, GENE_CENTRIC);
-    this.mutationContext = new QueryContext(index, MUTATION_CENTRIC);
-    this.observationContext = new QueryContext(index, OBSERVATION_CENTRIC);
-    this.projectContext = new QueryContext(index, PROJECT);
-    this.repositoryFileContext = new QueryContext(index, REPOSITORY_FILE);
-    this.drugContext = new QueryContext(index, DRUG);
-    this.diagramContext = new QueryContext(index, DIAGRAM);
+  public QueryEngine(@NonNull Client client, @NonNull String index, int planCacheSize) {
+    this(client, () -> index, planCacheSize);
+  }
+
+  public QueryEngine(@NonNull Client client, @NonNull Supplier<String> index, int planCacheSize) {
+    this.requestBuilder = new EsRequestBuilder(client);
+    this.planCache = CacheBuilder.newBuilder()
+        .maximumSize(planCacheSize)
+        .recordStats()
+        .build();
+    this.index = index;
   }
 
   public QueryRequest execute(@NonNull String pql, @NonNull Type type) {
-    val pqlAst = PqlParser.parse(pql);
-    return execute(pqlAst, type);
+    val esAst = getPlan(new PlanKey(type, pql.trim()), () -> PqlParser.parse(pql));
+    return buildRequest(esAst, type);
   }
 
   public QueryRequest execute(@NonNull StatementNode pqlAst, @NonNull Type type) {
-    ExpressionNode esAst = resolvePqlAst(pqlAst, type);
-    log.debug("Resolved PQL AST into ES AST: {}", esAst);
+    val esAst = getPlan(new PlanKey(type, createKey(pqlAst)), () -> pqlAst);
+    return buildRequest(esAst, type);
+  }
+
+  /**
+   * Compiles {@code pqlAst} into a filter matching the documents a count of it would report, so that many counts can
+   * be evaluated as filter aggregations of a single request.
+   */
+  public FilterBuilder executeAsCountFilter(@NonNull StatementNode pqlAst, @NonNull Type type) {
+    val esAst = getPlan(new PlanKey(type, createKey(pqlAst)), () -> pqlAst);
+    return requestBuilder.buildCountFilter(esAst, createQueryContext(type));
+  }
 
-    val context = createQueryContext(type);
-    esAst = esAstTransformator.process(esAst, context);
+  public CacheStats getPlanCacheStats() {
+    return planCache.stats();
+  }
+
+  public long getPlanCacheSize() {
+    return planCache.size();
+  }
 
-    val result = new QueryRequest(requestBuilder.buildSearchRequest(esAst, context));
+  public void clearCache() {
+    log.info("Clearing PQL plan cache.");
+    planCache.invalidateAll();
+  }
 
-    return result;
+  private QueryRequest buildRequest(ExpressionNode esAst, Type type) {
+    return new QueryRequest(requestBuilder.buildSearchRequest(esAst, createQueryContext(type)));
+  }
+
+  @SneakyThrows
+  private ExpressionNode getPlan(PlanKey key, Supplier<StatementNode> source) {
+    try {
+      return planCache.get(key, () -> compile(source.get(), key.getType()));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // Surface parse and validation errors as if the plan had been compiled inline
+      throw e.getCause();
+    }
+  }
+
+  private static Object createKey(StatementNode pqlAst) {
+    return pqlAst.accept(createPlanKeyVisitor(), Optional.empty());
+  }
+
+  private ExpressionNode compile(StatementNode pqlAst, Type type) {
+    ExpressionNode esAst = resolvePqlAst(pqlAst, type);
+    log.debug("Resolved PQL AST into ES AST: {}", esAst);
+
+    return esAstTransformator.process(esAst, createQueryContext(type));
   }
 
   private static ExpressionNode resolvePqlAst(StatementNode pqlAst, Type type) {
@@ -93,23 +145,29 @@ public class QueryEngine {
   private QueryContext createQueryContext(Type type) {
     switch (type) {
     case DONOR_CENTRIC:
-      return donorContext;
     case GENE_CENTRIC:
-      return geneContext;
     case MUTATION_CENTRIC:
-      return mutationContext;
     case OBSERVATION_CENTRIC:
-      return observationContext;
     case PROJECT:
-      return projectContext;
     case REPOSITORY_FILE:
-      return repositoryFileContext;
     case DRUG:
-      return drugContext;
     case DIAGRAM:
-      return diagramContext;
+      return new QueryContext(index.get(), type);
     default:
       throw new IllegalArgumentException(format("Type %s is not supported", type.getId()));
     }
   }
+
+  @Value
+  private static class PlanKey {
+
+    Type type;
+
+    /**
+     * The trimmed PQL string, or the structural key of a PQL AST.
+     */
+    Object source;
+
+  }
+
 }
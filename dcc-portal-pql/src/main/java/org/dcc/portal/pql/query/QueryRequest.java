@@ -17,13 +17,23 @@
  */
 package org.dcc.portal.pql.query;
 
+import java.util.concurrent.CompletableFuture;
+
 import lombok.Value;
 
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
 
 @Value
 public class QueryRequest {
 
   SearchRequestBuilder requestBuilder;
 
+  /**
+   * Executes the request without blocking the calling thread.
+   */
+  public CompletableFuture<SearchResponse> executeAsync() {
+    return ActionFutures.execute(requestBuilder);
+  }
+
 }
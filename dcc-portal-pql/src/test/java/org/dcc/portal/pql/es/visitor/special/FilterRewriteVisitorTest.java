@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.dcc.portal.pql.es.visitor.special;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.dcc.portal.pql.es.utils.Visitors.createEntitySetVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createFieldsToSourceVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createGeneSetFilterVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createLocationFilterVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createResolveNestedFieldVisitor;
+import static org.dcc.portal.pql.es.utils.Visitors.createScoreSortVisitor;
+import static org.dcc.portal.pql.meta.Type.DONOR_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
+import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
+import static org.dcc.portal.pql.utils.Tests.createEsAst;
+import static org.dcc.portal.pql.utils.Tests.initQueryContext;
+
+import java.util.Optional;
+
+import org.dcc.portal.pql.es.ast.ExpressionNode;
+import org.dcc.portal.pql.meta.Type;
+import org.dcc.portal.pql.query.EsRequestBuilder;
+import org.dcc.portal.pql.query.QueryContext;
+import org.dcc.portal.pql.utils.BaseElasticsearchTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import lombok.val;
+
+public class FilterRewriteVisitorTest extends BaseElasticsearchTest {
+
+  private EsRequestBuilder requestBuilder;
+
+  @Before
+  public void setUp() {
+    requestBuilder = new EsRequestBuilder(es.client());
+  }
+
+  @Test
+  public void entitySetTest() {
+    assertSameAsSequential("in(donor.entitySetId, 'ID1')", DONOR_CENTRIC, GENE_CENTRIC, MUTATION_CENTRIC);
+    assertSameAsSequential("not(in(mutation.entitySetId, 'ID1'))", DONOR_CENTRIC, GENE_CENTRIC, MUTATION_CENTRIC);
+    assertSameAsSequential("or(in(gene.entitySetId, 'ID1'), in(gene.id, 'G1'))", DONOR_CENTRIC, MUTATION_CENTRIC);
+  }
+
+  @Test
+  public void geneSetTest() {
+    assertSameAsSequential("in(gene.goTermId, 'GO:0003674')", DONOR_CENTRIC, GENE_CENTRIC, MUTATION_CENTRIC);
+    assertSameAsSequential("eq(gene.goTermId, 'GO:0003674')", DONOR_CENTRIC, GENE_CENTRIC, MUTATION_CENTRIC);
+    assertSameAsSequential("in(gene.geneSetId, '123'), exists(gene.pathwayId)", DONOR_CENTRIC, GENE_CENTRIC,
+        MUTATION_CENTRIC);
+    assertSameAsSequential("nested(gene, in(gene.geneSetId, '123'), eq(gene.id, 'G1'))", DONOR_CENTRIC);
+  }
+
+  @Test
+  public void locationTest() {
+    assertSameAsSequential("eq(mutation.location, 'chr1:1-41020906')", DONOR_CENTRIC, GENE_CENTRIC,
+        MUTATION_CENTRIC);
+    assertSameAsSequential("in(gene.location, 'chr12:123-456', 'chr22')", DONOR_CENTRIC, GENE_CENTRIC,
+        MUTATION_CENTRIC);
+  }
+
+  @Test
+  public void nestedFieldsTest() {
+    assertSameAsSequential("eq(gender, 'male'), eq(gene.id, 'G1'), missing(mutation.id)", DONOR_CENTRIC);
+    assertSameAsSequential("or(eq(gene.id, 'G1'), not(exists(mutation.consequenceType)))", DONOR_CENTRIC);
+    assertSameAsSequential("eq(mutation.id, 'M1')", GENE_CENTRIC);
+    assertSameAsSequential("not(eq(gene.id, 'G1'))", MUTATION_CENTRIC);
+  }
+
+  @Test
+  public void facetsTest() {
+    assertSameAsSequential("facets(*), in(gene.geneSetId, '123'), in(donor.entitySetId, 'ID1')", DONOR_CENTRIC,
+        GENE_CENTRIC, MUTATION_CENTRIC);
+  }
+
+  private void assertSameAsSequential(String pql, Type... types) {
+    for (val type : types) {
+      val context = initQueryContext(type);
+
+      val expected = processSequentially(createEsAst(pql, type), context);
+      val result = esAstTransformator.process(createEsAst(pql, type), context);
+
+      val expectedRequest = requestBuilder.buildSearchRequest(expected, context);
+      val resultRequest = requestBuilder.buildSearchRequest(result, context);
+
+      assertThat(resultRequest.toString()).as("%s on %s", pql, type).isEqualTo(expectedRequest.toString());
+      assertParents(result);
+    }
+  }
+
+  /**
+   * Runs the transformations the way {@link org.dcc.portal.pql.es.utils.EsAstTransformer} did before the filter
+   * rewrites were fused, one traversal per rewrite.
+   */
+  private ExpressionNode processSequentially(ExpressionNode esAst, QueryContext context) {
+    val optionalContext = Optional.of(context);
+
+    esAst = esAst.accept(createFieldsToSourceVisitor(), optionalContext).get();
+    esAst = esAst.accept(createEntitySetVisitor(), optionalContext).get();
+    esAst = esAst.accept(createScoreSortVisitor(), Optional.empty());
+    esAst = esAst.accept(createGeneSetFilterVisitor(), optionalContext).get();
+    esAst = esAst.accept(createLocationFilterVisitor(), optionalContext).get();
+    esAst = esAst.accept(createResolveNestedFieldVisitor(), Optional.of(context.getTypeModel())).get();
+    esAst = esAstTransformator.resolveFacets(esAst, context.getTypeModel());
+    esAst = esAstTransformator.score(esAst, context);
+
+    return esAstTransformator.optimize(esAst);
+  }
+
+  private static void assertParents(ExpressionNode node) {
+    for (val child : node.getChildren()) {
+      assertThat(child.getParent()).isSameAs(node);
+      assertParents(child);
+    }
+  }
+
+}
@@ -20,6 +20,7 @@ package org.dcc.portal.pql.query;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.dcc.portal.pql.meta.Type.GENE_CENTRIC;
 import static org.dcc.portal.pql.meta.Type.MUTATION_CENTRIC;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -97,6 +98,17 @@ public class EsRequestBuilderTest extends BaseElasticsearchTest {
     assertTotalHitsCount(result, 1);
   }
 
+  @Test
+  public void countFilterTest() {
+    assertThat(countWithFilter("count()")).isEqualTo(3);
+    assertThat(countWithFilter("count(), gt(start, 60000000)")).isEqualTo(1);
+  }
+
+  @Test
+  public void countFilterTest_nested() {
+    assertThat(countWithFilter("count(), in(sequencingStrategy, 'WGA', 'WGD')")).isEqualTo(2);
+  }
+
   @Test
   public void inTest() {
     val result = executeQuery("in(chromosome, '1', '2')");
@@ -443,6 +455,17 @@ public class EsRequestBuilderTest extends BaseElasticsearchTest {
     return result;
   }
 
+  private long countWithFilter(String query) {
+    val countFilter = visitor.buildCountFilter(createTree(query), queryContext);
+    val result = es.client().prepareSearch(INDEX_NAME)
+        .setTypes(MUTATION_CENTRIC.getId())
+        .addAggregation(filter("count").filter(countFilter))
+        .execute().actionGet();
+    Filter count = result.getAggregations().get("count");
+
+    return count.getDocCount();
+  }
+
   private static SearchHit getFirstSearchResult(SearchResponse response) {
     return response.getHits().getAt(0);
   }
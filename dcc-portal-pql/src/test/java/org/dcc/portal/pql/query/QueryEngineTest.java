@@ -18,6 +18,8 @@
 package org.dcc.portal.pql.query;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.dcc.portal.pql.ast.builder.FilterBuilders.in;
+import static org.dcc.portal.pql.ast.builder.PqlBuilders.search;
 import static org.dcc.portal.pql.ast.function.FunctionBuilders.limit;
 import static org.dcc.portal.pql.utils.Tests.initQueryContext;
 
@@ -139,6 +141,65 @@ public class QueryEngineTest {
     assertThat(termsNode.path("donor_sex").get(1).asText()).isEqualTo("female");
   }
 
+  @Test
+  public void testPlanCacheHit() {
+    val queryEngine = new QueryEngine(client, context.getIndex());
+    val query = "in(gender, 'male', 'female')";
+
+    val first = queryEngine.execute(query, context.getType()).getRequestBuilder();
+    val second = queryEngine.execute(" " + query + " ", context.getType()).getRequestBuilder();
+
+    assertThat(queryEngine.getPlanCacheStats().missCount()).isEqualTo(1);
+    assertThat(queryEngine.getPlanCacheStats().hitCount()).isEqualTo(1);
+    assertThat(getSource(second)).isEqualTo(getSource(first));
+  }
+
+  @Test
+  public void testPlanCacheReturnsIndependentRequests() {
+    val queryEngine = new QueryEngine(client, context.getIndex());
+    val query = "in(gender, 'male', 'female')";
+
+    queryEngine.execute(query, context.getType()).getRequestBuilder().setSize(5);
+    val request = queryEngine.execute(query, context.getType()).getRequestBuilder();
+
+    assertThat(getSource(request).path("size")).isExactlyInstanceOf(MissingNode.class);
+  }
+
+  @Test
+  public void testPlanCacheHitFromPqlAst() {
+    val queryEngine = new QueryEngine(client, context.getIndex());
+
+    queryEngine.execute(search().filter(in("gender", "male", "female")).build(), context.getType());
+    queryEngine.execute(search().filter(in("gender", "male", "female")).build(), context.getType());
+
+    assertThat(queryEngine.getPlanCacheStats().missCount()).isEqualTo(1);
+    assertThat(queryEngine.getPlanCacheStats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPlanCacheDistinguishesPqlAstsRenderedAlike() {
+    val queryEngine = new QueryEngine(client, context.getIndex());
+    val quoted = search().filter(in("gender", "male','female")).build();
+    val separate = search().filter(in("gender", "male", "female")).build();
+    assertThat(quoted.toString()).isEqualTo(separate.toString());
+
+    queryEngine.execute(quoted, context.getType());
+    val request = queryEngine.execute(separate, context.getType()).getRequestBuilder();
+
+    assertThat(queryEngine.getPlanCacheSize()).isEqualTo(2);
+    assertThat(getSource(request).toString()).contains("\"female\"");
+  }
+
+  @Test
+  public void testPlanCacheClear() {
+    val queryEngine = new QueryEngine(client, context.getIndex());
+    queryEngine.execute("select(id)", context.getType());
+    assertThat(queryEngine.getPlanCacheSize()).isEqualTo(1);
+
+    queryEngine.clearCache();
+    assertThat(queryEngine.getPlanCacheSize()).isEqualTo(0);
+  }
+
   private SearchRequestBuilder executeQuery(String query) {
     return queryEngine.execute(query, context.getType()).getRequestBuilder();
   }